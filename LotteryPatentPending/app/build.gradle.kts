@@ -39,7 +39,12 @@ android {
 
     testOptions {
         unitTests.all {
-            it.useJUnit()
+            it.useJUnit {
+                // large-input suites only run with -Pbenchmarks
+                if (!project.hasProperty("benchmarks")) {
+                    excludeCategories("com.example.lotterypatentpending.Benchmarks")
+                }
+            }
         }
     }
 
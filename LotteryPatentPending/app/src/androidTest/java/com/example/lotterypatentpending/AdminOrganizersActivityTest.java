@@ -20,11 +20,9 @@ import androidx.test.core.app.ActivityScenario;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
 import com.example.lotterypatentpending.models.Event;
+import com.example.lotterypatentpending.models.EventSummary;
 import com.example.lotterypatentpending.models.FirebaseManager;
 import com.example.lotterypatentpending.models.User;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.QuerySnapshot;
-import com.google.firebase.firestore.ListenerRegistration;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -52,7 +50,7 @@ public class AdminOrganizersActivityTest {
     private Event eventA;
     private Event eventB;
     private List<User> initialUserList;
-    private List<Event> initialEventList;
+    private List<EventSummary> initialEventList;
 
     @Before
     public void setUp() {
@@ -69,47 +67,40 @@ public class AdminOrganizersActivityTest {
 
         initialUserList = Arrays.asList(organizer1, organizer2, nonOrganizer);
 
-        initialEventList = Arrays.asList(eventA, eventB);
+        initialEventList = Arrays.asList(EventSummary.of(eventA), EventSummary.of(eventB));
     }
 
     /**
-     * Helper to create a mocked QuerySnapshot from a list of Users for the getAllUsers call.
+     * Helper to answer a getUsers call from a list of Users: one entry per
+     * requested id, null where the user isn't in {@code users}.
      */
-    private QuerySnapshot createMockQuerySnapshot(List<User> users) {
-        QuerySnapshot mockSnapshot = mock(QuerySnapshot.class);
-        List<DocumentSnapshot> mockDocs = new ArrayList<>();
-
-        for (User user : users) {
-            DocumentSnapshot doc = mock(DocumentSnapshot.class);
-
-            doAnswer(invocation -> user.getUserId()).when(doc).getId();
-
-            doAnswer(invocation -> user).when(doc).toObject(User.class);
-
-            mockDocs.add(doc);
-        }
-
-        doAnswer(invocation -> mockDocs).when(mockSnapshot).iterator();
-        doAnswer(invocation -> mockDocs).when(mockSnapshot).getDocuments();
-
-        return mockSnapshot;
+    private Answer<Void> usersAnswer(List<User> users) {
+        return invocation -> {
+            List<String> ids = invocation.getArgument(0);
+            FirebaseManager.FirebaseCallback<List<User>> callback = invocation.getArgument(1);
+            List<User> out = new ArrayList<>();
+            for (String id : ids) {
+                User match = null;
+                for (User u : users) {
+                    if (u.getUserId().equals(id)) match = u;
+                }
+                out.add(match);
+            }
+            callback.onSuccess(out);
+            return null;
+        };
     }
 
     // --- Mocking Setup for Initial Load ---
 
     private void mockInitialLoad() {
         doAnswer((Answer<Void>) invocation -> {
-            FirebaseManager.FirebaseCallback<ArrayList<Event>> callback = invocation.getArgument(0);
+            FirebaseManager.FirebaseCallback<ArrayList<EventSummary>> callback = invocation.getArgument(0);
             callback.onSuccess(new ArrayList<>(initialEventList));
             return null;
-        }).when(mockFirebaseManager).getAllEvents(any());
+        }).when(mockFirebaseManager).getAllEventSummaries(any());
 
-        QuerySnapshot initialSnapshot = createMockQuerySnapshot(initialUserList);
-        doAnswer((Answer<Void>) invocation -> {
-            FirebaseManager.FirebaseCallback<QuerySnapshot> callback = invocation.getArgument(0);
-            callback.onSuccess(initialSnapshot);
-            return null;
-        }).when(mockFirebaseManager).getAllUsers(any());
+        doAnswer(usersAnswer(initialUserList)).when(mockFirebaseManager).getUsers(any(), any());
     }
 
     @Test
@@ -137,26 +128,11 @@ public class AdminOrganizersActivityTest {
     public void testDeleteOrganizer_ConfirmsAndDeleteAndReloads() {
         mockInitialLoad();
 
-        QuerySnapshot initialSnapshot = createMockQuerySnapshot(initialUserList);
         List<User> remainingUserList = Arrays.asList(organizer2, new User("user_id", "Charlie User", "charlie@test.com", "789", false));
-        QuerySnapshot remainingSnapshot = createMockQuerySnapshot(remainingUserList);
 
-        doAnswer((Answer<Void>) invocation -> {
-            FirebaseManager.FirebaseCallback<ArrayList<Event>> callback = invocation.getArgument(0);
-            callback.onSuccess(new ArrayList<>(initialEventList));
-            return null;
-        }).when(mockFirebaseManager).getAllEvents(any());
-
-        doAnswer((Answer<Void>) invocation -> {
-            FirebaseManager.FirebaseCallback<QuerySnapshot> callback = invocation.getArgument(0);
-            callback.onSuccess(initialSnapshot);
-            return null;
-        })
-                .doAnswer((Answer<Void>) invocation -> {
-                    FirebaseManager.FirebaseCallback<QuerySnapshot> callback = invocation.getArgument(0);
-                    callback.onSuccess(remainingSnapshot);
-                    return null;
-                }).when(mockFirebaseManager).getAllUsers(any());
+        doAnswer(usersAnswer(initialUserList))
+                .doAnswer(usersAnswer(remainingUserList))
+                .when(mockFirebaseManager).getUsers(any(), any());
 
         ActivityScenario.launch(AdminOrganizersActivity.class);
 
@@ -6,20 +6,21 @@ import android.util.Log;
 import android.view.KeyEvent;
 import android.view.inputmethod.EditorInfo;
 import android.widget.ArrayAdapter;
-import android.widget.ListView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.RecyclerView;
 
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
 import com.example.lotterypatentpending.adapters.EventListAdapter;
+import com.example.lotterypatentpending.data.EventSearchIndex;
 import com.example.lotterypatentpending.helpers.LoadingOverlay;
-import com.example.lotterypatentpending.models.Event;
+import com.example.lotterypatentpending.models.EventSummary;
 import com.example.lotterypatentpending.models.FirebaseManager;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
@@ -39,18 +40,23 @@ public class AdminEventsFragment extends Fragment {
 
     private TextInputEditText searchInput;
     private MaterialButton searchButton;
-    private ListView listView;
+    private RecyclerView listView;
 
     // all events from Firestore
-    private final ArrayList<Event> allEvents = new ArrayList<>();
+    private final ArrayList<EventSummary> allEvents = new ArrayList<>();
     // events currently shown (after filtering)
-    private final ArrayList<Event> visibleEvents = new ArrayList<>();
+    private final ArrayList<EventSummary> visibleEvents = new ArrayList<>();
+    // title, tag and location index over allEvents
+    private final EventSearchIndex searchIndex = new EventSearchIndex();
 
     private ListenerRegistration eventsListener;
 
     private EventListAdapter eventListAdapter;
     private LoadingOverlay loading;
 
+    // the counter reconciliation job runs once per app process
+    private static boolean countersReconciled = false;
+
     public AdminEventsFragment() {
         // Required empty public constructor
     }
@@ -85,12 +91,13 @@ public class AdminEventsFragment extends Fragment {
         loading = new LoadingOverlay(overlayView, null);
 
         // Set up adapter with visibleEvents
-        eventListAdapter = new EventListAdapter(requireContext(), visibleEvents);
+        eventListAdapter = new EventListAdapter();
         listView.setAdapter(eventListAdapter);
 
         // Load all events initially
         loading.show();
         loadEventsFromFirebase();
+        reconcileCountersOnce();
 
         // Search button click
         searchButton.setOnClickListener(view -> filterEvents());
@@ -110,34 +117,27 @@ public class AdminEventsFragment extends Fragment {
         });
 
         // Long press → delete event (from filtered list)
-        listView.setOnItemLongClickListener((parent, view, position, id) -> {
-            if (position < 0 || position >= visibleEvents.size()) return true;
-
-            Event selectedEvent = visibleEvents.get(position);
-
-            new AlertDialog.Builder(requireContext())
-                    .setTitle("Delete Event")
-                    .setMessage("Are you sure you want to delete the event \"" +
-                            selectedEvent.getTitle() + "\"?")
-                    .setPositiveButton("Delete", (dialog, which) -> removeEvent(selectedEvent))
-                    .setNegativeButton("Cancel", null)
-                    .show();
-
-            return true;
-        });
+        eventListAdapter.setOnEventLongClickListener(selectedEvent ->
+                new AlertDialog.Builder(requireContext())
+                        .setTitle("Delete Event")
+                        .setMessage("Are you sure you want to delete the event \"" +
+                                selectedEvent.getTitle() + "\"?")
+                        .setPositiveButton("Delete", (dialog, which) -> removeEvent(selectedEvent))
+                        .setNegativeButton("Cancel", null)
+                        .show());
     }
     /**
-     * Refreshes the ListView when visible event data changes.
+     * Shows visibleEvents; only rows that changed are rebound.
      */
 
     private void refreshList() {
-        eventListAdapter.notifyDataSetChanged();
+        eventListAdapter.submitEvents(visibleEvents);
     }
 
     /**
      * Deletes an event from Firestore and reloads the list.
      */
-    private void removeEvent(Event event) {
+    private void removeEvent(EventSummary event) {
         loading.show();
         firebaseManager.deleteEvent(event.getId());
         Toast.makeText(requireContext(),
@@ -147,13 +147,33 @@ public class AdminEventsFragment extends Fragment {
         loadEventsFromFirebase();
     }
 
+    /**
+     * Repairs waiting list counters that drifted from the entries, in the background.
+     */
+    private void reconcileCountersOnce() {
+        if (countersReconciled) return;
+        countersReconciled = true;
+        firebaseManager.reconcileAllStateCounts(new FirebaseManager.FirebaseCallback<Integer>() {
+            @Override
+            public void onSuccess(Integer repaired) {
+                Log.i("AdminEventsFragment", "Counter reconciliation repaired " + repaired + " documents");
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                countersReconciled = false;
+                Log.e("AdminEventsFragment", "Counter reconciliation failed", e);
+            }
+        });
+    }
+
     /**
      * Loads all events from Firestore and populates allEvents + visibleEvents.
      */
     private void loadEventsFromFirebase() {
-        eventsListener = firebaseManager.getAllEventsLive(new FirebaseManager.FirebaseCallback<ArrayList<Event>>() {
+        eventsListener = firebaseManager.getAllEventSummariesLive(new FirebaseManager.FirebaseCallback<ArrayList<EventSummary>>() {
             @Override
-            public void onSuccess(ArrayList<Event> result) {
+            public void onSuccess(ArrayList<EventSummary> result) {
                 if (!isAdded()) return;
 
                 allEvents.clear();
@@ -163,6 +183,7 @@ public class AdminEventsFragment extends Fragment {
                     allEvents.addAll(result);
                     visibleEvents.addAll(result);
                 }
+                searchIndex.update(allEvents);
 
                 refreshList();
                 if (loading != null) loading.hide();
@@ -193,7 +214,7 @@ public class AdminEventsFragment extends Fragment {
     }
 
     /**
-     * Filters visibleEvents by title using the text in the search bar.
+     * Filters visibleEvents by title, tag and location using the text in the search bar.
      */
     private void filterEvents() {
         String query = "";
@@ -210,14 +231,7 @@ public class AdminEventsFragment extends Fragment {
             return;
         }
 
-        ArrayList<Event> matches = new ArrayList<>();
-        for (Event e : allEvents) {
-            String title = e.getTitle();
-            if (title != null &&
-                    title.toLowerCase().contains(query.toLowerCase())) {
-                matches.add(e);
-            }
-        }
+        List<EventSummary> matches = searchIndex.search(new EventSearchIndex.Filter().text(query));
 
         if (matches.isEmpty()) {
             Toast.makeText(requireContext(),
@@ -68,6 +68,7 @@ public class AdminLogAdapter extends ListAdapter<NotificationLog, AdminLogAdapte
                             && oldItem.getCategory().equals(newItem.getCategory())
                             && safeEquals(oldItem.getPayloadPreview(), newItem.getPayloadPreview())
                             && safeEquals(oldItem.getRecipientIds(), newItem.getRecipientIds())
+                            && oldItem.getRecipientCount() == newItem.getRecipientCount()
                             && safeEquals(oldItem.getCreatedAt(), newItem.getCreatedAt());
                 }
 
@@ -12,11 +12,9 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.example.lotterypatentpending.models.Event;
+import com.example.lotterypatentpending.models.EventSummary;
 import com.example.lotterypatentpending.models.FirebaseManager;
 import com.example.lotterypatentpending.models.User;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.QuerySnapshot;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -69,14 +67,14 @@ public class AdminOrganizersActivity extends AppCompatActivity {
     private void loadOrganizersFromFirebase() {
         progressBar.setVisibility(View.VISIBLE);
 
-        firebaseManager.getAllEvents(new FirebaseManager.FirebaseCallback<ArrayList<Event>>() {
+        firebaseManager.getAllEventSummaries(new FirebaseManager.FirebaseCallback<ArrayList<EventSummary>>() {
             @Override
-            public void onSuccess(ArrayList<Event> events) {
+            public void onSuccess(ArrayList<EventSummary> events) {
                 Set<String> organizerIds = new HashSet<>();
 
-                for (Event e : events) {
-                    if (e != null && e.getOrganizer() != null && e.getOrganizer().getUserId() != null) {
-                        organizerIds.add(e.getOrganizer().getUserId());
+                for (EventSummary e : events) {
+                    if (e != null && e.getOrganizerId() != null) {
+                        organizerIds.add(e.getOrganizerId());
                     }
                 }
 
@@ -92,25 +90,21 @@ public class AdminOrganizersActivity extends AppCompatActivity {
     }
 
     /**
-     * Fetches all users from Firestore, filters them to only those whose IDs
-     * appear in the provided organizer ID set, and updates the display list.
+     * Fetches only the organizers' user documents, in batched queries,
+     * and updates the display list.
      *
      * @param organizerIds Set of user IDs who are organizers of at least one event.
      */
     private void fetchUsersAndFilterByOrganizerIds(Set<String> organizerIds) {
-        firebaseManager.getAllUsers(new FirebaseManager.FirebaseCallback<QuerySnapshot>() {
+        firebaseManager.getUsers(new ArrayList<>(organizerIds), new FirebaseManager.FirebaseCallback<List<User>>() {
             @Override
-            public void onSuccess(QuerySnapshot userSnapshot) {
+            public void onSuccess(List<User> users) {
                 organizerList.clear();
                 organizerDisplayList.clear();
 
-                for (DocumentSnapshot doc : userSnapshot) {
-                    if (!organizerIds.contains(doc.getId())) continue;
+                for (User user : users) {
+                    if (user == null) continue; // organizer's user document is gone
 
-                    User user = doc.toObject(User.class);
-                    if (user == null) continue;
-
-                    user.setUserId(doc.getId());
                     organizerList.add(user);
 
                     String displayText = user.getName() + " (" + user.getEmail() + ")";
@@ -16,9 +16,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 
-import androidx.core.util.Pair;
 import androidx.fragment.app.Fragment;
 
+import com.example.lotterypatentpending.data.WaitingListStore;
 import com.example.lotterypatentpending.helpers.DateTimeFormatHelper;
 import com.example.lotterypatentpending.models.Event;
 
@@ -210,14 +210,15 @@ public class AttendeeEventDetailsFragment extends Fragment {
 
     /**
      * Adds the current user to the selected event's waiting list
-     * and updates local + Firestore state.
+     * and updates local + Firestore state. Returns before the join
+     * resolves; its outcome is shown once the transaction finishes.
      */
-    private boolean joinEventHelper() {
+    private void joinEventHelper() {
         User currentUser = userEventRepo.getUser().getValue();
         Event currentEvent = userEventRepo.getEvent().getValue();
 
         if (currentUser == null || currentEvent == null || getContext() == null) {
-            return false;
+            return;
         }
 
 
@@ -226,39 +227,55 @@ public class AttendeeEventDetailsFragment extends Fragment {
             Toast.makeText(getContext(),
                     "You are already on the waiting list for this event.",
                     Toast.LENGTH_SHORT).show();
-            return false;
-        }
-
-        // 2) Enforce waiting list capacity
-        int wlCap = currentEvent.getWaitingListCapacity();
-        if (wlCap != -1) { // -1 means "no limit"
-            int currentSize = getCurrentWaitingListSize(currentEvent);
-            if (currentSize >= wlCap) {
-                Toast.makeText(getContext(),
-                        "Waiting list is full.",
-                        Toast.LENGTH_SHORT).show();
-                return false;
-            }
+            return;
         }
 
-        // 3) Firestore writes
-        fm.addJoinedEventToEntrant(currentEvent, currentUser.getUserId());
-        fm.addPastEventToEntrant(currentEvent, currentUser.getUserId());
-        fm.addEntrantToWaitingList(currentUser, WaitingListState.ENTERED, currentEvent.getId());
-
-        //  4) Local model updates
-        currentEvent.addToWaitingList(currentUser);
-        currentUser.addJoinedEvent(currentEvent.getId());
-        currentUser.addPastEvent(currentEvent.getId());
-
-        userEventRepo.setEvent(currentEvent);
+        // 2) Capacity check and writes happen in one transaction, so concurrent
+        //    joiners can't overshoot the waiting list cap
+        fm.joinWaitingList(currentEvent.getId(), currentUser.getUserId(),
+                new FirebaseManager.FirebaseCallback<WaitingListStore.JoinResult>() {
+                    @Override
+                    public void onSuccess(WaitingListStore.JoinResult result) {
+                        if (!isAdded()) return;
 
-        Toast.makeText(getContext(),
-                "Joined event waiting list.",
-                Toast.LENGTH_SHORT).show();
+                        switch (result) {
+                            case FULL:
+                                Toast.makeText(getContext(),
+                                        "Waiting list is full.",
+                                        Toast.LENGTH_SHORT).show();
+                                return;
+                            case ALREADY_JOINED:
+                                Toast.makeText(getContext(),
+                                        "You are already on the waiting list for this event.",
+                                        Toast.LENGTH_SHORT).show();
+                                return;
+                            case JOINED:
+                                break;
+                        }
+
+                        // 3) Local model updates
+                        currentEvent.addToWaitingList(currentUser);
+                        currentUser.addJoinedEvent(currentEvent.getId());
+                        currentUser.addPastEvent(currentEvent.getId());
+
+                        userEventRepo.setEvent(currentEvent);
+
+                        Toast.makeText(getContext(),
+                                "Joined event waiting list.",
+                                Toast.LENGTH_SHORT).show();
+
+                        navigateBack();
+                    }
 
-        navigateBack();
-        return true;
+                    @Override
+                    public void onFailure(Exception e) {
+                        Log.e("AttendeeEventDetails", "joinWaitingList failed", e);
+                        if (!isAdded()) return;
+                        Toast.makeText(getContext(),
+                                "Could not join the waiting list. Please try again.",
+                                Toast.LENGTH_SHORT).show();
+                    }
+                });
     }
 
     /**
@@ -496,14 +513,10 @@ public class AttendeeEventDetailsFragment extends Fragment {
      * Returns the number of entrants currently on the event's waiting list.
      *
      * @param event The event whose waiting list is being measured.
-     * @return The count of entrants, or 0 if no list exists.
+     * @return The count of entrants, from the event's per-state counters.
      */
     private int getCurrentWaitingListSize(@NonNull Event event) {
-        if (event.getWaitingList() == null ||
-                event.getWaitingList().getList() == null) {
-            return 0;
-        }
-        return event.getWaitingList().getList().size();
+        return event.getEntrantCount();
     }
     /**
      * Updates waiting-list count text and refreshes button visibility/state
@@ -528,18 +541,7 @@ public class AttendeeEventDetailsFragment extends Fragment {
 
         // 3) Compute capacity usage: ACCEPTED / CAPACITY, e.g. "1 / 40"
         if (capacity != null) {
-            int acceptedCount = 0;
-
-            if (event.getWaitingList() != null &&
-                    event.getWaitingList().getList() != null) {
-
-                for (Pair<User, WaitingListState> entry : event.getWaitingList().getList()) {
-                    if (entry != null && entry.second == WaitingListState.ACCEPTED) {
-                        acceptedCount++;
-                    }
-                }
-            }
-
+            int acceptedCount = event.getAcceptedCount();
             String capacityText = acceptedCount + " / " + event.getCapacity();
             capacity.setText(capacityText);
         }
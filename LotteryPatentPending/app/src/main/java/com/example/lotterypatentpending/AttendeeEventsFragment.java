@@ -7,8 +7,10 @@ import android.os.Bundle;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
-import androidx.core.util.Pair;
+import android.util.Log;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -16,17 +18,20 @@ import android.view.ViewGroup;
 import android.view.inputmethod.EditorInfo;
 import android.widget.AutoCompleteTextView;
 import android.widget.Button;
-import android.widget.ListView;
 import android.widget.PopupWindow;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import com.example.lotterypatentpending.adapters.EventListAdapter;
+import com.example.lotterypatentpending.data.EventPage;
+import com.example.lotterypatentpending.data.EventQuery;
+import com.example.lotterypatentpending.data.EventSearchIndex;
 import com.example.lotterypatentpending.helpers.DateTimeFormatHelper;
 import com.example.lotterypatentpending.helpers.DateTimePickerHelper;
 import com.example.lotterypatentpending.helpers.LoadingOverlay;
 import com.example.lotterypatentpending.helpers.TagDropdownHelper;
 import com.example.lotterypatentpending.models.Event;
+import com.example.lotterypatentpending.models.EventSummary;
 import com.example.lotterypatentpending.models.FirebaseManager;
 import com.example.lotterypatentpending.models.User;
 import com.example.lotterypatentpending.models.WaitingListState;
@@ -38,7 +43,9 @@ import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.ListenerRegistration;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Michael
@@ -46,6 +53,9 @@ import java.util.List;
  */
 
 public class AttendeeEventsFragment extends Fragment {
+    // start loading the next page this many rows before the end of the list
+    private static final int LOAD_MORE_THRESHOLD = 5;
+
     private UserEventRepository userEventRepo;
     private FirebaseManager fm;
 
@@ -67,10 +77,24 @@ public class AttendeeEventsFragment extends Fragment {
     private String currentUserId = null;
 
     // Master lists
-    private final ArrayList<Event> allEventsList = new ArrayList<>();
-    private final ArrayList<Event> historyEventsList = new ArrayList<>();
-    // What the ListView shows
-    private final ArrayList<Event> shownEventsList = new ArrayList<>();
+    private final ArrayList<EventSummary> allEventsList = new ArrayList<>();
+    private final ArrayList<EventSummary> historyEventsList = new ArrayList<>();
+    // What the list shows
+    private final ArrayList<EventSummary> shownEventsList = new ArrayList<>();
+    // Search indexes over the two master lists, updated with them
+    private final EventSearchIndex browseIndex = new EventSearchIndex();
+    private final EventSearchIndex historyIndex = new EventSearchIndex();
+    // While a tag or date filter is set, Browse shows pages of this server-side query
+    // instead of the live list of every event
+    @Nullable
+    private EventQuery pagedQuery;
+    @Nullable
+    private EventQuery.Cursor nextPageCursor;
+    private boolean pageLoading = false;
+    private final ArrayList<EventSummary> pagedEventsList = new ArrayList<>();
+    private final EventSearchIndex pagedIndex = new EventSearchIndex();
+    // Current user's waiting list state per event ID, for the state filters
+    private final Map<String, WaitingListState> myStates = new HashMap<>();
     private EventListAdapter eventsListAdapter; //custom adapter
     // false = Browse (default), true = History
     private boolean historyMode = false;
@@ -105,7 +129,7 @@ public class AttendeeEventsFragment extends Fragment {
         TextInputEditText searchInput = view.findViewById(R.id.searchInput);
 
 
-        ListView eventsListView = view.findViewById(R.id.attendee_events_listview_events_list);
+        RecyclerView eventsListView = view.findViewById(R.id.attendee_events_listview_events_list);
         Button searchBtn = view.findViewById(R.id.btn_search);
         Button browseEventsBtn = view.findViewById(R.id.attendee_events_button_browse_events);
         Button historyBtn = view.findViewById(R.id.attendee_events_button_event_history);
@@ -120,25 +144,36 @@ public class AttendeeEventsFragment extends Fragment {
         root.addView(overlayView);
         loading = new LoadingOverlay(overlayView, null);
 
-        eventsListAdapter = new EventListAdapter(
-                requireContext(),
-                shownEventsList
-        );
+        eventsListAdapter = new EventListAdapter();
 
         //Set adapter to the list of Events
         eventsListView.setAdapter(eventsListAdapter);
 
+        // Page in more filtered events shortly before the end of the list is reached
+        eventsListView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0 || historyMode || nextPageCursor == null) return;
+                LinearLayoutManager lm = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (lm != null && lm.findLastVisibleItemPosition()
+                        >= eventsListAdapter.getItemCount() - LOAD_MORE_THRESHOLD) {
+                    loadNextPage();
+                }
+            }
+        });
+
         loading.show();
 
         // Load events from Firebase as LIVE data
-        eventsListener = fm.getAllEventsLive(new FirebaseManager.FirebaseCallback<ArrayList<Event>>() {
+        eventsListener = fm.getAllEventSummariesLive(new FirebaseManager.FirebaseCallback<ArrayList<EventSummary>>() {
             @Override
-            public void onSuccess(ArrayList<Event> result) {
+            public void onSuccess(ArrayList<EventSummary> result) {
                 if (!isAdded()) return;
 
-                List<Event> safe = (result == null) ? new ArrayList<>() : result;
+                List<EventSummary> safe = (result == null) ? new ArrayList<>() : result;
                 allEventsList.clear();
                 allEventsList.addAll(safe);
+                browseIndex.update(allEventsList);
 
                 historyMode = false;
                 updateModeButtons(browseEventsBtn, historyBtn);
@@ -151,7 +186,7 @@ public class AttendeeEventsFragment extends Fragment {
                 if (!isAdded()) return;
 
                 shownEventsList.clear();
-                eventsListAdapter.notifyDataSetChanged();
+                eventsListAdapter.submitEvents(shownEventsList);
                 if (loading != null) loading.hide();
             }
         });
@@ -162,19 +197,10 @@ public class AttendeeEventsFragment extends Fragment {
             filterWindowPopup(v);
         });
 
-        // Click -> open details
-        eventsListView.setOnItemClickListener((parent, v1, position, id) -> {
-            if (position < 0 || position >= shownEventsList.size()) return;
-            Event selectedEvent = shownEventsList.get(position);
-            userEventRepo.setEvent(selectedEvent);
-
-            AttendeeEventDetailsFragment fragment = new AttendeeEventDetailsFragment();
-            requireActivity().getSupportFragmentManager()
-                    .beginTransaction()
-                    .replace(R.id.attendeeContainer, fragment)
-                    .addToBackStack(null)
-                    .commit();
-        });
+        loadMyStates(() -> applyFilter(getQuery(searchInput)));
+
+        // Click -> load the full event (poster, waiting list), then open details
+        eventsListAdapter.setOnEventClickListener(this::openEvent);
 
         // Search button: run filter once
         if (searchBtn != null) {
@@ -253,86 +279,91 @@ public class AttendeeEventsFragment extends Fragment {
      * @param query The raw text query from the search bar.
      */
     private void applyFilter(String query) {
-        String q = (query == null) ? "" : query.toLowerCase().trim();
-        List<Event> base = historyMode ? historyEventsList : allEventsList;
-
-        shownEventsList.clear();
+        EventSearchIndex.Filter filter = new EventSearchIndex.Filter()
+                .text(query)
+                .dates(filterStartTime, filterEndTime)
+                .tag(filterTag);
 
         // If All is ON, or no specific state filter is ON,
         // we DO NOT apply any waiting-list filtering.
-        boolean useStateFilter = filterWaitlisted || filterAccepted;
+        if (filterWaitlisted || filterAccepted) {
+            filter.ids(stateFilterIds());
+        }
 
-        for (Event e : base) {
-            // 1) Search bar: ONLY title
-            if (!matchesText(e.getTitle(), q)) continue;
+        EventSearchIndex source = historyMode ? historyIndex
+                : pagedQuery != null ? pagedIndex : browseIndex;
+        shownEventsList.clear();
+        shownEventsList.addAll(source.search(filter));
 
-            // 2) Date filter
-            if (!overlaps(e.getDate(), filterStartTime, filterEndTime))
-                continue;
+        // diffed by id off the main thread; unchanged rows aren't rebound
+        eventsListAdapter.submitEvents(shownEventsList);
+    }
+    /**
+     * Starts Browse over from the first page of a server-side query for the tag and
+     * date filters, or goes back to the live list of every event if neither is set.
+     * Text and waiting list filters still run on the loaded pages.
+     */
+    private void restartPagedQuery() {
+        EventQuery query = new EventQuery().tag(filterTag).dates(filterStartTime, filterEndTime);
+        pagedQuery = query.isFiltered() ? query : null;
+        nextPageCursor = null;
+        pageLoading = false;
+        pagedEventsList.clear();
+        pagedIndex.update(pagedEventsList);
+        if (pagedQuery != null) loadNextPage();
+    }
 
-            // 3) Tag filter from popup
-            if (filterTag != null && !filterTag.isEmpty()) {
-                String eventTag = e.getTag();
-                if (eventTag == null || !eventTag.equalsIgnoreCase(filterTag)) {
-                    continue;
+    /**
+     * Appends the next page of {@link #pagedQuery}. Keeps going while the text and
+     * waiting list filters leave too few rows to scroll.
+     */
+    private void loadNextPage() {
+        EventQuery query = pagedQuery;
+        if (query == null || pageLoading) return;
+        if (!pagedEventsList.isEmpty() && nextPageCursor == null) return;
+        pageLoading = true;
+        fm.queryEventSummaries(query, nextPageCursor, new FirebaseManager.FirebaseCallback<EventPage>() {
+            @Override
+            public void onSuccess(EventPage page) {
+                // the filters changed while this page was loading
+                if (!isAdded() || query != pagedQuery) return;
+                pageLoading = false;
+                pagedEventsList.addAll(page.getEvents());
+                pagedIndex.update(pagedEventsList);
+                nextPageCursor = page.getNextCursor();
+
+                TextInputEditText searchText = requireView().findViewById(R.id.searchInput);
+                applyFilter(getQuery(searchText));
+                if (!historyMode && page.hasMore() && shownEventsList.size() < LOAD_MORE_THRESHOLD * 2) {
+                    loadNextPage();
                 }
             }
 
-            // 4) Waiting list state filter (All / Waitlisted / Entered)
-            if (useStateFilter) {
-                WaitingListState state = getUserWaitingListState(e);
-                boolean include = false;
-
-                // Waitlisted -> any state EXCEPT NOT_IN
-                if (filterWaitlisted && state != WaitingListState.NOT_IN) {
-                    include = true;
-                }
-
-                // Entered/Accepted -> ACCEPTED
-                if (filterAccepted && state == WaitingListState.ACCEPTED) {
-                    include = true;
-                }
-
-                if (!include) continue;
+            @Override
+            public void onFailure(Exception e) {
+                if (!isAdded() || query != pagedQuery) return;
+                pageLoading = false;
+                Toast.makeText(getContext(), "Failed to load events", Toast.LENGTH_SHORT).show();
             }
-            // If !useStateFilter, behave like "All" (no state filter)
-
-            shownEventsList.add(e);
-        }
-
-        eventsListAdapter.notifyDataSetChanged();
+        });
     }
-    /**
-     * Determines whether an event's date falls within the given start/end timestamps.
-     *
-     * @param date  The event date (may be null).
-     * @param start The start of the filter range (nullable).
-     * @param end   The end of the filter range (nullable).
-     * @return true if the event should be shown under the current date filter.
-     */
-    private static boolean overlaps(@Nullable Timestamp date, @Nullable Timestamp start, @Nullable Timestamp end) {
-        //cannot filter empty event show all events.
-        if (date == null) return true;
 
-        if (start != null && date.compareTo(start) < 0) return false;
-        if (end != null && date.compareTo(end) > 0) return false;
-
-        return true;
-    }
     /**
-     * Case-insensitive check to determine whether the event title contains the query text.
+     * Collects the events that pass the Waitlisted/Entered switches: Waitlisted is
+     * any state except NOT_IN, Entered is ACCEPTED.
      *
-     * @param title The event title.
-     * @param query The lowercase search query.
-     * @return true if the event matches the text filter.
+     * @return ids of the user's events that pass either enabled switch
      */
-    private static boolean matchesText(@Nullable String title, String query) {
-
-        if (query == null || query.isEmpty()) return true;
-
-        query = query.toLowerCase();
-
-        return title != null && title.toLowerCase().contains(query);
+    private List<String> stateFilterIds() {
+        List<String> ids = new ArrayList<>();
+        for (Map.Entry<String, WaitingListState> entry : myStates.entrySet()) {
+            WaitingListState state = entry.getValue();
+            if ((filterWaitlisted && state != WaitingListState.NOT_IN)
+                    || (filterAccepted && state == WaitingListState.ACCEPTED)) {
+                ids.add(entry.getKey());
+            }
+        }
+        return ids;
     }
 
 
@@ -469,7 +500,12 @@ public class AttendeeEventsFragment extends Fragment {
             }
 
             TextInputEditText searchText = requireView().findViewById(R.id.searchInput);
+            restartPagedQuery();
             applyFilter(getQuery(searchText));
+            if (filterWaitlisted || filterAccepted) {
+                // states may have changed since the list was opened
+                loadMyStates(() -> applyFilter(getQuery(searchText)));
+            }
         });
 
         clear.setOnClickListener(v -> {
@@ -495,6 +531,7 @@ public class AttendeeEventsFragment extends Fragment {
             // clear search
             TextInputEditText searchText = requireView().findViewById(R.id.searchInput);
             searchText.setText("");
+            restartPagedQuery();
             applyFilter(getQuery(searchText));
 
             if (filterPopup != null) filterPopup.dismiss();
@@ -512,13 +549,14 @@ public class AttendeeEventsFragment extends Fragment {
     private void getPastEvents(String searchInput) {
         User user = userEventRepo.getUser().getValue();
         assert user != null;
-        fm.getUserPastEvents(user, new FirebaseManager.FirebaseCallback<List<Event>>() {
+        fm.getUserPastEventSummaries(user, new FirebaseManager.FirebaseCallback<List<EventSummary>>() {
             @Override
-            public void onSuccess(List<Event> result) {
+            public void onSuccess(List<EventSummary> result) {
                 historyEventsList.clear();
                 if (result != null) {
                     historyEventsList.addAll(result);
                 }
+                historyIndex.update(historyEventsList);
 
                 // Apply the filter
                 applyFilter(searchInput);
@@ -531,29 +569,69 @@ public class AttendeeEventsFragment extends Fragment {
             @Override
             public void onFailure(Exception e) {
                 historyEventsList.clear();
+                historyIndex.update(historyEventsList);
                 applyFilter(searchInput);
                 Toast.makeText(getContext(), "Failed to load history: " + e.getMessage(), Toast.LENGTH_LONG).show();
             }
         });
     }
 
-    private WaitingListState getUserWaitingListState(@NonNull Event event) {
-        if (currentUserId == null ||
-                event.getWaitingList() == null ||
-                event.getWaitingList().getList() == null) {
-            return WaitingListState.NOT_IN;
-        }
+    /**
+     * Fetches the current user's state on every waiting list they're on, so the
+     * Waitlisted/Entered filters work without loading any event's waiting list.
+     *
+     * @param then run on success, e.g. to reapply the filter
+     */
+    private void loadMyStates(Runnable then) {
+        if (currentUserId == null) return;
+        fm.getMyWaitingListStates(currentUserId, new FirebaseManager.FirebaseCallback<Map<String, WaitingListState>>() {
+            @Override
+            public void onSuccess(Map<String, WaitingListState> states) {
+                if (!isAdded()) return;
+                myStates.clear();
+                myStates.putAll(states);
+                then.run();
+            }
 
-        for (Pair<User, WaitingListState> entry : event.getWaitingList().getList()) {
-            User u = entry.first;
-            WaitingListState state = entry.second;
+            @Override
+            public void onFailure(Exception e) {
+                Log.e("AttendeeEventsFragment", "Failed to load waiting list states", e);
+            }
+        });
+    }
 
-            if (u != null && currentUserId.equals(u.getUserId())) {
-                return (state != null) ? state : WaitingListState.NOT_IN;
+    /**
+     * Loads the full event behind a list row and opens its details screen.
+     *
+     * @param summary the row that was picked
+     */
+    private void openEvent(EventSummary summary) {
+        if (loading != null) loading.show();
+        fm.getEvent(summary.getId(), new FirebaseManager.FirebaseCallback<Event>() {
+            @Override
+            public void onSuccess(Event event) {
+                if (!isAdded()) return;
+                if (loading != null) loading.hide();
+                if (event.getId() == null) {
+                    event.setId(summary.getId());
+                }
+                userEventRepo.setEvent(event);
+
+                AttendeeEventDetailsFragment fragment = new AttendeeEventDetailsFragment();
+                requireActivity().getSupportFragmentManager()
+                        .beginTransaction()
+                        .replace(R.id.attendeeContainer, fragment)
+                        .addToBackStack(null)
+                        .commit();
             }
-        }
 
-        return WaitingListState.NOT_IN;
+            @Override
+            public void onFailure(Exception e) {
+                if (!isAdded()) return;
+                if (loading != null) loading.hide();
+                Toast.makeText(getContext(), "Failed to load event", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
 
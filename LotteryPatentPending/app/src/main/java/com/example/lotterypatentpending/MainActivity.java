@@ -76,6 +76,8 @@ public class MainActivity extends AppCompatActivity implements MainRegisterNewUs
 
         FirebaseApp.initializeApp(this);
         fm = FirebaseManager.getInstance();
+        // list screens render from the on-device copy before the network answers
+        fm.enableLocalStore(this);
 
         attendeeBtn = findViewById(R.id.main_button_attendee);
         organizerBtn = findViewById(R.id.main_button_organizer);
@@ -116,9 +116,7 @@ public class NotificationAdminActivity extends AppCompatActivity {
         sb.append("Category: ").append(log.getCategory()).append("\n\n")
                 .append("Event: ").append(log.getEventId()).append("\n")
                 .append("Organizer: ").append(log.getOrganizerId()).append("\n\n")
-                .append("Recipients: ").append(
-                        log.getRecipientIds() == null ? "0" : log.getRecipientIds().size()
-                ).append("\n\n")
+                .append("Recipients: ").append(log.getRecipientCount()).append("\n\n")
                 .append("Body preview:\n")
                 .append(log.getPayloadPreview() == null ? "(none)" : log.getPayloadPreview());
 
@@ -17,19 +17,19 @@ import androidx.core.content.ContextCompat;
 
 import com.example.lotterypatentpending.R;
 import com.example.lotterypatentpending.User_interface.Inbox.InboxActivity;
+import com.example.lotterypatentpending.data.NotificationStream;
+import com.example.lotterypatentpending.models.FirebaseManager;
 import com.example.lotterypatentpending.models.FirestoreNotificationRepository;
 import com.example.lotterypatentpending.models.Notification;
 import com.example.lotterypatentpending.models.NotificationRepository;
-import com.google.firebase.firestore.DocumentChange;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
-import com.google.firebase.firestore.Query;
 
+import java.util.Collections;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Singleton to watch notification-related realtime Firestore streams.
+ * Singleton to watch notification-related realtime Firestore streams, through
+ * the user's shared {@link NotificationStream}.
  *
  * - unread badge count for attendee toolbar
  * - popup system notifications when new docs are created
@@ -66,20 +66,29 @@ public class NotificationWatcher {
     }
 
     /**
-     * Start listening for unread count updates for the badge dot.
+     * Start listening for unread count updates for the badge dot, through the
+     * user's shared {@link NotificationStream}. Also recounts once to repair a
+     * drifted or missing unread counter; the stream then picks up the repaired value.
      */
     public void startUnreadBadge(@NonNull String userId,
                                  @NonNull CountCallback onCount,
                                  @NonNull ErrorCallback onError) {
         stopUnreadBadge();
-        unreadReg = repo.listenUnreadCount(
-                userId,
-                count -> {
-                    Long c = (count == null) ? 0L : count;
-                    onCount.onCount(c);
-                },
-                onError::onError
-        );
+        unreadReg = NotificationStream.shared(userId).subscribe(new NotificationStream.Subscriber() {
+            @Override
+            public void onUnreadCount(int count) {
+                onCount.onCount((long) count);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                onError.onError(e);
+            }
+        });
+        repo.reconcileUnreadCount(userId).exceptionally(e -> {
+            onError.onError(e instanceof Exception ? (Exception) e : new RuntimeException(e));
+            return null;
+        });
     }
 
     public void stopUnreadBadge() {
@@ -92,8 +101,9 @@ public class NotificationWatcher {
     //POPUP STREAM
 
     /**
-     * Listens in real time to the newest notifications for this user and
-     * shows a banner when a NEW unread notification is added.
+     * Shows a banner for each new unread notification, from the user's shared
+     * {@link NotificationStream}. Notifications already there when the stream opens
+     * are not shown.
      */
     public void startPopupStream(@NonNull Context context,
                                  @NonNull String userId) {
@@ -106,25 +116,15 @@ public class NotificationWatcher {
             popupReg = null;
         }
 
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-        popupReg = db.collection("users")
-                .document(userId)
-                .collection("notifications")
-                .orderBy("createdAt", Query.Direction.DESCENDING)
-                .limit(10)   // safety
-                .addSnapshotListener((snap, err) -> {
-                    if (err != null || snap == null) return;
-
-                    for (DocumentChange change : snap.getDocumentChanges()) {
-                        if (change.getType() != DocumentChange.Type.ADDED) continue;
-
-                        Notification n = change.getDocument().toObject(Notification.class);
-                        if (n == null) continue;
-                        if (n.isRead()) continue;  // don't pop for already-read
-
-                        showSystemNotification(n);
-                    }
-                });
+        popupReg = NotificationStream.shared(userId).subscribe(new NotificationStream.Subscriber() {
+            @Override
+            public void onNewNotification(Notification n) {
+                // templated notifications only carry a reference; fill in the text first
+                FirebaseManager.getInstance().getTemplateCache()
+                        .resolve(Collections.singletonList(n))
+                        .thenRun(() -> showSystemNotification(n));
+            }
+        });
     }
 
     public void stopPopupStream() {
@@ -14,7 +14,9 @@ import com.example.lotterypatentpending.data.UserDataSource;
 import com.example.lotterypatentpending.domain.OrganizerNotifier;
 import com.example.lotterypatentpending.models.FirestoreNotificationRepository;
 import com.example.lotterypatentpending.models.LotteryResultNotifier;
+import com.example.lotterypatentpending.models.User;
 import com.example.lotterypatentpending.viewModels.OrganizerViewModel;
+import com.example.lotterypatentpending.viewModels.UserEventRepository;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 import com.google.android.material.appbar.MaterialToolbar;
@@ -64,5 +66,12 @@ public class OrganizerActivity extends AppCompatActivity {
         );
 
         organizerVm = new ViewModelProvider(this).get(OrganizerViewModel.class);
+
+        // Finish any result notifications a previous session was interrupted in
+        User organizer = UserEventRepository.getInstance().getUser().getValue();
+        if (savedInstanceState == null && organizer != null) {
+            organizerVm.resumePendingNotifications(organizer.getUserId())
+                    .addOnFailureListener(e -> Log.w("OrganizerActivity", "Resuming notifications failed", e));
+        }
     }
 }
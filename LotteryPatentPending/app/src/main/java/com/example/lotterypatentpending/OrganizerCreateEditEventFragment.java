@@ -9,6 +9,7 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.AutoCompleteTextView;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -20,6 +21,8 @@ import androidx.lifecycle.ViewModelProvider;
 import androidx.navigation.NavOptions;
 import androidx.navigation.fragment.NavHostFragment;
 
+import com.example.lotterypatentpending.data.CounterShards;
+import com.example.lotterypatentpending.data.WaitingListStore;
 import com.example.lotterypatentpending.helpers.DateTimeFormatHelper;
 import com.example.lotterypatentpending.helpers.DateTimePickerHelper;
 import com.example.lotterypatentpending.helpers.TagDropdownHelper;
@@ -64,6 +67,7 @@ public class OrganizerCreateEditEventFragment extends Fragment {
     private AutoCompleteTextView tagDropdown;
     private TextView pageTitle, eventDateEt, regStartDateEt, regEndDateEt;
     private Button cancelBtn, createEditBtn;
+    private CheckBox highDemandCheck;
     private FirebaseManager fm;
     private EventViewModel viewModel;
 
@@ -111,6 +115,7 @@ public class OrganizerCreateEditEventFragment extends Fragment {
         regEndDateEt = v.findViewById(R.id.registrationEndDate);
         capacityEt = v.findViewById(R.id.maxEntrantsInput);
         waitingListCapEt = v.findViewById(R.id.waitingListCapInput);
+        highDemandCheck = v.findViewById(R.id.highDemandCheck);
         cancelBtn = v.findViewById(R.id.cancelButton);
         createEditBtn = v.findViewById(R.id.createEventButton);
 
@@ -145,6 +150,8 @@ public class OrganizerCreateEditEventFragment extends Fragment {
             }else{
                 waitingListCapEt.setText(String.valueOf(passed_event.getWaitingListCapacity()));
             }
+            highDemandCheck.setChecked(CounterShards.isSharded(passed_event.getCounterShards()));
+            highDemandCheck.setVisibility(canChooseHighDemand(passed_event) ? View.VISIBLE : View.GONE);
 
             byte[] posterBytes = passed_event.getPosterBytes();
             if (posterBytes != null && posterBytes.length > 0) {
@@ -249,6 +256,7 @@ public class OrganizerCreateEditEventFragment extends Fragment {
         String regEndDateString = regEndDateEt.getText().toString().trim();
         String capacityString = capacityEt.getText().toString().trim();
         String waitingListCapString= waitingListCapEt.getText().toString().trim();
+        int counterShards = highDemandCheck.isChecked() ? CounterShards.DEFAULT_SHARDS : 0;
 
         // Basic required fields
         if (title.isEmpty() || description.isEmpty()) {
@@ -344,6 +352,11 @@ public class OrganizerCreateEditEventFragment extends Fragment {
             newEvent.setRegStartDate(regStartDate);
             newEvent.setRegEndDate(regEndDate);
             newEvent.setWaitingListCapacity(waitingListCap);
+            newEvent.setCounterShards(counterShards);
+            if (counterShards > 0) {
+                // only per-entrant documents can spread their counters over shards
+                newEvent.setWaitingListLayout(WaitingListStore.Layout.SUBCOLLECTION);
+            }
 
             byte[] posterBytes = loadPosterBytesFromUri();
             if (posterBytes != null) {
@@ -366,6 +379,10 @@ public class OrganizerCreateEditEventFragment extends Fragment {
             passed_event.setRegEndDate(regEndDate);
             passed_event.setCapacity(capacity);
             passed_event.setWaitingListCapacity(waitingListCap);
+            boolean shardsChanged = passed_event.getCounterShards() != counterShards;
+            boolean moveEntries = counterShards > 0
+                    && passed_event.getWaitingListLayout() != WaitingListStore.Layout.SUBCOLLECTION;
+            passed_event.setCounterShards(counterShards);
 
             byte[] posterBytes = loadPosterBytesFromUri();
             if (posterBytes != null) {
@@ -374,6 +391,26 @@ public class OrganizerCreateEditEventFragment extends Fragment {
             }
 
             fm.addOrUpdateEvent(passed_event.getId(), passed_event);
+            if (moveEntries) {
+                // the embedded list can't shard, so its entries move into the subcollection first
+                String eventId = passed_event.getId();
+                fm.migrateWaitingList(eventId, WaitingListStore.Layout.SUBCOLLECTION,
+                        new FirebaseManager.FirebaseCallback<Integer>() {
+                            @Override
+                            public void onSuccess(Integer moved) {
+                                Log.d("CreateEditEvent", "Moved " + moved + " entrants into the subcollection");
+                                passed_event.setWaitingListLayout(WaitingListStore.Layout.SUBCOLLECTION);
+                                switchCounterShards(eventId, counterShards);
+                            }
+
+                            @Override
+                            public void onFailure(Exception e) {
+                                Log.e("CreateEditEvent", "Failed to move the waiting list", e);
+                            }
+                        });
+            } else if (shardsChanged) {
+                switchCounterShards(passed_event.getId(), counterShards);
+            }
             viewModel.setEvent(passed_event);
 
         }
@@ -385,6 +422,32 @@ public class OrganizerCreateEditEventFragment extends Fragment {
         return true;
     }
 
+    /**
+     * High demand needs the subcollection layout, so an embedded event can only turn it
+     * on while its waiting list can still be moved, i.e. before registration opens.
+     */
+    private static boolean canChooseHighDemand(Event event) {
+        if (event.getWaitingListLayout() == WaitingListStore.Layout.SUBCOLLECTION) return true;
+        Timestamp regStart = event.getRegStartDate();
+        return regStart == null || Timestamp.now().compareTo(regStart) < 0;
+    }
+
+    private void switchCounterShards(String eventId, int counterShards) {
+        // existing entrants' counts have to move into (or out of) the shards
+        fm.setCounterShards(eventId, counterShards,
+                new FirebaseManager.FirebaseCallback<Integer>() {
+                    @Override
+                    public void onSuccess(Integer repaired) {
+                        Log.d("CreateEditEvent", "Counter shards set, " + repaired + " counters moved");
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        Log.e("CreateEditEvent", "Failed to switch counter shards", e);
+                    }
+                });
+    }
+
 
     /**
      *
@@ -7,7 +7,6 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.inputmethod.EditorInfo;
-import android.widget.ListView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -16,10 +15,13 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.navigation.fragment.NavHostFragment;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.lotterypatentpending.adapters.EventListAdapter;
+import com.example.lotterypatentpending.data.EventSearchIndex;
 import com.example.lotterypatentpending.helpers.LoadingOverlay;
 import com.example.lotterypatentpending.models.Event;
+import com.example.lotterypatentpending.models.EventSummary;
 import com.example.lotterypatentpending.models.FirebaseManager;
 import com.example.lotterypatentpending.models.User;
 import com.example.lotterypatentpending.viewModels.EventViewModel;
@@ -31,6 +33,7 @@ import com.google.firebase.firestore.ListenerRegistration;
 
 import java.util.ArrayList;
 import java.util.EventListener;
+import java.util.List;
 
 /**
  * Fragment allowing organizers to view their event list (future
@@ -44,13 +47,15 @@ public class OrganizerViewEventsListFragment extends Fragment {
 
     private TextInputEditText searchInput;
     private MaterialButton searchButton;
-    private ListView listView;
+    private RecyclerView listView;
     private FirebaseManager fm;
     private EventListAdapter eventListAdapter;
     // all events from Firestore
-    private final ArrayList<Event> allEvents = new ArrayList<>();
+    private final ArrayList<EventSummary> allEvents = new ArrayList<>();
     // events currently shown in the list (after filtering)
-    private final ArrayList<Event> visibleEvents = new ArrayList<>();
+    private final ArrayList<EventSummary> visibleEvents = new ArrayList<>();
+    // title, tag and location index over allEvents
+    private final EventSearchIndex searchIndex = new EventSearchIndex();
     private LoadingOverlay loading;
     private ListenerRegistration organizedEventsListener;
 
@@ -110,26 +115,19 @@ public class OrganizerViewEventsListFragment extends Fragment {
 
         //Setup adapter with events
         eventListAdapter = new EventListAdapter(
-                requireContext(),
-                visibleEvents,
                 new EventListAdapter.OnEventActionListener() {
 
                     @Override
-                    public void onEdit(Event event) {
-                        // 1. Put the event into the shared ViewModel
-                        EventViewModel viewModel = new ViewModelProvider(requireActivity()).get(EventViewModel.class);
-                        viewModel.setEvent(event);
-
+                    public void onEdit(EventSummary event) {
                         Bundle bundle = new Bundle();
                         bundle.putBoolean("isEdit", true);
 
-                        // 2. Navigate to your EventView/Edit fragment
-                        NavHostFragment.findNavController(OrganizerViewEventsListFragment.this)
-                                .navigate(R.id.action_viewEventsList_to_Edit_Event_view, bundle);
+                        // Load the full event (the edit screen saves all of it), then navigate
+                        openEvent(event, R.id.action_viewEventsList_to_Edit_Event_view, bundle);
                     }
 
                     @Override
-                    public void onDelete(Event event) {
+                    public void onDelete(EventSummary event) {
                         new MaterialAlertDialogBuilder(requireContext())
                                 .setTitle("Delete Event")
                                 .setMessage("Are you sure you want to delete \"" + event.getTitle() + "\"?")
@@ -146,16 +144,17 @@ public class OrganizerViewEventsListFragment extends Fragment {
         // show spinner while loading Firestore data
         loading.show();
 
-        organizedEventsListener = fm.getOrganizedEvents(userId,
-                new FirebaseManager.FirebaseCallback<ArrayList<Event>>() {
+        organizedEventsListener = fm.getOrganizedEventSummaries(userId,
+                new FirebaseManager.FirebaseCallback<ArrayList<EventSummary>>() {
                     @Override
-                    public void onSuccess(ArrayList<Event> events) {
+                    public void onSuccess(ArrayList<EventSummary> events) {
                         if (!isAdded()) return;
 
                         allEvents.clear();
                         if (events != null) {
                             allEvents.addAll(events);
                         }
+                        searchIndex.update(allEvents);
 
                         visibleEvents.clear();
                         visibleEvents.addAll(allEvents);
@@ -180,18 +179,9 @@ public class OrganizerViewEventsListFragment extends Fragment {
                     }
                 });
 
-    // Clicking a row opens that event (from filtered list)
-        listView.setOnItemClickListener((parent, view, position, id) -> {
-        if (position < 0 || position >= visibleEvents.size()) return;
-
-        Event clicked = visibleEvents.get(position);
-        EventViewModel evm =
-                new ViewModelProvider(requireActivity()).get(EventViewModel.class);
-        evm.setEvent(clicked);
-
-        NavHostFragment.findNavController(this)
-                .navigate(R.id.action_viewEventsList_to_Event_View);
-    });
+        // Clicking a row opens that event (from filtered list)
+        eventListAdapter.setOnEventClickListener(clicked ->
+                openEvent(clicked, R.id.action_viewEventsList_to_Event_View, null));
 
         //Click search button
         searchButton.setOnClickListener(view ->
@@ -222,11 +212,47 @@ public class OrganizerViewEventsListFragment extends Fragment {
         }
     }
     /**
-     * Notifies the adapter that the visibleEvents list has changed,
-     * causing the ListView to redraw with the updated filtered results.
+     * Loads the full event behind a list row (poster and waiting list included),
+     * puts it in the shared EventViewModel and navigates to {@code actionId}.
+     *
+     * @param summary  the row that was picked
+     * @param actionId navigation action to run once the event is loaded
+     * @param args     navigation arguments, may be null
+     */
+    private void openEvent(EventSummary summary, int actionId, @Nullable Bundle args) {
+        loading.show();
+        fm.getEvent(summary.getId(), new FirebaseManager.FirebaseCallback<Event>() {
+            @Override
+            public void onSuccess(Event event) {
+                if (!isAdded()) return;
+                loading.hide();
+                if (event.getId() == null) {
+                    event.setId(summary.getId());
+                }
+
+                EventViewModel evm = new ViewModelProvider(requireActivity()).get(EventViewModel.class);
+                evm.setEvent(event);
+
+                NavHostFragment.findNavController(OrganizerViewEventsListFragment.this)
+                        .navigate(actionId, args);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e("ViewOrgEvents", "Failed to load event " + summary.getId(), e);
+                if (!isAdded()) return;
+                loading.hide();
+                Toast.makeText(requireContext(), "Failed to load event", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * Hands the visibleEvents list to the adapter, which diffs it against
+     * what is shown and rebinds only the rows that changed.
      */
     private void refreshListFromVisible(){
-        eventListAdapter.notifyDataSetChanged();
+        eventListAdapter.submitEvents(visibleEvents);
     }
 
 
@@ -248,14 +274,7 @@ public class OrganizerViewEventsListFragment extends Fragment {
             return;
         }
 
-        ArrayList<Event> matches = new ArrayList<>();
-        for (Event e: allEvents) {
-            String title = e.getTitle();
-            if (title != null &&
-                title.toLowerCase().contains(query.toLowerCase())){
-                matches.add(e);
-            }
-        }
+        List<EventSummary> matches = searchIndex.search(new EventSearchIndex.Filter().text(query));
 
         if (matches.isEmpty()) {
             Toast.makeText(requireContext(), "No events match that name", Toast.LENGTH_SHORT).show();
@@ -270,7 +289,7 @@ public class OrganizerViewEventsListFragment extends Fragment {
      *
      * @param event The event to delete.
      */
-    public void deleteEvent(Event event){
+    public void deleteEvent(EventSummary event){
         visibleEvents.remove(event);
         fm.deleteEvent(event.getId());
         refreshListFromVisible();
@@ -21,6 +21,7 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import com.example.lotterypatentpending.adapters.WaitingListAdapter;
 import com.example.lotterypatentpending.helpers.LoadingOverlay;
+import com.example.lotterypatentpending.models.DrawRecord;
 import com.example.lotterypatentpending.models.Event;
 import com.example.lotterypatentpending.models.EventState;
 import com.example.lotterypatentpending.models.FirebaseManager;
@@ -204,22 +205,30 @@ public class OrganizerViewWaitingListFragment extends Fragment {
                     return;
                 }
 
-                if (event.getTakenSpotsCount() != 0){
-                    loading.hide();
-                    Toast.makeText(getContext(), "Lottery is full.", Toast.LENGTH_SHORT).show();
-                    return;
-                }
-
                 // Ensure the Event has a WaitingList instance
                 if (event.getWaitingList() == null) {
                     event.setWaitingList(new WaitingList());
                 }
 
-                //  1) Sync Firestore state -> Event.waitingList
+                //  1) Sync Firestore state -> Event.waitingList (clean baseline for change tracking)
                 event.getWaitingList().setList(new ArrayList<>(pairs));
 
+                // Redraw only fills the spots freed by declines/cancellations
+                if (event.getEventState() == EventState.SELECTED_ENTRANTS) {
+                    redrawReplacements(event, organizerId, eventTitle);
+                    return;
+                }
+
+                if (event.getTakenSpotsCount() != 0){
+                    loading.hide();
+                    Toast.makeText(getContext(), "Lottery is full.", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+
                 // 2) Run the domain lottery logic (capacity-aware)
-                event.runLottery();  // uses capacity - takenSpots and sets SELECTED_ENTRANTS
+                long seed = LotterySystem.newSeed();
+                event.runLottery(seed);  // uses capacity - takenSpots and sets SELECTED_ENTRANTS
+                String drawId = String.valueOf(seed);   // idempotency key of this draw's notifications
 
                 // Notify other observers that the Event has changed (state + waiting list)
                 evm.setEvent(event);
@@ -227,27 +236,26 @@ public class OrganizerViewWaitingListFragment extends Fragment {
                 // Use the updated list from the Event as the single source of truth
                 List<Pair<User, WaitingListState>> updatedPairs = event.getWaitingList().getList();
 
-                //  3) Push updated user states to Firestore
-                fm.updateWaitingListStates(eventId, updatedPairs, new FirebaseManager.FirebaseCallback<Void>() {
-                    @Override
-                    public void onSuccess(Void unused) {
-
-                        //  4) Save the event (including updated waiting list + state)
-                        fm.addOrUpdateEvent(eventId, event);
-
-                        // Build ID lists for notifications from the updated data
-                        List<String> allIds = new ArrayList<>();
-                        List<String> winIds = new ArrayList<>();
-                        for (Pair<User, WaitingListState> p : updatedPairs) {
-                            if (p.first != null && p.first.getUserId() != null) {
-                                allIds.add(p.first.getUserId());
-                                if (p.second == WaitingListState.SELECTED) {
-                                    winIds.add(p.first.getUserId());
-                                }
-                            }
+                // Build ID lists for notifications from the updated data
+                List<String> allIds = new ArrayList<>();
+                List<String> winIds = new ArrayList<>();
+                for (Pair<User, WaitingListState> p : updatedPairs) {
+                    if (p.first != null && p.first.getUserId() != null) {
+                        allIds.add(p.first.getUserId());
+                        if (p.second == WaitingListState.SELECTED) {
+                            winIds.add(p.first.getUserId());
                         }
+                    }
+                }
 
-                        organizerViewModel.publishResults(organizerId, eventId, eventTitle, allIds, winIds)
+                //  3) Queue the notifications held, then push changed user states + event
+                //     state/draw to Firestore, releasing them in the same batch
+                organizerViewModel.prepareResults(organizerId, eventId, eventTitle, drawId, allIds, winIds)
+                        .addOnSuccessListener(jobs -> fm.saveWaitingListChanges(eventId, event, jobs,
+                                new FirebaseManager.FirebaseCallback<Void>() {
+                    @Override
+                    public void onSuccess(Void unused) {
+                        organizerViewModel.publishResults(organizerId, eventId, eventTitle, drawId, allIds, winIds)
                                 .addOnSuccessListener(v -> {
                                     loading.hide();
                                     Toast.makeText(getContext(), "Draw complete! Notifications sent.", Toast.LENGTH_LONG).show();
@@ -255,7 +263,7 @@ public class OrganizerViewWaitingListFragment extends Fragment {
                                 })
                                 .addOnFailureListener(e -> {
                                     loading.hide();
-                                    Toast.makeText(getContext(), "Notifications failed.", Toast.LENGTH_LONG).show();
+                                    showNotificationProgress(eventId);
                                     fetchWaitingList(eventId);
                                 });
                     }
@@ -265,7 +273,11 @@ public class OrganizerViewWaitingListFragment extends Fragment {
                         loading.hide();
                         Toast.makeText(getContext(), "Failed to save results.", Toast.LENGTH_SHORT).show();
                     }
-                });
+                }))
+                        .addOnFailureListener(e -> {
+                            loading.hide();
+                            Toast.makeText(getContext(), "Failed to save results.", Toast.LENGTH_SHORT).show();
+                        });
             }
 
             @Override
@@ -276,6 +288,72 @@ public class OrganizerViewWaitingListFragment extends Fragment {
         });
     }
 
+    /**
+     * Incremental redraw: picks replacements from the NOT_SELECTED and ENTERED
+     * entrants and writes/notifies only those entrants.
+     */
+    private void redrawReplacements(Event event, String organizerId, String eventTitle) {
+        String eventId = event.getId();
+
+        DrawRecord record = event.runRedraw(LotterySystem.newSeed());
+        if (record == null || record.getWinnerIds().isEmpty()) {
+            loading.hide();
+            Toast.makeText(getContext(), record == null ? "Lottery is full." : "No entrants left to draw.",
+                    Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        evm.setEvent(event);
+
+        List<String> replacementIds = record.getWinnerIds();
+        String drawId = String.valueOf(record.getSeed());
+        organizerViewModel.prepareReplacements(organizerId, eventId, eventTitle, drawId, replacementIds)
+                .addOnSuccessListener(jobs -> fm.saveWaitingListChanges(eventId, event, jobs,
+                        new FirebaseManager.FirebaseCallback<Void>() {
+            @Override
+            public void onSuccess(Void unused) {
+                organizerViewModel.publishReplacements(organizerId, eventId, eventTitle, drawId, replacementIds)
+                        .addOnSuccessListener(v -> {
+                            loading.hide();
+                            Toast.makeText(getContext(), "Redraw complete! Notifications sent.", Toast.LENGTH_LONG).show();
+                            fetchWaitingList(eventId);
+                        })
+                        .addOnFailureListener(e -> {
+                            loading.hide();
+                            showNotificationProgress(eventId);
+                            fetchWaitingList(eventId);
+                        });
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                loading.hide();
+                Toast.makeText(getContext(), "Failed to save results.", Toast.LENGTH_SHORT).show();
+            }
+        }))
+                .addOnFailureListener(e -> {
+                    loading.hide();
+                    Toast.makeText(getContext(), "Failed to save results.", Toast.LENGTH_SHORT).show();
+                });
+    }
+
+    /**
+     * Tells the organizer how far an interrupted send got; the rest is resumed
+     * from the outbox the next time the organizer screens open.
+     */
+    private void showNotificationProgress(String eventId) {
+        organizerViewModel.getNotificationProgress(eventId)
+                .addOnSuccessListener(p -> {
+                    if (!isAdded()) return;
+                    Toast.makeText(getContext(), "Notifications paused: " + p + ". They will resume automatically.",
+                            Toast.LENGTH_LONG).show();
+                })
+                .addOnFailureListener(e -> {
+                    if (!isAdded()) return;
+                    Toast.makeText(getContext(), "Notifications failed.", Toast.LENGTH_LONG).show();
+                });
+    }
+
     private void updateButtons(Event currentEvent) {
         sampleBtn.setVisibility(View.GONE);
         exportBtn.setVisibility(View.GONE);
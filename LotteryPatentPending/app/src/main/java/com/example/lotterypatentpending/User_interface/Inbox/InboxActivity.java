@@ -1,14 +1,18 @@
 package com.example.lotterypatentpending.User_interface.Inbox;
 
 import android.os.Bundle;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.lotterypatentpending.R;
+import com.example.lotterypatentpending.data.NotificationStream;
 import com.example.lotterypatentpending.models.FirebaseManager;
 import com.example.lotterypatentpending.models.FirestoreNotificationRepository;
 import com.example.lotterypatentpending.models.Notification;
@@ -25,12 +29,13 @@ import java.util.List;
 
 public class InboxActivity extends AppCompatActivity {
     private final NotificationRepository repo = new FirestoreNotificationRepository();
-    @Nullable
-    private ListenerRegistration unreadReg;
     private NotificationAdapter adapter;
+    private NotificationStream stream;
     private ListenerRegistration notificationsReg;
     private String currentUserId;
 
+    private static final int LOAD_MORE_THRESHOLD = 10;
+
     // Prevent double clicks
     private long lastClickTime = 0;
 
@@ -44,17 +49,33 @@ public class InboxActivity extends AppCompatActivity {
         toolbar.setNavigationOnClickListener(v -> finish());
 
         RecyclerView rv = findViewById(R.id.recycler);
-        rv.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        rv.setLayoutManager(layoutManager);
 
         adapter = new NotificationAdapter(this::onNotificationClicked);
         rv.setAdapter(adapter);
 
+        // Page in older notifications shortly before the end of the list is reached
+        rv.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0 || stream == null || !stream.hasMore()) return;
+                if (layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - LOAD_MORE_THRESHOLD) {
+                    stream.loadMore().exceptionally(e -> {
+                        e.printStackTrace();
+                        return false;
+                    });
+                }
+            }
+        });
+
         FirebaseUser u = FirebaseAuth.getInstance().getCurrentUser();
         if (u == null) {
             finish();
             return;
         }
         currentUserId = u.getUid();
+        stream = NotificationStream.shared(currentUserId);
     }
 
     private void onNotificationClicked(Notification n) {
@@ -149,14 +170,49 @@ public class InboxActivity extends AppCompatActivity {
         );
     }
 
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_inbox, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+        if (item.getItemId() == R.id.action_mark_all_read) {
+            markAllRead();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    /**
+     * Marks every unread notification as read in batched writes. Only the newest page
+     * is listened to, so the loaded older rows are updated here.
+     */
+    private void markAllRead() {
+        if (currentUserId == null) return;
+        repo.markAllRead(currentUserId).whenComplete((count, e) -> runOnUiThread(() -> {
+            if (e != null) {
+                Toast.makeText(this, "Failed to mark notifications as read.", Toast.LENGTH_SHORT).show();
+            } else if (count == 0) {
+                Toast.makeText(this, "No unread notifications.", Toast.LENGTH_SHORT).show();
+            } else {
+                List<Notification> shown = adapter.getCurrentList();
+                for (Notification n : shown) n.setRead(true);
+                adapter.notifyItemRangeChanged(0, shown.size());
+            }
+        }));
+    }
+
     @Override
     protected void onStart() {
         super.onStart();
         if (currentUserId == null) return;
 
-        notificationsReg = repo.listenUserNotifications(currentUserId, new NotificationRepository.NotificationsListener() {
+        // shares one listener with the unread badge and popups
+        notificationsReg = stream.subscribe(new NotificationStream.Subscriber() {
             @Override
-            public void onChanged(List<Notification> notifications) {
+            public void onNotifications(List<Notification> notifications) {
                 runOnUiThread(() -> {
                     if (notifications == null || notifications.isEmpty()) {
                         List<Notification> demoList = new ArrayList<>();
@@ -180,14 +236,11 @@ public class InboxActivity extends AppCompatActivity {
                 e.printStackTrace();
             }
         });
-
-        unreadReg = repo.listenUnreadCount(currentUserId, count -> {}, e -> {});
     }
 
     @Override
     protected void onStop() {
         super.onStop();
         if (notificationsReg != null) notificationsReg.remove();
-        if (unreadReg != null) unreadReg.remove();
     }
 }
@@ -4,9 +4,13 @@ import android.app.AlertDialog;
 import android.graphics.Color;
 import android.graphics.Typeface;
 import android.view.*; import android.widget.TextView;
-import androidx.annotation.NonNull; import androidx.recyclerview.widget.*;
+import android.os.Handler; import android.os.Looper;
+import androidx.annotation.NonNull; import androidx.annotation.Nullable; import androidx.recyclerview.widget.*;
+import com.example.lotterypatentpending.data.TemplateCache;
+import com.example.lotterypatentpending.models.FirebaseManager;
 import com.example.lotterypatentpending.models.Notification;
-import java.text.SimpleDateFormat; import java.util.Locale;
+import java.text.SimpleDateFormat; import java.util.List; import java.util.Locale; import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import com.example.lotterypatentpending.R;
 
 /**
@@ -16,6 +20,7 @@ import com.example.lotterypatentpending.R;
  * - body preview
  * - category + timestamp meta
  * - visual difference between read/unread
+ * Templated notifications are filled in through the shared TemplateCache.
  * @author Moffat
  * @maintainer Moffat
  */
@@ -27,13 +32,42 @@ public class NotificationAdapter extends ListAdapter<Notification, NotificationA
      */
     interface OnClick { void open(Notification n); }
     private final OnClick onClick;
-    public NotificationAdapter(OnClick onClick){ super(DIFF); this.onClick=onClick; }
+    private final TemplateCache templates;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private int generation = 0; // drops a resolved list if a newer one was submitted meanwhile
+
+    public NotificationAdapter(OnClick onClick){ this(onClick, FirebaseManager.getInstance().getTemplateCache()); }
+    public NotificationAdapter(OnClick onClick, TemplateCache templates){
+        super(DIFF); this.onClick=onClick; this.templates=templates;
+    }
+
+    /**
+     * Fills in templated notifications from the template cache before showing them.
+     * Lists whose templates are all cached are shown right away.
+     */
+    @Override
+    public void submitList(@Nullable List<Notification> list) {
+        int gen = ++generation;
+        if (list == null) { super.submitList(null); return; }
+        CompletableFuture<List<Notification>> resolved = templates.resolve(list);
+        if (resolved.isDone()) { super.submitList(list); return; }
+        resolved.whenComplete((l, e) -> main.post(() -> {
+            if (gen == generation) NotificationAdapter.super.submitList(list);
+        }));
+    }
 
     static DiffUtil.ItemCallback<Notification> DIFF = new DiffUtil.ItemCallback<>() {
         public boolean areItemsTheSame(@NonNull Notification a, @NonNull Notification b) {
             return a.getId() != null && a.getId().equals(b.getId());
         }
-        public boolean areContentsTheSame(@NonNull Notification a,@NonNull Notification b){ return a.equals(b); }
+        // compares what a row shows, so a re-read notification that didn't change keeps its row
+        public boolean areContentsTheSame(@NonNull Notification a,@NonNull Notification b){
+            return a.isRead() == b.isRead()
+                    && Objects.equals(a.getTitle(), b.getTitle())
+                    && Objects.equals(a.getBody(), b.getBody())
+                    && a.getCategory() == b.getCategory()
+                    && Objects.equals(a.getCreatedAt(), b.getCreatedAt());
+        }
     };
 
     static class Holder extends RecyclerView.ViewHolder {
@@ -57,7 +91,7 @@ public class NotificationAdapter extends ListAdapter<Notification, NotificationA
         Notification n = getItem(pos);
         h.title.setText(n.getTitle());
         // Body preview (truncate to 1–2 lines)
-        String preview = n.getBody();
+        String preview = n.getBody() == null ? "" : n.getBody();
         if (preview.length() > 80) preview = preview.substring(0, 77) + "…";
         h.body.setText(preview);
 
@@ -1,169 +1,190 @@
 package com.example.lotterypatentpending.adapters;
 
-import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.ImageButton;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.core.util.Pair;
-import androidx.lifecycle.ViewModelProvider;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.lotterypatentpending.R;
-import com.example.lotterypatentpending.helpers.DateTimeFormatHelper;
-import com.example.lotterypatentpending.models.Event;
-import com.example.lotterypatentpending.models.WaitingListState;
-import com.example.lotterypatentpending.viewModels.EventViewModel;
+import com.example.lotterypatentpending.models.EventSummary;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * author: Erik
  * contributor: Erik
  *
- * to add more features simply add more TextViews to item_event and here
+ * to add more features simply add more TextViews to item_event and to {@link EventRow}
+ *
+ * RecyclerView adapter for event lists. Rows are {@link EventRow}s built from
+ * {@link EventSummary} read models, with counts and dates formatted up front, so
+ * binding never touches a poster or a waiting list and formats nothing. Lists are
+ * diffed by event id on a background thread, so a filter pass or a live update only
+ * rebinds the rows that changed.
  */
-public class EventListAdapter extends ArrayAdapter<Event> {
+public class EventListAdapter extends ListAdapter<EventRow, EventListAdapter.Holder> {
     /**
      * Callbacks for organizer actions (edit/delete).
      */
     public interface OnEventActionListener {
-        void onEdit(Event event);
-        void onDelete(Event event);
+        void onEdit(EventSummary event);
+        void onDelete(EventSummary event);
+    }
+
+    /** Callback for a tap or long press on a row. */
+    public interface OnEventClickListener {
+        void onClick(EventSummary event);
     }
 
+    static final DiffUtil.ItemCallback<EventRow> DIFF = new DiffUtil.ItemCallback<EventRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull EventRow a, @NonNull EventRow b) {
+            return a.getId() != null && a.getId().equals(b.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull EventRow a, @NonNull EventRow b) {
+            return a == b || a.sameContent(b);
+        }
+    };
+
     private final boolean showActions;
+    private final OnEventActionListener listener;
+    @Nullable
+    private OnEventClickListener onClick;
+    @Nullable
+    private OnEventClickListener onLongClick;
+    private Map<String, EventRow> rowsById = new HashMap<>();
 
-    private OnEventActionListener listener;
     /**
      * Creates a read-only adapter where events are shown
      * without edit/delete controls.
-     *
-     * @param context host Activity/Fragment
-     * @param events  list of events to display
      */
-    public EventListAdapter(@NonNull Context context, @NonNull List<Event> events){
-        super(context, 0, events);
+    public EventListAdapter() {
+        super(DIFF);
         this.showActions = false;
+        this.listener = null;
     }
+
     /**
      * Creates an adapter with organizer controls enabled.
      * Edit/delete buttons are shown and routed to {@code listener}.
      *
-     * @param context  host Activity/Fragment
-     * @param events   list of events to display
      * @param listener callback for edit/delete actions
      */
-    public EventListAdapter(@NonNull Context context, @NonNull List<Event> events,
-                            OnEventActionListener listener) {
-        super(context, 0, events);
+    public EventListAdapter(OnEventActionListener listener) {
+        super(DIFF);
         this.listener = listener;
         this.showActions = true;
     }
+
+    public void setOnEventClickListener(@Nullable OnEventClickListener onClick) {
+        this.onClick = onClick;
+    }
+
+    public void setOnEventLongClickListener(@Nullable OnEventClickListener onLongClick) {
+        this.onLongClick = onLongClick;
+    }
+
     /**
-     * Inflates and binds a row for an {@link Event}.
+     * Shows {@code events}. Rows of summaries that were already shown are reused; the
+     * diff against the current list runs off the main thread.
      *
-     * <p>Populates text fields, formats timestamps, computes waiting-list
-     * usage, and conditionally shows edit/delete buttons.</p>
-     *
-     * @param position    row index
-     * @param convertView recycled view if available
-     * @param parent      ListView container
-     * @return the populated row view
+     * @param events events to show, in order; the list is copied
      */
-    @Override
-    public View getView(int position, View convertView, @NonNull ViewGroup parent){
-
-        if (convertView == null) {
-            convertView = LayoutInflater.from(getContext()).inflate(R.layout.item_event, parent, false);
+    public void submitEvents(List<EventSummary> events) {
+        List<EventRow> rows = EventRow.of(events, rowsById);
+        Map<String, EventRow> byId = new HashMap<>();
+        for (EventRow row : rows) {
+            byId.put(row.getId(), row);
         }
+        rowsById = byId;
+        submitList(rows);
+    }
 
-        Event event = getItem(position);
-
-        TextView name = convertView.findViewById(R.id.eventName);
-        TextView tag = convertView.findViewById(R.id.eventTag);
-        TextView location = convertView.findViewById(R.id.eventLocation);
-        TextView eventTime = convertView.findViewById(R.id.eventTime);
-        TextView regTime = convertView.findViewById(R.id.regTime);
-        TextView waitlist = convertView.findViewById(R.id.eventWaitlist);
-        ImageButton editBtn = convertView.findViewById(R.id.btnEdit);
-        ImageButton deleteBtn = convertView.findViewById(R.id.btnDelete);
-        TextView capacityView = convertView.findViewById(R.id.eventCapacity);
-
-
-        if (event != null) {
-            name.setText(event.getTitle());
-            tag.setText(event.getTag());
-
-            //Location
-            String locationText = event.getLocation() != null && !event.getLocation().isEmpty() ?
-                    event.getLocation() : "Not set";
-            location.setText(locationText);
-
-            //use helper to convert Timestamp of UTC time to local time(string)
-            String formattedTime = DateTimeFormatHelper.formatTimestamp(event.getDate());
-            eventTime.setText(formattedTime);
-            regTime.setText(event.getFormattedRegWindow());
-
-            // ---------- Waitlist: "X / Y" or "N/A" ----------
-            int wlCap = event.getWaitingListCapacity();
-
-            int currentSize = 0;
-            if (event.getWaitingList() != null &&
-                    event.getWaitingList().getList() != null) {
-                currentSize = event.getWaitingList().getList().size();
-            }
-
-            String wlText;
-            if (wlCap == -1) {
-                wlText = "N/A";
-            } else {
-                wlText =  currentSize + " / " + wlCap;
-            }
-            waitlist.setText(wlText);
-
-            // ---------- Event capacity: "ACCEPTED / CAPACITY" e.g. "1 / 40" ----------
-            int capacity = event.getCapacity();
-            int acceptedCount = 0;
-
-            if (event.getWaitingList() != null &&
-                    event.getWaitingList().getList() != null) {
-
-                for (Pair<?, WaitingListState> entry : event.getWaitingList().getList()) {
-                    if (entry != null && entry.second == WaitingListState.ACCEPTED) {
-                        acceptedCount++;
-                    }
-                }
-            }
-
-            String capacityText = acceptedCount + " / " + capacity;
-            capacityView.setText(capacityText);
-
-            // ---------- Edit/Delete buttons ----------
-            if (!showActions) {
-                // Any fragment that used the 2-arg constructor:
-                // hide buttons completely
-                editBtn.setVisibility(View.GONE);
-                deleteBtn.setVisibility(View.GONE);
-            } else {
-                // Only OrganizerViewEventsListFragment uses this path
-                editBtn.setVisibility(View.VISIBLE);
-                deleteBtn.setVisibility(View.VISIBLE);
-
-                editBtn.setOnClickListener(v -> {
-                    if (listener != null) listener.onEdit(event);
-                });
-
-                deleteBtn.setOnClickListener(v -> {
-                    if (listener != null) listener.onDelete(event);
-                });
-            }
+    /** @return the summary shown at {@code position} */
+    public EventSummary getEvent(int position) {
+        return getItem(position).getSummary();
+    }
 
+    static class Holder extends RecyclerView.ViewHolder {
+        final TextView name, tag, location, eventTime, regTime, waitlist, capacity;
+        final ImageButton editBtn, deleteBtn;
+
+        Holder(View v) {
+            super(v);
+            name = v.findViewById(R.id.eventName);
+            tag = v.findViewById(R.id.eventTag);
+            location = v.findViewById(R.id.eventLocation);
+            eventTime = v.findViewById(R.id.eventTime);
+            regTime = v.findViewById(R.id.regTime);
+            waitlist = v.findViewById(R.id.eventWaitlist);
+            capacity = v.findViewById(R.id.eventCapacity);
+            editBtn = v.findViewById(R.id.btnEdit);
+            deleteBtn = v.findViewById(R.id.btnDelete);
         }
+    }
+
+    @NonNull
+    @Override
+    public Holder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View row = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_event, parent, false);
+        Holder h = new Holder(row);
+        // Any adapter built without a listener hides the buttons completely;
+        // only OrganizerViewEventsListFragment shows them
+        int actions = showActions ? View.VISIBLE : View.GONE;
+        h.editBtn.setVisibility(actions);
+        h.deleteBtn.setVisibility(actions);
+
+        // listeners look up the row when fired, so they're set once per holder, not per bind
+        row.setOnClickListener(v -> {
+            EventSummary e = eventAt(h);
+            if (e != null && onClick != null) onClick.onClick(e);
+        });
+        row.setOnLongClickListener(v -> {
+            EventSummary e = eventAt(h);
+            if (e == null || onLongClick == null) return false;
+            onLongClick.onClick(e);
+            return true;
+        });
+        h.editBtn.setOnClickListener(v -> {
+            EventSummary e = eventAt(h);
+            if (e != null && listener != null) listener.onEdit(e);
+        });
+        h.deleteBtn.setOnClickListener(v -> {
+            EventSummary e = eventAt(h);
+            if (e != null && listener != null) listener.onDelete(e);
+        });
+        return h;
+    }
+
+    /**
+     * Binds a prepared row: text only, no formatting or counting.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull Holder h, int position) {
+        EventRow row = getItem(position);
+        h.name.setText(row.getTitle());
+        h.tag.setText(row.getTag());
+        h.location.setText(row.getLocation());
+        h.eventTime.setText(row.getDateText());
+        h.regTime.setText(row.getRegWindowText());
+        h.waitlist.setText(row.getWaitlistText());
+        h.capacity.setText(row.getCapacityText());
+    }
 
-        return convertView;
+    @Nullable
+    private EventSummary eventAt(Holder h) {
+        int pos = h.getBindingAdapterPosition();
+        return pos == RecyclerView.NO_POSITION ? null : getEvent(pos);
     }
 }
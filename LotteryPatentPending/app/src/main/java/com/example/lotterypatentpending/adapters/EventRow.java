@@ -0,0 +1,142 @@
+package com.example.lotterypatentpending.adapters;
+
+import androidx.annotation.NonNull;
+
+import com.example.lotterypatentpending.helpers.DateTimeFormatHelper;
+import com.example.lotterypatentpending.models.EventSummary;
+import com.google.firebase.Timestamp;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * What one row of {@link EventListAdapter} shows, with every text already
+ * formatted, so binding a row only sets text. Built once per summary instead of
+ * once per bind.
+ */
+public final class EventRow {
+    private final EventSummary summary;
+    private final String title;
+    private final String tag;
+    private final String location;
+    private final String dateText;
+    private final String regWindowText;
+    private final String waitlistText;
+    private final String capacityText;
+
+    private EventRow(EventSummary summary, SimpleDateFormat dateFmt, SimpleDateFormat regFmt) {
+        this.summary = summary;
+        this.title = summary.getTitle();
+        this.tag = summary.getTag();
+        this.location = summary.getLocation() != null && !summary.getLocation().isEmpty()
+                ? summary.getLocation() : "Not set";
+        this.dateText = summary.getDate() == null ? "Not set" : dateFmt.format(summary.getDate().toDate());
+        this.regWindowText = regWindow(summary.getRegStartDate(), summary.getRegEndDate(), regFmt);
+        // "X / Y", or "N/A" without a waiting list cap
+        this.waitlistText = summary.getWaitingListCapacity() == -1
+                ? "N/A" : summary.getEntrantCount() + " / " + summary.getWaitingListCapacity();
+        // "ACCEPTED / CAPACITY", e.g. "1 / 40"
+        this.capacityText = summary.getAcceptedCount() + " / " + summary.getCapacity();
+    }
+
+    /** Builds the row of one summary. */
+    public static EventRow of(@NonNull EventSummary summary) {
+        return new EventRow(summary, dateFormat(), regFormat());
+    }
+
+    /**
+     * Builds the rows of a list with one set of date formatters. A summary that is the
+     * same instance as the one behind its previous row keeps that row, so re-filtering
+     * a list formats nothing.
+     *
+     * @param previous earlier rows by event id; may be null
+     */
+    public static List<EventRow> of(List<EventSummary> summaries, Map<String, EventRow> previous) {
+        List<EventRow> rows = new ArrayList<>(summaries.size());
+        SimpleDateFormat dateFmt = null;
+        SimpleDateFormat regFmt = null;
+        for (EventSummary s : summaries) {
+            EventRow old = previous == null ? null : previous.get(s.getId());
+            if (old != null && old.summary == s) {
+                rows.add(old);
+                continue;
+            }
+            if (dateFmt == null) {
+                dateFmt = dateFormat();
+                regFmt = regFormat();
+            }
+            rows.add(new EventRow(s, dateFmt, regFmt));
+        }
+        return rows;
+    }
+
+    private static SimpleDateFormat dateFormat() {
+        return new SimpleDateFormat(DateTimeFormatHelper.DISPLAY_PATTERN, Locale.getDefault());
+    }
+
+    private static SimpleDateFormat regFormat() {
+        return new SimpleDateFormat("dd/MM/yyyy hh:mm aa", Locale.getDefault());
+    }
+
+    /** Same text as {@link EventSummary#getFormattedRegWindow()}. */
+    private static String regWindow(Timestamp start, Timestamp end, SimpleDateFormat fmt) {
+        if (start == null && end == null) {
+            return "Not set";
+        }
+        String startStr = start != null ? fmt.format(start.toDate()) : "N/A";
+        String endStr = end != null ? fmt.format(end.toDate()) : "N/A";
+        return startStr + "  –  " + endStr;
+    }
+
+    /** @return the summary this row shows, for click callbacks */
+    public EventSummary getSummary() {
+        return summary;
+    }
+
+    public String getId() {
+        return summary.getId();
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getDateText() {
+        return dateText;
+    }
+
+    public String getRegWindowText() {
+        return regWindowText;
+    }
+
+    public String getWaitlistText() {
+        return waitlistText;
+    }
+
+    public String getCapacityText() {
+        return capacityText;
+    }
+
+    /** @return true if both rows show the same text */
+    public boolean sameContent(EventRow other) {
+        return Objects.equals(title, other.title)
+                && Objects.equals(tag, other.tag)
+                && location.equals(other.location)
+                && dateText.equals(other.dateText)
+                && regWindowText.equals(other.regWindowText)
+                && waitlistText.equals(other.waitlistText)
+                && capacityText.equals(other.capacityText);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.lotterypatentpending.data;
+
+import com.example.lotterypatentpending.models.User;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads many users at once instead of one {@code getUser} call per id.
+ * <p>
+ * Ids are de-duplicated and split into chunks of {@link #CHUNK_SIZE} (the
+ * Firestore {@code whereIn} limit). At most {@code maxInFlight} chunks are
+ * requested at a time; each finished chunk starts the next one. Results come
+ * back in the order of the requested ids.
+ * </p>
+ */
+public class BulkUserLoader {
+    /** Largest id list a single {@code whereIn} query accepts. */
+    public static final int CHUNK_SIZE = 30;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+
+    private final UserBatchSource source;
+    private final int chunkSize;
+    private final int maxInFlight;
+
+    public BulkUserLoader(UserBatchSource source) {
+        this(source, CHUNK_SIZE, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    public BulkUserLoader(UserBatchSource source, int chunkSize, int maxInFlight) {
+        this.source = source;
+        this.chunkSize = Math.max(1, Math.min(chunkSize, CHUNK_SIZE));
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * @param userIds ids to load; may contain duplicates and nulls
+     * @return one entry per requested id, in the same order; null where the user doesn't exist.
+     * Fails if any chunk fails.
+     */
+    public CompletableFuture<List<User>> load(List<String> userIds) {
+        List<String> unique = new ArrayList<>();
+        for (String id : new LinkedHashSet<>(userIds)) {
+            if (id != null) unique.add(id);
+        }
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < unique.size(); i += chunkSize) {
+            chunks.add(unique.subList(i, Math.min(i + chunkSize, unique.size())));
+        }
+
+        Map<String, User> found = new ConcurrentHashMap<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (chunks.isEmpty()) {
+            done.complete(null);
+        } else {
+            AtomicInteger next = new AtomicInteger();
+            AtomicInteger remaining = new AtomicInteger(chunks.size());
+            for (int i = 0; i < Math.min(maxInFlight, chunks.size()); i++) {
+                fetchNext(chunks, next, remaining, found, done);
+            }
+        }
+
+        return done.thenApply(v -> {
+            List<User> out = new ArrayList<>(userIds.size());
+            for (String id : userIds) {
+                out.add(id == null ? null : found.get(id));
+            }
+            return out;
+        });
+    }
+
+    private void fetchNext(List<List<String>> chunks, AtomicInteger next, AtomicInteger remaining,
+                           Map<String, User> found, CompletableFuture<Void> done) {
+        int i = next.getAndIncrement();
+        if (i >= chunks.size() || done.isDone()) {
+            return;
+        }
+        source.fetchChunk(chunks.get(i)).whenComplete((users, e) -> {
+            if (e != null) {
+                done.completeExceptionally(e);
+                return;
+            }
+            for (Map.Entry<String, User> u : users.entrySet()) {
+                if (u.getValue() != null) found.put(u.getKey(), u.getValue());
+            }
+            if (remaining.decrementAndGet() == 0) {
+                done.complete(null);
+            } else {
+                fetchNext(chunks, next, remaining, found, done);
+            }
+        });
+    }
+}
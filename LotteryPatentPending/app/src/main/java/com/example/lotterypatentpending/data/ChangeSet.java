@@ -0,0 +1,47 @@
+package com.example.lotterypatentpending.data;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What one snapshot of a live query changed: the documents added, modified and
+ * removed, plus every current document. Unchanged documents are the same instances
+ * as in the previous change set, so a list can rebind only the rows that changed.
+ *
+ * @param <T> parsed document type
+ */
+public class ChangeSet<T> {
+    private final List<T> added;
+    private final List<T> modified;
+    private final List<T> removed;
+    private final List<T> items;
+
+    public ChangeSet(List<T> added, List<T> modified, List<T> removed, List<T> items) {
+        this.added = Collections.unmodifiableList(added);
+        this.modified = Collections.unmodifiableList(modified);
+        this.removed = Collections.unmodifiableList(removed);
+        this.items = Collections.unmodifiableList(items);
+    }
+
+    public List<T> getAdded() {
+        return added;
+    }
+
+    public List<T> getModified() {
+        return modified;
+    }
+
+    /** @return removed documents as they were last seen */
+    public List<T> getRemoved() {
+        return removed;
+    }
+
+    /** @return every current document, in query order */
+    public List<T> getItems() {
+        return items;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && modified.isEmpty() && removed.isEmpty();
+    }
+}
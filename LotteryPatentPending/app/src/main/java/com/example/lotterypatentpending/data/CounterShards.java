@@ -0,0 +1,85 @@
+package com.example.lotterypatentpending.data;
+
+import com.example.lotterypatentpending.models.WaitingListCounts;
+
+import java.util.Collection;
+
+/**
+ * Rules for spreading an event's waiting list counters over shard documents
+ * {@code events/{eventId}/counterShards/{k}}, so a registration burst writes to N
+ * documents instead of queueing behind the event document's write limit.
+ * <p>
+ * Each entrant is counted in one shard, its bucket, picked by hashing the uid and
+ * recorded on the entry. Each shard enforces its share of the waiting list cap;
+ * a joiner whose shard is full spills over to the next one, so the shares add up
+ * to exactly the cap. The event's own {@link WaitingListStore#COUNTS_FIELD} then
+ * holds a roll-up of the shards.
+ * </p>
+ */
+public final class CounterShards {
+    /** Event field with the number of shards; absent, 0 or 1 means not sharded. */
+    public static final String FIELD = "counterShards";
+    /** Subcollection of the event holding the shard documents. */
+    public static final String COLLECTION = "counterShards";
+    /** Entry field with the shard the entrant is counted in. */
+    public static final String ENTRY_FIELD = "shard";
+    /** More shards than this buy nothing but slower roll-ups. */
+    public static final int MAX_SHARDS = 16;
+    /** Shards used when an organizer marks an event as high-demand. */
+    public static final int DEFAULT_SHARDS = 8;
+
+    private CounterShards() {
+    }
+
+    /** @return true if {@code shards} turns sharding on */
+    public static boolean isSharded(int shards) {
+        return shards > 1;
+    }
+
+    /**
+     * Reads the shard count stored on an event.
+     *
+     * @param raw value of {@link #FIELD}, any number type or null
+     * @return the shard count, clamped to {@code [0, MAX_SHARDS]}
+     */
+    public static int count(Object raw) {
+        if (!(raw instanceof Number)) return 0;
+        return Math.max(0, Math.min(MAX_SHARDS, ((Number) raw).intValue()));
+    }
+
+    /** @return the shard a uid hashes to, its first choice when joining */
+    public static int home(String userId, int shards) {
+        return Math.floorMod(userId.hashCode(), shards);
+    }
+
+    /**
+     * @param stored value of {@link #ENTRY_FIELD} on the entry, or null if it has none
+     * @return the shard the entrant is counted in; entries written before sharding
+     * was turned on, or under a larger shard count, fall back to {@link #home}
+     */
+    public static int shardOf(Object stored, String userId, int shards) {
+        if (stored instanceof Number) {
+            int s = ((Number) stored).intValue();
+            if (s >= 0 && s < shards) return s;
+        }
+        return home(userId, shards);
+    }
+
+    /**
+     * @param capacity waiting list cap, -1 for no limit
+     * @return the part of the cap shard {@code shard} enforces; the parts sum to {@code capacity}
+     */
+    public static int quota(int capacity, int shards, int shard) {
+        if (capacity < 0) return -1;
+        return capacity / shards + (shard < capacity % shards ? 1 : 0);
+    }
+
+    /** @return the counts of all shards added up; missing shards count as zero */
+    public static WaitingListCounts sum(Collection<WaitingListCounts> shards) {
+        WaitingListCounts total = new WaitingListCounts();
+        for (WaitingListCounts c : shards) {
+            if (c != null) total.addAll(c);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.lotterypatentpending.data;
+
+import com.example.lotterypatentpending.models.WaitingListCounts;
+import com.example.lotterypatentpending.models.WaitingListState;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds Firestore writes for the {@link WaitingListStore#COUNTS_FIELD} counters.
+ * Deltas become {@link FieldValue#increment} so concurrent writers add up instead
+ * of overwriting each other; full counts are written as plain numbers.
+ */
+public final class CounterUpdates {
+    private CounterUpdates() {
+    }
+
+    /**
+     * @param delta count change; zero entries are left out
+     * @return {@code stateCounts.<STATE>} field paths to increments, for {@code update()}
+     */
+    public static Map<String, Object> fieldIncrements(WaitingListCounts delta) {
+        Map<String, Object> updates = new HashMap<>();
+        for (WaitingListState s : WaitingListCounts.COUNTED) {
+            if (delta.get(s) != 0) {
+                updates.put(WaitingListStore.COUNTS_FIELD + "." + s.name(), FieldValue.increment(delta.get(s)));
+            }
+        }
+        return updates;
+    }
+
+    /**
+     * @param delta count change; zero entries are left out
+     * @return the increments as a nested map, for {@code set(..., SetOptions.merge())}
+     */
+    public static Map<String, Object> nestedIncrements(WaitingListCounts delta) {
+        Map<String, Object> counters = new HashMap<>();
+        for (WaitingListState s : WaitingListCounts.COUNTED) {
+            if (delta.get(s) != 0) {
+                counters.put(s.name(), FieldValue.increment(delta.get(s)));
+            }
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put(WaitingListStore.COUNTS_FIELD, counters);
+        return data;
+    }
+
+    /**
+     * @param counts full counts
+     * @return the counts as a nested map, replacing every counter when merged
+     */
+    public static Map<String, Object> nestedCounts(WaitingListCounts counts) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(WaitingListStore.COUNTS_FIELD, counts.toMap());
+        return data;
+    }
+
+    /**
+     * Reads mirror documents in a transaction. Mirrors that don't exist are dropped
+     * so a counter update can't create an otherwise empty document.
+     */
+    static List<DocumentReference> existing(Transaction tx, FirebaseFirestore db, List<String> paths)
+            throws FirebaseFirestoreException {
+        List<DocumentReference> refs = new ArrayList<>();
+        for (String path : paths) {
+            DocumentReference ref = db.document(path);
+            if (tx.get(ref).exists()) {
+                refs.add(ref);
+            }
+        }
+        return refs;
+    }
+
+    /**
+     * Overwrites the counters of {@code event} and of the existing mirrors where they
+     * differ from {@code actual}. Reads the mirrors first, so it must run before any
+     * other write in the transaction.
+     *
+     * @return number of documents whose counters were rewritten
+     */
+    static int repair(Transaction tx, FirebaseFirestore db, DocumentSnapshot event, List<String> mirrors,
+                      WaitingListCounts actual) throws FirebaseFirestoreException {
+        List<DocumentSnapshot> mirrorDocs = new ArrayList<>();
+        for (String path : mirrors) {
+            DocumentSnapshot doc = tx.get(db.document(path));
+            if (doc.exists()) {
+                mirrorDocs.add(doc);
+            }
+        }
+
+        int repaired = 0;
+        if (!actual.equals(WaitingListCounts.fromMap(event.get(WaitingListStore.COUNTS_FIELD)))) {
+            tx.update(event.getReference(), WaitingListStore.COUNTS_FIELD, actual.toMap());
+            repaired++;
+        }
+        for (DocumentSnapshot doc : mirrorDocs) {
+            if (!actual.equals(WaitingListCounts.fromMap(doc.get(WaitingListStore.COUNTS_FIELD)))) {
+                tx.set(doc.getReference(), FirestoreSyncSource.stamp(nestedCounts(actual)), SetOptions.merge());
+                repaired++;
+            }
+        }
+        return repaired;
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.lotterypatentpending.data;
+
+import androidx.annotation.Nullable;
+import androidx.core.util.Pair;
+
+import com.example.lotterypatentpending.models.User;
+import com.example.lotterypatentpending.models.WaitingListCounts;
+import com.example.lotterypatentpending.models.WaitingListState;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link WaitingListStore} over the original layout: a {@code waitingList} map
+ * field on the event document. Pages are cut from the full map after one
+ * document read, so paging here saves memory downstream but not bandwidth.
+ */
+public class EmbeddedWaitingListStore implements WaitingListStore {
+    private final FirebaseFirestore db;
+
+    public EmbeddedWaitingListStore(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    @Override
+    public CompletableFuture<WaitingListPage> getPage(String eventId, @Nullable WaitingListState state,
+                                                      @Nullable String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return load(eventId, state).thenApply(sorted -> {
+            Map<String, WaitingListState> tail = cursor == null ? sorted : sorted.tailMap(cursor, false);
+            List<Pair<User, WaitingListState>> page = new ArrayList<>();
+            String next = null;
+            for (Map.Entry<String, WaitingListState> e : tail.entrySet()) {
+                if (page.size() == pageSize) {
+                    next = page.get(pageSize - 1).first.getUserId();
+                    break;
+                }
+                page.add(entry(e.getKey(), e.getValue()));
+            }
+            return new WaitingListPage(page, next);
+        });
+    }
+
+    /** The whole list is one document, so read it once instead of once per page. */
+    @Override
+    public CompletableFuture<List<Pair<User, WaitingListState>>> getAll(String eventId,
+                                                                       @Nullable WaitingListState state) {
+        return load(eventId, state).thenApply(sorted -> {
+            List<Pair<User, WaitingListState>> out = new ArrayList<>(sorted.size());
+            for (Map.Entry<String, WaitingListState> e : sorted.entrySet()) {
+                out.add(entry(e.getKey(), e.getValue()));
+            }
+            return out;
+        });
+    }
+
+    private CompletableFuture<TreeMap<String, WaitingListState>> load(String eventId,
+                                                                     @Nullable WaitingListState state) {
+        CompletableFuture<TreeMap<String, WaitingListState>> future = new CompletableFuture<>();
+        db.collection("events").document(eventId).get()
+                .addOnSuccessListener(doc -> {
+                    TreeMap<String, WaitingListState> sorted = new TreeMap<>();
+                    Object raw = doc.exists() ? doc.get("waitingList") : null;
+                    if (raw instanceof Map) {
+                        for (Map.Entry<?, ?> entry : ((Map<?, ?>) raw).entrySet()) {
+                            WaitingListState s = stateOf(entry.getValue());
+                            if (s != null && (state == null || s == state)) {
+                                sorted.put(entry.getKey().toString(), s);
+                            }
+                        }
+                    }
+                    future.complete(sorted);
+                })
+                .addOnFailureListener(future::completeExceptionally);
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> applyChanges(String eventId, Map<String, WaitingListState> changes) {
+        if (changes.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        db.collection("events").document(eventId)
+                .update(entryUpdates(changes))
+                .addOnSuccessListener(unused -> future.complete(null))
+                .addOnFailureListener(future::completeExceptionally);
+        return future;
+    }
+
+    private static Map<String, Object> entryUpdates(Map<String, WaitingListState> changes) {
+        Map<String, Object> updates = new HashMap<>();
+        for (Map.Entry<String, WaitingListState> change : changes.entrySet()) {
+            String path = "waitingList." + change.getKey();
+            if (change.getValue() == null) {
+                updates.put(path, FieldValue.delete());
+            } else {
+                updates.put(path + ".state", change.getValue().name());
+            }
+        }
+        return updates;
+    }
+
+    /**
+     * Runs as a transaction on the event document, so it downloads the whole
+     * document (poster included) once per attempt.
+     */
+    @Override
+    public CompletableFuture<WaitingListCounts> applyCountedChanges(String eventId,
+                                                                    Map<String, WaitingListState> changes,
+                                                                    List<String> mirrors) {
+        if (changes.isEmpty()) {
+            return CompletableFuture.completedFuture(new WaitingListCounts());
+        }
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        CompletableFuture<WaitingListCounts> future = new CompletableFuture<>();
+        db.runTransaction(tx -> {
+            DocumentSnapshot event = tx.get(eventRef);
+            List<DocumentReference> liveMirrors = CounterUpdates.existing(tx, db, mirrors);
+
+            WaitingListCounts delta = new WaitingListCounts();
+            for (Map.Entry<String, WaitingListState> change : changes.entrySet()) {
+                WaitingListState before = stateOf(event.get(FieldPath.of("waitingList", change.getKey())));
+                delta.addAll(WaitingListCounts.transition(before, change.getValue()));
+            }
+
+            Map<String, Object> updates = entryUpdates(changes);
+            updates.putAll(CounterUpdates.fieldIncrements(delta));
+            tx.update(eventRef, updates);
+            if (!delta.isZero()) {
+                for (DocumentReference mirror : liveMirrors) {
+                    tx.set(mirror, FirestoreSyncSource.stamp(CounterUpdates.nestedIncrements(delta)), SetOptions.merge());
+                }
+            }
+            return delta;
+        })
+                .addOnSuccessListener(future::complete)
+                .addOnFailureListener(future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * Entries share the event document, so every write lands on it anyway and
+     * {@link CounterShards} don't apply; {@code shards} is ignored.
+     */
+    @Override
+    public CompletableFuture<WaitingListCounts> readCounts(String eventId, int shards) {
+        CompletableFuture<WaitingListCounts> future = new CompletableFuture<>();
+        db.collection("events").document(eventId).get()
+                .addOnSuccessListener(doc -> {
+                    WaitingListCounts counts = WaitingListCounts.fromMap(doc.get(COUNTS_FIELD));
+                    future.complete(counts != null ? counts : new WaitingListCounts());
+                })
+                .addOnFailureListener(future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * The capacity check counts the embedded map itself, which sits in the same
+     * document as the entry being added, so it can't be fooled by stale counters.
+     */
+    @Override
+    public CompletableFuture<JoinResult> join(String eventId, String userId, List<String> mirrors) {
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        return JoinTransactions.run(db, tx -> {
+            DocumentSnapshot event = tx.get(eventRef);
+            if (!event.exists()) {
+                throw new FirebaseFirestoreException("Event " + eventId + " not found",
+                        FirebaseFirestoreException.Code.NOT_FOUND);
+            }
+            List<DocumentReference> liveMirrors = CounterUpdates.existing(tx, db, mirrors);
+
+            Object raw = event.get("waitingList");
+            int entrants = raw instanceof Map ? ((Map<?, ?>) raw).size() : 0;
+            WaitingListState current = stateOf(event.get(FieldPath.of("waitingList", userId)));
+            JoinResult result = WaitingListStore.decideJoin(current, entrants, JoinTransactions.capacityOf(event));
+            if (result != JoinResult.JOINED) {
+                return result;
+            }
+
+            WaitingListCounts delta = WaitingListCounts.transition(null, WaitingListState.ENTERED);
+            Map<String, Object> updates = entryUpdates(Collections.singletonMap(userId, WaitingListState.ENTERED));
+            updates.putAll(CounterUpdates.fieldIncrements(delta));
+            tx.update(eventRef, updates);
+            for (DocumentReference mirror : liveMirrors) {
+                tx.set(mirror, FirestoreSyncSource.stamp(CounterUpdates.nestedIncrements(delta)), SetOptions.merge());
+            }
+            JoinTransactions.recordJoin(tx, db, userId, eventId);
+            return result;
+        });
+    }
+
+    /** Counts and counters are read from the same snapshot, so the repair is exact. */
+    @Override
+    public CompletableFuture<Integer> reconcileCounts(String eventId, List<String> mirrors) {
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        db.runTransaction(tx -> {
+            DocumentSnapshot event = tx.get(eventRef);
+            if (!event.exists()) {
+                return 0;
+            }
+            WaitingListCounts actual = new WaitingListCounts();
+            Object raw = event.get("waitingList");
+            if (raw instanceof Map) {
+                for (Object entry : ((Map<?, ?>) raw).values()) {
+                    actual.add(stateOf(entry), 1);
+                }
+            }
+            return CounterUpdates.repair(tx, db, event, mirrors, actual);
+        })
+                .addOnSuccessListener(future::complete)
+                .addOnFailureListener(future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * Queries {@code waitingList.<uid>.state} directly. This still downloads each
+     * matching event document, but only for events the user is on.
+     */
+    @Override
+    public CompletableFuture<Map<String, WaitingListState>> getStatesForUser(String userId) {
+        List<String> states = new ArrayList<>();
+        for (WaitingListState s : WaitingListState.values()) {
+            states.add(s.name());
+        }
+
+        CompletableFuture<Map<String, WaitingListState>> future = new CompletableFuture<>();
+        db.collection("events")
+                .whereIn(FieldPath.of("waitingList", userId, "state"), states)
+                .get()
+                .addOnSuccessListener(snap -> {
+                    Map<String, WaitingListState> out = new HashMap<>();
+                    for (DocumentSnapshot doc : snap.getDocuments()) {
+                        Object raw = doc.get(FieldPath.of("waitingList", userId));
+                        WaitingListState s = stateOf(raw);
+                        if (s != null) {
+                            out.put(doc.getId(), s);
+                        }
+                    }
+                    future.complete(out);
+                })
+                .addOnFailureListener(future::completeExceptionally);
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> clear(String eventId) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        db.collection("events").document(eventId)
+                .update("waitingList", FieldValue.delete())
+                .addOnSuccessListener(unused -> future.complete(null))
+                .addOnFailureListener(future::completeExceptionally);
+        return future;
+    }
+
+    private static Pair<User, WaitingListState> entry(String userId, WaitingListState state) {
+        User u = new User();
+        u.setUserId(userId);   // we only care about UID here
+        return new Pair<>(u, state);
+    }
+
+    private static WaitingListState stateOf(Object value) {
+        if (!(value instanceof Map)) return null;
+        Object s = ((Map<?, ?>) value).get("state");
+        if (!(s instanceof String)) return null;
+        try {
+            return WaitingListState.valueOf((String) s);
+        } catch (IllegalArgumentException e) {
+            return null; // unknown state, skip
+        }
+    }
+}
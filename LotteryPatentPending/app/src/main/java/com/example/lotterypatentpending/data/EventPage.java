@@ -0,0 +1,34 @@
+package com.example.lotterypatentpending.data;
+
+import androidx.annotation.Nullable;
+
+import com.example.lotterypatentpending.models.EventSummary;
+
+import java.util.List;
+
+/**
+ * One page of event summaries matching an {@link EventQuery}, in the query's order.
+ */
+public class EventPage {
+    private final List<EventSummary> events;
+    private final EventQuery.Cursor nextCursor;
+
+    public EventPage(List<EventSummary> events, @Nullable EventQuery.Cursor nextCursor) {
+        this.events = events;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<EventSummary> getEvents() {
+        return events;
+    }
+
+    /** @return cursor to pass for the next page, or null if this is the last page */
+    @Nullable
+    public EventQuery.Cursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.lotterypatentpending.data;
+
+import androidx.annotation.Nullable;
+
+import com.example.lotterypatentpending.models.EventState;
+import com.example.lotterypatentpending.models.EventSummary;
+import com.google.firebase.Timestamp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A filtered, paged query over {@code eventSummaries} that runs on the server.
+ * <p>
+ * The tag is an equality filter, the date range and registration state are range
+ * filters, and results are ordered by date, then by any registration date filtered
+ * on, then by document id. A page ends with a {@link Cursor} holding the last
+ * summary's values for those orderings, which the next page starts after. Each
+ * combination of filters needs a composite index, e.g.
+ * {@code eventSummaries(tag, date, __name__)} for a tag and date range, and
+ * {@code eventSummaries(tag, date, regStartDate, regEndDate, __name__)} for a tag
+ * and open registration. Summaries without a date never match a date range.
+ * </p>
+ */
+public class EventQuery {
+    public static final int DEFAULT_PAGE_SIZE = 25;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    public static final String TAG = "tag";
+    public static final String DATE = "date";
+    public static final String REG_START = "regStartDate";
+    public static final String REG_END = "regEndDate";
+
+    /** Where the previous page ended; opaque to callers. */
+    public static final class Cursor {
+        private final List<Object> values;
+
+        Cursor(List<Object> values) {
+            this.values = Collections.unmodifiableList(values);
+        }
+
+        /** @return one value per ordering of the query that produced it */
+        public List<Object> getValues() {
+            return values;
+        }
+    }
+
+    @Nullable
+    private String tag;
+    @Nullable
+    private Timestamp from;
+    @Nullable
+    private Timestamp to;
+    @Nullable
+    private EventState state;
+    @Nullable
+    private Timestamp asOf;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    /** Events with exactly this tag; null or empty for any tag. */
+    public EventQuery tag(@Nullable String tag) {
+        this.tag = tag == null || tag.isEmpty() ? null : tag;
+        return this;
+    }
+
+    /** Events dated within [from, to]; either end may be open. */
+    public EventQuery dates(@Nullable Timestamp from, @Nullable Timestamp to) {
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    /** Same as {@link #state(EventState, Timestamp)} as of now. */
+    public EventQuery state(@Nullable EventState state) {
+        return state(state, Timestamp.now());
+    }
+
+    /**
+     * Events whose registration window puts them in {@code state} at {@code asOf},
+     * following {@code Event.updateRegistrationState}. The time is fixed here so
+     * every page uses the same one.
+     *
+     * @param state NOT_STARTED, OPEN_FOR_REG or CLOSED_FOR_REG, or null for any
+     * @throws IllegalArgumentException for states that depend on more than the
+     *                                  registration dates, which summaries don't store
+     */
+    public EventQuery state(@Nullable EventState state, Timestamp asOf) {
+        if (state != null && state != EventState.NOT_STARTED && state != EventState.OPEN_FOR_REG
+                && state != EventState.CLOSED_FOR_REG) {
+            throw new IllegalArgumentException("Can't query events by state " + state);
+        }
+        this.state = state;
+        this.asOf = state == null ? null : asOf;
+        return this;
+    }
+
+    /** @param pageSize summaries per page, capped at {@link #MAX_PAGE_SIZE} */
+    public EventQuery pageSize(int pageSize) {
+        if (pageSize <= 0) throw new IllegalArgumentException("pageSize must be positive");
+        this.pageSize = Math.min(pageSize, MAX_PAGE_SIZE);
+        return this;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /** @return true if any filter is set, i.e. this is not every event */
+    public boolean isFiltered() {
+        return tag != null || from != null || to != null || state != null;
+    }
+
+    /**
+     * Builds one page of this query.
+     *
+     * @param ops   query operations of the backend
+     * @param base  the {@code eventSummaries} collection
+     * @param after {@link EventPage#getNextCursor()} of the previous page, or null for the first
+     */
+    public <Q> Q build(QueryOps<Q> ops, Q base, @Nullable Cursor after) {
+        Q q = base;
+        if (tag != null) q = ops.whereEqualTo(q, TAG, tag);
+        if (from != null) q = ops.whereGreaterThanOrEqualTo(q, DATE, from);
+        if (to != null) q = ops.whereLessThanOrEqualTo(q, DATE, to);
+        if (state == EventState.NOT_STARTED) {
+            q = ops.whereGreaterThan(q, REG_START, asOf);
+        } else if (state == EventState.OPEN_FOR_REG) {
+            q = ops.whereLessThanOrEqualTo(q, REG_START, asOf);
+            q = ops.whereGreaterThan(q, REG_END, asOf);
+        } else if (state == EventState.CLOSED_FOR_REG) {
+            q = ops.whereLessThanOrEqualTo(q, REG_END, asOf);
+        }
+
+        for (String field : orderFields()) q = ops.orderBy(q, field);
+        q = ops.orderByDocumentId(q);
+        if (after != null) q = ops.startAfter(q, after.getValues());
+        return ops.limit(q, pageSize);
+    }
+
+    /**
+     * Wraps the results of one page. A full page may be followed by more, so it gets
+     * a cursor; a short page is the last.
+     *
+     * @param events the page's summaries, in query order
+     */
+    public EventPage toPage(List<EventSummary> events) {
+        if (events.size() < pageSize) return new EventPage(events, null);
+        return new EventPage(events, cursorAfter(events.get(events.size() - 1)));
+    }
+
+    /** @return cursor that starts the next page after {@code last} */
+    public Cursor cursorAfter(EventSummary last) {
+        List<Object> values = new ArrayList<>();
+        for (String field : orderFields()) {
+            switch (field) {
+                case DATE:
+                    values.add(last.getDate());
+                    break;
+                case REG_START:
+                    values.add(last.getRegStartDate());
+                    break;
+                default:
+                    values.add(last.getRegEndDate());
+                    break;
+            }
+        }
+        values.add(last.getId());
+        return new Cursor(values);
+    }
+
+    /** Field orderings before the document id: the date, then any other range field. */
+    private List<String> orderFields() {
+        List<String> fields = new ArrayList<>();
+        fields.add(DATE);
+        if (state == EventState.NOT_STARTED || state == EventState.OPEN_FOR_REG) fields.add(REG_START);
+        if (state == EventState.OPEN_FOR_REG || state == EventState.CLOSED_FOR_REG) fields.add(REG_END);
+        return fields;
+    }
+}
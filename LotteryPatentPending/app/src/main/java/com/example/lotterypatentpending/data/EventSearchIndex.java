@@ -0,0 +1,343 @@
+package com.example.lotterypatentpending.data;
+
+import androidx.annotation.Nullable;
+
+import com.example.lotterypatentpending.models.EventSummary;
+import com.google.firebase.Timestamp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory search over the event summaries a screen has loaded, shared by the
+ * attendee, organizer and admin event lists.
+ * <p>
+ * Each event gets a slot. Title, tag and location are split into lowercase tokens
+ * and kept in a sorted inverted index, so a query token matches every indexed token
+ * it is a prefix of. Dates are in a sorted index for range queries and each tag has
+ * a bitset of its slots; a search intersects bitsets instead of scanning the list.
+ * {@link #update} is fed the whole list on every live snapshot and only re-tokenizes
+ * events whose searchable fields changed. Not thread-safe; use it from one thread.
+ * </p>
+ */
+public class EventSearchIndex {
+
+    /** What to search for; unset parts match everything. */
+    public static final class Filter {
+        private String text = "";
+        @Nullable
+        private Timestamp start;
+        @Nullable
+        private Timestamp end;
+        @Nullable
+        private String tag;
+        @Nullable
+        private Collection<String> ids;
+
+        /** Every token of {@code text} must prefix a token of the title, tag or location. */
+        public Filter text(@Nullable String text) {
+            this.text = text == null ? "" : text;
+            return this;
+        }
+
+        /** Events dated within [start, end]; either end may be open. Undated events always match. */
+        public Filter dates(@Nullable Timestamp start, @Nullable Timestamp end) {
+            this.start = start;
+            this.end = end;
+            return this;
+        }
+
+        /** Events with this tag, ignoring case; null or empty for any tag. */
+        public Filter tag(@Nullable String tag) {
+            this.tag = tag == null || tag.isEmpty() ? null : tag;
+            return this;
+        }
+
+        /** Only these events, e.g. the ones the user is on the waiting list of; null for all. */
+        public Filter ids(@Nullable Collection<String> ids) {
+            this.ids = ids;
+            return this;
+        }
+
+        boolean isEmpty() {
+            return tokens(text).isEmpty() && start == null && end == null && tag == null && ids == null;
+        }
+    }
+
+    /** Searchable fields of one slot, to tell whether an update needs re-indexing. */
+    private static final class Entry {
+        EventSummary summary;
+        final String title;
+        final String tag;
+        final String location;
+        @Nullable
+        final Long date;
+        final Set<String> tokens;
+
+        Entry(EventSummary s) {
+            summary = s;
+            title = s.getTitle();
+            tag = s.getTag();
+            location = s.getLocation();
+            date = s.getDate() == null ? null : s.getDate().toDate().getTime();
+            tokens = new LinkedHashSet<>();
+            tokens.addAll(tokens(title));
+            tokens.addAll(tokens(tag));
+            tokens.addAll(tokens(location));
+        }
+
+        boolean sameFields(EventSummary s) {
+            Long d = s.getDate() == null ? null : s.getDate().toDate().getTime();
+            return Objects.equals(title, s.getTitle()) && Objects.equals(tag, s.getTag())
+                    && Objects.equals(location, s.getLocation()) && Objects.equals(date, d);
+        }
+    }
+
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private final List<Entry> slots = new ArrayList<>();
+    private final ArrayList<Integer> freeSlots = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final TreeMap<String, Postings> byToken = new TreeMap<>();
+    private final TreeMap<Long, Postings> byDate = new TreeMap<>();
+    private final BitSet undated = new BitSet();
+    private final Map<String, BitSet> byTag = new HashMap<>();
+    /** Slots in the order of the last {@link #update}, and each slot's position in it. */
+    private int[] order = new int[0];
+    private int[] rank = new int[0];
+    private List<EventSummary> all = new ArrayList<>();
+    private int reindexed;
+
+    /**
+     * Makes the index hold exactly {@code events}: new ones are added, missing ones
+     * removed, and changed ones re-indexed. Events whose title, tag, location and date
+     * are unchanged only have their summary swapped in. Search results keep the order
+     * of this list.
+     *
+     * @param events events with ids
+     */
+    public void update(List<EventSummary> events) {
+        Set<String> seen = new LinkedHashSet<>();
+        for (EventSummary s : events) {
+            if (s.getId() == null || !seen.add(s.getId())) continue;
+            Integer slot = slotById.get(s.getId());
+            if (slot == null) {
+                add(s);
+            } else if (slots.get(slot).sameFields(s)) {
+                slots.get(slot).summary = s;
+            } else {
+                remove(slot);
+                add(s);
+            }
+        }
+        if (seen.size() != slotById.size()) {
+            for (String id : new ArrayList<>(slotById.keySet())) {
+                if (!seen.contains(id)) remove(slotById.get(id));
+            }
+        }
+
+        order = new int[seen.size()];
+        rank = new int[slots.size()];
+        List<EventSummary> list = new ArrayList<>(seen.size());
+        int i = 0;
+        for (String id : seen) {
+            int slot = slotById.get(id);
+            order[i] = slot;
+            rank[slot] = i++;
+            list.add(slots.get(slot).summary);
+        }
+        all = list;
+    }
+
+    /**
+     * @return the matching events, in the order they were given to {@link #update}
+     */
+    public List<EventSummary> search(Filter filter) {
+        if (filter.isEmpty()) return new ArrayList<>(all);
+
+        BitSet hits = (BitSet) live.clone();
+        if (filter.tag != null) {
+            BitSet tagged = byTag.get(filter.tag.toLowerCase(Locale.ROOT));
+            if (tagged == null) return new ArrayList<>();
+            hits.and(tagged);
+        }
+        if (filter.ids != null) {
+            BitSet only = new BitSet();
+            for (String id : filter.ids) {
+                Integer slot = slotById.get(id);
+                if (slot != null) only.set(slot);
+            }
+            hits.and(only);
+        }
+        if (filter.start != null || filter.end != null) {
+            hits.and(datedWithin(filter.start, filter.end));
+        }
+        for (String token : tokens(filter.text)) {
+            if (hits.isEmpty()) break;
+            BitSet matching = new BitSet();
+            for (Postings p : byToken.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+                p.setAll(matching);
+            }
+            hits.and(matching);
+        }
+
+        // re-order through the ranks, linear in hits and a bit per event
+        BitSet ranks = new BitSet(order.length);
+        for (int slot = hits.nextSetBit(0); slot >= 0; slot = hits.nextSetBit(slot + 1)) {
+            ranks.set(rank[slot]);
+        }
+        List<EventSummary> out = new ArrayList<>(ranks.cardinality());
+        for (int r = ranks.nextSetBit(0); r >= 0; r = ranks.nextSetBit(r + 1)) {
+            out.add(slots.get(order[r]).summary);
+        }
+        return out;
+    }
+
+    public int size() {
+        return slotById.size();
+    }
+
+    /** @return how many events have been tokenized so far, for checking updates stay incremental */
+    public int getReindexedCount() {
+        return reindexed;
+    }
+
+    private BitSet datedWithin(@Nullable Timestamp start, @Nullable Timestamp end) {
+        BitSet dated = (BitSet) undated.clone();
+        Map<Long, Postings> range;
+        if (start != null && end != null) {
+            long from = start.toDate().getTime();
+            long to = end.toDate().getTime();
+            if (from > to) return dated;
+            range = byDate.subMap(from, true, to, true);
+        } else if (start != null) {
+            range = byDate.tailMap(start.toDate().getTime(), true);
+        } else {
+            range = byDate.headMap(end.toDate().getTime(), true);
+        }
+        for (Postings p : range.values()) p.setAll(dated);
+        return dated;
+    }
+
+    private void add(EventSummary s) {
+        int slot;
+        Entry e = new Entry(s);
+        if (freeSlots.isEmpty()) {
+            slot = slots.size();
+            slots.add(e);
+        } else {
+            slot = freeSlots.remove(freeSlots.size() - 1);
+            slots.set(slot, e);
+        }
+        slotById.put(s.getId(), slot);
+        live.set(slot);
+        reindexed++;
+
+        for (String token : e.tokens) {
+            Postings p = byToken.get(token);
+            if (p == null) byToken.put(token, p = new Postings());
+            p.add(slot);
+        }
+        if (e.date == null) {
+            undated.set(slot);
+        } else {
+            Postings p = byDate.get(e.date);
+            if (p == null) byDate.put(e.date, p = new Postings());
+            p.add(slot);
+        }
+        if (e.tag != null && !e.tag.isEmpty()) {
+            String key = e.tag.toLowerCase(Locale.ROOT);
+            BitSet tagged = byTag.get(key);
+            if (tagged == null) byTag.put(key, tagged = new BitSet());
+            tagged.set(slot);
+        }
+    }
+
+    private void remove(int slot) {
+        Entry e = slots.get(slot);
+        slotById.remove(e.summary.getId());
+        live.clear(slot);
+        for (String token : e.tokens) {
+            Postings p = byToken.get(token);
+            if (p.remove(slot)) byToken.remove(token);
+        }
+        if (e.date == null) {
+            undated.clear(slot);
+        } else if (byDate.get(e.date).remove(slot)) {
+            byDate.remove(e.date);
+        }
+        if (e.tag != null && !e.tag.isEmpty()) {
+            String key = e.tag.toLowerCase(Locale.ROOT);
+            BitSet tagged = byTag.get(key);
+            tagged.clear(slot);
+            if (tagged.isEmpty()) byTag.remove(key);
+        }
+        slots.set(slot, null);
+        freeSlots.add(slot);
+    }
+
+    /**
+     * Splits text into lowercase runs of letters and digits.
+     *
+     * @return the distinct tokens, in order; empty for null
+     */
+    static Set<String> tokens(@Nullable String text) {
+        Set<String> out = new LinkedHashSet<>();
+        if (text == null) return out;
+        String lower = text.toLowerCase(Locale.ROOT);
+        int from = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (word && from < 0) {
+                from = i;
+            } else if (!word && from >= 0) {
+                out.add(lower.substring(from, i));
+                from = -1;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Sorted slot numbers. Most tokens and dates belong to a few events, where an
+     * array is far smaller than a bitset as wide as the whole index.
+     */
+    private static final class Postings {
+        private int[] slots = new int[2];
+        private int size;
+
+        void add(int slot) {
+            // new slots are handed out in increasing order, so most adds append
+            int i = size == 0 || slots[size - 1] < slot ? -size - 1 : Arrays.binarySearch(slots, 0, size, slot);
+            if (i >= 0) return;
+            i = -i - 1;
+            if (size == slots.length) slots = Arrays.copyOf(slots, size * 2);
+            System.arraycopy(slots, i, slots, i + 1, size - i);
+            slots[i] = slot;
+            size++;
+        }
+
+        /** @return true if no slots are left */
+        boolean remove(int slot) {
+            int i = Arrays.binarySearch(slots, 0, size, slot);
+            if (i >= 0) {
+                System.arraycopy(slots, i + 1, slots, i, size - i - 1);
+                size--;
+            }
+            return size == 0;
+        }
+
+        void setAll(BitSet bits) {
+            for (int i = 0; i < size; i++) bits.set(slots[i]);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.lotterypatentpending.data;
+
+import com.example.lotterypatentpending.models.NotificationTemplate;
+import com.example.lotterypatentpending.models.OutboxJob;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link NotificationOutbox} in the {@code outbox/{jobId}} collection. The job's text
+ * goes to {@code notificationTemplates/{jobId}} and each recipient gets a templated
+ * notification in {@code users/{uid}/notifications/{idempotencyKey}}.
+ * <p>
+ * Each chunk is delivered in a transaction that first checks the chunk's marker in
+ * {@code outbox/{jobId}/chunks/{chunk}}, so its notifications are only ever created
+ * once: a redelivery neither marks them unread again nor bumps the counters twice.
+ * </p>
+ * <p>
+ * A job keeps its recipient ids in its own document, which fits a send to a few
+ * tens of thousands of entrants within Firestore's 1 MiB document limit.
+ * </p>
+ */
+public class FirestoreNotificationOutbox implements NotificationOutbox {
+    public static final String COLLECTION = "outbox";
+    /** Per-job subcollection with one marker document per delivered chunk. */
+    public static final String CHUNKS = "chunks";
+    private static final String REMAINING = "remainingChunks";
+
+    private final FirebaseFirestore db;
+
+    public FirestoreNotificationOutbox() {
+        this(FirebaseFirestore.getInstance());
+    }
+
+    public FirestoreNotificationOutbox(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    private DocumentReference jobRef(String jobId) {
+        return db.collection(COLLECTION).document(jobId);
+    }
+
+    @Override
+    public CompletableFuture<OutboxJob> enqueue(OutboxJob job) {
+        CompletableFuture<OutboxJob> f = new CompletableFuture<>();
+        DocumentReference ref = jobRef(job.getId());
+        db.runTransaction(tx -> {
+                    DocumentSnapshot existing = tx.get(ref);
+                    if (existing.exists()) {
+                        OutboxJob stored = existing.toObject(OutboxJob.class);
+                        if (stored != null) {
+                            stored.setId(existing.getId());
+                            return stored;
+                        }
+                    }
+                    tx.set(ref, job);
+                    tx.set(db.collection(NotificationTemplate.COLLECTION).document(job.getId()), job.toTemplate());
+                    return job;
+                })
+                .addOnSuccessListener(f::complete)
+                .addOnFailureListener(f::completeExceptionally);
+        return f;
+    }
+
+    /**
+     * Adds to {@code batch} the release of every held job in {@code jobs}, so the jobs
+     * become pending in the same commit as the draw they announce. Jobs that were
+     * released already are left as they are.
+     */
+    public static void release(WriteBatch batch, FirebaseFirestore db, Collection<OutboxJob> jobs) {
+        for (OutboxJob job : jobs) {
+            if (!job.isHeld()) continue;
+            batch.update(db.collection(COLLECTION).document(job.getId()),
+                    "held", false, REMAINING, job.getPendingChunks().size());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> deliverChunk(OutboxJob job, int chunk) {
+        if (job.isChunkDone(chunk)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        DocumentReference jobRef = jobRef(job.getId());
+        DocumentReference marker = jobRef.collection(CHUNKS).document(String.valueOf(chunk));
+        boolean counting = job.isCountingUnread();
+        db.runTransaction(tx -> {
+                    // our copy of the job may be stale, e.g. another device drained it meanwhile;
+                    // a chunk written before must not reset its notifications to unread
+                    if (counting) {
+                        if (tx.get(marker).exists()) return null;
+                    } else {
+                        // legacy chunks fill a whole batch, leaving no room for a marker
+                        OutboxJob stored = toJob(tx.get(jobRef));
+                        if (stored == null || stored.isChunkDone(chunk)) return null;
+                    }
+                    for (String uid : job.chunk(chunk)) {
+                        String key = OutboxJob.keyFor(job.getEventId(), job.getDrawId(), job.getCategory(), uid);
+                        tx.set(db.collection("users").document(uid).collection("notifications").document(key),
+                                job.notificationFor(uid).toTemplatedMap());
+                        if (counting) UnreadCounters.increment(tx, db, uid, 1);
+                    }
+                    if (counting) {
+                        tx.set(marker, Collections.singletonMap("deliveredAt", FieldValue.serverTimestamp()));
+                        tx.update(jobRef, "doneChunks", FieldValue.arrayUnion((long) chunk),
+                                REMAINING, FieldValue.increment(-1));
+                    } else {
+                        tx.update(jobRef, "doneChunks", FieldValue.arrayUnion((long) chunk));
+                    }
+                    return null;
+                })
+                .addOnSuccessListener(v -> f.complete(null))
+                .addOnFailureListener(f::completeExceptionally);
+        return f;
+    }
+
+    @Override
+    public CompletableFuture<OutboxJob> load(String jobId) {
+        CompletableFuture<OutboxJob> f = new CompletableFuture<>();
+        jobRef(jobId).get()
+                .addOnSuccessListener(snap -> f.complete(toJob(snap)))
+                .addOnFailureListener(f::completeExceptionally);
+        return f;
+    }
+
+    /** Needs the composite index {@code outbox(organizerId, remainingChunks)}. */
+    @Override
+    public CompletableFuture<List<OutboxJob>> pending(String organizerId) {
+        Query q = db.collection(COLLECTION)
+                .whereEqualTo("organizerId", organizerId)
+                .whereGreaterThan(REMAINING, 0);
+        return query(q).thenApply(pending -> {
+            pending.sort((a, b) -> a.getCreatedAt() == null || b.getCreatedAt() == null
+                    ? 0 : a.getCreatedAt().compareTo(b.getCreatedAt()));
+            return pending;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<OutboxJob>> forEvent(String eventId) {
+        return query(db.collection(COLLECTION).whereEqualTo("eventId", eventId));
+    }
+
+    private CompletableFuture<List<OutboxJob>> query(Query q) {
+        CompletableFuture<List<OutboxJob>> f = new CompletableFuture<>();
+        q.get()
+                .addOnSuccessListener(snap -> {
+                    List<OutboxJob> jobs = new ArrayList<>();
+                    for (DocumentSnapshot d : snap.getDocuments()) {
+                        OutboxJob job = toJob(d);
+                        if (job != null) jobs.add(job);
+                    }
+                    f.complete(jobs);
+                })
+                .addOnFailureListener(f::completeExceptionally);
+        return f;
+    }
+
+    private static OutboxJob toJob(DocumentSnapshot snap) {
+        if (!snap.exists()) return null;
+        OutboxJob job = snap.toObject(OutboxJob.class);
+        if (job != null) job.setId(snap.getId());
+        return job;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.lotterypatentpending.data;
+
+import androidx.annotation.Nullable;
+
+import com.example.lotterypatentpending.models.Notification;
+import com.example.lotterypatentpending.models.NotificationRepository;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link NotificationRepository.InboxWindow} over {@code users/{uid}/notifications}.
+ * <p>
+ * A snapshot listener covers only the newest {@code pageSize} documents, and only
+ * the documents in each {@link DocumentChange} are deserialized. Older pages are
+ * one-time reads that start after the oldest loaded notification, by
+ * {@code createdAt} then document id. Firestore calls back on the main thread, so
+ * the window is only touched there.
+ * </p>
+ */
+public class FirestoreNotificationWindow implements NotificationRepository.InboxWindow {
+    private final String userId;
+    private final int pageSize;
+    private final NotificationRepository.NotificationsListener listener;
+    private final Query newestFirst;
+    private final NotificationWindow window = new NotificationWindow();
+    private final ListenerRegistration live;
+    private boolean firstSnapshot = true;
+    @Nullable
+    private CompletableFuture<Boolean> loading;
+
+    public FirestoreNotificationWindow(FirebaseFirestore db, String userId, int pageSize,
+                                       NotificationRepository.NotificationsListener listener) {
+        this.userId = userId;
+        this.pageSize = pageSize;
+        this.listener = listener;
+        this.newestFirst = db.collection("users").document(userId).collection("notifications")
+                .orderBy("createdAt", Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING);
+        this.live = newestFirst.limit(pageSize).addSnapshotListener((snap, err) -> {
+            if (err != null) {
+                listener.onError(err);
+                return;
+            }
+            if (snap != null) onLivePage(snap);
+        });
+    }
+
+    private void onLivePage(QuerySnapshot snap) {
+        List<Notification> left = new ArrayList<>();
+        for (DocumentChange c : snap.getDocumentChanges()) {
+            Notification n = toNotification(c.getDocument());
+            if (n == null) continue;
+            if (c.getType() == DocumentChange.Type.REMOVED) left.add(n);
+            else window.put(n);
+        }
+        List<DocumentSnapshot> docs = snap.getDocuments();
+        Notification liveTail = docs.size() == pageSize ? window.get(docs.get(docs.size() - 1).getId()) : null;
+        for (Notification n : left) {
+            window.leaveLivePage(n, liveTail);
+        }
+        if (firstSnapshot) {
+            // a short first page is the whole inbox
+            window.setHasMore(docs.size() == pageSize);
+            firstSnapshot = false;
+        }
+        listener.onChanged(window.snapshot());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> loadMore() {
+        if (!window.hasMore()) return CompletableFuture.completedFuture(false);
+        if (loading != null) return loading;
+        CompletableFuture<Boolean> f = new CompletableFuture<>();
+        loading = f;
+
+        Query q = newestFirst;
+        Notification oldest = window.oldest();
+        if (oldest != null && oldest.getCreatedAt() != null) {
+            q = q.startAfter(new Timestamp(oldest.getCreatedAt()), oldest.getId());
+        }
+        q.limit(pageSize).get()
+                .addOnSuccessListener(snap -> {
+                    List<Notification> page = new ArrayList<>();
+                    for (DocumentSnapshot d : snap.getDocuments()) {
+                        Notification n = toNotification(d);
+                        if (n != null) page.add(n);
+                    }
+                    boolean more = snap.size() == pageSize;
+                    window.appendPage(page, more);
+                    loading = null;
+                    listener.onChanged(window.snapshot());
+                    f.complete(more);
+                })
+                .addOnFailureListener(e -> {
+                    loading = null;
+                    f.completeExceptionally(e);
+                });
+        return f;
+    }
+
+    @Override
+    public boolean hasMore() {
+        return window.hasMore();
+    }
+
+    @Override
+    public void remove() {
+        live.remove();
+    }
+
+    @Nullable
+    private Notification toNotification(DocumentSnapshot d) {
+        Notification n = d.toObject(Notification.class);
+        if (n != null) {
+            n.setId(d.getId());
+            n.setUserId(userId);
+        }
+        return n;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.lotterypatentpending.data;
+
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.Query;
+
+import java.util.List;
+
+/**
+ * {@link QueryOps} over Firestore queries.
+ */
+public class FirestoreQueryOps implements QueryOps<Query> {
+    @Override
+    public Query whereEqualTo(Query query, String field, Object value) {
+        return query.whereEqualTo(field, value);
+    }
+
+    @Override
+    public Query whereGreaterThan(Query query, String field, Object value) {
+        return query.whereGreaterThan(field, value);
+    }
+
+    @Override
+    public Query whereGreaterThanOrEqualTo(Query query, String field, Object value) {
+        return query.whereGreaterThanOrEqualTo(field, value);
+    }
+
+    @Override
+    public Query whereLessThanOrEqualTo(Query query, String field, Object value) {
+        return query.whereLessThanOrEqualTo(field, value);
+    }
+
+    @Override
+    public Query orderBy(Query query, String field) {
+        return query.orderBy(field);
+    }
+
+    @Override
+    public Query orderByDocumentId(Query query) {
+        return query.orderBy(FieldPath.documentId());
+    }
+
+    @Override
+    public Query startAfter(Query query, List<Object> values) {
+        return query.startAfter(values.toArray());
+    }
+
+    @Override
+    public Query limit(Query query, long limit) {
+        return query.limit(limit);
+    }
+}
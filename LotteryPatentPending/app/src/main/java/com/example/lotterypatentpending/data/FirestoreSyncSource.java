@@ -0,0 +1,133 @@
+package com.example.lotterypatentpending.data;
+
+import androidx.annotation.Nullable;
+
+import com.example.lotterypatentpending.models.EventSummary;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * {@link SyncSource} over Firestore.
+ * <p>
+ * Every write to a synced document stamps {@link #UPDATED_AT} with the server time
+ * (see {@link #stamp}), so a client that synced up to some time only queries the
+ * documents changed since. Deletions made while a client isn't listening would be
+ * invisible to that query, so deleting a synced document also writes a tombstone in
+ * {@code syncTombstones} (see {@link #tombstone}); tombstones are read with the same
+ * high-water mark. Both queries need composite indexes:
+ * {@code syncTombstones(collection, deletedAt)} and the single-field index on
+ * {@code eventSummaries.updatedAt} that Firestore creates by default.
+ * </p>
+ */
+public class FirestoreSyncSource implements SyncSource {
+    public static final String UPDATED_AT = "updatedAt";
+    public static final String TOMBSTONES = "syncTombstones";
+
+    private final FirebaseFirestore db;
+    private final Function<Map<String, Object>, EventSummary> toSummary;
+
+    /**
+     * @param toSummary converts a summary document's data, e.g. {@code FirebaseManager::mapToSummary}
+     */
+    public FirestoreSyncSource(FirebaseFirestore db, Function<Map<String, Object>, EventSummary> toSummary) {
+        this.db = db;
+        this.toSummary = toSummary;
+    }
+
+    /**
+     * Adds the server time as {@link #UPDATED_AT} to a write of a synced document.
+     *
+     * @return {@code data}, for chaining
+     */
+    public static Map<String, Object> stamp(Map<String, Object> data) {
+        data.put(UPDATED_AT, FieldValue.serverTimestamp());
+        return data;
+    }
+
+    /** Records in {@code batch} that {@code id} was deleted from the synced {@code collection}. */
+    public static void tombstone(WriteBatch batch, FirebaseFirestore db, String collection, String id) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("collection", collection);
+        data.put("id", id);
+        data.put("deletedAt", FieldValue.serverTimestamp());
+        batch.set(db.collection(TOMBSTONES).document(collection + "_" + id), data);
+    }
+
+    @Override
+    public ListenerRegistration listenEventSummaries(long since, Listener<EventSummary> listener) {
+        Query changed = db.collection(EVENT_SUMMARIES);
+        if (since > 0) {
+            changed = changed.whereGreaterThanOrEqualTo(UPDATED_AT, new Timestamp(new Date(since)));
+        }
+        ListenerRegistration upserts = changed.addSnapshotListener((snap, err) -> {
+            if (err != null) {
+                listener.onError(err);
+                return;
+            }
+            if (snap == null) return;
+            List<EventSummary> put = new ArrayList<>();
+            List<String> deleted = new ArrayList<>();
+            long hwm = 0;
+            for (DocumentChange c : snap.getDocumentChanges()) {
+                DocumentSnapshot doc = c.getDocument();
+                if (c.getType() == DocumentChange.Type.REMOVED) {
+                    deleted.add(doc.getId());
+                    continue;
+                }
+                EventSummary summary = toSummary.apply(doc.getData());
+                if (summary == null) continue;
+                summary.setId(doc.getId());
+                put.add(summary);
+                hwm = Math.max(hwm, millis(doc.getTimestamp(UPDATED_AT)));
+            }
+            listener.onChanges(new SyncPage<>(put, deleted, hwm));
+        });
+
+        ListenerRegistration tombstones = db.collection(TOMBSTONES)
+                .whereEqualTo("collection", EVENT_SUMMARIES)
+                .whereGreaterThanOrEqualTo("deletedAt", new Timestamp(new Date(since)))
+                .addSnapshotListener((snap, err) -> {
+                    if (err != null) {
+                        listener.onError(err);
+                        return;
+                    }
+                    if (snap == null) return;
+                    List<String> deleted = new ArrayList<>();
+                    long hwm = 0;
+                    for (DocumentChange c : snap.getDocumentChanges()) {
+                        if (c.getType() == DocumentChange.Type.REMOVED) continue;
+                        DocumentSnapshot doc = c.getDocument();
+                        String id = doc.getString("id");
+                        if (id != null) deleted.add(id);
+                        hwm = Math.max(hwm, millis(doc.getTimestamp("deletedAt")));
+                    }
+                    if (!deleted.isEmpty()) {
+                        listener.onChanges(new SyncPage<>(Collections.emptyList(), deleted, hwm));
+                    }
+                });
+
+        return () -> {
+            upserts.remove();
+            tombstones.remove();
+        };
+    }
+
+    /** @return millis of a server timestamp; 0 while the local write is still pending */
+    private static long millis(@Nullable Timestamp t) {
+        return t == null ? 0 : t.toDate().getTime();
+    }
+}
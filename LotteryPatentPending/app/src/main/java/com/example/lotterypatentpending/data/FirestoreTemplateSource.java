@@ -0,0 +1,42 @@
+package com.example.lotterypatentpending.data;
+
+import com.example.lotterypatentpending.models.NotificationTemplate;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads templates with {@code notificationTemplates.whereIn(documentId, ids)}.
+ */
+public class FirestoreTemplateSource implements TemplateSource {
+    private final FirebaseFirestore db;
+
+    public FirestoreTemplateSource(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, NotificationTemplate>> fetchChunk(List<String> templateIds) {
+        CompletableFuture<Map<String, NotificationTemplate>> future = new CompletableFuture<>();
+        db.collection(NotificationTemplate.COLLECTION)
+                .whereIn(FieldPath.documentId(), templateIds)
+                .get()
+                .addOnSuccessListener(snap -> {
+                    Map<String, NotificationTemplate> templates = new HashMap<>();
+                    for (DocumentSnapshot doc : snap.getDocuments()) {
+                        NotificationTemplate t = doc.toObject(NotificationTemplate.class);
+                        if (t == null) continue;
+                        t.setId(doc.getId());
+                        templates.put(doc.getId(), t);
+                    }
+                    future.complete(templates);
+                })
+                .addOnFailureListener(future::completeExceptionally);
+        return future;
+    }
+}
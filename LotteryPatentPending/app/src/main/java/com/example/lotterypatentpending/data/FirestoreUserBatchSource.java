@@ -0,0 +1,42 @@
+package com.example.lotterypatentpending.data;
+
+import com.example.lotterypatentpending.models.User;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads users with {@code users.whereIn(documentId, ids)}, one query per chunk.
+ */
+public class FirestoreUserBatchSource implements UserBatchSource {
+    private final FirebaseFirestore db;
+
+    public FirestoreUserBatchSource(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, User>> fetchChunk(List<String> userIds) {
+        CompletableFuture<Map<String, User>> future = new CompletableFuture<>();
+        db.collection("users")
+                .whereIn(FieldPath.documentId(), userIds)
+                .get()
+                .addOnSuccessListener(snap -> {
+                    Map<String, User> users = new HashMap<>();
+                    for (DocumentSnapshot doc : snap.getDocuments()) {
+                        User user = doc.toObject(User.class);
+                        if (user == null) continue;
+                        user.setUserId(doc.getId());
+                        users.put(doc.getId(), user);
+                    }
+                    future.complete(users);
+                })
+                .addOnFailureListener(future::completeExceptionally);
+        return future;
+    }
+}
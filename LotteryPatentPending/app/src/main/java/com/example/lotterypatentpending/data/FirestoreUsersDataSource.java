@@ -1,6 +1,8 @@
 package com.example.lotterypatentpending.data;
 
 import android.util.Log;
+import androidx.core.util.Pair;
+import com.example.lotterypatentpending.models.User;
 import com.example.lotterypatentpending.models.WaitingListState;
 import com.google.firebase.firestore.FirebaseFirestore;
 import java.util.ArrayList;
@@ -25,6 +27,19 @@ public class FirestoreUsersDataSource implements UserDataSource {
 
         db.collection("events").document(eventId).get()
                 .addOnSuccessListener(snapshot -> {
+                    if (WaitingListStore.layoutOf(snapshot.get(WaitingListStore.LAYOUT_FIELD))
+                            == WaitingListStore.Layout.SUBCOLLECTION) {
+                        // per-state query on events/{id}/waitingList
+                        getEntrantsFromSubcollection(eventId, state).whenComplete((ids, e) -> {
+                            if (e == null) {
+                                future.complete(ids);
+                            } else {
+                                future.completeExceptionally(e);
+                            }
+                        });
+                        return;
+                    }
+
                     List<String> matchingIds = new ArrayList<>();
 
                     if (snapshot.exists()) {
@@ -82,6 +97,16 @@ public class FirestoreUsersDataSource implements UserDataSource {
         return future;
     }
 
+    private CompletableFuture<List<String>> getEntrantsFromSubcollection(String eventId, WaitingListState state) {
+        return new SubcollectionWaitingListStore(db).getAll(eventId, state).thenApply(pairs -> {
+            List<String> ids = new ArrayList<>(pairs.size());
+            for (Pair<User, WaitingListState> p : pairs) {
+                ids.add(p.first.getUserId());
+            }
+            return ids;
+        });
+    }
+
     /**
      * Logic to process a List of Pairs (matching WaitingList.java structure)
      */
@@ -0,0 +1,73 @@
+package com.example.lotterypatentpending.data;
+
+import com.example.lotterypatentpending.exceptions.ContentionException;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.TransactionOptions;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Firestore pieces shared by the stores' join transactions.
+ */
+final class JoinTransactions {
+    /**
+     * The SDK would retry a lost transaction right away; join attempts are retried by
+     * {@link RetryPolicy} with jitter instead, so the SDK gets a single attempt.
+     */
+    private static final TransactionOptions ONE_ATTEMPT = new TransactionOptions.Builder()
+            .setMaxAttempts(1)
+            .build();
+
+    private JoinTransactions() {
+    }
+
+    /**
+     * Runs one attempt of a join transaction, reporting lost races and transient
+     * backend errors as {@link ContentionException}.
+     */
+    static CompletableFuture<WaitingListStore.JoinResult> run(
+            FirebaseFirestore db, Transaction.Function<WaitingListStore.JoinResult> fn) {
+        CompletableFuture<WaitingListStore.JoinResult> future = new CompletableFuture<>();
+        db.runTransaction(ONE_ATTEMPT, fn)
+                .addOnSuccessListener(future::complete)
+                .addOnFailureListener(e -> future.completeExceptionally(
+                        isRetryable(e) ? new ContentionException("Join attempt lost a race", e) : e));
+        return future;
+    }
+
+    /**
+     * Lost races and transient backend errors. FAILED_PRECONDITION and ALREADY_EXISTS
+     * would fail the same way again, so they reach the caller as they are.
+     */
+    private static boolean isRetryable(Exception e) {
+        if (!(e instanceof FirebaseFirestoreException)) {
+            return false;
+        }
+        switch (((FirebaseFirestoreException) e).getCode()) {
+            case ABORTED:
+            case UNAVAILABLE:
+            case RESOURCE_EXHAUSTED:
+            case DEADLINE_EXCEEDED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /** @return the event's waiting list capacity, -1 if it has none */
+    static int capacityOf(DocumentSnapshot event) {
+        Long cap = event.getLong("waitingListCapacity");
+        return cap == null ? -1 : cap.intValue();
+    }
+
+    /** Adds the event to the user's joined and past events in the same transaction. */
+    static void recordJoin(Transaction tx, FirebaseFirestore db, String userId, String eventId) {
+        tx.update(db.collection("users").document(userId),
+                "joinedEventIds", FieldValue.arrayUnion(eventId),
+                "pastEventIds", FieldValue.arrayUnion(eventId));
+    }
+}
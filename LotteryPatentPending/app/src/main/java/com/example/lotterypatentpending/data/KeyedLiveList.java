@@ -0,0 +1,65 @@
+package com.example.lotterypatentpending.data;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Current result of a live query, keyed by document id and kept up to date from
+ * the snapshot's document changes, so only added and modified documents are
+ * parsed. Documents are kept in document id order, which is the order Firestore
+ * returns a query without {@code orderBy}. Not thread-safe; use it from the thread
+ * the listener calls back on.
+ *
+ * @param <T> parsed document type
+ */
+public class KeyedLiveList<T> {
+    public enum Type { ADDED, MODIFIED, REMOVED }
+
+    private final TreeMap<String, T> byId = new TreeMap<>();
+    private final List<T> added = new ArrayList<>();
+    private final List<T> modified = new ArrayList<>();
+    private final List<T> removed = new ArrayList<>();
+
+    /**
+     * Applies one document change of the current snapshot.
+     *
+     * @param item parsed document; null for a removal, or if the document couldn't be
+     *             parsed, which drops it like a removal
+     */
+    public void apply(Type type, String id, @Nullable T item) {
+        if (type == Type.REMOVED || item == null) {
+            T old = byId.remove(id);
+            if (old != null) removed.add(old);
+            return;
+        }
+        T old = byId.put(id, item);
+        if (old == null) added.add(item);
+        else modified.add(item);
+    }
+
+    /**
+     * Ends the current snapshot.
+     *
+     * @return what the changes applied since the last call did, with every current document
+     */
+    public ChangeSet<T> commit() {
+        ChangeSet<T> changes = new ChangeSet<>(new ArrayList<>(added), new ArrayList<>(modified),
+                new ArrayList<>(removed), new ArrayList<>(byId.values()));
+        added.clear();
+        modified.clear();
+        removed.clear();
+        return changes;
+    }
+
+    @Nullable
+    public T get(String id) {
+        return byId.get(id);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.lotterypatentpending.data;
+
+import androidx.annotation.Nullable;
+
+import com.example.lotterypatentpending.models.EventSummary;
+import com.example.lotterypatentpending.models.User;
+import com.example.lotterypatentpending.models.WaitingListState;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-device copy of the data list screens need, keyed by id: event summaries, each
+ * user's waiting list states and user profiles, plus a high-water mark per synced
+ * collection. Calls block on disk I/O, so make them off the main thread.
+ */
+public interface LocalEventStore {
+    /** @return every stored summary, by id like the {@code eventSummaries} collection */
+    List<EventSummary> getEventSummaries();
+
+    /** @return summaries of events organized by {@code organizerId}, by id */
+    List<EventSummary> getEventSummariesByOrganizer(String organizerId);
+
+    @Nullable
+    EventSummary getEventSummary(String eventId);
+
+    /** Inserts or replaces summaries by id. */
+    void putEventSummaries(Collection<EventSummary> summaries);
+
+    /** Removes summaries, and every stored waiting list state on those events. */
+    void deleteEventSummaries(Collection<String> eventIds);
+
+    /** @return {@code userId}'s state keyed by event id; empty if none are stored */
+    Map<String, WaitingListState> getStatesForUser(String userId);
+
+    /** Replaces every stored state of {@code userId}. */
+    void putStatesForUser(String userId, Map<String, WaitingListState> states);
+
+    @Nullable
+    User getUser(String userId);
+
+    /** Inserts or replaces users by id. */
+    void putUser(User user);
+
+    /**
+     * @param collection synced collection name
+     * @return server time in millis up to which {@code collection} is synced, or 0
+     */
+    long getHighWaterMark(String collection);
+
+    void setHighWaterMark(String collection, long millis);
+
+    /** Runs {@code body} so that all its writes are stored or none are. */
+    void runInTransaction(Runnable body);
+}
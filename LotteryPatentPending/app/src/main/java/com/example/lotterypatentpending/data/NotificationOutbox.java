@@ -0,0 +1,91 @@
+package com.example.lotterypatentpending.data;
+
+import com.example.lotterypatentpending.models.BulkWriteResult;
+import com.example.lotterypatentpending.models.ChunkedWriter;
+import com.example.lotterypatentpending.models.OutboxJob;
+import com.example.lotterypatentpending.models.OutboxProgress;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Durable queue of notification sends ({@link OutboxJob}s).
+ * <p>
+ * A send is first {@link #enqueue}d, then {@link #drain}ed chunk by chunk. Each
+ * chunk's notifications are written together with the mark that the chunk is done,
+ * so if the app dies midway the job still says exactly who was notified, and
+ * draining it again (e.g. from {@link #pending} on the next start) only sends the
+ * rest. Notification ids are the job's idempotency keys, and a chunk that was
+ * delivered already is skipped, so overlapping drains neither notify anyone twice
+ * nor count a notification twice in its recipient's unread counter.
+ * </p>
+ * <p>
+ * A job enqueued {@link OutboxJob#hold held} is stored but not sent until it is
+ * released, which the draw it announces does in its own write.
+ * </p>
+ */
+public interface NotificationOutbox {
+
+    /**
+     * Stores {@code job} unless a job with its id exists already, e.g. because the same
+     * draw was published before.
+     *
+     * @return the stored job, with the progress it already had
+     */
+    CompletableFuture<OutboxJob> enqueue(OutboxJob job);
+
+    /**
+     * Writes the notifications of chunk {@code chunk} and marks it done, atomically.
+     * Does nothing if the chunk is done already.
+     */
+    CompletableFuture<Void> deliverChunk(OutboxJob job, int chunk);
+
+    /** @return the job as currently stored, or null if there is none */
+    CompletableFuture<OutboxJob> load(String jobId);
+
+    /** @return released jobs of an organizer that aren't complete, oldest first */
+    CompletableFuture<List<OutboxJob>> pending(String organizerId);
+
+    /** @return every job of an event */
+    CompletableFuture<List<OutboxJob>> forEvent(String eventId);
+
+    /**
+     * Delivers every chunk of {@code job} not done yet, a few at a time. A failed
+     * chunk doesn't stop the others; it stays pending for the next drain. A held job
+     * is returned as is.
+     *
+     * @return the job as stored afterwards, so {@link OutboxJob#isComplete()} tells
+     * whether everyone was notified
+     */
+    default CompletableFuture<OutboxJob> drain(OutboxJob job) {
+        List<Integer> pending = job.getPendingChunks();
+        if (job.isHeld() || pending.isEmpty()) {
+            return CompletableFuture.completedFuture(job);
+        }
+        CompletableFuture<BulkWriteResult> sent = ChunkedWriter.write(pending, 1,
+                ChunkedWriter.DEFAULT_MAX_IN_FLIGHT, String::valueOf, c -> deliverChunk(job, c.get(0)));
+        return sent.thenCompose(r -> load(job.getId()));
+    }
+
+    /** @return delivered and total notifications over every job of an event */
+    default CompletableFuture<OutboxProgress> progress(String eventId) {
+        return forEvent(eventId).thenApply(OutboxProgress::of);
+    }
+
+    /**
+     * Drains every pending job of an organizer one after another, e.g. on app start.
+     *
+     * @return the jobs after draining
+     */
+    default CompletableFuture<List<OutboxJob>> drainPending(String organizerId) {
+        return pending(organizerId).thenCompose(jobs -> {
+            List<OutboxJob> drained = new ArrayList<>();
+            CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+            for (OutboxJob job : jobs) {
+                chain = chain.thenCompose(v -> drain(job)).thenAccept(drained::add);
+            }
+            return chain.thenApply(v -> drained);
+        });
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.lotterypatentpending.data;
+
+import androidx.annotation.Nullable;
+
+import com.example.lotterypatentpending.models.FirestoreNotificationRepository;
+import com.example.lotterypatentpending.models.Notification;
+import com.example.lotterypatentpending.models.NotificationRepository;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * One process-wide stream of a user's notifications, shared by the inbox, the
+ * unread badge and the popup banners.
+ * <p>
+ * The first subscriber opens one inbox window listener
+ * ({@link NotificationRepository#listenUserNotifications(String, int, NotificationRepository.NotificationsListener)})
+ * and one unread counter listener; the last one to leave closes both. Every change
+ * is fanned out to all subscribers in the order they subscribed: first the loaded
+ * list, then each new arrival, oldest first. New arrivals are the unread
+ * notifications that appear above the newest one seen before, so pages loaded
+ * while scrolling and the first snapshot never count as arrivals. A late
+ * subscriber is sent the current list and count right away.
+ * </p>
+ */
+public class NotificationStream {
+    private static final Map<String, NotificationStream> SHARED = new HashMap<>();
+
+    /** Receives stream events; override only what is needed. */
+    public interface Subscriber {
+        /** @param notifications loaded notifications, newest first */
+        default void onNotifications(List<Notification> notifications) {}
+        default void onUnreadCount(int count) {}
+        /** Called once for each unread notification that arrived while subscribed. */
+        default void onNewNotification(Notification n) {}
+        default void onError(Exception e) {}
+    }
+
+    private final NotificationRepository repo;
+    private final String userId;
+    private final int pageSize;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    @Nullable
+    private NotificationRepository.InboxWindow window;
+    @Nullable
+    private ListenerRegistration unreadReg;
+    @Nullable
+    private List<Notification> latest;
+    @Nullable
+    private Integer unread;
+    private final Set<String> seen = new HashSet<>();
+
+    public NotificationStream(NotificationRepository repo, String userId, int pageSize) {
+        this.repo = repo;
+        this.userId = userId;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @return the stream of {@code userId} shared across the process, backed by Firestore
+     */
+    public static synchronized NotificationStream shared(String userId) {
+        NotificationStream stream = SHARED.get(userId);
+        if (stream == null) {
+            stream = new NotificationStream(new FirestoreNotificationRepository(), userId,
+                    NotificationWindow.DEFAULT_PAGE_SIZE);
+            SHARED.put(userId, stream);
+        }
+        return stream;
+    }
+
+    /**
+     * Adds a subscriber, opening the underlying listeners if it is the first.
+     *
+     * @return registration whose {@code remove()} unsubscribes; removing twice is harmless
+     */
+    public synchronized ListenerRegistration subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+        if (subscribers.size() == 1) {
+            open();
+        } else {
+            if (latest != null) subscriber.onNotifications(latest);
+            if (unread != null) subscriber.onUnreadCount(unread);
+        }
+        return () -> unsubscribe(subscriber);
+    }
+
+    private synchronized void unsubscribe(Subscriber subscriber) {
+        if (subscribers.remove(subscriber) && subscribers.isEmpty()) {
+            close();
+        }
+    }
+
+    /** @return number of subscribers, i.e. the reference count */
+    public synchronized int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /** @return true while the underlying listeners are attached */
+    public synchronized boolean isOpen() {
+        return window != null;
+    }
+
+    /**
+     * Loads the next page of older notifications into the shared list.
+     *
+     * @return future with whether there are more pages; false if nobody is subscribed
+     */
+    public synchronized CompletableFuture<Boolean> loadMore() {
+        return window == null ? CompletableFuture.completedFuture(false) : window.loadMore();
+    }
+
+    public synchronized boolean hasMore() {
+        return window != null && window.hasMore();
+    }
+
+    private void open() {
+        window = repo.listenUserNotifications(userId, pageSize, new NotificationRepository.NotificationsListener() {
+            @Override
+            public void onChanged(List<Notification> notifications) {
+                onList(notifications);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                fail(e);
+            }
+        });
+        unreadReg = repo.listenUnreadCount(userId, this::onCount, this::fail);
+    }
+
+    private void close() {
+        if (window != null) window.remove();
+        if (unreadReg != null) unreadReg.remove();
+        window = null;
+        unreadReg = null;
+        latest = null;
+        unread = null;
+        seen.clear();
+    }
+
+    private synchronized void onList(List<Notification> notifications) {
+        if (subscribers.isEmpty()) return;
+        boolean first = latest == null;
+        List<Notification> arrivals = new ArrayList<>();
+        for (Notification n : notifications) {
+            if (seen.contains(n.getId())) break;
+            if (!first && !n.isRead()) arrivals.add(n);
+        }
+        for (Notification n : notifications) seen.add(n.getId());
+        Collections.reverse(arrivals);
+
+        latest = notifications;
+        for (Subscriber s : subscribers) s.onNotifications(notifications);
+        for (Notification n : arrivals) {
+            for (Subscriber s : subscribers) s.onNewNotification(n);
+        }
+    }
+
+    private synchronized void onCount(Integer count) {
+        if (subscribers.isEmpty()) return;
+        unread = count == null ? 0 : count;
+        for (Subscriber s : subscribers) s.onUnreadCount(unread);
+    }
+
+    private synchronized void fail(Exception e) {
+        for (Subscriber s : subscribers) s.onError(e);
+    }
+}
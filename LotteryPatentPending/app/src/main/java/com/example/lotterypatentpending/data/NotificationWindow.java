@@ -0,0 +1,143 @@
+package com.example.lotterypatentpending.data;
+
+import androidx.annotation.Nullable;
+
+import com.example.lotterypatentpending.models.Notification;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The loaded part of a user's inbox, newest first, kept up to date by applying
+ * single-document changes instead of rebuilding it from a full snapshot.
+ * <p>
+ * The newest page is live: its changes come in through {@link #put} and
+ * {@link #leaveLivePage}. Older pages are appended with {@link #appendPage} as the
+ * user scrolls and are not listened to. Notifications still waiting for their
+ * server timestamp sort first. Not thread-safe; use it from one thread.
+ * </p>
+ */
+public class NotificationWindow {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    /** Inbox order: newest first, pending timestamps on top, ties broken by id. */
+    public static final Comparator<Notification> NEWEST_FIRST = (a, b) -> {
+        if (a.getCreatedAt() == null || b.getCreatedAt() == null) {
+            if (a.getCreatedAt() != b.getCreatedAt()) return a.getCreatedAt() == null ? -1 : 1;
+        } else {
+            int c = b.getCreatedAt().compareTo(a.getCreatedAt());
+            if (c != 0) return c;
+        }
+        return String.valueOf(b.getId()).compareTo(String.valueOf(a.getId()));
+    };
+
+    private final List<Notification> items = new ArrayList<>();
+    private final Map<String, Notification> byId = new HashMap<>();
+    private boolean hasMore = true;
+
+    /**
+     * Adds a notification, or replaces the one with the same id and moves it if its
+     * timestamp changed.
+     *
+     * @param n notification with an id
+     */
+    public void put(Notification n) {
+        Notification old = byId.put(n.getId(), n);
+        if (old != null) {
+            items.remove(indexOf(old));
+        }
+        int i = Collections.binarySearch(items, n, NEWEST_FIRST);
+        items.add(i < 0 ? -i - 1 : i, n);
+    }
+
+    /**
+     * Removes a notification.
+     *
+     * @return true if it was loaded
+     */
+    public boolean remove(String id) {
+        Notification old = byId.remove(id);
+        if (old == null) return false;
+        items.remove(indexOf(old));
+        return true;
+    }
+
+    /**
+     * Handles a notification dropping out of the live page. A full page drops its
+     * oldest entry whenever a newer one arrives; that entry is still in the inbox, so
+     * it stays here as part of the older pages. Anything else was deleted.
+     *
+     * @param n        the notification as it was before it left
+     * @param liveTail oldest notification still on the live page, or null if the page
+     *                 is not full
+     * @return true if {@code n} was removed from the window
+     */
+    public boolean leaveLivePage(Notification n, @Nullable Notification liveTail) {
+        if (liveTail != null && NEWEST_FIRST.compare(n, liveTail) > 0) {
+            return false;
+        }
+        return remove(n.getId());
+    }
+
+    /**
+     * Appends a page of older notifications. Notifications that are already loaded
+     * are replaced, not duplicated.
+     *
+     * @param page notifications older than everything loaded, newest first
+     * @param more false if this was the last page
+     */
+    public void appendPage(List<Notification> page, boolean more) {
+        for (Notification n : page) {
+            if (byId.containsKey(n.getId())) {
+                put(n);
+            } else {
+                byId.put(n.getId(), n);
+                items.add(n);
+            }
+        }
+        hasMore = more;
+    }
+
+    /** Sets whether older pages are left to load, e.g. after the first live page. */
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /** @return oldest loaded notification, or null if none; the cursor for the next page */
+    @Nullable
+    public Notification oldest() {
+        return items.isEmpty() ? null : items.get(items.size() - 1);
+    }
+
+    @Nullable
+    public Notification get(String id) {
+        return byId.get(id);
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * @return a copy of the loaded notifications, newest first. Unchanged notifications
+     * are the same instances as in the previous copy, so a list diff only rebinds the
+     * rows that changed.
+     */
+    public List<Notification> snapshot() {
+        return Collections.unmodifiableList(new ArrayList<>(items));
+    }
+
+    private int indexOf(Notification n) {
+        int i = Collections.binarySearch(items, n, NEWEST_FIRST);
+        if (i >= 0 && items.get(i) == n) return i;
+        return items.indexOf(n);   // fallback if n was changed in place since it was added
+    }
+}
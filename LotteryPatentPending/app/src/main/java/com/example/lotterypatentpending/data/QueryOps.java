@@ -0,0 +1,31 @@
+package com.example.lotterypatentpending.data;
+
+import java.util.List;
+
+/**
+ * The query operations {@link EventQuery} builds with, so the same query can run
+ * against Firestore ({@link FirestoreQueryOps}) or an in-memory fake in tests.
+ * Queries are immutable: every operation returns a new query.
+ *
+ * @param <Q> query type, e.g. Firestore's {@code Query}
+ */
+public interface QueryOps<Q> {
+    Q whereEqualTo(Q query, String field, Object value);
+
+    Q whereGreaterThan(Q query, String field, Object value);
+
+    Q whereGreaterThanOrEqualTo(Q query, String field, Object value);
+
+    Q whereLessThanOrEqualTo(Q query, String field, Object value);
+
+    /** Orders ascending by {@code field}. */
+    Q orderBy(Q query, String field);
+
+    /** Orders ascending by document id; the last ordering, so cursors are unique. */
+    Q orderByDocumentId(Q query);
+
+    /** @param values one value per ordering, in order */
+    Q startAfter(Q query, List<Object> values);
+
+    Q limit(Q query, long limit);
+}
@@ -0,0 +1,110 @@
+package com.example.lotterypatentpending.data;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded retry with exponential backoff and full jitter. Before retry {@code n}
+ * it waits a random time in {@code [0, min(maxDelay, baseDelay * 2^(n-1))]}, so
+ * clients that collided once spread out instead of colliding again in lockstep.
+ */
+public class RetryPolicy {
+    private static ScheduledExecutorService sharedScheduler;
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final Random random;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param maxAttempts     attempts in total, including the first
+     * @param baseDelayMillis upper bound of the first backoff
+     * @param maxDelayMillis  upper bound of any backoff
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this(maxAttempts, baseDelayMillis, maxDelayMillis, new Random(), scheduler());
+    }
+
+    /**
+     * @param random    jitter source, seedable in tests
+     * @param scheduler runs the delayed retries
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis,
+                       Random random, ScheduledExecutorService scheduler) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = Math.max(1, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+        this.random = random;
+        this.scheduler = scheduler;
+    }
+
+    private static synchronized ScheduledExecutorService scheduler() {
+        if (sharedScheduler == null) {
+            sharedScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "retry-backoff");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return sharedScheduler;
+    }
+
+    /**
+     * Runs {@code attempt} until it succeeds, fails with an error {@code retryable}
+     * rejects, or the attempts run out.
+     *
+     * @param attempt   starts one attempt
+     * @param retryable decides whether a failure (already unwrapped) is worth another try
+     * @return the first successful result, or the last failure
+     */
+    public <T> CompletableFuture<T> run(Supplier<CompletableFuture<T>> attempt, Predicate<Throwable> retryable) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(1, attempt, retryable, result);
+        return result;
+    }
+
+    private <T> void attempt(int n, Supplier<CompletableFuture<T>> attempt, Predicate<Throwable> retryable,
+                             CompletableFuture<T> result) {
+        CompletableFuture<T> f;
+        try {
+            f = attempt.get();
+        } catch (RuntimeException e) {
+            f = new CompletableFuture<>();
+            f.completeExceptionally(e);
+        }
+        f.whenComplete((value, e) -> {
+            if (e == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (n >= maxAttempts || !retryable.test(cause)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            scheduler.schedule(() -> attempt(n + 1, attempt, retryable, result),
+                    delayBefore(n), TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * @param retry 1 for the first retry, 2 for the second, ...
+     * @return a random delay in milliseconds within the backoff window for that retry
+     */
+    public long delayBefore(int retry) {
+        int shift = Math.min(Math.max(retry - 1, 0), 30);
+        long window = Math.min(maxDelayMillis, baseDelayMillis << shift);
+        return (long) (random.nextDouble() * (window + 1));
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+}
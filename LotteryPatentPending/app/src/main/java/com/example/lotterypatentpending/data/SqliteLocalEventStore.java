@@ -0,0 +1,311 @@
+package com.example.lotterypatentpending.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.example.lotterypatentpending.models.EventSummary;
+import com.example.lotterypatentpending.models.User;
+import com.example.lotterypatentpending.models.UserLocation;
+import com.example.lotterypatentpending.models.WaitingListCounts;
+import com.example.lotterypatentpending.models.WaitingListState;
+import com.google.firebase.Timestamp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link LocalEventStore} in an app-private SQLite database.
+ * <p>
+ * Summaries and users are rows keyed by id; summaries have an index on the organizer
+ * so the organizer's list is a lookup, not a scan. Waiting list counts and user id
+ * lists are small, so they're stored as JSON in one column. The store is a cache of
+ * Firestore: when the schema changes it is dropped and synced again from scratch.
+ * </p>
+ */
+public class SqliteLocalEventStore extends SQLiteOpenHelper implements LocalEventStore {
+    private static final String NAME = "local_events.db";
+    private static final int VERSION = 1;
+
+    public SqliteLocalEventStore(Context context) {
+        super(context, NAME, null, VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE event_summaries (id TEXT PRIMARY KEY, title TEXT, tag TEXT, location TEXT,"
+                + " date INTEGER, reg_start INTEGER, reg_end INTEGER, capacity INTEGER,"
+                + " waiting_list_capacity INTEGER, organizer_id TEXT, has_poster INTEGER, counts TEXT)");
+        db.execSQL("CREATE INDEX event_summaries_organizer ON event_summaries (organizer_id)");
+        db.execSQL("CREATE TABLE waiting_list_states (user_id TEXT NOT NULL, event_id TEXT NOT NULL,"
+                + " state TEXT NOT NULL, PRIMARY KEY (user_id, event_id))");
+        db.execSQL("CREATE INDEX waiting_list_states_event ON waiting_list_states (event_id)");
+        db.execSQL("CREATE TABLE users (id TEXT PRIMARY KEY, data TEXT NOT NULL)");
+        db.execSQL("CREATE TABLE sync_state (collection TEXT PRIMARY KEY, high_water_mark INTEGER NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS event_summaries");
+        db.execSQL("DROP TABLE IF EXISTS waiting_list_states");
+        db.execSQL("DROP TABLE IF EXISTS users");
+        db.execSQL("DROP TABLE IF EXISTS sync_state");
+        onCreate(db);
+    }
+
+    @Override
+    public List<EventSummary> getEventSummaries() {
+        return querySummaries(null, null);
+    }
+
+    @Override
+    public List<EventSummary> getEventSummariesByOrganizer(String organizerId) {
+        return querySummaries("organizer_id = ?", new String[]{organizerId});
+    }
+
+    @Nullable
+    @Override
+    public EventSummary getEventSummary(String eventId) {
+        List<EventSummary> found = querySummaries("id = ?", new String[]{eventId});
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    private List<EventSummary> querySummaries(@Nullable String where, @Nullable String[] args) {
+        List<EventSummary> summaries = new ArrayList<>();
+        try (Cursor c = getReadableDatabase().query("event_summaries", null, where, args,
+                null, null, "id")) {
+            while (c.moveToNext()) {
+                summaries.add(toSummary(c));
+            }
+        }
+        return summaries;
+    }
+
+    @Override
+    public void putEventSummaries(Collection<EventSummary> summaries) {
+        runInTransaction(() -> {
+            SQLiteDatabase db = getWritableDatabase();
+            for (EventSummary s : summaries) {
+                db.insertWithOnConflict("event_summaries", null, toValues(s), SQLiteDatabase.CONFLICT_REPLACE);
+            }
+        });
+    }
+
+    @Override
+    public void deleteEventSummaries(Collection<String> eventIds) {
+        runInTransaction(() -> {
+            SQLiteDatabase db = getWritableDatabase();
+            for (String id : eventIds) {
+                db.delete("event_summaries", "id = ?", new String[]{id});
+                db.delete("waiting_list_states", "event_id = ?", new String[]{id});
+            }
+        });
+    }
+
+    @Override
+    public Map<String, WaitingListState> getStatesForUser(String userId) {
+        Map<String, WaitingListState> states = new HashMap<>();
+        try (Cursor c = getReadableDatabase().query("waiting_list_states",
+                new String[]{"event_id", "state"}, "user_id = ?", new String[]{userId},
+                null, null, null)) {
+            while (c.moveToNext()) {
+                try {
+                    states.put(c.getString(0), WaitingListState.valueOf(c.getString(1)));
+                } catch (IllegalArgumentException ignored) {
+                    // state removed from the enum
+                }
+            }
+        }
+        return states;
+    }
+
+    @Override
+    public void putStatesForUser(String userId, Map<String, WaitingListState> states) {
+        runInTransaction(() -> {
+            SQLiteDatabase db = getWritableDatabase();
+            db.delete("waiting_list_states", "user_id = ?", new String[]{userId});
+            for (Map.Entry<String, WaitingListState> e : states.entrySet()) {
+                ContentValues v = new ContentValues();
+                v.put("user_id", userId);
+                v.put("event_id", e.getKey());
+                v.put("state", e.getValue().name());
+                db.insert("waiting_list_states", null, v);
+            }
+        });
+    }
+
+    @Nullable
+    @Override
+    public User getUser(String userId) {
+        try (Cursor c = getReadableDatabase().query("users", new String[]{"data"}, "id = ?",
+                new String[]{userId}, null, null, null)) {
+            if (!c.moveToFirst()) return null;
+            return toUser(new JSONObject(c.getString(0)));
+        } catch (JSONException e) {
+            Log.w("SqliteLocalEventStore", "Dropping unreadable user " + userId, e);
+            return null;
+        }
+    }
+
+    @Override
+    public void putUser(User user) {
+        ContentValues v = new ContentValues();
+        v.put("id", user.getUserId());
+        try {
+            v.put("data", fromUser(user).toString());
+        } catch (JSONException e) {
+            Log.w("SqliteLocalEventStore", "Not storing user " + user.getUserId(), e);
+            return;
+        }
+        getWritableDatabase().insertWithOnConflict("users", null, v, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    @Override
+    public long getHighWaterMark(String collection) {
+        try (Cursor c = getReadableDatabase().query("sync_state", new String[]{"high_water_mark"},
+                "collection = ?", new String[]{collection}, null, null, null)) {
+            return c.moveToFirst() ? c.getLong(0) : 0;
+        }
+    }
+
+    @Override
+    public void setHighWaterMark(String collection, long millis) {
+        ContentValues v = new ContentValues();
+        v.put("collection", collection);
+        v.put("high_water_mark", millis);
+        getWritableDatabase().insertWithOnConflict("sync_state", null, v, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    @Override
+    public void runInTransaction(Runnable body) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            body.run();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static ContentValues toValues(EventSummary s) {
+        ContentValues v = new ContentValues();
+        v.put("id", s.getId());
+        v.put("title", s.getTitle());
+        v.put("tag", s.getTag());
+        v.put("location", s.getLocation());
+        v.put("date", millis(s.getDate()));
+        v.put("reg_start", millis(s.getRegStartDate()));
+        v.put("reg_end", millis(s.getRegEndDate()));
+        v.put("capacity", s.getCapacity());
+        v.put("waiting_list_capacity", s.getWaitingListCapacity());
+        v.put("organizer_id", s.getOrganizerId());
+        v.put("has_poster", s.hasPoster() ? 1 : 0);
+        v.put("counts", new JSONObject(s.getCounts().toMap()).toString());
+        return v;
+    }
+
+    private static EventSummary toSummary(Cursor c) {
+        EventSummary s = new EventSummary();
+        s.setId(c.getString(c.getColumnIndexOrThrow("id")));
+        s.setTitle(c.getString(c.getColumnIndexOrThrow("title")));
+        s.setTag(c.getString(c.getColumnIndexOrThrow("tag")));
+        s.setLocation(c.getString(c.getColumnIndexOrThrow("location")));
+        s.setDate(timestamp(c, "date"));
+        s.setRegStartDate(timestamp(c, "reg_start"));
+        s.setRegEndDate(timestamp(c, "reg_end"));
+        s.setCapacity(c.getInt(c.getColumnIndexOrThrow("capacity")));
+        s.setWaitingListCapacity(c.getInt(c.getColumnIndexOrThrow("waiting_list_capacity")));
+        s.setOrganizerId(c.getString(c.getColumnIndexOrThrow("organizer_id")));
+        s.setHasPoster(c.getInt(c.getColumnIndexOrThrow("has_poster")) != 0);
+        s.setCounts(parseCounts(c.getString(c.getColumnIndexOrThrow("counts"))));
+        return s;
+    }
+
+    @Nullable
+    private static WaitingListCounts parseCounts(@Nullable String json) {
+        if (json == null) return null;
+        try {
+            JSONObject o = new JSONObject(json);
+            Map<String, Object> raw = new HashMap<>();
+            for (Iterator<String> keys = o.keys(); keys.hasNext(); ) {
+                String k = keys.next();
+                raw.put(k, o.getLong(k));
+            }
+            return WaitingListCounts.fromMap(raw);
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Long millis(@Nullable Timestamp t) {
+        return t == null ? null : t.toDate().getTime();
+    }
+
+    @Nullable
+    private static Timestamp timestamp(Cursor c, String column) {
+        int i = c.getColumnIndexOrThrow(column);
+        return c.isNull(i) ? null : new Timestamp(new Date(c.getLong(i)));
+    }
+
+    private static JSONObject fromUser(User u) throws JSONException {
+        JSONObject o = new JSONObject();
+        o.put("userId", u.getUserId());
+        o.put("name", u.getName());
+        o.put("email", u.getEmail());
+        o.put("contactInfo", u.getContactInfo());
+        o.put("isAdmin", u.isAdmin());
+        o.put("notificationsOptIn", u.isNotificationsOptIn());
+        o.put("joinedEventIds", new JSONArray(nonNull(u.getJoinedEventIds())));
+        o.put("acceptedEventIds", new JSONArray(nonNull(u.getAcceptedEventIds())));
+        o.put("declinedEventIds", new JSONArray(nonNull(u.getDeclinedEventIds())));
+        o.put("pastEventIds", new JSONArray(nonNull(u.getPastEventIds())));
+        if (u.getLocation() != null) {
+            o.put("lat", u.getLocation().getLat());
+            o.put("lng", u.getLocation().getLng());
+        }
+        return o;
+    }
+
+    private static User toUser(JSONObject o) throws JSONException {
+        User u = new User(o.getString("userId"), o.optString("name", null), o.optString("email", null),
+                o.optString("contactInfo", null), o.optBoolean("isAdmin"));
+        u.setNotificationsOptIn(o.optBoolean("notificationsOptIn", true));
+        u.setJoinedEventIds(strings(o.optJSONArray("joinedEventIds")));
+        u.setAcceptedEventIds(strings(o.optJSONArray("acceptedEventIds")));
+        u.setDeclinedEventIds(strings(o.optJSONArray("declinedEventIds")));
+        u.setPastEventIds(strings(o.optJSONArray("pastEventIds")));
+        if (o.has("lat") && o.has("lng")) {
+            u.setLocation(new UserLocation(o.getDouble("lat"), o.getDouble("lng")));
+        }
+        return u;
+    }
+
+    private static List<String> nonNull(@Nullable List<String> ids) {
+        return ids == null ? new ArrayList<>() : ids;
+    }
+
+    private static List<String> strings(@Nullable JSONArray a) throws JSONException {
+        List<String> out = new ArrayList<>();
+        if (a == null) return out;
+        for (int i = 0; i < a.length(); i++) {
+            out.add(a.getString(i));
+        }
+        return out;
+    }
+}
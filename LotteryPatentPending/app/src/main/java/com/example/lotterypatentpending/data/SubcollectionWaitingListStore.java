@@ -0,0 +1,486 @@
+package com.example.lotterypatentpending.data;
+
+import androidx.annotation.Nullable;
+import androidx.core.util.Pair;
+
+import com.example.lotterypatentpending.models.User;
+import com.example.lotterypatentpending.models.WaitingListCounts;
+import com.example.lotterypatentpending.models.WaitingListState;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * {@link WaitingListStore} with one document per entrant under
+ * {@code events/{eventId}/waitingList/{uid}} holding {@code userId} and {@code state}.
+ * Pages are real queries ordered by document id with a {@code startAfter} cursor,
+ * and per-state reads filter on {@code state} server-side.
+ * <p>
+ * Events with {@link CounterShards#FIELD} set count their entrants in shard documents
+ * instead of the event document; each entry then also records its {@code shard}.
+ * Joins touch only their shard, and the event's counters and mirrors are rolled up
+ * from the shards by counted changes and {@link #reconcileCounts}.
+ * </p>
+ */
+public class SubcollectionWaitingListStore implements WaitingListStore {
+    /** Entrants per counted transaction; each one reads and writes its entrants' documents. */
+    static final int COUNTED_CHUNK = 200;
+
+    private final FirebaseFirestore db;
+
+    public SubcollectionWaitingListStore(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    private CollectionReference entries(String eventId) {
+        return db.collection("events").document(eventId).collection("waitingList");
+    }
+
+    private DocumentReference shard(String eventId, int shard) {
+        return db.collection("events").document(eventId)
+                .collection(CounterShards.COLLECTION).document(String.valueOf(shard));
+    }
+
+    private static WaitingListState stateOf(DocumentSnapshot entry) {
+        if (!entry.exists()) return null;
+        try {
+            return WaitingListState.valueOf(entry.getString("state"));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return null; // unknown state, counted as not on the list
+        }
+    }
+
+    @Override
+    public CompletableFuture<WaitingListPage> getPage(String eventId, @Nullable WaitingListState state,
+                                                      @Nullable String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Query q = entries(eventId);
+        if (state != null) {
+            q = q.whereEqualTo("state", state.name());
+        }
+        q = q.orderBy(FieldPath.documentId());
+        if (cursor != null) {
+            q = q.startAfter(cursor);
+        }
+
+        CompletableFuture<WaitingListPage> future = new CompletableFuture<>();
+        q.limit(pageSize).get()
+                .addOnSuccessListener(snap -> {
+                    List<Pair<User, WaitingListState>> page = new ArrayList<>();
+                    for (DocumentSnapshot doc : snap.getDocuments()) {
+                        WaitingListState s;
+                        try {
+                            s = WaitingListState.valueOf(doc.getString("state"));
+                        } catch (IllegalArgumentException | NullPointerException e) {
+                            continue; // unknown state, skip
+                        }
+                        User u = new User();
+                        u.setUserId(doc.getId());
+                        page.add(new Pair<>(u, s));
+                    }
+                    List<DocumentSnapshot> docs = snap.getDocuments();
+                    String next = docs.size() == pageSize ? docs.get(docs.size() - 1).getId() : null;
+                    future.complete(new WaitingListPage(page, next));
+                })
+                .addOnFailureListener(future::completeExceptionally);
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> applyChanges(String eventId, Map<String, WaitingListState> changes) {
+        List<Task<Void>> commits = new ArrayList<>();
+        WriteBatch batch = db.batch();
+        int ops = 0;
+        for (Map.Entry<String, WaitingListState> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                batch.delete(entries(eventId).document(change.getKey()));
+            } else {
+                batch.set(entries(eventId).document(change.getKey()),
+                        entryData(change.getKey(), change.getValue()), SetOptions.merge());
+            }
+            if (++ops == MAX_PAGE_SIZE) {
+                commits.add(batch.commit());
+                batch = db.batch();
+                ops = 0;
+            }
+        }
+        if (ops > 0) {
+            commits.add(batch.commit());
+        }
+        return whenAll(commits);
+    }
+
+    private static Map<String, Object> entryData(String userId, WaitingListState state) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("userId", userId);
+        data.put("state", state.name());
+        return data;
+    }
+
+    /**
+     * Runs one transaction per {@link #COUNTED_CHUNK} entrants, so a large change set
+     * is atomic per chunk rather than as a whole.
+     */
+    @Override
+    public CompletableFuture<WaitingListCounts> applyCountedChanges(String eventId,
+                                                                    Map<String, WaitingListState> changes,
+                                                                    List<String> mirrors) {
+        WaitingListCounts total = new WaitingListCounts();
+        AtomicBoolean sharded = new AtomicBoolean();
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        Map<String, WaitingListState> chunk = new LinkedHashMap<>();
+        for (Map.Entry<String, WaitingListState> change : changes.entrySet()) {
+            chunk.put(change.getKey(), change.getValue());
+            if (chunk.size() == COUNTED_CHUNK) {
+                Map<String, WaitingListState> part = chunk;
+                chain = chain.thenCompose(v -> countedChunk(eventId, part, mirrors, sharded)).thenAccept(total::addAll);
+                chunk = new LinkedHashMap<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            Map<String, WaitingListState> part = chunk;
+            chain = chain.thenCompose(v -> countedChunk(eventId, part, mirrors, sharded)).thenAccept(total::addAll);
+        }
+        return chain
+                .thenCompose(v -> sharded.get() && !total.isZero()
+                        ? rollUp(eventId, mirrors)
+                        : CompletableFuture.completedFuture(0))
+                .thenApply(v -> total);
+    }
+
+    private CompletableFuture<WaitingListCounts> countedChunk(String eventId, Map<String, WaitingListState> changes,
+                                                              List<String> mirrors, AtomicBoolean sharded) {
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        CompletableFuture<WaitingListCounts> future = new CompletableFuture<>();
+        db.runTransaction(tx -> {
+            int shards = CounterShards.count(tx.get(eventRef).get(CounterShards.FIELD));
+            boolean isSharded = CounterShards.isSharded(shards);
+            WaitingListCounts delta = new WaitingListCounts();
+            Map<Integer, WaitingListCounts> shardDeltas = new HashMap<>();
+            Map<String, Integer> entryShards = new HashMap<>();
+            for (Map.Entry<String, WaitingListState> change : changes.entrySet()) {
+                DocumentSnapshot entry = tx.get(entries(eventId).document(change.getKey()));
+                WaitingListCounts d = WaitingListCounts.transition(stateOf(entry), change.getValue());
+                delta.addAll(d);
+                if (isSharded) {
+                    int s = CounterShards.shardOf(entry.get(CounterShards.ENTRY_FIELD), change.getKey(), shards);
+                    shardDeltas.computeIfAbsent(s, k -> new WaitingListCounts()).addAll(d);
+                    entryShards.put(change.getKey(), s);
+                }
+            }
+            List<DocumentReference> liveMirrors = isSharded
+                    ? new ArrayList<>()
+                    : CounterUpdates.existing(tx, db, mirrors);
+
+            for (Map.Entry<String, WaitingListState> change : changes.entrySet()) {
+                DocumentReference ref = entries(eventId).document(change.getKey());
+                if (change.getValue() == null) {
+                    tx.delete(ref);
+                } else {
+                    Map<String, Object> data = entryData(change.getKey(), change.getValue());
+                    if (isSharded) {
+                        data.put(CounterShards.ENTRY_FIELD, entryShards.get(change.getKey()));
+                    }
+                    tx.set(ref, data, SetOptions.merge());
+                }
+            }
+            if (isSharded) {
+                sharded.set(true);
+                for (Map.Entry<Integer, WaitingListCounts> d : shardDeltas.entrySet()) {
+                    if (!d.getValue().isZero()) {
+                        tx.set(shard(eventId, d.getKey()), CounterUpdates.nestedIncrements(d.getValue()),
+                                SetOptions.merge());
+                    }
+                }
+            } else if (!delta.isZero()) {
+                tx.update(eventRef, CounterUpdates.fieldIncrements(delta));
+                for (DocumentReference mirror : liveMirrors) {
+                    tx.set(mirror, FirestoreSyncSource.stamp(CounterUpdates.nestedIncrements(delta)), SetOptions.merge());
+                }
+            }
+            return delta;
+        })
+                .addOnSuccessListener(future::complete)
+                .addOnFailureListener(future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * A transaction can't count a subcollection, so the capacity check reads the
+     * event's {@value #COUNTS_FIELD} counters, which every counted write keeps in step,
+     * or for a sharded event the counters of the joiner's shard.
+     */
+    @Override
+    public CompletableFuture<JoinResult> join(String eventId, String userId, List<String> mirrors) {
+        return joinFrom(eventId, userId, mirrors, 0);
+    }
+
+    /**
+     * One attempt at the shard {@code offset} places after the user's home shard.
+     * A full shard completes with null, handing over to the next one; only the last
+     * shard reports FULL.
+     */
+    private CompletableFuture<JoinResult> joinFrom(String eventId, String userId, List<String> mirrors,
+                                                   int offset) {
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        DocumentReference entryRef = entries(eventId).document(userId);
+        return JoinTransactions.run(db, tx -> {
+            DocumentSnapshot event = tx.get(eventRef);
+            if (!event.exists()) {
+                throw new FirebaseFirestoreException("Event " + eventId + " not found",
+                        FirebaseFirestoreException.Code.NOT_FOUND);
+            }
+            WaitingListState current = stateOf(tx.get(entryRef));
+            int capacity = JoinTransactions.capacityOf(event);
+            int shards = CounterShards.count(event.get(CounterShards.FIELD));
+            WaitingListCounts delta = WaitingListCounts.transition(null, WaitingListState.ENTERED);
+
+            if (!CounterShards.isSharded(shards)) {
+                List<DocumentReference> liveMirrors = CounterUpdates.existing(tx, db, mirrors);
+                WaitingListCounts counts = WaitingListCounts.fromMap(event.get(COUNTS_FIELD));
+                int entrants = counts == null ? 0 : counts.getTotal();
+                JoinResult result = WaitingListStore.decideJoin(current, entrants, capacity);
+                if (result != JoinResult.JOINED) {
+                    return result;
+                }
+                tx.set(entryRef, entryData(userId, WaitingListState.ENTERED));
+                tx.update(eventRef, CounterUpdates.fieldIncrements(delta));
+                for (DocumentReference mirror : liveMirrors) {
+                    tx.set(mirror, FirestoreSyncSource.stamp(CounterUpdates.nestedIncrements(delta)), SetOptions.merge());
+                }
+                JoinTransactions.recordJoin(tx, db, userId, eventId);
+                return result;
+            }
+
+            // Only this shard is read and written, so joiners in other shards don't conflict
+            int s = (CounterShards.home(userId, shards) + offset) % shards;
+            DocumentReference shardRef = shard(eventId, s);
+            WaitingListCounts counts = WaitingListCounts.fromMap(tx.get(shardRef).get(COUNTS_FIELD));
+            int entrants = counts == null ? 0 : counts.getTotal();
+            JoinResult result = WaitingListStore.decideJoin(current, entrants,
+                    CounterShards.quota(capacity, shards, s));
+            if (result == JoinResult.FULL && offset + 1 < shards) {
+                return null;
+            }
+            if (result != JoinResult.JOINED) {
+                return result;
+            }
+            Map<String, Object> data = entryData(userId, WaitingListState.ENTERED);
+            data.put(CounterShards.ENTRY_FIELD, s);
+            tx.set(entryRef, data);
+            tx.set(shardRef, CounterUpdates.nestedIncrements(delta), SetOptions.merge());
+            JoinTransactions.recordJoin(tx, db, userId, eventId);
+            return result;
+        }).thenCompose(result -> result != null
+                ? CompletableFuture.completedFuture(result)
+                : joinFrom(eventId, userId, mirrors, offset + 1));
+    }
+
+    /**
+     * Rewrites the counters of a sharded event and its mirrors with the sum of the
+     * shards. Runs after counted changes, not after joins, so a registration burst
+     * doesn't funnel back into the event document.
+     *
+     * @return number of counter documents rewritten
+     */
+    private CompletableFuture<Integer> rollUp(String eventId, List<String> mirrors) {
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        db.runTransaction(tx -> {
+            DocumentSnapshot event = tx.get(eventRef);
+            int shards = CounterShards.count(event.get(CounterShards.FIELD));
+            if (!event.exists() || !CounterShards.isSharded(shards)) {
+                return 0;
+            }
+            List<WaitingListCounts> parts = new ArrayList<>();
+            for (int k = 0; k < shards; k++) {
+                parts.add(WaitingListCounts.fromMap(tx.get(shard(eventId, k)).get(COUNTS_FIELD)));
+            }
+            return CounterUpdates.repair(tx, db, event, mirrors, CounterShards.sum(parts));
+        })
+                .addOnSuccessListener(future::complete)
+                .addOnFailureListener(future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * Transactions can't run queries, so the entries are counted first and the
+     * counters compared in a transaction afterwards; a join landing in between can
+     * leave a drift of one for the next run to repair. Sharded events recount every
+     * shard from its entries and roll the sum up into the event and its mirrors.
+     */
+    @Override
+    public CompletableFuture<Integer> reconcileCounts(String eventId, List<String> mirrors) {
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        CompletableFuture<Integer> shardCount = new CompletableFuture<>();
+        eventRef.get()
+                .addOnSuccessListener(doc -> shardCount.complete(CounterShards.count(doc.get(CounterShards.FIELD))))
+                .addOnFailureListener(shardCount::completeExceptionally);
+        return shardCount.thenCompose(shards -> {
+            WaitingListCounts[] actual = new WaitingListCounts[Math.max(1, shards)];
+            for (int k = 0; k < actual.length; k++) {
+                actual[k] = new WaitingListCounts();
+            }
+            boolean sharded = CounterShards.isSharded(shards);
+            return forEachEntry(eventId, null, doc -> {
+                int k = sharded ? CounterShards.shardOf(doc.get(CounterShards.ENTRY_FIELD), doc.getId(), shards) : 0;
+                actual[k].add(stateOf(doc), 1);
+            }).thenCompose(v -> {
+                CompletableFuture<Integer> future = new CompletableFuture<>();
+                db.runTransaction(tx -> {
+                    DocumentSnapshot event = tx.get(eventRef);
+                    if (!event.exists()) {
+                        return 0;
+                    }
+                    List<DocumentSnapshot> shardDocs = new ArrayList<>();
+                    if (sharded) {
+                        for (int k = 0; k < shards; k++) {
+                            shardDocs.add(tx.get(shard(eventId, k)));
+                        }
+                    }
+                    int repaired = CounterUpdates.repair(tx, db, event, mirrors,
+                            CounterShards.sum(Arrays.asList(actual)));
+                    for (int k = 0; k < shardDocs.size(); k++) {
+                        if (!actual[k].equals(WaitingListCounts.fromMap(shardDocs.get(k).get(COUNTS_FIELD)))) {
+                            tx.set(shard(eventId, k), CounterUpdates.nestedCounts(actual[k]), SetOptions.merge());
+                            repaired++;
+                        }
+                    }
+                    return repaired;
+                })
+                        .addOnSuccessListener(future::complete)
+                        .addOnFailureListener(future::completeExceptionally);
+                return future;
+            });
+        });
+    }
+
+    /** Walks every entry document in id order, a page at a time. */
+    private CompletableFuture<Void> forEachEntry(String eventId, @Nullable String cursor,
+                                                 Consumer<DocumentSnapshot> action) {
+        Query q = entries(eventId).orderBy(FieldPath.documentId());
+        if (cursor != null) {
+            q = q.startAfter(cursor);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        q.limit(MAX_PAGE_SIZE).get()
+                .addOnSuccessListener(snap -> {
+                    List<DocumentSnapshot> docs = snap.getDocuments();
+                    for (DocumentSnapshot doc : docs) {
+                        action.accept(doc);
+                    }
+                    if (docs.size() < MAX_PAGE_SIZE) {
+                        future.complete(null);
+                        return;
+                    }
+                    forEachEntry(eventId, docs.get(docs.size() - 1).getId(), action).whenComplete((v, e) -> {
+                        if (e == null) future.complete(null);
+                        else future.completeExceptionally(e);
+                    });
+                })
+                .addOnFailureListener(future::completeExceptionally);
+        return future;
+    }
+
+    /** Sharded counts are one read of the shard collection, not of the event. */
+    @Override
+    public CompletableFuture<WaitingListCounts> readCounts(String eventId, int shards) {
+        CompletableFuture<WaitingListCounts> future = new CompletableFuture<>();
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        if (!CounterShards.isSharded(shards)) {
+            eventRef.get()
+                    .addOnSuccessListener(doc -> {
+                        WaitingListCounts counts = WaitingListCounts.fromMap(doc.get(COUNTS_FIELD));
+                        future.complete(counts != null ? counts : new WaitingListCounts());
+                    })
+                    .addOnFailureListener(future::completeExceptionally);
+            return future;
+        }
+        eventRef.collection(CounterShards.COLLECTION).get()
+                .addOnSuccessListener(snap -> {
+                    List<WaitingListCounts> parts = new ArrayList<>();
+                    for (DocumentSnapshot doc : snap.getDocuments()) {
+                        // shards left over from a larger shard count hold no entrants' counts
+                        int k;
+                        try {
+                            k = Integer.parseInt(doc.getId());
+                        } catch (NumberFormatException e) {
+                            continue;
+                        }
+                        if (k < shards) parts.add(WaitingListCounts.fromMap(doc.get(COUNTS_FIELD)));
+                    }
+                    future.complete(CounterShards.sum(parts));
+                })
+                .addOnFailureListener(future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * One collection group query on {@code userId}; needs the collection group
+     * index on {@code waitingList.userId}.
+     */
+    @Override
+    public CompletableFuture<Map<String, WaitingListState>> getStatesForUser(String userId) {
+        CompletableFuture<Map<String, WaitingListState>> future = new CompletableFuture<>();
+        db.collectionGroup("waitingList")
+                .whereEqualTo("userId", userId)
+                .get()
+                .addOnSuccessListener(snap -> {
+                    Map<String, WaitingListState> out = new HashMap<>();
+                    for (DocumentSnapshot doc : snap.getDocuments()) {
+                        DocumentReference event = doc.getReference().getParent().getParent();
+                        if (event == null) continue;
+                        try {
+                            out.put(event.getId(), WaitingListState.valueOf(doc.getString("state")));
+                        } catch (IllegalArgumentException | NullPointerException e) {
+                            // unknown state, skip
+                        }
+                    }
+                    future.complete(out);
+                })
+                .addOnFailureListener(future::completeExceptionally);
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> clear(String eventId) {
+        return getPage(eventId, null, null, MAX_PAGE_SIZE).thenCompose(page -> {
+            if (page.getEntries().isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            Map<String, WaitingListState> deletes = new HashMap<>();
+            for (Pair<User, WaitingListState> p : page.getEntries()) {
+                deletes.put(p.first.getUserId(), null);
+            }
+            // deleted docs drop out of the next query, so always restart from the top
+            return applyChanges(eventId, deletes).thenCompose(v ->
+                    page.hasMore() ? clear(eventId) : CompletableFuture.completedFuture(null));
+        });
+    }
+
+    private static CompletableFuture<Void> whenAll(List<Task<Void>> tasks) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Tasks.whenAll(tasks)
+                .addOnSuccessListener(unused -> future.complete(null))
+                .addOnFailureListener(future::completeExceptionally);
+        return future;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.lotterypatentpending.data;
+
+import androidx.annotation.Nullable;
+
+import com.example.lotterypatentpending.models.EventSummary;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Keeps a {@link LocalEventStore} in sync with a {@link SyncSource} and serves list
+ * screens from the store.
+ * <p>
+ * An observer is first sent what is on disk, so a screen renders before the network
+ * answers. While anyone observes, one delta listener is attached from the stored
+ * high-water mark; each batch of changes is applied to the store in one transaction
+ * and the mark only ever moves forward. Disk is only read when an observer starts:
+ * each one keeps its summaries in a {@link KeyedLiveList}, and a batch is applied to
+ * those lists in memory, so observers are sent a {@link ChangeSet} with just the
+ * summaries the batch touched and the same instances for the rest. The last observer
+ * to leave detaches the listener, and the next one resumes from where it stopped.
+ * </p>
+ * <p>
+ * Disk work runs on {@code io}, which must run tasks one at a time and in order, e.g.
+ * a single-thread executor. Observers are called on {@code main}.
+ * </p>
+ */
+public class SyncEngine {
+    private static final class Observer {
+        @Nullable
+        final String organizerId;
+        final Consumer<ChangeSet<EventSummary>> onChange;
+        final Consumer<Exception> onError;
+        volatile boolean active = true;
+        // only touched on io
+        final KeyedLiveList<EventSummary> summaries = new KeyedLiveList<>();
+        boolean loaded;
+        boolean sent;
+
+        Observer(@Nullable String organizerId, Consumer<ChangeSet<EventSummary>> onChange, Consumer<Exception> onError) {
+            this.organizerId = organizerId;
+            this.onChange = onChange;
+            this.onError = onError;
+        }
+
+        boolean wants(EventSummary s) {
+            return organizerId == null || organizerId.equals(s.getOrganizerId());
+        }
+    }
+
+    private final SyncSource source;
+    private final LocalEventStore store;
+    private final Executor io;
+    private final Executor main;
+
+    // guarded by this
+    private final List<Observer> observers = new ArrayList<>();
+    @Nullable
+    private ListenerRegistration live;
+
+    public SyncEngine(SyncSource source, LocalEventStore store, Executor io, Executor main) {
+        this.source = source;
+        this.store = store;
+        this.io = io;
+        this.main = main;
+    }
+
+    /**
+     * Observes event summaries, from disk first and then after every synced change.
+     * Nothing is sent from disk before the first sync has stored anything, so a fresh
+     * install waits for the network instead of showing an empty list.
+     *
+     * @param organizerId only events organized by this user, or null for every event
+     * @param onChange    called with what changed and the current list, by id; the
+     *                    first call has every summary as added
+     * @param onError     called if the delta listener fails; it is attached again for
+     *                    the next observer
+     * @return registration whose {@code remove()} stops the updates
+     */
+    public ListenerRegistration observeEventSummaries(@Nullable String organizerId,
+                                                      Consumer<ChangeSet<EventSummary>> onChange,
+                                                      Consumer<Exception> onError) {
+        Observer observer = new Observer(organizerId, onChange, onError);
+        synchronized (this) {
+            observers.add(observer);
+        }
+        io.execute(() -> {
+            if (!observer.active) return;
+            List<EventSummary> onDisk = query(observer);
+            for (EventSummary s : onDisk) {
+                observer.summaries.apply(KeyedLiveList.Type.ADDED, s.getId(), s);
+            }
+            observer.loaded = true;
+            ChangeSet<EventSummary> changes = observer.summaries.commit();
+            if (!onDisk.isEmpty() || store.getHighWaterMark(SyncSource.EVENT_SUMMARIES) > 0) {
+                send(observer, changes);
+            }
+            attachIfNeeded();
+        });
+        return () -> stopObserving(observer);
+    }
+
+    /** @return true while the delta listener is attached */
+    public synchronized boolean isSyncing() {
+        return live != null;
+    }
+
+    private synchronized void stopObserving(Observer observer) {
+        observer.active = false;
+        if (observers.remove(observer) && observers.isEmpty() && live != null) {
+            live.remove();
+            live = null;
+        }
+    }
+
+    /** Runs on io, so the high-water mark read can't race with a batch being applied. */
+    private synchronized void attachIfNeeded() {
+        if (live != null || observers.isEmpty()) return;
+        long since = store.getHighWaterMark(SyncSource.EVENT_SUMMARIES);
+        ListenerRegistration[] self = new ListenerRegistration[1];
+        self[0] = source.listenEventSummaries(since, new SyncSource.Listener<EventSummary>() {
+            @Override
+            public void onChanges(SyncPage<EventSummary> page) {
+                io.execute(() -> apply(page));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                detach(self[0]);
+                List<Observer> targets;
+                synchronized (SyncEngine.this) {
+                    targets = new ArrayList<>(observers);
+                }
+                for (Observer o : targets) {
+                    main.execute(() -> {
+                        if (o.active) o.onError.accept(e);
+                    });
+                }
+            }
+        });
+        live = self[0];
+    }
+
+    private synchronized void detach(@Nullable ListenerRegistration failed) {
+        if (failed != null && live == failed) {
+            live.remove();
+            live = null;
+        }
+    }
+
+    private void apply(SyncPage<EventSummary> page) {
+        store.runInTransaction(() -> {
+            if (!page.getUpserts().isEmpty()) store.putEventSummaries(page.getUpserts());
+            if (!page.getDeletedIds().isEmpty()) store.deleteEventSummaries(page.getDeletedIds());
+            long hwm = store.getHighWaterMark(SyncSource.EVENT_SUMMARIES);
+            if (page.getHighWaterMark() > hwm) {
+                store.setHighWaterMark(SyncSource.EVENT_SUMMARIES, page.getHighWaterMark());
+            }
+        });
+        List<Observer> targets;
+        synchronized (this) {
+            targets = new ArrayList<>(observers);
+        }
+        for (Observer o : targets) {
+            // not loaded yet: its disk read comes after this batch and already has it
+            if (!o.loaded) continue;
+            for (EventSummary s : page.getUpserts()) {
+                // an upsert that no longer matches, e.g. a new organizer, leaves the list
+                o.summaries.apply(o.wants(s) ? KeyedLiveList.Type.MODIFIED : KeyedLiveList.Type.REMOVED,
+                        s.getId(), s);
+            }
+            for (String id : page.getDeletedIds()) {
+                o.summaries.apply(KeyedLiveList.Type.REMOVED, id, null);
+            }
+            ChangeSet<EventSummary> changes = o.summaries.commit();
+            // the first sync of a fresh install is sent even if it found nothing
+            if (!changes.isEmpty() || !o.sent) send(o, changes);
+        }
+    }
+
+    private List<EventSummary> query(Observer o) {
+        return o.organizerId == null
+                ? store.getEventSummaries()
+                : store.getEventSummariesByOrganizer(o.organizerId);
+    }
+
+    private void send(Observer o, ChangeSet<EventSummary> changes) {
+        o.sent = true;
+        main.execute(() -> {
+            if (o.active) o.onChange.accept(changes);
+        });
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.lotterypatentpending.data;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One batch of changes to a synced collection: documents to insert or replace,
+ * ids of deleted documents, and the server time the batch is complete up to.
+ *
+ * @param <T> document type
+ */
+public class SyncPage<T> {
+    private final List<T> upserts;
+    private final List<String> deletedIds;
+    private final long highWaterMark;
+
+    public SyncPage(List<T> upserts, List<String> deletedIds, long highWaterMark) {
+        this.upserts = Collections.unmodifiableList(upserts);
+        this.deletedIds = Collections.unmodifiableList(deletedIds);
+        this.highWaterMark = highWaterMark;
+    }
+
+    public List<T> getUpserts() {
+        return upserts;
+    }
+
+    public List<String> getDeletedIds() {
+        return deletedIds;
+    }
+
+    /** @return newest server change time in this batch, or 0 if none was known */
+    public long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    public boolean isEmpty() {
+        return upserts.isEmpty() && deletedIds.isEmpty();
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.lotterypatentpending.data;
+
+import com.example.lotterypatentpending.models.EventSummary;
+import com.google.firebase.firestore.ListenerRegistration;
+
+/**
+ * Server side of {@link SyncEngine}: streams the documents of a collection that
+ * changed at or after a high-water mark.
+ */
+public interface SyncSource {
+    /** Collection name of event summaries, also the key of their high-water mark. */
+    String EVENT_SUMMARIES = "eventSummaries";
+
+    interface Listener<T> {
+        /** Called with each batch of changes, oldest batch first. */
+        void onChanges(SyncPage<T> page);
+
+        void onError(Exception e);
+    }
+
+    /**
+     * Listens to event summaries changed or deleted at or after {@code since}. The
+     * first batch holds everything since then; later batches hold live changes.
+     *
+     * @param since server time in millis; 0 for everything
+     */
+    ListenerRegistration listenEventSummaries(long since, Listener<EventSummary> listener);
+}
@@ -0,0 +1,159 @@
+package com.example.lotterypatentpending.data;
+
+import com.example.lotterypatentpending.models.Notification;
+import com.example.lotterypatentpending.models.NotificationTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Process-wide cache of {@link NotificationTemplate}s, used to fill in the text of
+ * templated notifications. The app's instance is {@code FirebaseManager#getTemplateCache()}.
+ * <p>
+ * Templates are immutable, so entries never expire; the least recently used one is
+ * evicted once the cache is full. Missing templates are fetched in chunks of
+ * {@link TemplateSource#CHUNK_SIZE}, and concurrent requests for a template that is
+ * already being read share that read.
+ * </p>
+ */
+public class TemplateCache {
+    public static final int DEFAULT_MAX_SIZE = 200;
+
+    private final TemplateSource source;
+    private final int maxSize;
+
+    // all guarded by this
+    private final LinkedHashMap<String, NotificationTemplate> entries;
+    private final Map<String, CompletableFuture<NotificationTemplate>> inFlight = new HashMap<>();
+    private long hits;
+    private long fetches;
+
+    public TemplateCache(TemplateSource source, int maxSize) {
+        this.source = source;
+        this.maxSize = Math.max(1, maxSize);
+        this.entries = new LinkedHashMap<String, NotificationTemplate>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, NotificationTemplate> eldest) {
+                return size() > TemplateCache.this.maxSize;
+            }
+        };
+    }
+
+    /** @return the template if it is cached, without fetching it */
+    public synchronized NotificationTemplate peek(String templateId) {
+        NotificationTemplate t = entries.get(templateId);
+        if (t != null) hits++;
+        return t;
+    }
+
+    /** Stores a template that was just written so its recipients on this device don't fetch it. */
+    public synchronized void put(NotificationTemplate template) {
+        if (template != null && template.getId() != null) {
+            entries.put(template.getId(), template);
+        }
+    }
+
+    /**
+     * @param templateIds ids to load; duplicates and nulls are ignored
+     * @return the templates found, keyed by id
+     */
+    public CompletableFuture<Map<String, NotificationTemplate>> getAll(Set<String> templateIds) {
+        Map<String, NotificationTemplate> found = new HashMap<>();
+        Map<String, CompletableFuture<NotificationTemplate>> pending = new HashMap<>();
+        List<String> toFetch = new ArrayList<>();
+
+        synchronized (this) {
+            for (String id : templateIds) {
+                if (id == null) continue;
+                NotificationTemplate t = entries.get(id);
+                if (t != null) {
+                    hits++;
+                    found.put(id, t);
+                    continue;
+                }
+                CompletableFuture<NotificationTemplate> f = inFlight.get(id);
+                if (f == null) {
+                    f = new CompletableFuture<>();
+                    inFlight.put(id, f);
+                    toFetch.add(id);
+                }
+                pending.put(id, f);
+            }
+        }
+
+        for (int i = 0; i < toFetch.size(); i += TemplateSource.CHUNK_SIZE) {
+            List<String> chunk = new ArrayList<>(toFetch.subList(i, Math.min(i + TemplateSource.CHUNK_SIZE, toFetch.size())));
+            synchronized (this) {
+                fetches++;
+            }
+            source.fetchChunk(chunk).whenComplete((templates, err) -> {
+                for (String id : chunk) {
+                    NotificationTemplate t = err == null ? templates.get(id) : null;
+                    CompletableFuture<NotificationTemplate> f;
+                    synchronized (this) {
+                        f = inFlight.remove(id);
+                        if (t != null) entries.put(id, t);
+                    }
+                    if (f == null) continue;
+                    if (err != null) f.completeExceptionally(err);
+                    else f.complete(t);
+                }
+            });
+        }
+
+        if (pending.isEmpty()) {
+            return CompletableFuture.completedFuture(found);
+        }
+        return CompletableFuture.allOf(pending.values().toArray(new CompletableFuture[0])).thenApply(v -> {
+            for (Map.Entry<String, CompletableFuture<NotificationTemplate>> p : pending.entrySet()) {
+                NotificationTemplate t = p.getValue().join();
+                if (t != null) found.put(p.getKey(), t);
+            }
+            return found;
+        });
+    }
+
+    /**
+     * Fills in the text of every templated notification in {@code notifications}
+     * whose template can be loaded. Notifications without a template are left as
+     * they are, so old fully stored notifications keep working.
+     *
+     * @return the same list, once resolved
+     */
+    public CompletableFuture<List<Notification>> resolve(List<Notification> notifications) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (Notification n : notifications) {
+            if (n != null && n.needsTemplate()) ids.add(n.getTemplateId());
+        }
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(notifications);
+        }
+        return getAll(ids).thenApply(templates -> {
+            for (Notification n : notifications) {
+                if (n == null || !n.needsTemplate()) continue;
+                NotificationTemplate t = templates.get(n.getTemplateId());
+                if (t != null) n.applyTemplate(t);
+            }
+            return notifications;
+        });
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /** @return requests sent to the {@link TemplateSource} */
+    public synchronized long getFetchCount() {
+        return fetches;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.lotterypatentpending.data;
+
+import com.example.lotterypatentpending.models.NotificationTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fetches a small batch of notification templates in one request.
+ * Backed by a {@code whereIn(documentId)} query in production and by fakes in tests.
+ */
+public interface TemplateSource {
+    /** Most ids one request may ask for, the {@code whereIn} limit. */
+    int CHUNK_SIZE = 30;
+
+    /**
+     * @param templateIds at most {@link #CHUNK_SIZE} distinct ids
+     * @return templates found, keyed by id; missing ids are simply absent
+     */
+    CompletableFuture<Map<String, NotificationTemplate>> fetchChunk(List<String> templateIds);
+}
@@ -0,0 +1,120 @@
+package com.example.lotterypatentpending.data;
+
+import com.example.lotterypatentpending.models.Notification;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Per-user unread notification counter in {@code users/{uid}/counters/notifications}.
+ * <p>
+ * The counter is changed with {@link FieldValue#increment} in the same batch that
+ * creates notifications or marks them read, so the badge listens to one document
+ * instead of every unread notification. It lives outside the user document because
+ * profile saves overwrite that document. Writers only change it when a notification
+ * is created or flips from unread to read; if it still drifts, e.g. from writes of
+ * an older app version, {@link #reconcile} recounts and repairs.
+ * </p>
+ */
+public final class UnreadCounters {
+    public static final String COLLECTION = "counters";
+    public static final String DOC = "notifications";
+    public static final String FIELD = "unread";
+
+    private UnreadCounters() {
+    }
+
+    public static DocumentReference ref(FirebaseFirestore db, String userId) {
+        return db.collection("users").document(userId).collection(COLLECTION).document(DOC);
+    }
+
+    /** Adds {@code delta} to the counter of {@code userId}, creating it if needed. */
+    public static void increment(WriteBatch batch, FirebaseFirestore db, String userId, long delta) {
+        if (delta == 0) return;
+        Map<String, Object> data = new HashMap<>();
+        data.put(FIELD, FieldValue.increment(delta));
+        batch.set(ref(db, userId), data, SetOptions.merge());
+    }
+
+    /** Same as {@link #increment(WriteBatch, FirebaseFirestore, String, long)}, inside a transaction. */
+    public static void increment(Transaction tx, FirebaseFirestore db, String userId, long delta) {
+        if (delta == 0) return;
+        Map<String, Object> data = new HashMap<>();
+        data.put(FIELD, FieldValue.increment(delta));
+        tx.set(ref(db, userId), data, SetOptions.merge());
+    }
+
+    /**
+     * @param notifications notifications about to be created
+     * @return number of unread ones per user, in first-seen order
+     */
+    public static Map<String, Long> unreadPerUser(Collection<Notification> notifications) {
+        Map<String, Long> perUser = new LinkedHashMap<>();
+        for (Notification n : notifications) {
+            if (!n.isRead()) perUser.merge(n.getUserId(), 1L, Long::sum);
+        }
+        return perUser;
+    }
+
+    /**
+     * @param snap counter document
+     * @return the stored count, never negative; 0 if the counter doesn't exist yet
+     */
+    public static long read(DocumentSnapshot snap) {
+        Long value = snap.getLong(FIELD);
+        return value == null ? 0 : Math.max(0, value);
+    }
+
+    /**
+     * Recounts a user's unread notifications with a count aggregation and overwrites
+     * the counter if it differs. The repair only happens if the counter didn't move
+     * while counting; otherwise a concurrent write may not be in the count, and the
+     * next check repairs it instead.
+     *
+     * @return future with the recounted number of unread notifications
+     */
+    public static CompletableFuture<Integer> reconcile(FirebaseFirestore db, String userId) {
+        DocumentReference counter = ref(db, userId);
+        CompletableFuture<Long> before = new CompletableFuture<>();
+        counter.get()
+                .addOnSuccessListener(snap -> before.complete(snap.getLong(FIELD)))
+                .addOnFailureListener(before::completeExceptionally);
+
+        return before.thenCompose(seen -> {
+            CompletableFuture<Long> counted = new CompletableFuture<>();
+            db.collection("users").document(userId).collection("notifications")
+                    .whereEqualTo("read", false)
+                    .count()
+                    .get(AggregateSource.SERVER)
+                    .addOnSuccessListener(agg -> counted.complete(agg.getCount()))
+                    .addOnFailureListener(counted::completeExceptionally);
+            return counted.thenCompose(actual -> {
+                CompletableFuture<Integer> f = new CompletableFuture<>();
+                db.runTransaction(tx -> {
+                            Long stored = tx.get(counter).getLong(FIELD);
+                            if (Objects.equals(stored, seen) && (stored == null || stored != actual.longValue())) {
+                                Map<String, Object> data = new HashMap<>();
+                                data.put(FIELD, actual);
+                                tx.set(counter, data, SetOptions.merge());
+                            }
+                            return null;
+                        })
+                        .addOnSuccessListener(v -> f.complete(actual.intValue()))
+                        .addOnFailureListener(f::completeExceptionally);
+                return f;
+            });
+        });
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.lotterypatentpending.data;
+
+import com.example.lotterypatentpending.models.User;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fetches a small batch of users in one request.
+ * Backed by a {@code whereIn(documentId)} query in production and by fakes in tests.
+ */
+public interface UserBatchSource {
+    /**
+     * @param userIds at most {@link BulkUserLoader#CHUNK_SIZE} distinct ids
+     * @return users found, keyed by id; missing ids are simply absent
+     */
+    CompletableFuture<Map<String, User>> fetchChunk(List<String> userIds);
+}
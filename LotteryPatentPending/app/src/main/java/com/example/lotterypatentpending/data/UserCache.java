@@ -0,0 +1,202 @@
+package com.example.lotterypatentpending.data;
+
+import com.example.lotterypatentpending.models.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide cache of {@code users/{uid}} documents in front of {@link BulkUserLoader}.
+ * <p>
+ * Entries expire after a TTL and the least recently used entry is evicted once
+ * the cache is full. Concurrent requests for a uid that is already being read
+ * share that read instead of issuing another one. Writers must call
+ * {@link #put} or {@link #invalidate} so readers don't see stale profiles.
+ * </p>
+ * <p>
+ * Cached {@link User} objects are shared between callers; treat them as read-only
+ * unless the change is saved back through {@code addOrUpdateUser}.
+ * </p>
+ */
+public class UserCache {
+    public static final int DEFAULT_MAX_SIZE = 500;
+    public static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000L;
+
+    private static final class Entry {
+        final User user;
+        final long expiresAt;
+
+        Entry(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final BulkUserLoader loader;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    // all guarded by this
+    private final LinkedHashMap<String, Entry> entries;
+    private final Map<String, CompletableFuture<User>> inFlight = new HashMap<>();
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public UserCache(UserBatchSource source) {
+        this(new BulkUserLoader(source), DEFAULT_MAX_SIZE, DEFAULT_TTL_MILLIS, System::currentTimeMillis);
+    }
+
+    /**
+     * @param loader    used for every miss
+     * @param maxSize   number of users kept before the least recently used is evicted
+     * @param ttlMillis how long a loaded user is served without re-reading it
+     * @param clock     time source in milliseconds, replaceable in tests
+     */
+    public UserCache(BulkUserLoader loader, int maxSize, long ttlMillis, LongSupplier clock) {
+        this.loader = loader;
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > UserCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the user, or null if no such user document exists
+     */
+    public CompletableFuture<User> get(String userId) {
+        return getAll(Collections.singletonList(userId)).thenApply(users -> users.get(0));
+    }
+
+    /**
+     * Serves what it can from the cache and loads the rest in batches.
+     *
+     * @param userIds ids to load; may contain duplicates and nulls
+     * @return one entry per requested id, in the same order; null where the user doesn't exist
+     */
+    public CompletableFuture<List<User>> getAll(List<String> userIds) {
+        Map<String, CompletableFuture<User>> pending = new HashMap<>();
+        Map<String, User> cached = new HashMap<>();
+        List<String> toLoad = new ArrayList<>();
+        Map<String, CompletableFuture<User>> started = new HashMap<>();
+
+        synchronized (this) {
+            long now = clock.getAsLong();
+            for (String id : userIds) {
+                if (id == null || cached.containsKey(id) || pending.containsKey(id)) continue;
+                Entry e = entries.get(id);
+                if (e != null && e.expiresAt > now) {
+                    hits++;
+                    cached.put(id, e.user);
+                    continue;
+                }
+                if (e != null) {
+                    entries.remove(id);
+                }
+                misses++;
+                CompletableFuture<User> f = inFlight.get(id);
+                if (f == null) {
+                    f = new CompletableFuture<>();
+                    inFlight.put(id, f);
+                    toLoad.add(id);
+                    started.put(id, f);
+                }
+                pending.put(id, f);
+            }
+        }
+
+        if (!toLoad.isEmpty()) {
+            loader.load(toLoad).whenComplete((users, err) -> {
+                for (int i = 0; i < toLoad.size(); i++) {
+                    String id = toLoad.get(i);
+                    finish(id, started.get(id), err == null ? users.get(i) : null, err);
+                }
+            });
+        }
+
+        if (pending.isEmpty()) {
+            return CompletableFuture.completedFuture(collect(userIds, cached));
+        }
+        return CompletableFuture.allOf(pending.values().toArray(new CompletableFuture[0]))
+                .thenApply(v -> {
+                    Map<String, User> found = new HashMap<>(cached);
+                    for (Map.Entry<String, CompletableFuture<User>> p : pending.entrySet()) {
+                        found.put(p.getKey(), p.getValue().join());
+                    }
+                    return collect(userIds, found);
+                });
+    }
+
+    private void finish(String id, CompletableFuture<User> future, User user, Throwable err) {
+        synchronized (this) {
+            // only cache if nobody invalidated or overwrote the uid while it was loading
+            if (inFlight.remove(id, future) && err == null && user != null) {
+                entries.put(id, new Entry(user, clock.getAsLong() + ttlMillis));
+            }
+        }
+        if (err != null) {
+            future.completeExceptionally(err);
+        } else {
+            future.complete(user);
+        }
+    }
+
+    private static List<User> collect(List<String> userIds, Map<String, User> found) {
+        List<User> out = new ArrayList<>(userIds.size());
+        for (String id : userIds) {
+            out.add(id == null ? null : found.get(id));
+        }
+        return out;
+    }
+
+    /** Stores a user that was just written so the next read doesn't go to the server. */
+    public synchronized void put(User user) {
+        if (user == null || user.getUserId() == null) return;
+        inFlight.remove(user.getUserId());
+        entries.put(user.getUserId(), new Entry(user, clock.getAsLong() + ttlMillis));
+    }
+
+    /** Drops a user after a partial update or delete; an in-flight read of it won't be cached. */
+    public synchronized void invalidate(String userId) {
+        entries.remove(userId);
+        inFlight.remove(userId);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        inFlight.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /** Lookups that weren't served from the cache, including ones that joined an in-flight read. */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+}
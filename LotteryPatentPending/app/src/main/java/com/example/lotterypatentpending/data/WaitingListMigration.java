@@ -0,0 +1,57 @@
+package com.example.lotterypatentpending.data;
+
+import androidx.core.util.Pair;
+
+import com.example.lotterypatentpending.models.User;
+import com.example.lotterypatentpending.models.WaitingListState;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Copies an event's waiting list from one {@link WaitingListStore} layout to another,
+ * one page at a time, so memory stays bounded by the page size.
+ * <p>
+ * Copying is idempotent: rerunning after a failure rewrites the same entries.
+ * The source is only cleared when asked, after every page has been written.
+ * </p>
+ */
+public class WaitingListMigration {
+    private final WaitingListStore from;
+    private final WaitingListStore to;
+    private final int pageSize;
+
+    public WaitingListMigration(WaitingListStore from, WaitingListStore to, int pageSize) {
+        this.from = from;
+        this.to = to;
+        this.pageSize = Math.max(1, Math.min(pageSize, WaitingListStore.MAX_PAGE_SIZE));
+    }
+
+    /**
+     * @param eventId     event whose waiting list is copied
+     * @param clearSource whether to remove the entries from the source once copied
+     * @return number of entries copied
+     */
+    public CompletableFuture<Integer> migrate(String eventId, boolean clearSource) {
+        CompletableFuture<Integer> copied = copyFrom(eventId, null, 0);
+        if (!clearSource) {
+            return copied;
+        }
+        return copied.thenCompose(n -> from.clear(eventId).thenApply(v -> n));
+    }
+
+    private CompletableFuture<Integer> copyFrom(String eventId, String cursor, int copiedSoFar) {
+        return from.getPage(eventId, null, cursor, pageSize).thenCompose(page -> {
+            Map<String, WaitingListState> changes = new LinkedHashMap<>();
+            for (Pair<User, WaitingListState> p : page.getEntries()) {
+                changes.put(p.first.getUserId(), p.second);
+            }
+            int total = copiedSoFar + changes.size();
+            return to.applyChanges(eventId, changes).thenCompose(v ->
+                    page.hasMore()
+                            ? copyFrom(eventId, page.getNextCursor(), total)
+                            : CompletableFuture.completedFuture(total));
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.lotterypatentpending.data;
+
+import androidx.annotation.Nullable;
+import androidx.core.util.Pair;
+
+import com.example.lotterypatentpending.models.User;
+import com.example.lotterypatentpending.models.WaitingListState;
+
+import java.util.List;
+
+/**
+ * One page of waiting list entries, ordered by userId.
+ * Users only carry their id; hydrate them separately if profile data is needed.
+ */
+public class WaitingListPage {
+    private final List<Pair<User, WaitingListState>> entries;
+    private final String nextCursor;
+
+    public WaitingListPage(List<Pair<User, WaitingListState>> entries, @Nullable String nextCursor) {
+        this.entries = entries;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Pair<User, WaitingListState>> getEntries() {
+        return entries;
+    }
+
+    /** @return cursor to pass for the next page, or null if this is the last page */
+    @Nullable
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.lotterypatentpending.data;
+
+import androidx.annotation.Nullable;
+import androidx.core.util.Pair;
+
+import com.example.lotterypatentpending.exceptions.ContentionException;
+import com.example.lotterypatentpending.models.User;
+import com.example.lotterypatentpending.models.WaitingListCounts;
+import com.example.lotterypatentpending.models.WaitingListState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Storage for event waiting lists, independent of the Firestore layout.
+ * <p>
+ * {@link Layout#EMBEDDED} keeps entries in the event document as
+ * {@code waitingList.<uid>.state}; {@link Layout#SUBCOLLECTION} keeps one document
+ * per entrant under {@code events/{id}/waitingList/{uid}}, which lifts the 1 MiB
+ * document limit and keeps the list out of event snapshots. Each event names its
+ * layout in {@value #LAYOUT_FIELD}.
+ * </p>
+ * <p>
+ * Either way the event document carries a {@value #COUNTS_FIELD} map with the
+ * number of entrants per state ({@link WaitingListCounts}), kept in step by
+ * {@link #applyCountedChanges} and repaired by {@link #reconcileCounts}. In the
+ * subcollection layout a hot event can spread those counters over
+ * {@link CounterShards}; the event's map is then a roll-up of the shards.
+ * </p>
+ */
+public interface WaitingListStore {
+    enum Layout { EMBEDDED, SUBCOLLECTION }
+
+    /** Outcome of a {@link #join}. */
+    enum JoinResult { JOINED, ALREADY_JOINED, FULL }
+
+    /** Firestore batches and page reads are capped at this many entries. */
+    int MAX_PAGE_SIZE = 500;
+
+    /**
+     * Per-state counter map on the event document and on documents mirroring it.
+     * Mirror writes also stamp {@link FirestoreSyncSource#UPDATED_AT}, since mirrors are synced to devices.
+     */
+    String COUNTS_FIELD = "stateCounts";
+
+    /** Event field naming the layout of its waiting list; events without it are embedded. */
+    String LAYOUT_FIELD = "waitingListLayout";
+
+    /** @return the layout stored in an event's {@value #LAYOUT_FIELD}, EMBEDDED if missing or unknown */
+    static Layout layoutOf(@Nullable Object stored) {
+        if (stored instanceof String) {
+            for (Layout layout : Layout.values()) {
+                if (layout.name().equals(stored)) return layout;
+            }
+        }
+        return Layout.EMBEDDED;
+    }
+
+    /**
+     * Reads one page of entries in userId order.
+     *
+     * @param eventId event document ID
+     * @param state   only return entrants in this state, or null for everyone
+     * @param cursor  {@link WaitingListPage#getNextCursor()} of the previous page, or null for the first
+     * @param limit   page size, at most {@link #MAX_PAGE_SIZE}
+     */
+    CompletableFuture<WaitingListPage> getPage(String eventId, @Nullable WaitingListState state,
+                                               @Nullable String cursor, int limit);
+
+    /**
+     * Writes entry changes.
+     *
+     * @param eventId event document ID
+     * @param changes new state per userId; a null state removes the entrant
+     */
+    CompletableFuture<Void> applyChanges(String eventId, Map<String, WaitingListState> changes);
+
+    /**
+     * Writes entry changes like {@link #applyChanges} and, atomically with them, adds
+     * the resulting count changes to the {@value #COUNTS_FIELD} counters of the event
+     * and of each existing document in {@code mirrors}. The entrants' current states
+     * are read in the same transaction, so a change that doesn't move anyone (such as
+     * joining twice) leaves the counters alone.
+     *
+     * @param eventId event document ID
+     * @param changes new state per userId; a null state removes the entrant
+     * @param mirrors paths of other documents carrying the same counters, e.g. the event summary
+     * @return the count change that was applied
+     */
+    CompletableFuture<WaitingListCounts> applyCountedChanges(String eventId, Map<String, WaitingListState> changes,
+                                                             List<String> mirrors);
+
+    /**
+     * Recounts the waiting list and overwrites the {@value #COUNTS_FIELD} counters of
+     * the event and of each existing document in {@code mirrors} where they drifted.
+     *
+     * @param eventId event document ID
+     * @param mirrors paths of other documents carrying the same counters
+     * @return number of counter documents that had to be repaired
+     */
+    CompletableFuture<Integer> reconcileCounts(String eventId, List<String> mirrors);
+
+    /**
+     * Aggregation read of the event's counters.
+     *
+     * @param eventId event document ID
+     * @param shards  the event's {@link CounterShards#FIELD}; when sharded, the counts are
+     *                the sum of the shards rather than the (rolled-up) event counters
+     * @return current counts, all zero if the event has none
+     */
+    CompletableFuture<WaitingListCounts> readCounts(String eventId, int shards);
+
+    /**
+     * One attempt at adding a user to the waiting list as ENTERED, atomically with the
+     * capacity check against the event's {@code waitingListCapacity}, the counter
+     * increments (on the event and each existing mirror) and adding the event to the
+     * user's {@code joinedEventIds} and {@code pastEventIds}. Either all of it is
+     * written or none of it.
+     *
+     * @param eventId event document ID
+     * @param userId  joining user
+     * @param mirrors paths of other documents carrying the event's counters
+     * @return the outcome; fails with {@link ContentionException} if another write got
+     * in between and the attempt may simply be retried
+     */
+    CompletableFuture<JoinResult> join(String eventId, String userId, List<String> mirrors);
+
+    /**
+     * {@link #join(String, String, List)} retried under {@code retry} while it loses
+     * races. A retry after a commit whose reply was lost reports {@code ALREADY_JOINED}.
+     */
+    default CompletableFuture<JoinResult> join(String eventId, String userId, List<String> mirrors,
+                                               RetryPolicy retry) {
+        return retry.run(() -> join(eventId, userId, mirrors), e -> e instanceof ContentionException);
+    }
+
+    /**
+     * The join rule shared by every store.
+     *
+     * @param current  the user's state on the list; null or {@code NOT_IN} if not on it
+     * @param entrants entrants on the list in any state
+     * @param capacity waiting list capacity, or -1 for no limit
+     */
+    static JoinResult decideJoin(@Nullable WaitingListState current, int entrants, int capacity) {
+        if (current != null && current != WaitingListState.NOT_IN) {
+            return JoinResult.ALREADY_JOINED;
+        }
+        if (capacity >= 0 && entrants >= capacity) {
+            return JoinResult.FULL;
+        }
+        return JoinResult.JOINED;
+    }
+
+    /** Removes every entry of the event's waiting list. */
+    CompletableFuture<Void> clear(String eventId);
+
+    /**
+     * Finds the waiting lists one user is on, without reading any other entrant.
+     *
+     * @param userId entrant's user ID
+     * @return the user's state keyed by event ID; events they aren't on are absent
+     */
+    CompletableFuture<Map<String, WaitingListState>> getStatesForUser(String userId);
+
+    /**
+     * Reads every entry (optionally only one state) by walking the pages.
+     */
+    default CompletableFuture<List<Pair<User, WaitingListState>>> getAll(String eventId,
+                                                                        @Nullable WaitingListState state) {
+        List<Pair<User, WaitingListState>> out = new ArrayList<>();
+        return collect(this, eventId, state, null, out).thenApply(v -> out);
+    }
+
+    private static CompletableFuture<Void> collect(WaitingListStore store, String eventId, WaitingListState state,
+                                                   String cursor, List<Pair<User, WaitingListState>> out) {
+        return store.getPage(eventId, state, cursor, MAX_PAGE_SIZE).thenCompose(page -> {
+            out.addAll(page.getEntries());
+            return page.hasMore()
+                    ? collect(store, eventId, state, page.getNextCursor(), out)
+                    : CompletableFuture.completedFuture(null);
+        });
+    }
+}
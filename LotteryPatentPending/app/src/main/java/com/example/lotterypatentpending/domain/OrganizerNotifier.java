@@ -3,11 +3,13 @@ package com.example.lotterypatentpending.domain;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import com.example.lotterypatentpending.data.UserDataSource;
+import com.example.lotterypatentpending.exceptions.PartialWriteException;
 import com.example.lotterypatentpending.models.AdminLogRepository;
 import com.example.lotterypatentpending.models.FirestoreAdminLogRepository;
 import com.example.lotterypatentpending.models.Notification;
 import com.example.lotterypatentpending.models.NotificationLog;
 import com.example.lotterypatentpending.models.NotificationRepository;
+import com.example.lotterypatentpending.models.NotificationTemplate;
 import com.example.lotterypatentpending.models.WaitingListState;
 
 import java.util.ArrayList;
@@ -54,20 +56,23 @@ public class OrganizerNotifier {
             return CompletableFuture.completedFuture(new ArrayList<>());
         }
 
-        List<String> notifiedIds = new ArrayList<>();
-        List<CompletableFuture<Void>> futures = new ArrayList<>();
-
+        List<String> recipients = new ArrayList<>(userIds.size());
         for (String uid : userIds) {
-            if (uid == null) continue;
-            Notification n = new Notification(uid, evt, org, title, body, cat);
-            futures.add(notifRepo.add(n).thenRun(() -> {
-                synchronized (notifiedIds) { notifiedIds.add(uid); }
-            }));
+            if (uid != null) recipients.add(uid);
         }
 
-        NotificationLog log = new NotificationLog(org, evt, cat, userIds, body);
-        futures.add(logRepo.record(log));
-
-        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(v -> notifiedIds);
+        // one template holds the text; each recipient only gets a reference to it
+        NotificationTemplate template = new NotificationTemplate(null, evt, org, cat, title, body);
+        return notifRepo.sendTemplated(template, recipients).thenCompose(result -> {
+            if (result.getSucceeded().isEmpty()) {
+                throw new PartialWriteException(result);
+            }
+            if (!result.isComplete()) {
+                Log.w(TAG, "fanOut: " + result.getFailed().size() + " notifications failed for category " + cat);
+            }
+            NotificationLog log = new NotificationLog(org, evt, cat, template.getId(),
+                    result.getSucceeded().size(), body);
+            return logRepo.record(log).thenApply(v -> new ArrayList<>(result.getSucceeded()));
+        });
     }
 }
\ No newline at end of file
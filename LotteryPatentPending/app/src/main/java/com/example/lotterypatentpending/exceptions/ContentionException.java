@@ -0,0 +1,15 @@
+package com.example.lotterypatentpending.exceptions;
+
+/**
+ * A write lost a race with another client (e.g. a transaction whose reads went
+ * stale before it committed). Safe to retry after a backoff.
+ */
+public class ContentionException extends RuntimeException {
+    public ContentionException(String message) {
+        super(message);
+    }
+
+    public ContentionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.lotterypatentpending.exceptions;
+
+import com.example.lotterypatentpending.models.OutboxProgress;
+
+/**
+ * A notification send stopped before every recipient was notified. The rest stays
+ * in the outbox and goes out on the next drain.
+ */
+public class IncompleteSendException extends RuntimeException {
+    private final OutboxProgress progress;
+
+    public IncompleteSendException(OutboxProgress progress) {
+        super("Notifications paused at " + progress);
+        this.progress = progress;
+    }
+
+    public OutboxProgress getProgress() {
+        return progress;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.lotterypatentpending.exceptions;
+
+import com.example.lotterypatentpending.models.BulkWriteResult;
+
+/**
+ * A bulk write finished but some of its writes didn't commit. The
+ * {@link BulkWriteResult} says which ones, so only those need to be sent again.
+ */
+public class PartialWriteException extends RuntimeException {
+    private final BulkWriteResult result;
+
+    public PartialWriteException(BulkWriteResult result) {
+        super(result.getFailed().size() + " of "
+                        + (result.getFailed().size() + result.getSucceeded().size()) + " writes failed",
+                result.getFailed().isEmpty() ? null : result.getFailed().values().iterator().next());
+        this.result = result;
+    }
+
+    public BulkWriteResult getResult() {
+        return result;
+    }
+}
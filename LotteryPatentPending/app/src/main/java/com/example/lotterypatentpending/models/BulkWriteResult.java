@@ -0,0 +1,35 @@
+package com.example.lotterypatentpending.models;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk write such as {@link NotificationRepository#addAll}, per written
+ * item (a recipient, or a notification id when marking notifications read).
+ * A failed batch fails every item in it; the rest of the write still goes out.
+ */
+public class BulkWriteResult {
+    private final List<String> succeeded;
+    private final Map<String, Exception> failed;
+
+    public BulkWriteResult(List<String> succeeded, Map<String, Exception> failed) {
+        this.succeeded = Collections.unmodifiableList(succeeded);
+        this.failed = Collections.unmodifiableMap(failed);
+    }
+
+    /** @return items whose write was committed, in request order */
+    public List<String> getSucceeded() {
+        return succeeded;
+    }
+
+    /** @return items whose write failed, with the error of their batch */
+    public Map<String, Exception> getFailed() {
+        return failed;
+    }
+
+    /** @return true if every write was committed */
+    public boolean isComplete() {
+        return failed.isEmpty();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.lotterypatentpending.models;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Commits a large write in chunks, e.g. one Firestore {@code WriteBatch} per chunk.
+ * <p>
+ * At most {@code maxInFlight} chunks are committing at a time; each finished chunk
+ * starts the next one, like {@code BulkUserLoader} does for reads. A failed chunk
+ * doesn't stop the others: its items are reported as failed in the
+ * {@link BulkWriteResult}, which the returned future always completes with.
+ * </p>
+ */
+public final class ChunkedWriter {
+    /** Most writes a single Firestore batch accepts. */
+    public static final int MAX_BATCH_OPS = 500;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    private ChunkedWriter() {
+    }
+
+    /**
+     * @param items       things to write, one operation each
+     * @param chunkSize   operations per commit, at most {@link #MAX_BATCH_OPS}
+     * @param maxInFlight commits running at once
+     * @param keyOf       recipient an item is reported under
+     * @param commit      commits one chunk; its failure fails the whole chunk
+     * @return per-recipient outcome, in the order of {@code items}
+     */
+    public static <T> CompletableFuture<BulkWriteResult> write(List<T> items, int chunkSize, int maxInFlight,
+                                                               Function<T, String> keyOf,
+                                                               Function<List<T>, CompletableFuture<?>> commit) {
+        int size = Math.max(1, Math.min(chunkSize, MAX_BATCH_OPS));
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += size) {
+            chunks.add(items.subList(i, Math.min(i + size, items.size())));
+        }
+
+        Exception[] errors = new Exception[chunks.size()];
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (chunks.isEmpty()) {
+            done.complete(null);
+        } else {
+            AtomicInteger next = new AtomicInteger();
+            AtomicInteger remaining = new AtomicInteger(chunks.size());
+            for (int i = 0; i < Math.min(Math.max(1, maxInFlight), chunks.size()); i++) {
+                commitNext(chunks, commit, next, remaining, errors, done);
+            }
+        }
+
+        return done.thenApply(v -> {
+            List<String> succeeded = new ArrayList<>();
+            Map<String, Exception> failed = new LinkedHashMap<>();
+            for (int c = 0; c < chunks.size(); c++) {
+                for (T item : chunks.get(c)) {
+                    if (errors[c] == null) succeeded.add(keyOf.apply(item));
+                    else failed.put(keyOf.apply(item), errors[c]);
+                }
+            }
+            return new BulkWriteResult(succeeded, failed);
+        });
+    }
+
+    private static <T> void commitNext(List<List<T>> chunks, Function<List<T>, CompletableFuture<?>> commit,
+                                       AtomicInteger next, AtomicInteger remaining, Exception[] errors,
+                                       CompletableFuture<Void> done) {
+        int i = next.getAndIncrement();
+        if (i >= chunks.size()) {
+            return;
+        }
+        CompletableFuture<?> f;
+        try {
+            f = commit.apply(chunks.get(i));
+        } catch (RuntimeException e) {
+            f = new CompletableFuture<>();
+            f.completeExceptionally(e);
+        }
+        f.whenComplete((v, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                synchronized (errors) {
+                    errors[i] = cause instanceof Exception ? (Exception) cause : new Exception(cause);
+                }
+            }
+            if (remaining.decrementAndGet() == 0) {
+                done.complete(null);
+            } else {
+                commitNext(chunks, commit, next, remaining, errors, done);
+            }
+        });
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.lotterypatentpending.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Audit record of one lottery draw.
+ * <p>
+ * Holds everything needed to replay the draw offline: the seed, a hash of the
+ * sorted candidate ids, the number of slots drawn, the draw strategy and the
+ * winners in draw order.
+ * Stored on the event document as {@code lastDraw}.
+ * </p>
+ */
+public class DrawRecord {
+    private long seed;
+    private String candidateHash;   // SHA-256 hex of the sorted candidate ids
+    private int numCandidates;
+    private int numSlots;
+    private List<String> winnerIds = new ArrayList<>();
+    private String strategy = "UNIFORM";   // LotterySystem.DrawStrategy#getName()
+
+    /** Required for Firestore deserialization. */
+    public DrawRecord() {}
+
+    public DrawRecord(long seed, String candidateHash, int numCandidates, int numSlots, List<String> winnerIds) {
+        this.seed = seed;
+        this.candidateHash = candidateHash;
+        this.numCandidates = numCandidates;
+        this.numSlots = numSlots;
+        this.winnerIds = winnerIds;
+    }
+
+    public long getSeed() { return seed; }
+    public void setSeed(long seed) { this.seed = seed; }
+
+    public String getCandidateHash() { return candidateHash; }
+    public void setCandidateHash(String candidateHash) { this.candidateHash = candidateHash; }
+
+    public int getNumCandidates() { return numCandidates; }
+    public void setNumCandidates(int numCandidates) { this.numCandidates = numCandidates; }
+
+    public int getNumSlots() { return numSlots; }
+    public void setNumSlots(int numSlots) { this.numSlots = numSlots; }
+
+    public List<String> getWinnerIds() { return winnerIds; }
+    public void setWinnerIds(List<String> winnerIds) { this.winnerIds = winnerIds; }
+
+    public String getStrategy() { return strategy; }
+    public void setStrategy(String strategy) { this.strategy = strategy; }
+}
@@ -3,8 +3,8 @@ package com.example.lotterypatentpending.models;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.core.util.Pair;
 
+import com.example.lotterypatentpending.data.WaitingListStore;
 import com.google.firebase.Timestamp;
 
 import java.text.SimpleDateFormat;
@@ -44,6 +44,10 @@ public class Event {
     private EventState eventState;
     private boolean geolocationRequired;
     private byte[] posterBytes; // compressed JPEG data for the poster
+    private DrawRecord lastDraw;
+    private WaitingListCounts storedCounts; // stateCounts as read from the event document
+    private int counterShards; // 0 = waiting list counters live on the event document
+    private WaitingListStore.Layout waitingListLayout = WaitingListStore.Layout.EMBEDDED;
 
     public Event() {
         // Required empty constructor for Firestore deserialization
@@ -226,6 +230,37 @@ public class Event {
         this.geolocationRequired = geolocationRequired;
     }
 
+    /** @return number of shard documents the waiting list counters are spread over, 0 if not sharded */
+    public int getCounterShards() {
+        return counterShards;
+    }
+
+    /**
+     * Spreads the waiting list counters of a high-demand event over several documents
+     * so registration bursts aren't limited by writes to the event document.
+     *
+     * @param counterShards number of shards, or 0 to keep the counters on the event
+     */
+    public void setCounterShards(int counterShards) {
+        this.counterShards = counterShards;
+    }
+
+    /** @return where this event's waiting list entries are stored */
+    @NonNull
+    public WaitingListStore.Layout getWaitingListLayout() {
+        return waitingListLayout;
+    }
+
+    /**
+     * Picks where the waiting list entries are stored when the event is created.
+     * Existing events change layout through {@link FirebaseManager#migrateWaitingList}.
+     *
+     * @param waitingListLayout layout of the waiting list, null for the embedded one
+     */
+    public void setWaitingListLayout(@Nullable WaitingListStore.Layout waitingListLayout) {
+        this.waitingListLayout = waitingListLayout != null ? waitingListLayout : WaitingListStore.Layout.EMBEDDED;
+    }
+
     public EventState getEventState() {
         switch (this.eventState) {
             case NOT_STARTED:
@@ -370,21 +405,86 @@ public class Event {
         }
     }
 
-    public void runLottery() {
+    /**
+     * Runs the lottery for the remaining spots with a fresh seed.
+     *
+     * @return record of the draw, or null if nothing was drawn
+     */
+    public DrawRecord runLottery() {
+        return runLottery(LotterySystem.newSeed());
+    }
+
+    /**
+     * Runs a reproducible lottery for the remaining spots and keeps its
+     * {@link DrawRecord} as {@link #getLastDraw()}.
+     *
+     * @param seed seed for the draw
+     * @return record of the draw, or null if nothing was drawn
+     */
+    public DrawRecord runLottery(long seed) {
+        return runLottery(seed, LotterySystem.UNIFORM);
+    }
+
+    /**
+     * Same as {@link #runLottery(long)} but lets {@code strategy} choose the winners.
+     *
+     * @param seed     seed for the draw
+     * @param strategy how winners are chosen, e.g. a {@link WeightedDrawStrategy}
+     * @return record of the draw, or null if nothing was drawn
+     */
+    public DrawRecord runLottery(long seed, LotterySystem.DrawStrategy strategy) {
         if (waitingList == null || waitingList.getList() == null) {
-            return;
+            return null;
         }
 
         int alreadyIn = getTakenSpotsCount();
         int remainingSpots = capacity - alreadyIn;
         if (remainingSpots <= 0) {
-            return;
+            return null;
         }
 
         // Unified lottery: draws from ENTERED + NOT_SELECTED
-        LotterySystem.lotteryDraw(waitingList.getList(), remainingSpots);
+        DrawRecord record = waitingList.lotterySelect(remainingSpots, seed, strategy);
+        if (record != null) {
+            this.lastDraw = record;
+        }
 
         this.eventState = EventState.SELECTED_ENTRANTS;
+        return record;
+    }
+
+    /**
+     * Fills spots freed by declined or cancelled entrants from the NOT_SELECTED
+     * and ENTERED entrants, touching only the replacements. Keeps the record as {@link #getLastDraw()}.
+     *
+     * @param seed seed for the redraw
+     * @return record whose winners are the newly SELECTED entrants, or null if nothing was drawn
+     */
+    public DrawRecord runRedraw(long seed) {
+        if (waitingList == null || waitingList.getList() == null) {
+            return null;
+        }
+
+        int remainingSpots = capacity - getTakenSpotsCount();
+        if (remainingSpots <= 0) {
+            return null;
+        }
+
+        DrawRecord record = waitingList.redrawSelect(remainingSpots, seed, LotterySystem.UNIFORM);
+        if (record != null) {
+            this.lastDraw = record;
+        }
+        return record;
+    }
+
+    /** @return record of the most recent draw, or null if none was run */
+    public DrawRecord getLastDraw() {
+        return lastDraw;
+    }
+
+    /** @param lastDraw Sets the record of the most recent draw */
+    public void setLastDraw(DrawRecord lastDraw) {
+        this.lastDraw = lastDraw;
     }
 
     @NonNull
@@ -403,31 +503,50 @@ public class Event {
             return WaitingListState.NOT_IN;
         }
 
-        for (Pair<User, WaitingListState> entry : waitingList.getList()) {
-            User u = entry.first;
-            if (u != null && userId.equals(u.getUserId())) {
-                return entry.second != null ? entry.second : WaitingListState.NOT_IN;
-            }
+        return waitingList.getEntrantState(userId);
+    }
+
+    /**
+     * Per-state entrant counts, without scanning the waiting list. When the list is
+     * embedded in the event these are the loaded list's own counters; when it lives
+     * in a subcollection they are the counters stored on the event document plus
+     * any local changes not saved yet ({@link WaitingList#getCountChanges()}).
+     *
+     * @return counts by state; never null
+     */
+    @NonNull
+    public WaitingListCounts getStateCounts() {
+        if (storedCounts == null) {
+            return WaitingListCounts.of(waitingList);
+        }
+        WaitingListCounts counts = new WaitingListCounts();
+        counts.addAll(storedCounts);
+        if (waitingList != null) {
+            counts.addAll(waitingList.getCountChanges());
         }
+        return counts;
+    }
 
-        return WaitingListState.NOT_IN;
+    /**
+     * @param storedCounts counters read from the event document's {@code stateCounts},
+     *                     or null when the waiting list is embedded and loaded
+     */
+    public void setStoredCounts(WaitingListCounts storedCounts) {
+        this.storedCounts = storedCounts;
+    }
+
+    /**
+     * @return number of entrants on the waiting list, in any state
+     */
+    public int getEntrantCount() {
+        return getStateCounts().getTotal();
     }
 
     /**
      * @return number of entrants who have ACCEPTED the event.
      */
     public int getAcceptedCount() {
-        if (waitingList == null || waitingList.getList() == null) {
-            return 0;
-        }
-
-        int count = 0;
-        for (Pair<User, WaitingListState> entry : waitingList.getList()) {
-            if (entry != null && entry.second == WaitingListState.ACCEPTED) {
-                count++;
-            }
-        }
-        return count;
+        return getStateCounts().get(WaitingListState.ACCEPTED);
     }
 
     /**
@@ -435,19 +554,7 @@ public class Event {
      *         SELECTED (pending response) or ACCEPTED.
      */
     public int getTakenSpotsCount() {
-        if (waitingList == null || waitingList.getList() == null) {
-            return 0;
-        }
-
-        int count = 0;
-        for (Pair<User, WaitingListState> entry : waitingList.getList()) {
-            if (entry == null) continue;
-            WaitingListState s = entry.second;
-            if (s == WaitingListState.SELECTED || s == WaitingListState.ACCEPTED) {
-                count++;
-            }
-        }
-        return count;
+        return getStateCounts().getTakenSpots();
     }
 
     /**
@@ -0,0 +1,183 @@
+package com.example.lotterypatentpending.models;
+
+import com.google.firebase.Timestamp;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/**
+ * Lightweight read model for event list rows, stored in {@code eventSummaries/{eventId}}.
+ * <p>
+ * Holds only what a list row or list filter needs, plus precomputed waiting list
+ * counts, so list screens never download the poster or the waiting list.
+ * {@link FirebaseManager} rewrites it on every event write. Detail screens load the
+ * full {@link Event} with {@link FirebaseManager#getEvent} when a row is opened.
+ * </p>
+ */
+public class EventSummary {
+    private String id;
+    private String title;
+    private String tag;
+    private String location;
+    private Timestamp date;
+    private Timestamp regStartDate;
+    private Timestamp regEndDate;
+    private int capacity;
+    private int waitingListCapacity;
+    private String organizerId;
+    private WaitingListCounts counts = new WaitingListCounts();
+    private boolean hasPoster;
+
+    public EventSummary() {
+        // Required empty constructor for Firestore deserialization
+    }
+
+    /**
+     * Builds the summary of an event, with the counts from {@link Event#getStateCounts()}.
+     *
+     * @param event event to summarize
+     * @return summary of {@code event}
+     */
+    public static EventSummary of(Event event) {
+        EventSummary s = new EventSummary();
+        s.id = event.getId();
+        s.title = event.getTitle();
+        s.tag = event.getTag();
+        s.location = event.getLocation();
+        s.date = event.getDate();
+        s.regStartDate = event.getRegStartDate();
+        s.regEndDate = event.getRegEndDate();
+        s.capacity = event.getCapacity();
+        s.waitingListCapacity = event.getWaitingListCapacity();
+        s.organizerId = event.getOrganizer() != null ? event.getOrganizer().getUserId() : null;
+        s.hasPoster = event.getPosterBytes() != null && event.getPosterBytes().length > 0;
+        s.counts = event.getStateCounts();
+        return s;
+    }
+
+    /**
+     * Formats the registration window like {@link Event#getFormattedRegWindow()}.
+     *
+     * @return "start  –  end", or "Not set" if neither date is set
+     */
+    public String getFormattedRegWindow() {
+        if (regStartDate == null && regEndDate == null) {
+            return "Not set";
+        }
+
+        SimpleDateFormat fmt = new SimpleDateFormat("dd/MM/yyyy hh:mm aa", Locale.getDefault());
+
+        String startStr = (regStartDate != null) ? fmt.format(regStartDate.toDate()) : "N/A";
+        String endStr   = (regEndDate != null) ? fmt.format(regEndDate.toDate())   : "N/A";
+
+        return startStr + "  –  " + endStr;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public void setTag(String tag) {
+        this.tag = tag;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public Timestamp getDate() {
+        return date;
+    }
+
+    public void setDate(Timestamp date) {
+        this.date = date;
+    }
+
+    public Timestamp getRegStartDate() {
+        return regStartDate;
+    }
+
+    public void setRegStartDate(Timestamp regStartDate) {
+        this.regStartDate = regStartDate;
+    }
+
+    public Timestamp getRegEndDate() {
+        return regEndDate;
+    }
+
+    public void setRegEndDate(Timestamp regEndDate) {
+        this.regEndDate = regEndDate;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /** @return waiting list cap, or -1 for no limit */
+    public int getWaitingListCapacity() {
+        return waitingListCapacity;
+    }
+
+    public void setWaitingListCapacity(int waitingListCapacity) {
+        this.waitingListCapacity = waitingListCapacity;
+    }
+
+    public String getOrganizerId() {
+        return organizerId;
+    }
+
+    public void setOrganizerId(String organizerId) {
+        this.organizerId = organizerId;
+    }
+
+    /** @return waiting list counts by state, mirrored from the event's counters */
+    public WaitingListCounts getCounts() {
+        return counts;
+    }
+
+    public void setCounts(WaitingListCounts counts) {
+        this.counts = counts != null ? counts : new WaitingListCounts();
+    }
+
+    /** @return number of entries on the waiting list, in any state */
+    public int getEntrantCount() {
+        return counts.getTotal();
+    }
+
+    /** @return number of entrants who accepted a spot */
+    public int getAcceptedCount() {
+        return counts.get(WaitingListState.ACCEPTED);
+    }
+
+    public boolean hasPoster() {
+        return hasPoster;
+    }
+
+    public void setHasPoster(boolean hasPoster) {
+        this.hasPoster = hasPoster;
+    }
+}
@@ -28,21 +28,62 @@
 
 package com.example.lotterypatentpending.models;
 
+import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.util.Pair;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.example.lotterypatentpending.data.ChangeSet;
+import com.example.lotterypatentpending.data.CounterShards;
+import com.example.lotterypatentpending.data.CounterUpdates;
+import com.example.lotterypatentpending.data.EmbeddedWaitingListStore;
+import com.example.lotterypatentpending.data.EventPage;
+import com.example.lotterypatentpending.data.EventQuery;
+import com.example.lotterypatentpending.data.FirestoreNotificationOutbox;
+import com.example.lotterypatentpending.data.FirestoreQueryOps;
+import com.example.lotterypatentpending.data.FirestoreSyncSource;
+import com.example.lotterypatentpending.data.FirestoreTemplateSource;
+import com.example.lotterypatentpending.data.LocalEventStore;
+import com.example.lotterypatentpending.data.FirestoreUserBatchSource;
+import com.example.lotterypatentpending.data.KeyedLiveList;
+import com.example.lotterypatentpending.data.RetryPolicy;
+import com.example.lotterypatentpending.data.SqliteLocalEventStore;
+import com.example.lotterypatentpending.data.SubcollectionWaitingListStore;
+import com.example.lotterypatentpending.data.SyncEngine;
+import com.example.lotterypatentpending.data.SyncSource;
+import com.example.lotterypatentpending.data.TemplateCache;
+import com.example.lotterypatentpending.data.UserCache;
+import com.example.lotterypatentpending.data.WaitingListMigration;
+import com.example.lotterypatentpending.data.WaitingListStore;
 import com.example.lotterypatentpending.exceptions.UserNotFoundException;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FieldValue;
@@ -50,16 +91,14 @@ import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestoreException;
 import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
 import com.google.firebase.firestore.Blob;
-import com.example.lotterypatentpending.models.User;
-import com.example.lotterypatentpending.models.WaitingListState;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
 
 
 import java.io.ByteArrayOutputStream;
@@ -80,9 +119,26 @@ public class FirebaseManager {
     // --- Firebase Instances ---
     private static FirebaseManager instance;
     private final FirebaseFirestore db;
+    // Where waiting list entries live, picked per event; callers never see the difference
+    private final WaitingListStore embeddedStore;
+    private final WaitingListStore subcollectionStore;
+    private final Map<String, WaitingListStore.Layout> layouts = new ConcurrentHashMap<>();
+    private final UserCache userCache;
+    private final TemplateCache templateCache;
+    // Join attempts that lose a race back off with jitter before trying again
+    private final RetryPolicy joinRetry = new RetryPolicy(6, 50, 2_000);
+    // On-device copy for list screens; null until enableLocalStore is called
+    private LocalEventStore localStore;
+    private Executor localIo;
+    private Executor mainThread;
+    private SyncEngine syncEngine;
 
     private FirebaseManager() {
         db = FirebaseFirestore.getInstance();
+        embeddedStore = new EmbeddedWaitingListStore(db);
+        subcollectionStore = new SubcollectionWaitingListStore(db);
+        userCache = new UserCache(new FirestoreUserBatchSource(db));
+        templateCache = new TemplateCache(new FirestoreTemplateSource(db), TemplateCache.DEFAULT_MAX_SIZE);
     }
 
     /**
@@ -102,6 +158,59 @@ public class FirebaseManager {
         instance = mockFirebaseManager;
     }
 
+    /**
+     * Keeps event summaries, the user's waiting list states and user profiles in an
+     * on-device database, so list screens render from disk before the network answers
+     * and still have data offline. Summaries are synced by {@link SyncEngine} from a
+     * high-water mark; waiting list states are shown from disk and then refreshed, and
+     * profiles are stored as they are read and used when the network fails. Calling it
+     * again does nothing.
+     *
+     * @param context any context; only its application context is kept
+     */
+    public synchronized void enableLocalStore(Context context) {
+        if (localStore != null) return;
+        localStore = new SqliteLocalEventStore(context.getApplicationContext());
+        localIo = Executors.newSingleThreadExecutor();
+        mainThread = new Handler(Looper.getMainLooper())::post;
+        syncEngine = new SyncEngine(new FirestoreSyncSource(db, this::mapToSummary), localStore, localIo, mainThread);
+    }
+
+    /**
+     * Delivers the stored copy first if there is one, then the network result, which
+     * is also stored. If the network fails after the stored copy was delivered, the
+     * failure is only logged, so offline screens keep what they showed.
+     */
+    private <T> void readThrough(Supplier<T> stored,
+                                 CompletableFuture<T> network,
+                                 Consumer<T> store,
+                                 FirebaseCallback<T> callback) {
+        AtomicBoolean fresh = new AtomicBoolean(false);
+        AtomicBoolean servedStored = new AtomicBoolean(false);
+        localIo.execute(() -> {
+            T copy = stored.get();
+            if (copy == null) return;
+            mainThread.execute(() -> {
+                if (fresh.get()) return;
+                servedStored.set(true);
+                callback.onSuccess(copy);
+            });
+        });
+        network.whenComplete((result, e) -> {
+            if (e == null) {
+                localIo.execute(() -> store.accept(result));
+            }
+            mainThread.execute(() -> {
+                fresh.set(true);
+                if (e != null && servedStored.get()) {
+                    Log.w("FirebaseManager", "Showing stored copy, refresh failed", e);
+                    return;
+                }
+                deliver(network, callback);
+            });
+        });
+    }
+
     // generic user methods, will be updated when user class is looked at
 
     //utilizes user  class, add update, delete and get methods added
@@ -112,34 +221,58 @@ public class FirebaseManager {
      * @param user the {@link User} object to store or update.
      */
     public void addOrUpdateUser(User user) {
+        userCache.put(user);
+        if (localStore != null) {
+            localIo.execute(() -> localStore.putUser(user));
+        }
         db.collection("users").document(user.getUserId()).set(user)
                 .addOnSuccessListener(aVoid -> System.out.println("User saved successfully: " + user.getUserId()))
-                .addOnFailureListener(e -> System.err.println("Error saving user: " + e.getMessage()));
+                .addOnFailureListener(e -> {
+                    userCache.invalidate(user.getUserId());
+                    System.err.println("Error saving user: " + e.getMessage());
+                });
     }
     /**
      * Retrieves a single {@link User} document by its ID.
+     * Served from the shared {@link UserCache} while the cached copy is fresh. With the
+     * local store enabled, fetched profiles are stored, and the stored one is delivered
+     * if the fetch fails for any reason but the user not existing, e.g. when offline.
      *
      * @param userId   the Firestore document ID of the user.
      * @param callback a callback to handle success or failure.
      */
     public void getUser(String userId, FirebaseCallback<User> callback) {
-        db.collection("users").document(userId).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        User user = documentSnapshot.toObject(User.class);
-                        if (user != null) {
-                            user.setUserId(documentSnapshot.getId());
-                            callback.onSuccess(user);
-                        }
-                        else {
-                            callback.onFailure(new UserNotFoundException("User not found."));
-                        }
-                    }
-                    else {
-                        callback.onFailure(new UserNotFoundException("User not found."));
+        CompletableFuture<User> fetched = userCache.get(userId).thenApply(user -> {
+            if (user == null) {
+                throw new CompletionException(new UserNotFoundException("User not found."));
+            }
+            return user;
+        });
+        if (localStore == null) {
+            deliver(fetched, callback);
+            return;
+        }
+        CompletableFuture<User> withFallback = new CompletableFuture<>();
+        fetched.whenComplete((user, e) -> {
+            if (e == null) {
+                localIo.execute(() -> localStore.putUser(user));
+                withFallback.complete(user);
+            } else if (e.getCause() instanceof UserNotFoundException) {
+                withFallback.completeExceptionally(e);
+            } else {
+                localIo.execute(() -> {
+                    User stored = localStore.getUser(userId);
+                    if (stored != null) {
+                        Log.w("FirebaseManager", "Using stored profile of " + userId, e);
                     }
-                })
-                .addOnFailureListener(callback::onFailure);
+                    mainThread.execute(() -> {
+                        if (stored != null) withFallback.complete(stored);
+                        else withFallback.completeExceptionally(e);
+                    });
+                });
+            }
+        });
+        deliver(withFallback, callback);
     }
 
     /**
@@ -153,6 +286,26 @@ public class FirebaseManager {
                 .addOnFailureListener(callback::onFailure);
     }
 
+    /**
+     * Fetches many users with batched {@code whereIn} queries instead of one read per id.
+     *
+     * @param userIds  ids to load, in the order wanted
+     * @param callback called with one entry per id, in the same order; null for ids with no user document
+     */
+    public void getUsers(List<String> userIds, FirebaseCallback<List<User>> callback) {
+        deliver(userCache.getAll(userIds), callback);
+    }
+
+    /** The shared user profile cache behind {@link #getUser} and {@link #getUsers}; exposes hit/miss counters. */
+    public UserCache getUserCache() {
+        return userCache;
+    }
+
+    /** The shared cache that fills in templated notifications for the inbox and the notification watcher. */
+    public TemplateCache getTemplateCache() {
+        return templateCache;
+    }
+
     /**
      * Deletes a user from the Firestore database.
      *
@@ -160,18 +313,23 @@ public class FirebaseManager {
      */
 
     public void deleteUser(String userId) {
+        userCache.invalidate(userId);
         db.collection("users").document(userId).delete()
                 .addOnSuccessListener(aVoid -> System.out.println("User deleted successfully: " + userId))
                 .addOnFailureListener(e -> System.err.println("Error deleting user: " + e.getMessage()));
     }
     /**
-     * Adds or updates an event document in Firestore.
+     * Adds a new event document in Firestore, with its initial waiting list counters.
      *
      * @param event   The {@link Event} object to save.
      */
     public void addEventToDB(Event event){
-        Map <String, Object> eventMap = eventToMap(event);
-        db.collection("events").document(event.getId()).set(eventMap)
+        Map <String, Object> eventMap = eventToMap(event, true);
+        WriteBatch batch = db.batch();
+        batch.set(db.collection("events").document(event.getId()), eventMap);
+        putSummary(batch, event.getId(), event, true);
+        layouts.put(event.getId(), event.getWaitingListLayout());
+        batch.commit()
                 .addOnSuccessListener(aVoid -> {
                     Log.d("FIREBASE", "Event saved successfully");
                 })
@@ -183,7 +341,11 @@ public class FirebaseManager {
     public void deleteEventFromDB(Event event){
         CollectionReference eventsRef = db.collection("events");
         DocumentReference eventDocRef = eventsRef.document(event.getId());
-        eventDocRef.delete();
+        WriteBatch batch = db.batch();
+        batch.delete(eventDocRef);
+        batch.delete(summaryRef(event.getId()));
+        FirestoreSyncSource.tombstone(batch, db, SyncSource.EVENT_SUMMARIES, event.getId());
+        batch.commit();
     }
 
 //    public void updateEventInDB(Event event){
@@ -201,8 +363,10 @@ public class FirebaseManager {
         return map;
     }
 
-    // mapping event objects to firestore
-    private Map<String, Object> eventToMap(Event event) {
+    // mapping event objects to firestore; the waiting list, its layout, counters and the
+    // draw record only on creation, afterwards they change through saveWaitingListChanges,
+    // joins, migrateWaitingList and reconcileCounts alone
+    private Map<String, Object> eventToMap(Event event, boolean creating) {
         Map<String, Object> data = new HashMap<>();
 
         data.put("id", event.getId());
@@ -214,6 +378,7 @@ public class FirebaseManager {
 
         data.put("waitingListCapacity", event.getWaitingListCapacity());
         data.put("geolocationRequired", event.isGeolocationRequired());
+        data.put(CounterShards.FIELD, event.getCounterShards());
 
         data.put("date",          event.getDate());         // Timestamp or null
         data.put("regStartDate",  event.getRegStartDate()); // Timestamp or null
@@ -242,14 +407,24 @@ public class FirebaseManager {
             data.put("organizer", null);
         }
 
-        // Entrants
-        List<String> selectedEntrants = new ArrayList<>();
-        for (User u : event.getWaitingList().getSelectedEntrants()) {
-            selectedEntrants.add(u.getUserId());
-        }
-        data.put("selectedEntrants", selectedEntrants);
+        if (creating) {
+            // Entrants
+            List<String> selectedEntrants = new ArrayList<>();
+            for (User u : event.getWaitingList().getSelectedEntrants()) {
+                selectedEntrants.add(u.getUserId());
+            }
+            data.put("selectedEntrants", selectedEntrants);
+
+            data.put(WaitingListStore.LAYOUT_FIELD, event.getWaitingListLayout().name());
+            if (event.getWaitingListLayout() == WaitingListStore.Layout.EMBEDDED) {
+                data.put("waitingList", serializeWaitingList(event.getWaitingList().getList()));
+            }
+            data.put(WaitingListStore.COUNTS_FIELD, event.getStateCounts().toMap());
 
-        data.put("waitingList", serializeWaitingList(event.getWaitingList().getList()));
+            if (event.getLastDraw() != null) {
+                data.put("lastDraw", drawRecordToMap(event.getLastDraw()));
+            }
+        }
 
         if (event.getPosterBytes() != null && event.getPosterBytes().length > 0) {
             Blob posterBlob = Blob.fromBytes(event.getPosterBytes());
@@ -273,9 +448,12 @@ public class FirebaseManager {
         Map<String, Object> update = new HashMap<>();
         update.put(field_name, updated_value);
 
-        db.collection("events")
-                .document(event.getId()) // adjust if your ID name differs
-                .set(update, SetOptions.merge())
+        WriteBatch batch = db.batch();
+        batch.set(db.collection("events").document(event.getId()), update, SetOptions.merge());
+        if (SUMMARY_FIELDS.contains(field_name)) {
+            batch.set(summaryRef(event.getId()), FirestoreSyncSource.stamp(new HashMap<>(update)), SetOptions.merge());
+        }
+        batch.commit()
                 .addOnSuccessListener(a ->
                         Log.d("DEBUG_FIRESTORE_SUCCESS", "Update success"))
                 .addOnFailureListener(e ->
@@ -336,9 +514,14 @@ public class FirebaseManager {
         event.setTag(tag);
         event.setWaitingListCapacity(waitingListCapacity);
         event.setGeolocationRequired(geolocationRequired);
+        event.setCounterShards(CounterShards.count(data.get(CounterShards.FIELD)));
+        event.setWaitingListLayout(WaitingListStore.layoutOf(data.get(WaitingListStore.LAYOUT_FIELD)));
 
-        if (data.get("id") != null)
+        if (data.get("id") != null) {
             event.setId((String) data.get("id"));
+            // every event read refreshes the layout waiting list calls use for it
+            layouts.put(event.getId(), event.getWaitingListLayout());
+        }
 
         // Read timestamps directly
         Object dateObj = data.get("date");
@@ -378,6 +561,14 @@ public class FirebaseManager {
             }
 
             event.getWaitingList().setList(list);
+        } else {
+            // list lives in the subcollection; counts come from the stored counters
+            event.setStoredCounts(WaitingListCounts.fromMap(data.get(WaitingListStore.COUNTS_FIELD)));
+        }
+
+        Object lastDrawObj = data.get("lastDraw");
+        if (lastDrawObj instanceof Map) {
+            event.setLastDraw(mapToDrawRecord((Map<String, Object>) lastDrawObj));
         }
 
         Object posterObj = data.get("posterBlob");
@@ -406,6 +597,45 @@ public class FirebaseManager {
         return event;
     }
 
+    /**
+     * Converts a {@link DrawRecord} into a Firestore-compatible map.
+     */
+    private Map<String, Object> drawRecordToMap(DrawRecord record) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("seed", record.getSeed());
+        map.put("candidateHash", record.getCandidateHash());
+        map.put("numCandidates", record.getNumCandidates());
+        map.put("numSlots", record.getNumSlots());
+        map.put("winnerIds", record.getWinnerIds());
+        map.put("strategy", record.getStrategy());
+        return map;
+    }
+
+    /**
+     * Rebuilds a {@link DrawRecord} from its stored map.
+     */
+    private DrawRecord mapToDrawRecord(Map<String, Object> map) {
+        DrawRecord record = new DrawRecord();
+        Object seed = map.get("seed");
+        if (seed instanceof Number) record.setSeed(((Number) seed).longValue());
+        record.setCandidateHash((String) map.get("candidateHash"));
+        Object numCandidates = map.get("numCandidates");
+        if (numCandidates instanceof Number) record.setNumCandidates(((Number) numCandidates).intValue());
+        Object numSlots = map.get("numSlots");
+        if (numSlots instanceof Number) record.setNumSlots(((Number) numSlots).intValue());
+        Object winners = map.get("winnerIds");
+        if (winners instanceof List) {
+            List<String> ids = new ArrayList<>();
+            for (Object o : (List<?>) winners) {
+                if (o instanceof String) ids.add((String) o);
+            }
+            record.setWinnerIds(ids);
+        }
+        Object strategy = map.get("strategy");
+        if (strategy instanceof String) record.setStrategy((String) strategy);
+        return record;
+    }
+
     /**
      * Converts a waiting list of (User, State) pairs into a Firestore-
      * compatible map keyed by userId.
@@ -424,8 +654,9 @@ public class FirebaseManager {
 
 
     /**
-     * Reconstructs waiting list entries from Firestore and asynchronously
-     * loads corresponding User objects. Returns a fully populated list.
+     * Reconstructs waiting list entries from Firestore and loads the
+     * corresponding User objects in batches. Returns a fully populated list
+     * in map order; entrants whose user document is missing are skipped.
      */
     public void deserializeWaitingList(
             Map<String, Object> raw_map,
@@ -438,44 +669,53 @@ public class FirebaseManager {
             return;
         }
 
-        final int total = raw_map.size();
-        final int[] loaded = {0};
-
+        List<String> uids = new ArrayList<>(raw_map.size());
+        List<WaitingListState> states = new ArrayList<>(raw_map.size());
         for (Map.Entry<String, Object> e : raw_map.entrySet()) {
-            String uid = e.getKey();
             Map<String, Object> entryMap = (Map<String, Object>) e.getValue();
-
             String stateName = (String) entryMap.get("state");
-            WaitingListState state = WaitingListState.valueOf(stateName);
-
-            getUser(uid, new FirebaseCallback<User>() {
-                @Override
-                public void onSuccess(User user) {
-                    Log.i("FirebaseManager", "Successfully retrieved user: " + user.getUserId());
-                    out.add(new Pair<>(user, state));
-                    if (++loaded[0] == total) callback.onSuccess(out);
-                }
+            uids.add(e.getKey());
+            states.add(WaitingListState.valueOf(stateName));
+        }
 
-                @Override
-                public void onFailure(Exception ex) {
-                    Log.e("FirebaseManager", "Failed to retrieve user " + uid + ": " + ex.getMessage());
-                    if (++loaded[0] == total) callback.onSuccess(out);
+        getUsers(uids, new FirebaseCallback<List<User>>() {
+            @Override
+            public void onSuccess(List<User> users) {
+                for (int i = 0; i < users.size(); i++) {
+                    User user = users.get(i);
+                    if (user == null) {
+                        Log.e("FirebaseManager", "Failed to retrieve user " + uids.get(i));
+                        continue;
+                    }
+                    out.add(new Pair<>(user, states.get(i)));
                 }
-            });
-        }
+                callback.onSuccess(out);
+            }
+
+            @Override
+            public void onFailure(Exception ex) {
+                Log.e("FirebaseManager", "Failed to retrieve waiting list users: " + ex.getMessage());
+                callback.onFailure(ex);
+            }
+        });
     }
 
     /**
-     * Saves an event using the provided ID or the event's own ID.
-     * Overwrites existing fields unless merged externally.
+     * Saves an edited event using the provided ID or the event's own ID.
+     * The fields are merged into the stored event, leaving out its waiting list,
+     * {@code stateCounts} counters and draw record, which this copy may hold stale
+     * values of.
      */
     public void addOrUpdateEvent(String eventId, Event event) {
         if (eventId == null || eventId.isEmpty()) {
             eventId = event.getId(); // fallback to event’s own ID
         }
 
-        Map<String, Object> eventData = eventToMap(event);
-        db.collection("events").document(eventId).set(eventData)
+        Map<String, Object> eventData = eventToMap(event, false);
+        WriteBatch batch = db.batch();
+        batch.set(db.collection("events").document(eventId), eventData, SetOptions.merge());
+        putSummary(batch, eventId, event, false);
+        batch.commit()
                 .addOnSuccessListener(aVoid ->
                         Log.d("FirebaseManager", "Event saved successfully: " + event.getTitle()))
                 .addOnFailureListener(e ->
@@ -491,12 +731,14 @@ public class FirebaseManager {
         db.collection("events").document(eventId).get()
                 .addOnSuccessListener(snapshot -> {
                     if (snapshot.exists()) {
+                        Event event;
                         try {
-                            Event event = mapToEvent(snapshot.getData());
-                            callback.onSuccess(event);
+                            event = mapToEvent(snapshot.getData());
                         } catch (Exception e) {
                             callback.onFailure(e);
+                            return;
                         }
+                        deliverWithShardCounts(event, callback);
                     } else {
                         callback.onFailure(new FirebaseFirestoreException(
                                 "Event not found", FirebaseFirestoreException.Code.NOT_FOUND));
@@ -520,7 +762,7 @@ public class FirebaseManager {
                         if (event != null) {
                             event.setId(snapshot.getId());
                         }
-                        callback.onSuccess(event);
+                        deliverWithShardCounts(event, callback);
                     } else {
                         callback.onFailure(new FirebaseFirestoreException(
                                 "Event not found", FirebaseFirestoreException.Code.NOT_FOUND));
@@ -529,66 +771,459 @@ public class FirebaseManager {
     }
 
     /**
-     * Retrieves all events from the Firestore {@code events} collection.
+     * Joins don't touch a sharded event's own counters, which are only a roll-up, so
+     * its current counts are summed from the shards before the event is handed out.
+     * Falls back to the roll-up if the shards can't be read.
+     */
+    private void deliverWithShardCounts(Event event, FirebaseCallback<Event> callback) {
+        if (event == null || !CounterShards.isSharded(event.getCounterShards())
+                || event.getWaitingListLayout() != WaitingListStore.Layout.SUBCOLLECTION) {
+            callback.onSuccess(event);
+            return;
+        }
+        subcollectionStore.readCounts(event.getId(), event.getCounterShards()).whenComplete((counts, e) -> {
+            if (e == null) {
+                event.setStoredCounts(counts);
+            } else {
+                Log.w("FirebaseManager", "Using rolled-up counts for " + event.getId(), e);
+            }
+            callback.onSuccess(event);
+        });
+    }
+
+    /**
+     * Listens to {@code query}, keeping its documents in a {@link KeyedLiveList} so each
+     * snapshot only parses the documents in its {@link DocumentChange}s. Snapshots that
+     * change nothing, e.g. a pending write being confirmed, are not delivered, except
+     * the first one.
      *
-     * @param callback Callback that returns a list of all events or an error.
+     * @param parse converts a document; null or a thrown exception skips it
      */
+    private <T> ListenerRegistration listenKeyed(Query query, Function<DocumentSnapshot, T> parse,
+                                                 String name, FirebaseCallback<ChangeSet<T>> callback) {
+        KeyedLiveList<T> list = new KeyedLiveList<>();
+        boolean[] first = {true};
+        return query.addSnapshotListener((snapshot, e) -> {
+            if (e != null) {
+                Log.e("FirebaseManager", name + " failed", e);
+                callback.onFailure(e);
+                return;
+            }
+            if (snapshot == null) return;
+            for (DocumentChange change : snapshot.getDocumentChanges()) {
+                DocumentSnapshot doc = change.getDocument();
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    list.apply(KeyedLiveList.Type.REMOVED, doc.getId(), null);
+                    continue;
+                }
+                T item;
+                try {
+                    item = parse.apply(doc);
+                } catch (RuntimeException ex) {
+                    Log.e("FirebaseManager", name + ": skipping unreadable " + doc.getId(), ex);
+                    item = null;
+                }
+                list.apply(change.getType() == DocumentChange.Type.ADDED
+                        ? KeyedLiveList.Type.ADDED : KeyedLiveList.Type.MODIFIED, doc.getId(), item);
+            }
+            ChangeSet<T> changes = list.commit();
+            if (changes.isEmpty() && !first[0]) return;
+            first[0] = false;
+            callback.onSuccess(changes);
+        });
+    }
 
-    public void getAllEvents(FirebaseCallback<ArrayList<Event>> callback) {
-        db.collection("events").get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    ArrayList<Event> events = new ArrayList<>();
-                    for (DocumentSnapshot doc : queryDocumentSnapshots.getDocuments()) {
-                        Map<String, Object> data = doc.getData();
-                        if (data == null) continue;
+    // ---------------------------------------------------------------------
+    // Event summaries: list screens read eventSummaries/{id} instead of the
+    // event documents, which carry the poster blob and the waiting list.
+    // ---------------------------------------------------------------------
 
-                        Event event = mapToEvent(data);
-                        if (event != null) {
-                            event.setId(doc.getId());
-                            events.add(event);
+    /** Event fields that are copied into the summary when updated on their own. */
+    private static final Set<String> SUMMARY_FIELDS = new HashSet<>(Arrays.asList(
+            "title", "tag", "location", "date", "regStartDate", "regEndDate",
+            "capacity", "waitingListCapacity"));
+
+    /** Bump when summaries gain fields so existing events are summarized again. */
+    private static final long EVENT_SUMMARY_VERSION = 3;
+    private CompletableFuture<Void> summariesReady;
+
+    private DocumentReference summaryRef(String eventId) {
+        return db.collection("eventSummaries").document(eventId);
+    }
+
+    /**
+     * Adds the summary of {@code event} to a batch, merged into the stored one.
+     *
+     * @param withCounts whether to write the event's counters too, like
+     *                   {@link #eventToMap} does when an event is created
+     */
+    private void putSummary(WriteBatch batch, String eventId, Event event, boolean withCounts) {
+        EventSummary summary = EventSummary.of(event);
+        summary.setId(eventId);
+        batch.set(summaryRef(eventId), summaryToMap(summary, withCounts), SetOptions.merge());
+    }
+
+    /** Documents that mirror an event's waiting list counters. */
+    private List<String> counterMirrors(String eventId) {
+        return Collections.singletonList(summaryRef(eventId).getPath());
+    }
+
+    private Map<String, Object> summaryToMap(EventSummary summary, boolean withCounts) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", summary.getId());
+        data.put("title", summary.getTitle());
+        data.put("tag", summary.getTag());
+        data.put("location", summary.getLocation());
+        data.put("date", summary.getDate());
+        data.put("regStartDate", summary.getRegStartDate());
+        data.put("regEndDate", summary.getRegEndDate());
+        data.put("capacity", summary.getCapacity());
+        data.put("waitingListCapacity", summary.getWaitingListCapacity());
+        data.put("organizerId", summary.getOrganizerId());
+        data.put("hasPoster", summary.hasPoster());
+        if (withCounts) data.put(WaitingListStore.COUNTS_FIELD, summary.getCounts().toMap());
+        return FirestoreSyncSource.stamp(data);
+    }
+
+    /**
+     * Converts an {@code eventSummaries} document into an {@link EventSummary}.
+     */
+    public EventSummary mapToSummary(Map<String, Object> data) {
+        if (data == null) return null;
+
+        EventSummary summary = new EventSummary();
+        summary.setId((String) data.get("id"));
+        summary.setTitle((String) data.get("title"));
+        summary.setTag((String) data.get("tag"));
+        summary.setLocation((String) data.get("location"));
+        summary.setOrganizerId((String) data.get("organizerId"));
+
+        Object date = data.get("date");
+        if (date instanceof Timestamp) summary.setDate((Timestamp) date);
+        Object regStart = data.get("regStartDate");
+        if (regStart instanceof Timestamp) summary.setRegStartDate((Timestamp) regStart);
+        Object regEnd = data.get("regEndDate");
+        if (regEnd instanceof Timestamp) summary.setRegEndDate((Timestamp) regEnd);
+
+        Object capacity = data.get("capacity");
+        if (capacity instanceof Number) summary.setCapacity(((Number) capacity).intValue());
+        Object wlCap = data.get("waitingListCapacity");
+        summary.setWaitingListCapacity(wlCap instanceof Number ? ((Number) wlCap).intValue() : -1);
+        summary.setCounts(WaitingListCounts.fromMap(data.get(WaitingListStore.COUNTS_FIELD)));
+        summary.setHasPoster(Boolean.TRUE.equals(data.get("hasPoster")));
+        return summary;
+    }
+
+    private ArrayList<EventSummary> toSummaries(List<DocumentSnapshot> docs) {
+        ArrayList<EventSummary> summaries = new ArrayList<>();
+        for (DocumentSnapshot doc : docs) {
+            EventSummary summary = toSummary(doc);
+            if (summary != null) {
+                summaries.add(summary);
+            }
+        }
+        return summaries;
+    }
+
+    private EventSummary toSummary(DocumentSnapshot doc) {
+        EventSummary summary = mapToSummary(doc.getData());
+        if (summary != null) summary.setId(doc.getId());
+        return summary;
+    }
+
+    /** Adapts a list callback to change sets, for screens that redraw the whole list. */
+    private static <T> FirebaseCallback<ChangeSet<T>> asList(FirebaseCallback<ArrayList<T>> callback) {
+        return new FirebaseCallback<ChangeSet<T>>() {
+            @Override
+            public void onSuccess(ChangeSet<T> changes) {
+                callback.onSuccess(new ArrayList<>(changes.getItems()));
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
+        };
+    }
+
+    /**
+     * Makes sure every event has a summary document and waiting list counters.
+     * Events saved before summaries existed are summarized once; later calls only
+     * read the {@code meta/eventSummaries} marker, and calls within the same process
+     * return the same future.
+     */
+    public synchronized CompletableFuture<Void> ensureEventSummaries() {
+        if (summariesReady != null) {
+            return summariesReady;
+        }
+        DocumentReference marker = db.collection("meta").document("eventSummaries");
+        CompletableFuture<Void> ready = new CompletableFuture<>();
+        marker.get()
+                .addOnSuccessListener(doc -> {
+                    Long version = doc.getLong("version");
+                    if (version != null && version >= EVENT_SUMMARY_VERSION) {
+                        ready.complete(null);
+                        return;
+                    }
+                    backfillEventSummaries(marker, ready);
+                })
+                .addOnFailureListener(ready::completeExceptionally);
+        summariesReady = ready;
+        ready.whenComplete((v, e) -> {
+            if (e != null) {
+                synchronized (this) {
+                    summariesReady = null; // retry on next call
+                }
+            }
+        });
+        return ready;
+    }
+
+    private void backfillEventSummaries(DocumentReference marker, CompletableFuture<Void> ready) {
+        db.collection("events").get()
+                .addOnSuccessListener(snap -> {
+                    List<Task<Void>> commits = new ArrayList<>();
+                    WriteBatch batch = db.batch();
+                    int ops = 0;
+                    for (DocumentSnapshot doc : snap.getDocuments()) {
+                        Event event;
+                        try {
+                            event = mapToEvent(doc.getData());
+                        } catch (Exception e) {
+                            Log.e("FirebaseManager", "Skipping unreadable event " + doc.getId(), e);
+                            continue;
+                        }
+                        if (event == null) continue;
+                        boolean embedded = event.getWaitingListLayout() == WaitingListStore.Layout.EMBEDDED;
+                        putSummary(batch, doc.getId(), event, embedded);
+                        ops++;
+                        if (embedded) {
+                            // the whole list is in hand, so the counters can be set directly
+                            batch.update(doc.getReference(), WaitingListStore.COUNTS_FIELD,
+                                    event.getStateCounts().toMap());
+                            ops++;
+                        }
+                        if (ops >= WaitingListStore.MAX_PAGE_SIZE - 1) {
+                            commits.add(batch.commit());
+                            batch = db.batch();
+                            ops = 0;
                         }
                     }
-                    callback.onSuccess(events);
+                    batch.set(marker, Collections.singletonMap("version", EVENT_SUMMARY_VERSION));
+                    commits.add(batch.commit());
+                    Tasks.whenAll(commits)
+                            .addOnSuccessListener(unused -> {
+                                Log.i("FirebaseManager", "Summarized " + snap.size() + " events");
+                                if (!embedded) {
+                                    // counts weren't known from the event documents
+                                    for (DocumentSnapshot doc : snap.getDocuments()) {
+                                        reconcileCounts(doc.getId());
+                                    }
+                                }
+                                ready.complete(null);
+                            })
+                            .addOnFailureListener(ready::completeExceptionally);
                 })
-                .addOnFailureListener(e -> {
-                    Log.e("FirebaseManager", "Error getting all events: " + e.getMessage());
+                .addOnFailureListener(ready::completeExceptionally);
+    }
+
+    /**
+     * Live list of every event's summary, for browse screens. With the local store
+     * enabled, the list is served from disk and only changed summaries are downloaded.
+     *
+     * @param callback called with all summaries on every change
+     * @return ListenerRegistration, destroy this by ListenerRegistation.remove()
+     */
+    public ListenerRegistration getAllEventSummariesLive(FirebaseCallback<ArrayList<EventSummary>> callback) {
+        ensureEventSummaries();
+        if (syncEngine != null) {
+            return observeSummaries(null, callback);
+        }
+        return listenKeyed(db.collection("eventSummaries"), this::toSummary, "getAllEventSummariesLive",
+                asList(callback));
+    }
+
+    private ListenerRegistration observeSummaries(String organizerId,
+                                                  FirebaseCallback<ArrayList<EventSummary>> callback) {
+        return syncEngine.observeEventSummaries(organizerId,
+                changes -> callback.onSuccess(new ArrayList<>(changes.getItems())),
+                e -> {
+                    Log.e("FirebaseManager", "Event summary sync failed", e);
                     callback.onFailure(e);
                 });
     }
 
     /**
+     * One-time read of every event's summary.
+     */
+    public void getAllEventSummaries(FirebaseCallback<ArrayList<EventSummary>> callback) {
+        ensureEventSummaries().whenComplete((v, err) ->
+                db.collection("eventSummaries").get()
+                        .addOnSuccessListener(snap -> callback.onSuccess(toSummaries(snap.getDocuments())))
+                        .addOnFailureListener(e -> {
+                            Log.e("FirebaseManager", "Error getting event summaries: " + e.getMessage());
+                            callback.onFailure(e);
+                        }));
+    }
+
+    /**
+     * Reads one page of the summaries matching {@code query}, filtered and ordered on
+     * the server, so a screen downloads a page at a time however many events exist.
+     *
+     * @param query  filters and page size
+     * @param cursor {@link EventPage#getNextCursor()} of the previous page, or null for the first
+     * @param cb     callback with the page
+     */
+    public void queryEventSummaries(EventQuery query, @Nullable EventQuery.Cursor cursor,
+                                    FirebaseCallback<EventPage> cb) {
+        ensureEventSummaries().whenComplete((v, err) ->
+                query.build(new FirestoreQueryOps(), db.collection("eventSummaries"), cursor).get()
+                        .addOnSuccessListener(snap -> cb.onSuccess(query.toPage(toSummaries(snap.getDocuments()))))
+                        .addOnFailureListener(e -> {
+                            Log.e("FirebaseManager", "Error querying event summaries: " + e.getMessage());
+                            cb.onFailure(e);
+                        }));
+    }
+
+    /**
+     * Live list of the summaries of events organized by {@code userId}. With the local
+     * store enabled, it is served from disk like {@link #getAllEventSummariesLive}.
      *
-     * @param callback
      * @return ListenerRegistration, destroy this by ListenerRegistation.remove()
      */
-    public ListenerRegistration getAllEventsLive(FirebaseCallback<ArrayList<Event>> callback) {
-        return db.collection("events")
-                .addSnapshotListener((snapshot, e) -> {
-                    if (e != null) {
-                        Log.e("FirebaseManager", "getAllEventsLive failed", e);
-                        callback.onFailure(e);
-                        return;
-                    }
+    public ListenerRegistration getOrganizedEventSummaries(String userId,
+                                                           FirebaseCallback<ArrayList<EventSummary>> callback) {
+        ensureEventSummaries();
+        if (syncEngine != null) {
+            return observeSummaries(userId, callback);
+        }
+        return listenKeyed(db.collection("eventSummaries").whereEqualTo("organizerId", userId),
+                this::toSummary, "getOrganizedEventSummaries", asList(callback));
+    }
 
-                    if (snapshot == null) {
-                        callback.onSuccess(new ArrayList<>());
-                        return;
+    /**
+     * Summaries of the user's past events, in {@code whereIn} chunks of 30.
+     */
+    public void getUserPastEventSummaries(User user, FirebaseCallback<List<EventSummary>> callback) {
+        List<String> eventIds = user.getPastEventIds();
+        if (eventIds == null || eventIds.isEmpty()) {
+            callback.onSuccess(new ArrayList<>());
+            return;
+        }
+
+        List<Task<QuerySnapshot>> queries = new ArrayList<>();
+        for (int i = 0; i < eventIds.size(); i += 30) {
+            queries.add(db.collection("eventSummaries")
+                    .whereIn(FieldPath.documentId(), eventIds.subList(i, Math.min(i + 30, eventIds.size())))
+                    .get());
+        }
+        Tasks.whenAllSuccess(queries)
+                .addOnSuccessListener(results -> {
+                    List<EventSummary> past = new ArrayList<>();
+                    for (Object result : results) {
+                        past.addAll(toSummaries(((QuerySnapshot) result).getDocuments()));
                     }
+                    callback.onSuccess(past);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e("FirebaseManager", "Error fetching past event summaries: " + e.getMessage());
+                    callback.onFailure(e);
+                });
+    }
+
+    /**
+     * Looks up the user's state on every waiting list they're on, so list screens can
+     * filter by it without loading any waiting list.
+     *
+     * With the local store enabled, the stored states are delivered first, so the
+     * callback may be called twice.
+     *
+     * @param userId   entrant's user ID
+     * @param callback called with the user's state keyed by event ID
+     */
+    public void getMyWaitingListStates(String userId, FirebaseCallback<Map<String, WaitingListState>> callback) {
+        // events of either layout, and a user's entry is only ever in one of them
+        CompletableFuture<Map<String, WaitingListState>> fetched = embeddedStore.getStatesForUser(userId)
+                .thenCombine(subcollectionStore.getStatesForUser(userId), (embedded, subcollection) -> {
+                    Map<String, WaitingListState> states = new HashMap<>(embedded);
+                    states.putAll(subcollection);
+                    return states;
+                });
+        if (localStore == null) {
+            deliver(fetched, callback);
+            return;
+        }
+        readThrough(() -> {
+            Map<String, WaitingListState> stored = localStore.getStatesForUser(userId);
+            return stored.isEmpty() ? null : stored;
+        }, fetched, states -> localStore.putStatesForUser(userId, states), callback);
+    }
 
-                    ArrayList<Event> events = new ArrayList<>();
-                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                        Map<String, Object> data = doc.getData();
-                        if (data == null) continue;
+    /**
+     * Recounts one event's waiting list and repairs the {@code stateCounts} counters
+     * on the event and its summary if they drifted, e.g. after a failed write or a
+     * change made outside the app.
+     *
+     * @param eventId  event to check
+     * @param callback callback with the number of counter documents that were repaired
+     */
+    public void reconcileStateCounts(String eventId, FirebaseCallback<Integer> callback) {
+        deliver(reconcileCounts(eventId), callback);
+    }
 
-                        Event event = mapToEvent(data);
-                        if (event != null) {
-                            event.setId(doc.getId());
-                            events.add(event);
-                        }
+    /**
+     * Turns counter sharding on or off for an event and, once the setting is stored,
+     * recounts its waiting list so the counts move into (or out of) the shards.
+     * Only takes effect in the subcollection layout.
+     *
+     * @param eventId  event to change
+     * @param shards   number of {@link CounterShards}, or 0 to keep counters on the event
+     * @param callback callback with the number of counter documents rewritten
+     */
+    public void setCounterShards(String eventId, int shards, FirebaseCallback<Integer> callback) {
+        CompletableFuture<Void> stored = new CompletableFuture<>();
+        db.collection("events").document(eventId)
+                .update(CounterShards.FIELD, CounterShards.count(shards))
+                .addOnSuccessListener(v -> stored.complete(null))
+                .addOnFailureListener(stored::completeExceptionally);
+        deliver(stored.thenCompose(v -> reconcileCounts(eventId)), callback);
+    }
+
+    /**
+     * Runs {@link #reconcileStateCounts} over every event, one event at a time so the
+     * job doesn't compete with the app for bandwidth. Events that fail are logged and
+     * skipped.
+     *
+     * @param callback callback with the total number of counter documents repaired
+     */
+    public void reconcileAllStateCounts(FirebaseCallback<Integer> callback) {
+        CompletableFuture<Integer> done = new CompletableFuture<>();
+        db.collection("eventSummaries").get()
+                .addOnSuccessListener(snap -> {
+                    CompletableFuture<Integer> chain = CompletableFuture.completedFuture(0);
+                    for (DocumentSnapshot doc : snap.getDocuments()) {
+                        String eventId = doc.getId();
+                        chain = chain.thenCompose(total -> reconcileCounts(eventId)
+                                .handle((repaired, e) -> total + (e == null ? repaired : 0)));
                     }
+                    chain.whenComplete((total, e) -> {
+                        Log.i("FirebaseManager", "Reconciled counters of " + snap.size()
+                                + " events, repaired " + total);
+                        done.complete(total);
+                    });
+                })
+                .addOnFailureListener(done::completeExceptionally);
+        deliver(done, callback);
+    }
 
-                    // this runs on every change
-                    callback.onSuccess(events);
+    private CompletableFuture<Integer> reconcileCounts(String eventId) {
+        return storeFor(eventId).thenCompose(store -> store.reconcileCounts(eventId, counterMirrors(eventId)))
+                .whenComplete((repaired, e) -> {
+                    if (e != null) {
+                        Log.e("FirebaseManager", "Failed to reconcile counters of " + eventId, e);
+                    } else if (repaired > 0) {
+                        Log.w("FirebaseManager", "Repaired " + repaired + " drifted counters of " + eventId);
+                    }
                 });
     }
 
@@ -598,15 +1233,32 @@ public class FirebaseManager {
      * @param eventId the Firestore document ID of the event to delete.
      */
     public void deleteEvent(String eventId) {
-        db.collection("events")
-                .document(eventId)
-                .delete()
+        WriteBatch batch = db.batch();
+        batch.delete(db.collection("events").document(eventId));
+        batch.delete(summaryRef(eventId));
+        FirestoreSyncSource.tombstone(batch, db, SyncSource.EVENT_SUMMARIES, eventId);
+        batch.commit()
                 .addOnSuccessListener(aVoid ->
                         Log.i("FirebaseManager", "Event deleted successfully: " + eventId))
                 .addOnFailureListener(e ->
                         Log.e("FirebaseManager", "Error deleting event: " + e.getMessage()));
     }
 
+    /**
+     * Joins a user to an event's waiting list in one transaction: the capacity check,
+     * the ENTERED entry, the counters and the user's joined and past events either all
+     * happen or none do, so concurrent joiners can't push the list over its cap.
+     * Attempts that lose a race are retried with backoff.
+     *
+     * @param eventId event document ID.
+     * @param userId  joining user's ID.
+     * @param cb      receives {@code JOINED}, {@code ALREADY_JOINED} or {@code FULL}.
+     */
+    public void joinWaitingList(String eventId, String userId, FirebaseCallback<WaitingListStore.JoinResult> cb) {
+        deliver(storeFor(eventId).thenCompose(store -> store.join(eventId, userId, counterMirrors(eventId), joinRetry))
+                .whenComplete((result, e) -> userCache.invalidate(userId)), cb);
+    }
+
     /**
      * Adds an entrant to an event’s waiting list.
      *
@@ -634,15 +1286,14 @@ public class FirebaseManager {
 //        db.collection("events")
 //                .document(eventId)
 //                .update("waitingList", FieldValue.arrayUnion(entry))
-        db.collection("events")
-                .document(eventId)
-                .update("waitingList." + entrant.getUserId(),
-                        Collections.singletonMap("state", state.name()))
-                .addOnSuccessListener(aVoid -> {
-                    Log.d("FIREBASE", "Entrant added to waiting list successfully");
-                })
-                .addOnFailureListener(e -> {
-                    Log.e("FIREBASE", "Failed to add entrant to waiting list", e);
+        storeFor(eventId).thenCompose(store -> store.applyCountedChanges(eventId,
+                        Collections.singletonMap(entrant.getUserId(), state), counterMirrors(eventId)))
+                .whenComplete((v, e) -> {
+                    if (e == null) {
+                        Log.d("FIREBASE", "Entrant added to waiting list successfully");
+                    } else {
+                        Log.e("FIREBASE", "Failed to add entrant to waiting list", e);
+                    }
                 });
     }
 
@@ -661,13 +1312,15 @@ public class FirebaseManager {
 //                .collection("waitingList")
 //                .document(entrantId)
 //                .update("state", newState.name())
-        db.collection("events")
-                .document(eventId)
-                .update("waitingList." + entrantId + ".state", newState.name())
-                .addOnSuccessListener(aVoid ->
-                        System.out.println("Entrant " + entrantId + " state updated to " + newState))
-                .addOnFailureListener(e ->
-                        System.err.println("Error updating state: " + e.getMessage()));
+        storeFor(eventId).thenCompose(store -> store.applyCountedChanges(eventId,
+                        Collections.singletonMap(entrantId, newState), counterMirrors(eventId)))
+                .whenComplete((v, e) -> {
+                    if (e == null) {
+                        System.out.println("Entrant " + entrantId + " state updated to " + newState);
+                    } else {
+                        System.err.println("Error updating state: " + e.getMessage());
+                    }
+                });
     }
 
     //Retrieves all entrants in a given event’s waiting list.
@@ -695,17 +1348,20 @@ public class FirebaseManager {
      * @param entrantId user ID of the entrant to remove.
      */
     public void removeEntrantFromWaitingList(String eventId, String entrantId) {
-        db.collection("events")
-                .document(eventId)
-                .update("waitingList." + entrantId, FieldValue.delete())
-                .addOnSuccessListener(aVoid ->
-                        Log.d("FIREBASE", "Entrant removed from waiting list successfully"))
-                .addOnFailureListener(e ->
-                        Log.e("FIREBASE", "Failed to remove entrant from waiting list", e));
+        storeFor(eventId).thenCompose(store -> store.applyCountedChanges(eventId,
+                        Collections.singletonMap(entrantId, null), counterMirrors(eventId)))
+                .whenComplete((v, e) -> {
+                    if (e == null) {
+                        Log.d("FIREBASE", "Entrant removed from waiting list successfully");
+                    } else {
+                        Log.e("FIREBASE", "Failed to remove entrant from waiting list", e);
+                    }
+                });
     }
 
     public void addJoinedEventToEntrant(Event event, String userId) {
 
+        userCache.invalidate(userId);
         db.collection("users")
                 .document(userId)
                 .update("joinedEventIds", FieldValue.arrayUnion(event.getId()))
@@ -720,6 +1376,7 @@ public class FirebaseManager {
     public void removeJoinedEventFromEntrant(String eventId, String entrantId) {
         Log.d("DEBUG", "removeJoinedEventFromEntrant eventId param = " + eventId);
 
+        userCache.invalidate(entrantId);
         db.collection("users")
                 .document(entrantId)
                 .update("joinedEventIds", FieldValue.arrayRemove(eventId))
@@ -733,6 +1390,7 @@ public class FirebaseManager {
 
     public void addPastEventToEntrant(Event event, String userId) {
 
+        userCache.invalidate(userId);
         db.collection("users")
                 .document(userId)
                 .update("pastEventIds", FieldValue.arrayUnion(event.getId()))
@@ -747,6 +1405,7 @@ public class FirebaseManager {
     public void removePastEventFromEntrant(String eventId, String entrantId) {
         Log.d("DEBUG", "removeJoinedEventFromEntrant eventId param = " + eventId);
 
+        userCache.invalidate(entrantId);
         db.collection("users")
                 .document(entrantId)
                 .update("pastEventIds", FieldValue.arrayRemove(eventId))
@@ -815,75 +1474,39 @@ public class FirebaseManager {
                 .addOnFailureListener(callback::onFailure);
     }
 
-    // Live listener: all events where organizer == userId
-    public ListenerRegistration getOrganizedEvents(String userId, FirebaseCallback<ArrayList<Event>> callback) {
-        return db.collection("events")
-                .whereEqualTo("organizer", userId)
-                .addSnapshotListener((snapshot, e) -> {
-                    if (e != null) {
-                        Log.e("FirebaseManager", "listenToOrganizedEvents failed", e);
-                        callback.onFailure(e);
-                        return;
-                    }
-
-                    if (snapshot == null) {
-                        callback.onSuccess(new ArrayList<>());
-                        return;
-                    }
-
-                    ArrayList<Event> events = new ArrayList<>();
-                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                        Map<String, Object> data = doc.getData();
-                        if (data == null) continue;
-
-                        Event event = mapToEvent(data);
-                        if (event != null) {
-                            event.setId(doc.getId());
-                            events.add(event);
-                        }
-                    }
-
-                    // fires:
-                    // - once initially
-                    // - again whenever one of this organizer's events is added/updated/deleted
-                    callback.onSuccess(events);
-                });
-    }
-
     public void getEventWaitingList(String eventId, FirebaseCallback<ArrayList<Pair<User, WaitingListState>>> callback) {
-        db.collection("events").document(eventId).get()
-                .addOnSuccessListener(snapshot -> {
-                    if (!snapshot.exists()) {
-                        callback.onFailure(new FirebaseFirestoreException(
-                                "Event not found", FirebaseFirestoreException.Code.NOT_FOUND));
-                        return;
+        deliver(storeFor(eventId).thenCompose(store -> store.getAll(eventId, null)), new FirebaseCallback<List<Pair<User, WaitingListState>>>() {
+            @Override
+            public void onSuccess(List<Pair<User, WaitingListState>> pairs) {
+                if (pairs.isEmpty()) {
+                    callback.onSuccess(new ArrayList<>());
+                    Log.d("Firebase", "Waiting List is Empty");// empty waiting list
+                    return;
+                }
+                Map<String, Object> waitingListMap = new HashMap<>();
+                for (Pair<User, WaitingListState> p : pairs) {
+                    waitingListMap.put(p.first.getUserId(), Collections.singletonMap("state", p.second.name()));
+                }
+                deserializeWaitingList(waitingListMap, new FirebaseCallback<ArrayList<Pair<User, WaitingListState>>>() {
+                    @Override
+                    public void onSuccess(ArrayList<Pair<User, WaitingListState>> result) {
+                        Log.i("FirebaseManager", "Waiting list: " + result);
+                        callback.onSuccess(result); // fully populated waiting list
                     }
 
-                    Object wlObj = snapshot.get("waitingList");
-                    if (wlObj instanceof Map) {
-                        Map<String, Object> waitingListMap = (Map<String, Object>) wlObj;
-                        Log.i("FirebaseManager", "Waiting List Map: " + waitingListMap);
-                        deserializeWaitingList(waitingListMap, new FirebaseCallback<ArrayList<Pair<User, WaitingListState>>>() {
-                            @Override
-                            public void onSuccess(ArrayList<Pair<User, WaitingListState>> result) {
-                                Log.i("FirebaseManager", "Waiting list: " + result);
-                                callback.onSuccess(result); // fully populated waiting list
-                            }
-
-                            @Override
-                            public void onFailure(Exception e) {
-                                callback.onFailure(e);
-                            }
-                        });
-                    } else {
-                        callback.onSuccess(new ArrayList<>());
-                        Log.d("Firebase", "Waiting List is Empty");// empty waiting list
+                    @Override
+                    public void onFailure(Exception e) {
+                        callback.onFailure(e);
                     }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e("Firebase", "Failed to getWaitingList" + e.getMessage());
-                    callback.onFailure(e);
                 });
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e("Firebase", "Failed to getWaitingList" + e.getMessage());
+                callback.onFailure(e);
+            }
+        });
     }
 
 
@@ -957,44 +1580,6 @@ public class FirebaseManager {
                 });
     }
 
-    public void getUserPastEvents(User user, FirebaseCallback<List<Event>> callback) {
-        List<String> eventIds = user.getPastEventIds();
-
-        if (eventIds == null || eventIds.isEmpty()) {
-            // empty, return instantly
-            callback.onSuccess(new ArrayList<>());
-            return;
-        }
-
-        db.collection("events")
-                .whereIn(FieldPath.documentId(), eventIds)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    List<Event> pastEvents = new ArrayList<>();
-                    for (DocumentSnapshot document : queryDocumentSnapshots.getDocuments()) {
-                        try {
-                            Map<String, Object> data = document.getData();
-                            if (data == null) {
-                                continue;
-                            }
-                            Event event = mapToEvent(data);
-                            if (event != null) {
-                                event.setId(document.getId());
-                                pastEvents.add(event);
-                            }
-                        } catch (Exception e) {
-                            Log.e("FirebaseManager", "Error parsing Event document: " + e.getMessage());
-                        }
-                    }
-
-                    callback.onSuccess(pastEvents);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e("FirebaseManager", "Error fetching past events: " + e.getMessage());
-                    callback.onFailure(e);
-                });
-    }
-
     public void saveLocationToFirestore(String userId, double lat, double lng) {
 
         Map<String, Object> locationMap = new HashMap<>();
@@ -1004,6 +1589,7 @@ public class FirebaseManager {
         Map<String, Object> update = new HashMap<>();
         update.put("location", locationMap);
 
+        userCache.invalidate(userId);
         db.collection("users")
                 .document(userId)
                 .set(update, SetOptions.merge())   // ⬅ merge so you don’t overwrite other fields
@@ -1014,17 +1600,33 @@ public class FirebaseManager {
     public void getEntrantLocations(String eventId, FirebaseCallback<ArrayList<UserLocation>> callback){
         ArrayList<UserLocation> locations = new ArrayList<>();
 
-        this.getEventWaitingList(eventId, new FirebaseCallback<ArrayList<Pair<User, WaitingListState>>>() {
+        this.getWaitingListPairs(eventId, new FirebaseCallback<List<Pair<User, WaitingListState>>>() {
             @Override
-            public void onSuccess(ArrayList<Pair<User, WaitingListState>> result) {
-                for (Pair<User, WaitingListState> pair : result) {
-                    User user = pair.first;
-                    locations.add(user.getLocation());
+            public void onSuccess(List<Pair<User, WaitingListState>> pairs) {
+                List<String> ids = new ArrayList<>(pairs.size());
+                for (Pair<User, WaitingListState> pair : pairs) {
+                    ids.add(pair.first.getUserId());
                 }
 
-                Log.d("Firebase", "Successfully retrieved user locations");
-                callback.onSuccess(locations);
+                getUsers(ids, new FirebaseCallback<List<User>>() {
+                    @Override
+                    public void onSuccess(List<User> users) {
+                        for (User user : users) {
+                            if (user != null) {
+                                locations.add(user.getLocation());
+                            }
+                        }
+
+                        Log.d("Firebase", "Successfully retrieved user locations");
+                        callback.onSuccess(locations);
+                    }
 
+                    @Override
+                    public void onFailure(Exception e) {
+                        Log.e("Firebase", "Failed to get user locations", e);
+                        callback.onFailure(e);
+                    }
+                });
             }
 
             @Override
@@ -1033,8 +1635,6 @@ public class FirebaseManager {
                 callback.onFailure(e);
             }
         });
-
-
     }
 
 
@@ -1187,9 +1787,12 @@ public class FirebaseManager {
         Map<String, Object> update = new HashMap<>();
         update.put("posterBlob", posterBlob);
 
-        db.collection("events")
-                .document(eventId)
-                .set(update, SetOptions.merge())
+        WriteBatch batch = db.batch();
+        batch.set(db.collection("events").document(eventId), update, SetOptions.merge());
+        Map<String, Object> posterFlag = new HashMap<>();
+        posterFlag.put("hasPoster", true);
+        batch.set(summaryRef(eventId), FirestoreSyncSource.stamp(posterFlag), SetOptions.merge());
+        batch.commit()
                 .addOnSuccessListener(aVoid -> {
                     Log.d("FirebaseManager", "Poster saved inline for event: " + eventId);
                     if (callback != null) {
@@ -1253,51 +1856,85 @@ public class FirebaseManager {
      */
     public void getWaitingListPairs(String eventId,
                                     FirebaseCallback<List<Pair<User, WaitingListState>>> cb) {
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-        db.collection("events").document(eventId)
-                .get()
-                .addOnSuccessListener(doc -> {
-                    List<Pair<User, WaitingListState>> out = new ArrayList<>();
-
-                    if (!doc.exists()) {
-                        cb.onSuccess(out);
-                        return;
-                    }
-
-                    // waitingList is stored as a map<userId, { state: "ENTERED", ... }>
-                    Object raw = doc.get("waitingList");
-                    if (!(raw instanceof Map)) {
-                        cb.onSuccess(out);
-                        return;
-                    }
-
-                    Map<String, Object> wlMap = (Map<String, Object>) raw;
-                    for (Map.Entry<String, Object> entry : wlMap.entrySet()) {
-                        String userId = entry.getKey();
-                        Object val = entry.getValue();
-                        if (!(val instanceof Map)) continue;
+        deliver(storeFor(eventId).thenCompose(store -> store.getAll(eventId, null)), cb);
+    }
 
-                        Map<String, Object> stateMap = (Map<String, Object>) val;
-                        Object stateStrObj = stateMap.get("state");
-                        if (!(stateStrObj instanceof String)) continue;
+    /**
+     * Moves an event's waiting list from the embedded map into the per-entrant
+     * subcollection (or back) and records the new layout on the event.
+     * <p>
+     * The entries are copied, the event's {@value WaitingListStore#LAYOUT_FIELD} is
+     * switched, the entries are copied once more to pick up joins that raced the
+     * switch, and only then is the old copy removed and the counters recounted.
+     * Other devices use the new layout once they reload the event, so this is meant
+     * for events that aren't taking joins, e.g. before registration opens.
+     * </p>
+     *
+     * @param eventId event to migrate
+     * @param target  layout to move the entries into
+     * @param cb      callback with the number of entries moved
+     */
+    public void migrateWaitingList(String eventId, WaitingListStore.Layout target, FirebaseCallback<Integer> cb) {
+        WaitingListStore.Layout source = target == WaitingListStore.Layout.EMBEDDED
+                ? WaitingListStore.Layout.SUBCOLLECTION
+                : WaitingListStore.Layout.EMBEDDED;
+        WaitingListMigration migration = new WaitingListMigration(
+                storeFor(source), storeFor(target), WaitingListStore.MAX_PAGE_SIZE);
+        CompletableFuture<Integer> moved = migration.migrate(eventId, false)
+                .thenCompose(n -> {
+                    CompletableFuture<Void> switched = new CompletableFuture<>();
+                    db.collection("events").document(eventId)
+                            .update(WaitingListStore.LAYOUT_FIELD, target.name())
+                            .addOnSuccessListener(v -> {
+                                layouts.put(eventId, target);
+                                switched.complete(null);
+                            })
+                            .addOnFailureListener(switched::completeExceptionally);
+                    return switched;
+                })
+                .thenCompose(v -> migration.migrate(eventId, true))
+                .thenCompose(n -> reconcileCounts(eventId).thenApply(repaired -> n));
+        deliver(moved, cb);
+    }
 
-                        String stateStr = (String) stateStrObj;
-                        WaitingListState state;
-                        try {
-                            state = WaitingListState.valueOf(stateStr);
-                        } catch (IllegalArgumentException ex) {
-                            // unknown state, skip
-                            continue;
-                        }
+    private WaitingListStore storeFor(WaitingListStore.Layout layout) {
+        return layout == WaitingListStore.Layout.SUBCOLLECTION ? subcollectionStore : embeddedStore;
+    }
 
-                        User u = new User();
-                        u.setUserId(userId);   // we only care about UID here
-                        out.add(new Pair<>(u, state));
-                    }
+    /**
+     * @return the store of an event's waiting list, by the layout last read from the
+     * event, or read now if the event wasn't loaded yet
+     */
+    private CompletableFuture<WaitingListStore> storeFor(String eventId) {
+        return layoutOf(eventId).thenApply(this::storeFor);
+    }
 
-                    cb.onSuccess(out);
+    private CompletableFuture<WaitingListStore.Layout> layoutOf(String eventId) {
+        WaitingListStore.Layout known = layouts.get(eventId);
+        if (known != null) {
+            return CompletableFuture.completedFuture(known);
+        }
+        CompletableFuture<WaitingListStore.Layout> f = new CompletableFuture<>();
+        db.collection("events").document(eventId).get()
+                .addOnSuccessListener(snap -> {
+                    WaitingListStore.Layout layout = WaitingListStore.layoutOf(snap.get(WaitingListStore.LAYOUT_FIELD));
+                    layouts.put(eventId, layout);
+                    f.complete(layout);
                 })
-                .addOnFailureListener(cb::onFailure);
+                .addOnFailureListener(f::completeExceptionally);
+        return f;
+    }
+
+    /** Hands a future's outcome to a callback, unwrapping the completion exception. */
+    private static <T> void deliver(CompletableFuture<? extends T> future, FirebaseCallback<T> cb) {
+        future.whenComplete((result, e) -> {
+            if (e == null) {
+                cb.onSuccess(result);
+            } else {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                cb.onFailure(cause instanceof Exception ? (Exception) cause : new Exception(cause));
+            }
+        });
     }
 
     /**
@@ -1310,6 +1947,31 @@ public class FirebaseManager {
             @NonNull List<Pair<User, WaitingListState>> pairs,
             @NonNull FirebaseCallback<Void> cb
     ) {
+        deliver(layoutOf(eventId), new FirebaseCallback<WaitingListStore.Layout>() {
+            @Override
+            public void onSuccess(WaitingListStore.Layout layout) {
+                if (layout == WaitingListStore.Layout.EMBEDDED) {
+                    replaceEmbeddedWaitingList(eventId, pairs, cb);
+                    return;
+                }
+                Map<String, WaitingListState> changes = new HashMap<>();
+                for (Pair<User, WaitingListState> p : pairs) {
+                    if (p.first == null || p.first.getUserId() == null) continue;
+                    changes.put(p.first.getUserId(), p.second);
+                }
+                deliver(subcollectionStore.applyCountedChanges(eventId, changes, counterMirrors(eventId))
+                        .thenApply(delta -> (Void) null), cb);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                cb.onFailure(e);
+            }
+        });
+    }
+
+    private void replaceEmbeddedWaitingList(String eventId, List<Pair<User, WaitingListState>> pairs,
+                                            FirebaseCallback<Void> cb) {
         FirebaseFirestore db = FirebaseFirestore.getInstance();
         DocumentReference eventRef = db.collection("events").document(eventId);
 
@@ -1327,31 +1989,104 @@ public class FirebaseManager {
             waitingList.put(u.getUserId(), entry);
         }
 
+        // the whole map is replaced, so the counters are too
+        WaitingListCounts counts = WaitingListCounts.of(pairs);
         Map<String, Object> updates = new HashMap<>();
         updates.put("waitingList", waitingList);
+        updates.put(WaitingListStore.COUNTS_FIELD, counts.toMap());
 
-        eventRef.update(updates)
+        WriteBatch batch = db.batch();
+        batch.update(eventRef, updates);
+        batch.set(summaryRef(eventId), FirestoreSyncSource.stamp(CounterUpdates.nestedCounts(counts)), SetOptions.merge());
+        batch.commit()
                 .addOnSuccessListener(unused -> cb.onSuccess(null))
                 .addOnFailureListener(cb::onFailure);
     }
 
-    public void updateWaitingListStates(
+    /**
+     * Persists the waiting list entries that changed since the event's list was
+     * last synced (see {@link WaitingListDelta#toChanges}), then the draw record and
+     * event state.
+     * <p>
+     * Unlike {@link #updateWaitingListStates(String, List, FirebaseCallback)} and
+     * {@link #addOrUpdateEvent(String, Event)}, untouched entrants are not rewritten,
+     * so the write grows with the number of changes and can't clobber concurrent joins.
+     * The entries go through {@link WaitingListStore#applyCountedChanges}, which reads
+     * each entrant's stored state and moves the {@code stateCounts} counters on the
+     * event and its summary (or on a sharded event's shards) by exactly what changed.
+     * The list is marked clean once both writes succeed.
+     * </p>
+     *
+     * @param eventId event document ID
+     * @param event   event whose waiting list changes, {@code lastDraw} and {@code eventState} are written
+     * @param cb      callback once the update is applied
+     */
+    public void saveWaitingListChanges(
             @NonNull String eventId,
-            @NonNull String userId,
-            @NonNull WaitingListState state,
+            @NonNull Event event,
             @NonNull FirebaseCallback<Void> cb
     ) {
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-        DocumentReference eventRef = db.collection("events").document(eventId);
+        saveWaitingListChanges(eventId, event, Collections.emptyList(), cb);
+    }
 
-        // Dot-notation update for nested map:
-        // waitingList -> { uid -> { state: "..." } }
+    /**
+     * Like {@link #saveWaitingListChanges(String, Event, FirebaseCallback)}, and releases
+     * the draw's held outbox jobs (see {@link LotteryResultNotifier#prepareResults}) in the
+     * same batch as its draw record, so the draw is never saved without its notifications
+     * queued nor notified without being saved.
+     *
+     * @param outboxJobs held jobs announcing this draw
+     */
+    public void saveWaitingListChanges(
+            @NonNull String eventId,
+            @NonNull Event event,
+            @NonNull List<OutboxJob> outboxJobs,
+            @NonNull FirebaseCallback<Void> cb
+    ) {
+        WaitingList waitingList = event.getWaitingList();
+        WaitingListStore.Layout layout = event.getWaitingListLayout();
+        boolean embedded = layout == WaitingListStore.Layout.EMBEDDED;
+        Map<String, WaitingListState> changes = WaitingListDelta.toChanges(waitingList);
         Map<String, Object> updates = new HashMap<>();
-        updates.put("waitingList." + userId + ".state", state.name());
+        if (event.getLastDraw() != null) {
+            updates.put("lastDraw", drawRecordToMap(event.getLastDraw()));
+        }
+        updates.put("eventState", event.getEventState());
+
+        CompletableFuture<WaitingListCounts> entries = changes.isEmpty()
+                ? CompletableFuture.completedFuture(new WaitingListCounts())
+                : storeFor(layout).applyCountedChanges(eventId, changes, counterMirrors(eventId));
+
+        deliver(entries.thenCompose(applied -> {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            WriteBatch batch = db.batch();
+            batch.update(db.collection("events").document(eventId), updates);
+            FirestoreNotificationOutbox.release(batch, db, outboxJobs);
+            batch.commit()
+                    .addOnSuccessListener(unused -> {
+                        if (waitingList != null) {
+                            WaitingListCounts saved = event.getStateCounts();
+                            waitingList.markClean();
+                            if (!embedded) {
+                                event.setStoredCounts(saved);
+                            }
+                        }
+                        done.complete(null);
+                    })
+                    .addOnFailureListener(done::completeExceptionally);
+            return done;
+        }), cb);
+    }
 
-        eventRef.update(updates)
-                .addOnSuccessListener(unused -> cb.onSuccess(null))
-                .addOnFailureListener(cb::onFailure);
+    public void updateWaitingListStates(
+            @NonNull String eventId,
+            @NonNull String userId,
+            @NonNull WaitingListState state,
+            @NonNull FirebaseCallback<Void> cb
+    ) {
+        // Embedded layout: dot-notation update waitingList.<uid>.state
+        deliver(storeFor(eventId).thenCompose(store -> store.applyCountedChanges(eventId,
+                Collections.singletonMap(userId, state), counterMirrors(eventId))).thenApply(delta -> (Void) null), cb);
     }
 
 
@@ -1,8 +1,12 @@
 package com.example.lotterypatentpending.models;
 
+import com.example.lotterypatentpending.data.FirestoreNotificationWindow;
+import com.example.lotterypatentpending.data.TemplateCache;
+import com.example.lotterypatentpending.data.UnreadCounters;
 import com.google.firebase.firestore.*;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -18,44 +22,161 @@ import java.util.concurrent.CompletableFuture;
 
 public class FirestoreNotificationRepository implements NotificationRepository {
     private final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    private final TemplateCache templates = FirebaseManager.getInstance().getTemplateCache();
+    /** Notifications per batch in {@link #addAll}: room for each one's recipient counter. */
+    static final int ADD_CHUNK_SIZE = ChunkedWriter.MAX_BATCH_OPS / 2;
     /**
-     * Adds a new notification to a user's notification sub-collection.
-     * @param n The notification object to add.
+     * Adds a new notification to a user's notification sub-collection and bumps
+     * their unread counter in the same batch.
+     * @param n The notification object to add; gets its new document id.
      * @return A CompletableFuture that completes when the operation is finished.
      */
     @Override public CompletableFuture<Void> add(Notification n){
         var f=new CompletableFuture<Void>();
-        db.collection("users").document(n.getUserId()).collection("notifications")
-                .add(n).addOnSuccessListener(r->f.complete(null)).addOnFailureListener(f::completeExceptionally);
+        WriteBatch batch=db.batch();
+        DocumentReference ref=notifications(n.getUserId()).document();
+        batch.set(ref, n);
+        if (!n.isRead()) UnreadCounters.increment(batch, db, n.getUserId(), 1);
+        n.setId(ref.getId());
+        batch.commit().addOnSuccessListener(v->f.complete(null)).addOnFailureListener(f::completeExceptionally);
         return f;
     }
+
+    /**
+     * Adds notifications to their users' sub-collections in {@link WriteBatch}es of
+     * up to {@link #ADD_CHUNK_SIZE} notifications, a few batches committing at a time.
+     * Each batch also bumps the unread counter of every recipient in it.
+     * A batch is all-or-nothing, so a failed commit fails every recipient in it.
+     * Notifications with a template id are stored as {@link Notification#toTemplatedMap()}.
+     * @param notifications The notifications to add; each gets its new document id.
+     * @return A CompletableFuture with the recipients that were and weren't written.
+     */
+    @Override public CompletableFuture<BulkWriteResult> addAll(List<Notification> notifications){
+        return ChunkedWriter.write(notifications, ADD_CHUNK_SIZE, ChunkedWriter.DEFAULT_MAX_IN_FLIGHT,
+                Notification::getUserId, chunk -> {
+                    var f=new CompletableFuture<Void>();
+                    WriteBatch batch=db.batch();
+                    for (Notification n: chunk) {
+                        DocumentReference ref=notifications(n.getUserId()).document();
+                        if (n.getTemplateId() != null) batch.set(ref, n.toTemplatedMap());
+                        else batch.set(ref, n);
+                        n.setId(ref.getId());
+                    }
+                    UnreadCounters.unreadPerUser(chunk).forEach((uid, count) -> UnreadCounters.increment(batch, db, uid, count));
+                    batch.commit().addOnSuccessListener(v->f.complete(null)).addOnFailureListener(f::completeExceptionally);
+                    return f;
+                });
+    }
     /**
-     * Marks a specific notification as read.
-     * This method fetches all notifications for a user and updates the one matching the ID.
+     * Writes the template once, then one small notification per recipient that
+     * references it, in batches like {@link #addAll}.
+     * @param template The shared text; gets a new document id if it has none.
+     * @param recipientIds The users to notify.
+     * @return A CompletableFuture with the recipients that were and weren't written.
+     */
+    @Override public CompletableFuture<BulkWriteResult> sendTemplated(NotificationTemplate template,
+                                                                      List<String> recipientIds){
+        DocumentReference ref = template.getId() != null
+                ? db.collection(NotificationTemplate.COLLECTION).document(template.getId())
+                : db.collection(NotificationTemplate.COLLECTION).document();
+        template.setId(ref.getId());
+        var f=new CompletableFuture<Void>();
+        ref.set(template).addOnSuccessListener(v->f.complete(null)).addOnFailureListener(f::completeExceptionally);
+        return f.thenCompose(v -> {
+            templates.put(template);
+            List<Notification> notifications = new ArrayList<>(recipientIds.size());
+            for (String uid : recipientIds) notifications.add(template.notificationFor(uid));
+            return addAll(notifications);
+        });
+    }
+    /**
+     * Marks a specific notification as read in a transaction that reads it first and
+     * only updates it and decrements the unread counter if it was unread, so marking
+     * it twice, from two devices or racing {@link #markAllRead}, counts it once. A
+     * notification that no longer exists is ignored.
      * @param userId The ID of the user.
      * @param id The ID of the notification document to mark as read.
      * @return A CompletableFuture that completes when the update is finished.
      */
-    //if you pass the document id, update directly—it’s cheaper than scanning.
     @Override public CompletableFuture<Void> markRead(String userId,String id){
         var f=new CompletableFuture<Void>();
-        db.collection("users").document(userId).collection("notifications").get()
-                .addOnSuccessListener(snap -> {
-                    // find by id field if not using documentId
-                    for (var d: snap.getDocuments()) {
-                        if (id != null && id.equals(d.getId())) {
-                            d.getReference().update("read", true).addOnSuccessListener(v -> f.complete(null))
-                                    .addOnFailureListener(f::completeExceptionally);
-                            return;
-                        }
+        if (id == null) { f.complete(null); return f; }
+        DocumentReference ref=notifications(userId).document(id);
+        db.runTransaction(tx -> {
+                    DocumentSnapshot snap=tx.get(ref);
+                    if (snap.exists() && Boolean.FALSE.equals(snap.getBoolean("read"))) {
+                        tx.update(ref, "read", true);
+                        UnreadCounters.increment(tx, db, userId, -1);
                     }
-                    f.complete(null);
-                }).addOnFailureListener(f::completeExceptionally);
+                    return null;
+                })
+                .addOnSuccessListener(v -> f.complete(null))
+                .addOnFailureListener(f::completeExceptionally);
         return f;
     }
 
     /**
-     * Retrieves all notifications for a specific user, ordered with the newest first.
+     * Marks several notifications as read in transactions of up to
+     * {@link #MARK_READ_CHUNK_SIZE} ids, a few running at a time. Each transaction
+     * reads its notifications, updates the unread ones and decrements the unread
+     * counter by how many that were; already read ones succeed without a write.
+     * A missing notification fails its whole transaction.
+     * @param userId The ID of the user.
+     * @param ids The IDs of the notification documents to mark as read.
+     * @return A CompletableFuture with the ids that were and weren't updated.
+     */
+    @Override public CompletableFuture<BulkWriteResult> markRead(String userId, Collection<String> ids){
+        List<String> list = new ArrayList<>();
+        for (String id : ids) if (id != null) list.add(id);
+        return ChunkedWriter.write(list, MARK_READ_CHUNK_SIZE, ChunkedWriter.DEFAULT_MAX_IN_FLIGHT,
+                id -> id, chunk -> {
+                    var f=new CompletableFuture<Void>();
+                    db.runTransaction(tx -> {
+                                List<DocumentReference> unread = new ArrayList<>();
+                                for (String id : chunk) {
+                                    DocumentReference ref=notifications(userId).document(id);
+                                    DocumentSnapshot snap=tx.get(ref);
+                                    if (!snap.exists()) {
+                                        throw new FirebaseFirestoreException("No notification " + id,
+                                                FirebaseFirestoreException.Code.NOT_FOUND);
+                                    }
+                                    if (Boolean.FALSE.equals(snap.getBoolean("read"))) unread.add(ref);
+                                }
+                                for (DocumentReference ref : unread) tx.update(ref, "read", true);
+                                UnreadCounters.increment(tx, db, userId, -unread.size());
+                                return null;
+                            })
+                            .addOnSuccessListener(v->f.complete(null))
+                            .addOnFailureListener(f::completeExceptionally);
+                    return f;
+                });
+    }
+
+    /**
+     * Marks every unread notification as read: queries only the unread documents,
+     * then marks them in transactions that re-check each one.
+     * @param userId The ID of the user.
+     * @return A CompletableFuture with the number of notifications marked.
+     */
+    @Override public CompletableFuture<Integer> markAllRead(String userId){
+        var f=new CompletableFuture<List<String>>();
+        notifications(userId).whereEqualTo("read", false).get()
+                .addOnSuccessListener(snap -> {
+                    List<String> ids = new ArrayList<>();
+                    for (var d : snap.getDocuments()) ids.add(d.getId());
+                    f.complete(ids);
+                })
+                .addOnFailureListener(f::completeExceptionally);
+        return f.thenCompose(ids -> markRead(userId, ids)).thenApply(r -> r.getSucceeded().size());
+    }
+
+    private CollectionReference notifications(String userId) {
+        return db.collection("users").document(userId).collection("notifications");
+    }
+
+    /**
+     * Retrieves all notifications for a specific user, ordered with the newest first,
+     * with templated ones filled in from the template cache.
      * @param userId The ID of the user whose notifications are to be fetched.
      * @return A CompletableFuture that completes with a list of notifications.
      */
@@ -78,11 +199,12 @@ public class FirestoreNotificationRepository implements NotificationRepository {
                     f.complete(list);
                 })
                 .addOnFailureListener(f::completeExceptionally);
-        return f;
+        return f.thenCompose(templates::resolve);
     }
 
     /**
      * Listens for real-time changes to the count of unread notifications for a user.
+     * Only the user's unread counter document is listened to, whatever the backlog.
      * @param userId The ID of the user.
      * @param onCount A consumer to be called with the updated unread count.
      * @param onError A consumer to handle any errors.
@@ -91,14 +213,23 @@ public class FirestoreNotificationRepository implements NotificationRepository {
     @Override public ListenerRegistration listenUnreadCount(String userId,
                                                             java.util.function.Consumer<Integer> onCount,
                                                             java.util.function.Consumer<Exception> onError){
-        return db.collection("users").document(userId).collection("notifications")
-                .whereEqualTo("read", false)
+        return UnreadCounters.ref(db, userId)
                 .addSnapshotListener((snap, err) -> {
                     if (err!=null){ onError.accept(err); return; }
-                    onCount.accept(snap==null?0:snap.size());
+                    onCount.accept(snap==null?0:(int) UnreadCounters.read(snap));
                 });
     }
 
+    /**
+     * Recounts unread notifications with a count aggregation, which costs one read
+     * per 1,000 documents, and repairs the unread counter if it drifted.
+     * @param userId The ID of the user.
+     * @return A CompletableFuture with the number of unread notifications.
+     */
+    @Override public CompletableFuture<Integer> reconcileUnreadCount(String userId){
+        return UnreadCounters.reconcile(db, userId);
+    }
+
     @Override
     public ListenerRegistration listenUserNotifications(String userId,
                                                         NotificationsListener listener) {
@@ -126,22 +257,21 @@ public class FirestoreNotificationRepository implements NotificationRepository {
                 });
     }
 
+    /**
+     * Listens to the newest {@code pageSize} notifications only and applies each
+     * {@link DocumentChange} to the loaded list; older pages load with
+     * {@link InboxWindow#loadMore()}.
+     */
     @Override
-    public CompletableFuture<String> createForUser(String userId, Notification n) {
-        CompletableFuture<String> f = new CompletableFuture<>();
-
-        db.collection("users")
-                .document(userId)
-                .collection("notifications")
-                .add(n)
-                .addOnSuccessListener(ref -> {
-                    String id = ref.getId();
-                    n.setId(ref.getId());
-                    f.complete(ref.getId());
-                })
-                .addOnFailureListener(f::completeExceptionally);
+    public InboxWindow listenUserNotifications(String userId, int pageSize,
+                                               NotificationsListener listener) {
+        return new FirestoreNotificationWindow(db, userId, pageSize, listener);
+    }
 
-        return f;
+    @Override
+    public CompletableFuture<String> createForUser(String userId, Notification n) {
+        n.setUserId(userId);
+        return add(n).thenApply(v -> n.getId());
     }
 
 
@@ -2,12 +2,17 @@ package com.example.lotterypatentpending.models;
 
 import android.util.Log;
 import androidx.annotation.NonNull;
+import com.example.lotterypatentpending.data.FirestoreNotificationOutbox;
 import com.example.lotterypatentpending.data.FirestoreUsersDataSource;
+import com.example.lotterypatentpending.data.NotificationOutbox;
 import com.example.lotterypatentpending.data.UserDataSource;
+import com.example.lotterypatentpending.exceptions.IncompleteSendException;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.TaskCompletionSource;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -16,91 +21,163 @@ import java.util.concurrent.CompletableFuture;
 /**
  * Coordinates "winner"/"loser" result notifications.
  * Manually enforces LOTTERY_WIN categories.
+ * Sends go through a {@link NotificationOutbox}, so a publish interrupted midway
+ * can be resumed with {@link #resumePending} without notifying anyone twice.
+ * A draw's sends are queued held by {@link #prepareResults} before it is saved, and
+ * the save releases them (see {@link FirebaseManager#saveWaitingListChanges}).
  * Records Admin Logs for audit purposes.
  */
 public class LotteryResultNotifier {
 
     private final UserDataSource usersDs;
-    private final NotificationRepository notifRepo;
+    private final NotificationOutbox outbox;
     private final AdminLogRepository logRepo;
 
     public LotteryResultNotifier() {
-        this.notifRepo = new FirestoreNotificationRepository();
+        this.outbox = new FirestoreNotificationOutbox();
         this.usersDs = new FirestoreUsersDataSource();
         this.logRepo = new FirestoreAdminLogRepository();
     }
 
     public LotteryResultNotifier(@NonNull UserDataSource usersDs,
-                                 @NonNull NotificationRepository notifRepo,
+                                 @NonNull NotificationOutbox outbox,
                                  @NonNull AdminLogRepository logRepo) {
         this.usersDs = Objects.requireNonNull(usersDs);
-        this.notifRepo = Objects.requireNonNull(notifRepo);
+        this.outbox = Objects.requireNonNull(outbox);
         this.logRepo = Objects.requireNonNull(logRepo);
     }
 
+    /**
+     * @param drawId id of the draw that picked the winners, e.g. its seed; publishing
+     *               the same draw again resumes the earlier send instead of repeating it
+     */
     public Task<Void> notifyWinners(@NonNull String organizerId,
                                     @NonNull String eventId,
                                     @NonNull String eventTitle,
+                                    @NonNull String drawId,
                                     @NonNull List<String> winnerIds) {
-        String title = "Update for " + eventTitle;
-        String body  = "You have been selected to attend! Please choose to Accept or Decline this invitation.";
-
         Log.d("LotteryNotifier", "Preparing WIN notifications for " + winnerIds.size() + " users.");
 
-        return toTask(fanOutWin(organizerId, eventId, title, body, winnerIds));
+        return toTask(fanOut(winJob(organizerId, eventId, eventTitle, drawId, winnerIds)));
     }
 
     public Task<Void> notifyLosersFromPool(@NonNull String organizerId,
                                            @NonNull String eventId,
                                            @NonNull String eventTitle,
+                                           @NonNull String drawId,
                                            @NonNull List<String> allEntrantIds,
                                            @NonNull List<String> winnerIds) {
-        String title = "Update for " + eventTitle;
-        String body  = "You were not selected in the lottery this time. We will notify you if a spot opens up.";
+        OutboxJob job = loseJob(organizerId, eventId, eventTitle, drawId, allEntrantIds, winnerIds);
+
+        Log.d("LotteryNotifier", "Preparing LOSE notifications for " + job.getRecipientIds().size() + " users.");
 
-        Set<String> all = new HashSet<>(allEntrantIds);
-        all.removeAll(new HashSet<>(winnerIds));
-        List<String> losers = new ArrayList<>(all);
+        return toTask(fanOut(job));
+    }
 
-        Log.d("LotteryNotifier", "Preparing LOSE notifications for " + losers.size() + " users.");
+    /**
+     * Queues the WIN and LOSE sends of a draw, held, before the draw is saved. Pass
+     * the returned jobs to {@link FirebaseManager#saveWaitingListChanges} to release
+     * them with the draw, then publish as usual to send them.
+     *
+     * @return the stored jobs; a draw that was prepared before keeps its jobs as they are
+     */
+    public Task<List<OutboxJob>> prepareResults(@NonNull String organizerId,
+                                                @NonNull String eventId,
+                                                @NonNull String eventTitle,
+                                                @NonNull String drawId,
+                                                @NonNull List<String> allEntrantIds,
+                                                @NonNull List<String> winnerIds) {
+        return toTask(hold(winJob(organizerId, eventId, eventTitle, drawId, winnerIds),
+                loseJob(organizerId, eventId, eventTitle, drawId, allEntrantIds, winnerIds)));
+    }
 
-        return toTask(fanOutLose(organizerId, eventId, title, body, losers));
+    /** Like {@link #prepareResults} for a redraw, which only notifies its replacement winners. */
+    public Task<List<OutboxJob>> prepareReplacements(@NonNull String organizerId,
+                                                     @NonNull String eventId,
+                                                     @NonNull String eventTitle,
+                                                     @NonNull String drawId,
+                                                     @NonNull List<String> replacementIds) {
+        return toTask(hold(winJob(organizerId, eventId, eventTitle, drawId, replacementIds)));
     }
 
-    private CompletableFuture<Void> fanOutWin(String org, String evt, String title, String body, List<String> recipients) {
-        if (recipients.isEmpty()) return CompletableFuture.completedFuture(null);
+    /**
+     * Finishes sends of an organizer that were interrupted, e.g. because the app was
+     * closed during a publish. Call once the organizer is known.
+     */
+    public Task<Void> resumePending(@NonNull String organizerId) {
+        return toTask(outbox.pending(organizerId).thenCompose(jobs -> {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (OutboxJob job : jobs) {
+                Log.d("LotteryNotifier", "Resuming " + job.getId() + " at " + job.getDelivered()
+                        + " / " + job.getRecipientIds().size());
+                futures.add(send(job));
+            }
+            return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        }));
+    }
 
-        List<CompletableFuture<Void>> futures = new ArrayList<>();
+    /** @return delivered and total result notifications of an event, over every draw */
+    public Task<OutboxProgress> getProgress(@NonNull String eventId) {
+        return toTask(outbox.progress(eventId));
+    }
 
-        // 1. Send individual notifications
-        for (String uid : recipients) {
-            Notification n = new Notification(uid, evt, org, title, body, Notification.Category.LOTTERY_WIN);
-            futures.add(notifRepo.add(n));
-        }
+    private static OutboxJob winJob(String org, String evt, String eventTitle, String drawId,
+                                    List<String> winnerIds) {
+        String title = "Update for " + eventTitle;
+        String body  = "You have been selected to attend! Please choose to Accept or Decline this invitation.";
+        return new OutboxJob(org, evt, drawId, Notification.Category.LOTTERY_WIN, title, body, winnerIds);
+    }
 
-        // 2. Write ONE Admin Log entry for the batch
-        NotificationLog log = new NotificationLog(org, evt, Notification.Category.LOTTERY_WIN, recipients, body);
-        futures.add(logRepo.record(log));
+    private static OutboxJob loseJob(String org, String evt, String eventTitle, String drawId,
+                                     List<String> allEntrantIds, List<String> winnerIds) {
+        String title = "Update for " + eventTitle;
+        String body  = "You were not selected in the lottery this time. We will notify you if a spot opens up.";
 
-        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        // keep the entrants' order so the outbox job's chunks are the same on every publish
+        Set<String> winners = new HashSet<>(winnerIds);
+        Set<String> losers = new LinkedHashSet<>();
+        for (String uid : allEntrantIds) {
+            if (!winners.contains(uid)) losers.add(uid);
+        }
+        return new OutboxJob(org, evt, drawId, Notification.Category.LOTTERY_LOSE, title, body,
+                new ArrayList<>(losers));
     }
 
-    private CompletableFuture<Void> fanOutLose(String org, String evt, String title, String body, List<String> recipients) {
-        if (recipients.isEmpty()) return CompletableFuture.completedFuture(null);
+    private CompletableFuture<Void> fanOut(OutboxJob job) {
+        if (job.getRecipientIds().isEmpty()) return CompletableFuture.completedFuture(null);
 
-        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        return outbox.enqueue(job).thenCompose(this::send);
+    }
 
-        // 1. Send individual notifications
-        for (String uid : recipients) {
-            Notification n = new Notification(uid, evt, org, title, body, Notification.Category.LOTTERY_LOSE);
-            futures.add(notifRepo.add(n));
+    private CompletableFuture<List<OutboxJob>> hold(OutboxJob... jobs) {
+        List<CompletableFuture<OutboxJob>> stored = new ArrayList<>();
+        for (OutboxJob job : jobs) {
+            if (job.getRecipientIds().isEmpty()) continue;
+            job.hold();
+            stored.add(outbox.enqueue(job));
         }
+        return CompletableFuture.allOf(stored.toArray(new CompletableFuture[0])).thenApply(v -> {
+            List<OutboxJob> held = new ArrayList<>();
+            for (CompletableFuture<OutboxJob> f : stored) held.add(f.join());
+            return held;
+        });
+    }
 
-        // 2. Write ONE Admin Log entry for the batch
-        NotificationLog log = new NotificationLog(org, evt, Notification.Category.LOTTERY_LOSE, recipients, body);
-        futures.add(logRepo.record(log));
-
-        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    /**
+     * Drains a job, then records ONE Admin Log entry for it once everyone is notified.
+     * Fails with an {@link IncompleteSendException} if some chunks are still pending.
+     */
+    private CompletableFuture<Void> send(OutboxJob job) {
+        boolean wasComplete = job.isComplete();
+        return outbox.drain(job).thenCompose(done -> {
+            if (!done.isComplete()) {
+                throw new IncompleteSendException(OutboxProgress.of(Collections.singletonList(done)));
+            }
+            if (wasComplete) return CompletableFuture.completedFuture(null);
+            NotificationLog log = new NotificationLog(done.getOrganizerId(), done.getEventId(), done.getCategory(),
+                    done.getId(), done.getRecipientIds().size(), done.getBody());
+            return logRepo.record(log);
+        });
     }
 
     private static <T> Task<T> toTask(CompletableFuture<T> cf) {
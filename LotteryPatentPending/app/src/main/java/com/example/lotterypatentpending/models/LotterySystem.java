@@ -3,9 +3,19 @@ package com.example.lotterypatentpending.models;
 import androidx.core.util.Pair;
 
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
 
 /**
  * LotterySystem is the collection of functions used to randomly select certain entrants from a list of entrants.
@@ -16,6 +26,10 @@ import java.util.List;
 
 public class LotterySystem {
 
+    private static final Random RANDOM = new Random();
+    private static final SecureRandom SEED_SOURCE = new SecureRandom();
+    private static final Comparator<User> BY_ID = Comparator.comparing(User::getUserId);
+
     /**
      * Unified lottery:
      * - Picks winners from users whose state is ENTERED or NOT_SELECTED
@@ -26,42 +40,351 @@ public class LotterySystem {
      * Other states (ACCEPTED, DECLINED, CANCELED, etc.) are NOT touched.
      */
     public static void lotteryDraw(List<Pair<User, WaitingListState>> list, int numSlots) {
+        lotteryDraw(list, numSlots, RANDOM);
+    }
+
+    /**
+     * Same as {@link #lotteryDraw(List, int)} but draws from the given random source.
+     * <p>
+     * Candidate slots are collected into an {@code int[]} and only the first
+     * {@code numSlots} positions are shuffled (partial Fisher–Yates), which gives
+     * every candidate the same chance of winning as a full shuffle. Only entries
+     * whose state actually changes are rewritten.
+     * </p>
+     *
+     * @param list     waiting list entries, updated in place
+     * @param numSlots maximum number of new winners to select
+     * @param rnd      random source for the draw
+     */
+    public static void lotteryDraw(List<Pair<User, WaitingListState>> list, int numSlots, Random rnd) {
         if (list == null || numSlots <= 0) {
             return;
         }
 
-        // Indices of candidates: either ENTERED or NOT_SELECTED
-        List<Integer> candidateIndices = new ArrayList<>();
-        for (int i = 0; i < list.size(); i++) {
-            Pair<User, WaitingListState> entry = list.get(i);
-            WaitingListState state = entry.second;
-
-            if (state == WaitingListState.ENTERED ||
-                    state == WaitingListState.NOT_SELECTED) {
-                candidateIndices.add(i);
+        // Slots of candidates: either ENTERED or NOT_SELECTED
+        int size = list.size();
+        int[] candidates = new int[size];
+        int numCandidates = 0;
+        for (int i = 0; i < size; i++) {
+            if (isCandidate(list.get(i).second)) {
+                candidates[numCandidates++] = i;
             }
         }
 
-        if (candidateIndices.isEmpty()) {
+        if (numCandidates == 0) {
             return; // nobody eligible
         }
 
-        // Shuffle candidates
-        Collections.shuffle(candidateIndices);
-
         // Can't select more winners than candidates
-        int toSelect = Math.min(numSlots, candidateIndices.size());
+        int toSelect = Math.min(numSlots, numCandidates);
+        partialShuffle(candidates, numCandidates, toSelect, rnd);
 
         // First 'toSelect' become SELECTED, rest become NOT_SELECTED
-        for (int k = 0; k < candidateIndices.size(); k++) {
-            int idx = candidateIndices.get(k);
-            Pair<User, WaitingListState> oldPair = list.get(idx);
-
+        for (int k = 0; k < numCandidates; k++) {
             WaitingListState newState =
                     (k < toSelect) ? WaitingListState.SELECTED : WaitingListState.NOT_SELECTED;
+            setState(list, candidates[k], newState);
+        }
+    }
+
+    /**
+     * Pluggable draw strategy for the seeded lottery.
+     * <p>
+     * Strategies only choose winners; collecting candidates, hashing the pool,
+     * recording the draw and updating entrant states stays in {@link LotterySystem}.
+     * </p>
+     */
+    public interface DrawStrategy {
+        /** @return short name stored on the {@link DrawRecord}, e.g. "UNIFORM" */
+        String getName();
+
+        /**
+         * Chooses winners among the candidates.
+         *
+         * @param candidates eligible entrants, sorted by userId
+         * @param numSlots   number of winners to choose, between 1 and {@code candidates.length}
+         * @param rnd        random source seeded from the draw seed
+         * @return positions in {@code candidates} of the winners, in draw order, without duplicates
+         */
+        int[] pick(User[] candidates, int numSlots, SplittableRandom rnd);
+    }
+
+    /** Every candidate has the same chance of winning (partial Fisher–Yates). */
+    public static final DrawStrategy UNIFORM = new DrawStrategy() {
+        @Override
+        public String getName() {
+            return "UNIFORM";
+        }
+
+        @Override
+        public int[] pick(User[] candidates, int numSlots, SplittableRandom rnd) {
+            int n = candidates.length;
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            partialShuffle(order, n, numSlots, rnd);
+            return Arrays.copyOf(order, numSlots);
+        }
+    };
+
+    /**
+     * Reproducible lottery draw.
+     * <p>
+     * Candidates (ENTERED or NOT_SELECTED entrants with a user id) are put in
+     * userId order and drawn with a {@link SplittableRandom} seeded from
+     * {@code seed}, so the same seed and candidate set always yield the same
+     * winners regardless of list order. State changes are the same as
+     * {@link #lotteryDraw(List, int)}.
+     * </p>
+     *
+     * @param list     waiting list entries, updated in place
+     * @param numSlots maximum number of new winners to select
+     * @param seed     seed for the draw, e.g. from {@link #newSeed()}
+     * @return record of the draw, or null if {@code list} is null or {@code numSlots <= 0}
+     */
+    public static DrawRecord lotteryDraw(List<Pair<User, WaitingListState>> list, int numSlots, long seed) {
+        return lotteryDraw(list, numSlots, seed, UNIFORM);
+    }
+
+    /**
+     * Same as {@link #lotteryDraw(List, int, long)} but lets {@code strategy} choose the winners.
+     *
+     * @param list     waiting list entries, updated in place
+     * @param numSlots maximum number of new winners to select
+     * @param seed     seed for the draw, e.g. from {@link #newSeed()}
+     * @param strategy how winners are chosen, e.g. {@link #UNIFORM} or a {@link WeightedDrawStrategy}
+     * @return record of the draw, or null if {@code list} is null or {@code numSlots <= 0}
+     */
+    public static DrawRecord lotteryDraw(List<Pair<User, WaitingListState>> list, int numSlots,
+                                         long seed, DrawStrategy strategy) {
+        return draw(list, numSlots, seed, strategy, false);
+    }
+
+    /**
+     * Incremental redraw for slots freed by DECLINED or CANCELED entrants.
+     * <p>
+     * The pool is the same as a full draw's: NOT_SELECTED entrants, plus ENTERED
+     * ones who joined after the last draw. Only the winners are rewritten (to
+     * SELECTED); everyone else keeps their state, so a late joiner who loses stays
+     * ENTERED. The returned record's winners are therefore exactly the entries that
+     * changed, so callers can persist and notify O(replacements) instead of O(pool).
+     * The record verifies against the pool's ids at draw time.
+     * </p>
+     *
+     * @param list     waiting list entries, updated in place
+     * @param numSlots number of replacement slots to fill
+     * @param seed     seed for the draw
+     * @param strategy how winners are chosen
+     * @return record of the redraw, or null if {@code list} is null or {@code numSlots <= 0}
+     */
+    public static DrawRecord redraw(List<Pair<User, WaitingListState>> list, int numSlots,
+                                    long seed, DrawStrategy strategy) {
+        return draw(list, numSlots, seed, strategy, true);
+    }
+
+    private static DrawRecord draw(List<Pair<User, WaitingListState>> list, int numSlots, long seed,
+                                   DrawStrategy strategy, boolean replacementsOnly) {
+        if (list == null || numSlots <= 0) {
+            return null;
+        }
+
+        int size = list.size();
+        User[] candidates = new User[size];
+        int numCandidates = 0;
+        for (int i = 0; i < size; i++) {
+            Pair<User, WaitingListState> entry = list.get(i);
+            if (inPool(entry)) {
+                candidates[numCandidates++] = entry.first;
+            }
+        }
+        candidates = Arrays.copyOf(candidates, numCandidates);
+        Arrays.sort(candidates, BY_ID);
+
+        String[] ids = idsOf(candidates);
+        List<String> winners = drawSorted(candidates, numSlots, seed, strategy);
+        DrawRecord record = new DrawRecord(seed, candidateHash(ids), numCandidates, numSlots, winners);
+        record.setStrategy(strategy.getName());
+        if (numCandidates == 0) {
+            return record; // nobody eligible
+        }
+
+        Set<String> winnerSet = new HashSet<>(winners);
+        for (int i = 0; i < size; i++) {
+            Pair<User, WaitingListState> entry = list.get(i);
+            if (!inPool(entry)) {
+                continue;
+            }
+            boolean won = winnerSet.contains(entry.first.getUserId());
+            if (won) {
+                setState(list, i, WaitingListState.SELECTED);
+            } else if (!replacementsOnly) {
+                setState(list, i, WaitingListState.NOT_SELECTED);
+            }
+        }
+        return record;
+    }
+
+    private static boolean inPool(Pair<User, WaitingListState> entry) {
+        return isCandidate(entry.second) && entry.first != null && entry.first.getUserId() != null;
+    }
+
+    /**
+     * Replays a draw from its inputs without touching any waiting list.
+     *
+     * @param seed         seed of the original draw
+     * @param candidateIds ids of the entrants that were in the pool, in any order
+     * @param numSlots     number of slots that were drawn
+     * @return the winners in draw order
+     */
+    public static List<String> replayDraw(long seed, Collection<String> candidateIds, int numSlots) {
+        return replayDraw(seed, toUsers(candidateIds), numSlots, UNIFORM);
+    }
+
+    /**
+     * Replays a draw made with {@code strategy}. Weighted and stratified strategies
+     * need the same user data (weights, groups) as at draw time.
+     *
+     * @param seed       seed of the original draw
+     * @param candidates entrants that were in the pool, in any order
+     * @param numSlots   number of slots that were drawn
+     * @param strategy   strategy of the original draw
+     * @return the winners in draw order
+     */
+    public static List<String> replayDraw(long seed, User[] candidates, int numSlots, DrawStrategy strategy) {
+        User[] sorted = candidates.clone();
+        Arrays.sort(sorted, BY_ID);
+        return drawSorted(sorted, numSlots, seed, strategy);
+    }
 
+    /**
+     * Checks a stored draw against the candidate pool it claims to be drawn from.
+     *
+     * @param record       stored record of the draw
+     * @param candidateIds ids of the entrants that were in the pool, in any order
+     * @return true if the pool matches the record's hash and replaying the seed gives the same winners
+     */
+    public static boolean verifyDraw(DrawRecord record, Collection<String> candidateIds) {
+        if (candidateIds == null) {
+            return false;
+        }
+        return verifyDraw(record, toUsers(candidateIds), UNIFORM);
+    }
+
+    /**
+     * Checks a stored draw made with {@code strategy}.
+     *
+     * @param record     stored record of the draw
+     * @param candidates entrants that were in the pool, in any order
+     * @param strategy   strategy the draw claims to use
+     * @return true if the strategy and pool match the record and replaying gives the same winners
+     */
+    public static boolean verifyDraw(DrawRecord record, User[] candidates, DrawStrategy strategy) {
+        if (record == null || candidates == null || strategy == null) {
+            return false;
+        }
+        if (record.getStrategy() != null && !record.getStrategy().equals(strategy.getName())) {
+            return false;
+        }
+        User[] sorted = candidates.clone();
+        Arrays.sort(sorted, BY_ID);
+        return candidateHash(idsOf(sorted)).equals(record.getCandidateHash())
+                && drawSorted(sorted, record.getNumSlots(), record.getSeed(), strategy)
+                        .equals(record.getWinnerIds());
+    }
+
+    /** @return a fresh draw seed from a cryptographically strong source */
+    public static long newSeed() {
+        return SEED_SOURCE.nextLong();
+    }
+
+    /**
+     * SHA-256 over the sorted candidate ids, one per line, as lowercase hex.
+     */
+    static String candidateHash(String[] sortedIds) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        for (String id : sortedIds) {
+            md.update(id.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) '\n');
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : md.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static List<String> drawSorted(User[] sorted, int numSlots, long seed, DrawStrategy strategy) {
+        int toSelect = Math.max(0, Math.min(numSlots, sorted.length));
+        if (toSelect == 0) {
+            return new ArrayList<>();
+        }
+        int[] picked = strategy.pick(sorted, toSelect, new SplittableRandom(seed));
+
+        List<String> winners = new ArrayList<>(picked.length);
+        for (int pos : picked) {
+            winners.add(sorted[pos].getUserId());
+        }
+        return winners;
+    }
+
+    private static String[] idsOf(User[] users) {
+        String[] ids = new String[users.length];
+        for (int i = 0; i < users.length; i++) {
+            ids[i] = users[i].getUserId();
+        }
+        return ids;
+    }
+
+    private static User[] toUsers(Collection<String> ids) {
+        User[] users = new User[ids.size()];
+        int i = 0;
+        for (String id : ids) {
+            User u = new User();
+            u.setUserId(id);
+            users[i++] = u;
+        }
+        return users;
+    }
+
+    /** @return true if an entrant in {@code state} can be drawn */
+    static boolean isCandidate(WaitingListState state) {
+        return state == WaitingListState.ENTERED || state == WaitingListState.NOT_SELECTED;
+    }
+
+    /**
+     * Moves a uniformly random {@code k}-subset of {@code buf[0..n)} into {@code buf[0..k)}
+     * using {@code k} Fisher–Yates swaps.
+     */
+    static void partialShuffle(int[] buf, int n, int k, Random rnd) {
+        for (int i = 0; i < k; i++) {
+            int j = i + rnd.nextInt(n - i);
+            int tmp = buf[i];
+            buf[i] = buf[j];
+            buf[j] = tmp;
+        }
+    }
+
+    /** {@link SplittableRandom} variant of {@link #partialShuffle(int[], int, int, Random)}. */
+    static void partialShuffle(int[] buf, int n, int k, SplittableRandom rnd) {
+        for (int i = 0; i < k; i++) {
+            int j = i + rnd.nextInt(n - i);
+            int tmp = buf[i];
+            buf[i] = buf[j];
+            buf[j] = tmp;
+        }
+    }
 
-            list.set(idx, new Pair<>(oldPair.first, newState));
+    /** Replaces the entry at {@code idx} only if its state differs from {@code state}. */
+    static void setState(List<Pair<User, WaitingListState>> list, int idx, WaitingListState state) {
+        Pair<User, WaitingListState> old = list.get(idx);
+        if (old.second != state) {
+            list.set(idx, new Pair<>(old.first, state));
         }
     }
 }
@@ -5,10 +5,13 @@ import android.os.Parcelable;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import com.google.firebase.firestore.DocumentId;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.IgnoreExtraProperties;
 import com.google.firebase.firestore.ServerTimestamp;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @IgnoreExtraProperties
 public class Notification implements Parcelable {
@@ -23,6 +26,7 @@ public class Notification implements Parcelable {
     private String body = "";
     private String status= "";
     private Category category = Category.WAITLIST;
+    @Nullable private String templateId; // text lives in notificationTemplates/{templateId}
 
     // Not serialized to prevent crashes
     private List<RecipientRef> recipients;
@@ -51,6 +55,32 @@ public class Notification implements Parcelable {
     public String getStatus(){ return status; } public void setStatus(@NonNull String status) { this.status = status;}
     public List<RecipientRef> getRecipients() { return recipients;} public void setRecipients(List<RecipientRef> recipients) { this.recipients = recipients;}
     public Date getCreatedAt(){ return createdAt; } public void setCreatedAt(Date d){ this.createdAt=d; }
+    @Nullable public String getTemplateId(){ return templateId; } public void setTemplateId(@Nullable String t){ this.templateId=t; }
+
+    // --- Templates ---
+
+    /**
+     * Fields stored for one recipient of a templated send; everything else is read
+     * from the template. Replaces the full document {@code set(n)} would write.
+     * Only {@code read} (ascending) and {@code createdAt} are indexed; the other
+     * fields are exempted in {@code firestore.indexes.json} since nothing queries them.
+     */
+    public Map<String, Object> toTemplatedMap(){
+        Map<String, Object> m = new HashMap<>();
+        m.put("templateId", templateId);
+        m.put("read", read);
+        m.put("createdAt", createdAt == null ? FieldValue.serverTimestamp() : createdAt);
+        return m;
+    }
+
+    /** @return true if this notification's text still has to be filled in from its template */
+    public boolean needsTemplate(){ return templateId != null && (title == null || title.isEmpty()) && (body == null || body.isEmpty()); }
+
+    /** Copies the shared fields of {@code t} into this notification. */
+    public void applyTemplate(@NonNull NotificationTemplate t){
+        eventId = t.getEventId(); senderId = t.getSenderId(); category = t.getCategory();
+        title = t.getTitle(); body = t.getBody();
+    }
 
     // --- Parcelable ---
     protected Notification(Parcel in){
@@ -62,12 +92,14 @@ public class Notification implements Parcelable {
             category = Category.WAITLIST;
         }
         read=in.readByte()!=0; long ts=in.readLong(); createdAt=(ts==-1)?null:new Date(ts);
+        templateId=in.readString();
     }
 
     @Override public void writeToParcel(Parcel dest,int flags){
         dest.writeString(id); dest.writeString(userId); dest.writeString(eventId); dest.writeString(senderId);
         dest.writeString(title); dest.writeString(body); dest.writeString(category.name());
         dest.writeByte((byte)(read?1:0)); dest.writeLong(createdAt==null?-1:createdAt.getTime());
+        dest.writeString(templateId);
     }
 
     @Override public int describeContents(){ return 0; }
@@ -17,7 +17,9 @@ import java.util.*;
  *   <li><b>organizerId</b> - sender uid</li>
  *   <li><b>eventId</b> - event in context</li>
  *   <li><b>category</b> - semantic bucket (WAITLIST, SELECTED, CHOSEN_SIGNUP, etc.)</li>
- *   <li><b>recipientIds</b> - final opted-in recipients</li>
+ *   <li><b>recipientIds</b> - final opted-in recipients; empty for templated sends</li>
+ *   <li><b>templateId</b> - template holding the message of a templated send</li>
+ *   <li><b>recipientCount</b> - number of recipients</li>
  *   <li><b>payloadPreview</b> - first 100 chars of message body</li>
  *   <li><b>createdAt</b> - server timestamp for sorting</li>
  * </ul>
@@ -34,6 +36,8 @@ public class NotificationLog implements Parcelable {
     private String eventId = "";
     private Category category = Category.WAITLIST;
     private List<String> recipientIds = new ArrayList<>();
+    private String templateId;
+    private int recipientCount;
     private String payloadPreview = "";
     @ServerTimestamp private Date createdAt;
     /** No-arg constructor for Firestore deserialization. */
@@ -49,6 +53,22 @@ public class NotificationLog implements Parcelable {
      */
     public NotificationLog(String org,String evt,Category cat,List<String> rec,String preview){
         this.organizerId=org; this.eventId=evt; this.category=cat; this.recipientIds=rec; this.payloadPreview=preview;
+        this.recipientCount = rec == null ? 0 : rec.size();
+    }
+
+    /**
+     * Constructs the log of a templated send. Recipients are only counted: each of them
+     * holds a notification referencing the template, so the list isn't stored again.
+     * @param org Organizer's user ID.
+     * @param evt Event ID.
+     * @param cat Notification category.
+     * @param templateId ID of the {@link NotificationTemplate} that was sent.
+     * @param recipientCount Number of users it was sent to.
+     * @param preview A short preview of the notification content.
+     */
+    public NotificationLog(String org,String evt,Category cat,String templateId,int recipientCount,String preview){
+        this.organizerId=org; this.eventId=evt; this.category=cat; this.templateId=templateId;
+        this.recipientCount=recipientCount; this.payloadPreview=preview;
     }
     // getters/setters
     public String getOrganizerId() { return organizerId; }
@@ -63,6 +83,15 @@ public class NotificationLog implements Parcelable {
     public List<String> getRecipientIds() { return recipientIds; }
     public void setRecipientIds(List<String> recipientIds) { this.recipientIds = recipientIds; }
 
+    public String getTemplateId() { return templateId; }
+    public void setTemplateId(String templateId) { this.templateId = templateId; }
+
+    /** Number of recipients; logs written before it was stored fall back to the id list. */
+    public int getRecipientCount() {
+        return recipientCount == 0 && recipientIds != null ? recipientIds.size() : recipientCount;
+    }
+    public void setRecipientCount(int recipientCount) { this.recipientCount = recipientCount; }
+
     public String getPayloadPreview() { return payloadPreview; }
     public void setPayloadPreview(String payloadPreview) { this.payloadPreview = payloadPreview; }
 
@@ -76,6 +105,7 @@ public class NotificationLog implements Parcelable {
         organizerId=in.readString(); eventId=in.readString(); category=Category.valueOf(in.readString());
         recipientIds=in.createStringArrayList(); payloadPreview=in.readString();
         long ts=in.readLong(); createdAt=(ts==-1)?null:new Date(ts);
+        templateId=in.readString(); recipientCount=in.readInt();
     }
     /**
      * Flattens this object into a Parcel.
@@ -84,6 +114,7 @@ public class NotificationLog implements Parcelable {
         dest.writeString(organizerId); dest.writeString(eventId); dest.writeString(category.name());
         dest.writeStringList(recipientIds); dest.writeString(payloadPreview);
         dest.writeLong(createdAt==null?-1:createdAt.getTime());
+        dest.writeString(templateId); dest.writeInt(recipientCount);
     }
     /**
      * CREATOR for generating instances of this class from a Parcel.
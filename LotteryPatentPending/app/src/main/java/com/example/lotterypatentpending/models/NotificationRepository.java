@@ -1,6 +1,8 @@
 package com.example.lotterypatentpending.models;
 
 import com.google.firebase.firestore.ListenerRegistration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -14,6 +16,12 @@ import java.util.concurrent.CompletableFuture;
  * @maintainer Moffat
  */
 public interface NotificationRepository {
+    /**
+     * Notifications per transaction in {@link #markRead(String, Collection)}. A
+     * transaction reads its documents one at a time, so this is far below a batch.
+     */
+    int MARK_READ_CHUNK_SIZE = 50;
+
     /**
      * Persist a new notification under {@code n.getUserId()}.
      * @return future that completes when the write is committed
@@ -21,12 +29,67 @@ public interface NotificationRepository {
     CompletableFuture<Void> add(Notification n);
 
     /**
-     * Mark an existing notification as read.
+     * Persist many notifications, each under its own {@code getUserId()}.
+     * The default sends one {@link #add} per notification, a few at a time;
+     * implementations should batch the writes.
+     * @return future that completes with which recipients were written; it does
+     * not fail when some of them weren't
+     */
+    default CompletableFuture<BulkWriteResult> addAll(List<Notification> notifications) {
+        return ChunkedWriter.write(notifications, 1, ChunkedWriter.DEFAULT_MAX_IN_FLIGHT,
+                Notification::getUserId, chunk -> add(chunk.get(0)));
+    }
+
+    /**
+     * Send the same message to many users. Implementations store the text once as
+     * a {@link NotificationTemplate} and give each recipient a notification that only
+     * references it; the default stores the full text per recipient.
+     * @param template shared text; implementations may assign its id
+     * @return future that completes with which recipients were written
+     */
+    default CompletableFuture<BulkWriteResult> sendTemplated(NotificationTemplate template,
+                                                             List<String> recipientIds) {
+        List<Notification> notifications = new ArrayList<>(recipientIds.size());
+        for (String uid : recipientIds) {
+            Notification n = template.notificationFor(uid);
+            n.setTemplateId(null);
+            notifications.add(n);
+        }
+        return addAll(notifications);
+    }
+
+    /**
+     * Mark an existing notification as read. The unread counter is only decremented
+     * if the notification was unread, so marking one twice counts it once.
      * @param userId owner of the notifications subcollection
      * @param notificationId Firestore document id
      */
     CompletableFuture<Void> markRead(String userId, String notificationId);
 
+    /**
+     * Mark several notifications of one user as read. The default marks them one
+     * at a time; implementations should batch the writes.
+     * @return future that completes with which ids were updated
+     */
+    default CompletableFuture<BulkWriteResult> markRead(String userId, Collection<String> notificationIds) {
+        return ChunkedWriter.write(new ArrayList<>(notificationIds), 1, ChunkedWriter.DEFAULT_MAX_IN_FLIGHT,
+                id -> id, chunk -> markRead(userId, chunk.get(0)));
+    }
+
+    /**
+     * Mark every unread notification of a user as read.
+     * @return future that completes with the number of notifications marked
+     */
+    default CompletableFuture<Integer> markAllRead(String userId) {
+        return getForUser(userId).thenCompose(all -> {
+            List<String> unread = new ArrayList<>();
+            for (Notification n : all) {
+                if (!n.isRead() && n.getId() != null) unread.add(n.getId());
+            }
+            return markRead(userId, unread);
+        }).thenApply(r -> r.getSucceeded().size());
+    }
+
     /**
      * Fetch all notifications for a user, newest first.
      */
@@ -36,6 +99,21 @@ public interface NotificationRepository {
      */
     CompletableFuture<String> createForUser(String userId, Notification notification);
 
+    /**
+     * Recount a user's unread notifications and repair their stored unread counter
+     * if it drifted. The default only recounts.
+     * @return future with the number of unread notifications
+     */
+    default CompletableFuture<Integer> reconcileUnreadCount(String userId) {
+        return getForUser(userId).thenApply(all -> {
+            int unread = 0;
+            for (Notification n : all) {
+                if (!n.isRead()) unread++;
+            }
+            return unread;
+        });
+    }
+
     /**
      * Observe unread count for a user. Call {@link ListenerRegistration#remove()}
      * when the screen is stopped.
@@ -47,8 +125,48 @@ public interface NotificationRepository {
         void onChanged(List<Notification> notifications);
         void onError(Exception e);
     }
+    /**
+     * Observe a user's whole notification history. Every change delivers the full
+     * list again; prefer {@link #listenUserNotifications(String, int, NotificationsListener)}
+     * for inbox screens.
+     */
     ListenerRegistration listenUserNotifications(String userId,
                                                  NotificationsListener listener);
+
+    /**
+     * A live, paged view of a user's inbox. Only the newest page is listened to;
+     * older pages are read once with {@link #loadMore()}. Call {@link #remove()}
+     * when the screen is stopped.
+     */
+    interface InboxWindow extends ListenerRegistration {
+        /**
+         * Loads the next page of older notifications; calls while a page is loading
+         * share it.
+         * @return future with whether there are more pages after this one
+         */
+        CompletableFuture<Boolean> loadMore();
+
+        /** @return false once the oldest notification is loaded */
+        boolean hasMore();
+    }
+
+    /**
+     * Observe the newest {@code pageSize} notifications of a user, newest first, and
+     * page in older ones on demand. The listener gets the whole loaded list after each
+     * change, rebuilt from per-document changes; unchanged notifications keep their
+     * instances. The default listens to the full history and has no more pages.
+     */
+    default InboxWindow listenUserNotifications(String userId, int pageSize,
+                                                NotificationsListener listener) {
+        ListenerRegistration reg = listenUserNotifications(userId, listener);
+        return new InboxWindow() {
+            @Override public CompletableFuture<Boolean> loadMore() {
+                return CompletableFuture.completedFuture(false);
+            }
+            @Override public boolean hasMore() { return false; }
+            @Override public void remove() { reg.remove(); }
+        };
+    }
     interface UnreadCountListener {
         void onChanged(long count);
     }
@@ -0,0 +1,68 @@
+package com.example.lotterypatentpending.models;
+
+import com.google.firebase.firestore.ServerTimestamp;
+
+import java.util.Date;
+
+/**
+ * Shared text of one send, stored once in {@code notificationTemplates/{templateId}}.
+ * <p>
+ * Every recipient's notification only holds {@code templateId}, {@code read} and
+ * {@code createdAt} (see {@link Notification#toTemplatedMap()}); title, body, sender,
+ * event and category come from here and are filled in on the device with
+ * {@link Notification#applyTemplate}. Templates never change once written, so
+ * they can be cached for as long as the app runs.
+ * </p>
+ */
+public class NotificationTemplate {
+    public static final String COLLECTION = "notificationTemplates";
+
+    private String id;
+    private String eventId = "";
+    private String senderId = "";
+    private Notification.Category category = Notification.Category.WAITLIST;
+    private String title = "";
+    private String body = "";
+    @ServerTimestamp private Date createdAt;
+
+    /** Required for Firestore deserialization. */
+    public NotificationTemplate() {}
+
+    public NotificationTemplate(String id, String eventId, String senderId, Notification.Category category,
+                                String title, String body) {
+        this.id = id;
+        this.eventId = eventId;
+        this.senderId = senderId;
+        this.category = category;
+        this.title = title;
+        this.body = body;
+    }
+
+    /** @return the notification {@code userId} gets from this send */
+    public Notification notificationFor(String userId) {
+        Notification n = new Notification(userId, eventId, senderId, title, body, category);
+        n.setTemplateId(id);
+        return n;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getEventId() { return eventId; }
+    public void setEventId(String eventId) { this.eventId = eventId; }
+
+    public String getSenderId() { return senderId; }
+    public void setSenderId(String senderId) { this.senderId = senderId; }
+
+    public Notification.Category getCategory() { return category; }
+    public void setCategory(Notification.Category category) { this.category = category; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getBody() { return body; }
+    public void setBody(String body) { this.body = body; }
+
+    public Date getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,198 @@
+package com.example.lotterypatentpending.models;
+
+import com.google.firebase.firestore.Exclude;
+import com.google.firebase.firestore.ServerTimestamp;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * One pending send in the notification outbox, stored in {@code outbox/{jobId}}.
+ * <p>
+ * The job is written before any notification goes out and holds everything needed
+ * to finish the send after a crash: the message, the recipients in a fixed order
+ * and which chunks of them were already delivered. A chunk is delivered in the same
+ * transaction that marks it done, so a resumed drain only sends what is left, and
+ * {@link #getRemainingChunks()} counts down to 0 so unfinished jobs can be queried.
+ * </p>
+ * <p>
+ * Every notification gets the id {@link #keyFor}, built from the event, draw,
+ * category and recipient, so even two devices draining the same job write the same
+ * documents instead of notifying anyone twice. Recipients only store a reference to
+ * the job's {@link NotificationTemplate}, which has the same id as the job.
+ * </p>
+ * <p>
+ * A draw's jobs are stored {@link #hold held} before the draw is saved and
+ * {@link #release released} in the same write as its draw record, so a saved draw
+ * always has its sends queued and a draw that failed to save never sends anything.
+ * </p>
+ */
+public class OutboxJob {
+    /**
+     * Notifications per chunk. Each one also bumps its recipient's unread counter,
+     * and two more writes mark the chunk done: its marker and the job's progress.
+     */
+    public static final int CHUNK_SIZE = (ChunkedWriter.MAX_BATCH_OPS - 2) / 2;
+    /** Chunk size of jobs stored before unread counters, which have no room for them. */
+    public static final int LEGACY_CHUNK_SIZE = ChunkedWriter.MAX_BATCH_OPS - 1;
+
+    private String id;
+    private String eventId;
+    private String organizerId;
+    private String drawId;
+    private Notification.Category category = Notification.Category.WAITLIST;
+    private String title = "";
+    private String body = "";
+    private List<String> recipientIds = new ArrayList<>();
+    private List<Long> doneChunks = new ArrayList<>();
+    private int chunkSize;
+    private int remainingChunks;
+    private boolean held;
+    @ServerTimestamp private Date createdAt;
+
+    /** Required for Firestore deserialization. */
+    public OutboxJob() {}
+
+    public OutboxJob(String organizerId, String eventId, String drawId, Notification.Category category,
+                     String title, String body, List<String> recipientIds) {
+        this.id = eventId + "_" + drawId + "_" + category.name();
+        this.organizerId = organizerId;
+        this.eventId = eventId;
+        this.drawId = drawId;
+        this.category = category;
+        this.title = title;
+        this.body = body;
+        this.recipientIds = new ArrayList<>(recipientIds);
+        this.chunkSize = CHUNK_SIZE;
+        this.remainingChunks = getChunkCount();
+    }
+
+    /**
+     * Idempotency key of one notification, used as its document id.
+     *
+     * @return {@code eventId_drawId_CATEGORY_userId}
+     */
+    public static String keyFor(String eventId, String drawId, Notification.Category category, String userId) {
+        return eventId + "_" + drawId + "_" + category.name() + "_" + userId;
+    }
+
+    /** @return the shared text of this job; its id is the job id */
+    public NotificationTemplate toTemplate() {
+        return new NotificationTemplate(id, eventId, organizerId, category, title, body);
+    }
+
+    /** @return the notification {@code userId} gets from this job, with its idempotency key as id */
+    public Notification notificationFor(String userId) {
+        Notification n = toTemplate().notificationFor(userId);
+        n.setId(keyFor(eventId, drawId, category, userId));
+        return n;
+    }
+
+    @Exclude
+    public int getChunkCount() {
+        return (recipientIds.size() + getChunkSize() - 1) / getChunkSize();
+    }
+
+    /** @return recipients of chunk {@code i}, in stored order */
+    public List<String> chunk(int i) {
+        int size = getChunkSize();
+        return recipientIds.subList(i * size, Math.min((i + 1) * size, recipientIds.size()));
+    }
+
+    /** @return true if a chunk's batch has room to bump each recipient's unread counter */
+    @Exclude
+    public boolean isCountingUnread() {
+        return getChunkSize() <= CHUNK_SIZE;
+    }
+
+    public boolean isChunkDone(int i) {
+        return doneChunks.contains((long) i);
+    }
+
+    /** @return chunks still to deliver, in order */
+    @Exclude
+    public List<Integer> getPendingChunks() {
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < getChunkCount(); i++) {
+            if (!isChunkDone(i)) pending.add(i);
+        }
+        return pending;
+    }
+
+    /** @return recipients whose notification was written */
+    @Exclude
+    public int getDelivered() {
+        int n = 0;
+        for (int i = 0; i < getChunkCount(); i++) {
+            if (isChunkDone(i)) n += chunk(i).size();
+        }
+        return n;
+    }
+
+    /**
+     * Keeps the job from being sent until {@link #release}d; it isn't {@code pending}
+     * and draining it does nothing meanwhile.
+     */
+    public void hold() {
+        held = true;
+        remainingChunks = 0;
+    }
+
+    /** Lets a held job be sent, e.g. once the draw it announces is saved. */
+    public void release() {
+        held = false;
+        remainingChunks = getPendingChunks().size();
+    }
+
+    @Exclude
+    public boolean isComplete() {
+        return getDelivered() == recipientIds.size();
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getEventId() { return eventId; }
+    public void setEventId(String eventId) { this.eventId = eventId; }
+
+    public String getOrganizerId() { return organizerId; }
+    public void setOrganizerId(String organizerId) { this.organizerId = organizerId; }
+
+    public String getDrawId() { return drawId; }
+    public void setDrawId(String drawId) { this.drawId = drawId; }
+
+    public Notification.Category getCategory() { return category; }
+    public void setCategory(Notification.Category category) { this.category = category; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getBody() { return body; }
+    public void setBody(String body) { this.body = body; }
+
+    public List<String> getRecipientIds() { return recipientIds; }
+    public void setRecipientIds(List<String> recipientIds) { this.recipientIds = recipientIds; }
+
+    /** Firestore returns numbers as longs, so chunk indexes are stored as longs. */
+    public List<Long> getDoneChunks() { return doneChunks; }
+    public void setDoneChunks(List<Long> doneChunks) { this.doneChunks = doneChunks != null ? doneChunks : new ArrayList<>(); }
+
+    /** Chunk size the job was created with; stored so chunk indexes keep their meaning. */
+    public int getChunkSize() { return chunkSize > 0 ? chunkSize : LEGACY_CHUNK_SIZE; }
+    public void setChunkSize(int chunkSize) { this.chunkSize = chunkSize; }
+
+    /**
+     * Chunks not delivered yet, decremented as each one is. Jobs stored before this
+     * field have 0, so they are never {@code pending}, but can still be drained.
+     */
+    public int getRemainingChunks() { return remainingChunks; }
+    public void setRemainingChunks(int remainingChunks) { this.remainingChunks = remainingChunks; }
+
+    /** True while the draw this job announces isn't saved yet. */
+    public boolean isHeld() { return held; }
+    public void setHeld(boolean held) { this.held = held; }
+
+    public Date getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
+}
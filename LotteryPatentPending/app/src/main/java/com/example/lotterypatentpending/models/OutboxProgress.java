@@ -0,0 +1,46 @@
+package com.example.lotterypatentpending.models;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Delivery progress of an event's outbox jobs, e.g. "7,412 / 10,000 delivered".
+ */
+public final class OutboxProgress {
+    private final int delivered;
+    private final int total;
+
+    public OutboxProgress(int delivered, int total) {
+        this.delivered = delivered;
+        this.total = total;
+    }
+
+    /** @return progress summed over {@code jobs}, leaving out held ones */
+    public static OutboxProgress of(Collection<OutboxJob> jobs) {
+        int delivered = 0;
+        int total = 0;
+        for (OutboxJob job : jobs) {
+            if (job.isHeld()) continue;
+            delivered += job.getDelivered();
+            total += job.getRecipientIds().size();
+        }
+        return new OutboxProgress(delivered, total);
+    }
+
+    public int getDelivered() {
+        return delivered;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public boolean isComplete() {
+        return delivered == total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.getDefault(), "%,d / %,d delivered", delivered, total);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.lotterypatentpending.models;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Stratified lottery draw: reserves a quota of slots per group.
+ * <p>
+ * Candidates are grouped by {@code groupOf} (a tag, program, age band...).
+ * Each group with a quota gets up to that many winners drawn uniformly from its
+ * own members, visiting groups in name order. Slots left over, because quotas
+ * don't add up to {@code numSlots} or a group is too small, go to a uniform draw
+ * over everyone not yet picked. Runs in O(n).
+ * </p>
+ */
+public class StratifiedDrawStrategy implements LotterySystem.DrawStrategy {
+
+    private final Function<User, String> groupOf;
+    private final TreeMap<String, Integer> quotas;
+
+    /**
+     * @param groupOf group of each candidate; null means the candidate only competes for leftover slots
+     * @param quotas  reserved slots per group name
+     */
+    public StratifiedDrawStrategy(Function<User, String> groupOf, Map<String, Integer> quotas) {
+        this.groupOf = groupOf;
+        this.quotas = new TreeMap<>(quotas);
+    }
+
+    @Override
+    public String getName() {
+        return "STRATIFIED";
+    }
+
+    @Override
+    public int[] pick(User[] candidates, int numSlots, SplittableRandom rnd) {
+        int n = candidates.length;
+
+        // bucket candidate positions by group, keeping userId order inside each bucket
+        Map<String, int[]> buckets = new HashMap<>();
+        Map<String, Integer> bucketSizes = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            String group = groupOf.apply(candidates[i]);
+            if (group == null || !quotas.containsKey(group)) continue;
+            int[] bucket = buckets.get(group);
+            int size = bucketSizes.getOrDefault(group, 0);
+            if (bucket == null) {
+                bucket = new int[8];
+            } else if (size == bucket.length) {
+                bucket = Arrays.copyOf(bucket, size * 2);
+            }
+            bucket[size] = i;
+            buckets.put(group, bucket);
+            bucketSizes.put(group, size + 1);
+        }
+
+        int[] winners = new int[numSlots];
+        boolean[] taken = new boolean[n];
+        int picked = 0;
+        for (Map.Entry<String, Integer> quota : quotas.entrySet()) {
+            int[] bucket = buckets.get(quota.getKey());
+            if (bucket == null) continue;
+            int size = bucketSizes.get(quota.getKey());
+            int k = Math.min(Math.min(quota.getValue(), size), numSlots - picked);
+            if (k <= 0) continue;
+            LotterySystem.partialShuffle(bucket, size, k, rnd);
+            for (int j = 0; j < k; j++) {
+                winners[picked++] = bucket[j];
+                taken[bucket[j]] = true;
+            }
+        }
+
+        if (picked < numSlots) {
+            int[] rest = new int[n - picked];
+            int size = 0;
+            for (int i = 0; i < n; i++) {
+                if (!taken[i]) rest[size++] = i;
+            }
+            int k = numSlots - picked;
+            LotterySystem.partialShuffle(rest, size, k, rnd);
+            System.arraycopy(rest, 0, winners, picked, k);
+        }
+        return winners;
+    }
+}
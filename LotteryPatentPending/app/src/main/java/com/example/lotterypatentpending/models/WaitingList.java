@@ -6,17 +6,41 @@ import com.example.lotterypatentpending.exceptions.UserInListException;
 import com.example.lotterypatentpending.exceptions.UserNotInListException;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 /**
  * This class represents a waiting list for an event that entrants can join.
+ * <p>
+ * Entries are kept in an indexed list: a userId → slot hash index, per-state
+ * counters and per-state membership sets are updated on every mutation, so
+ * membership checks, state lookups and state counts are O(1) regardless of
+ * how many entrants the event has.
+ * </p>
+ * <p>
+ * The list also tracks which entrants changed since it was last persisted
+ * ({@link #getDirtyEntries()}), so saves can write only those entries.
+ * </p>
  *
  * @author Michael Gao
  * @maintainer Michael Gao
  */
 public class WaitingList {
-    private ArrayList<Pair<User, WaitingListState>> list = new ArrayList<>();
+    private EntryList list = new EntryList();
     private int capacity = -1;
+    /** counts as of the last {@link #markClean()}, for {@link #getCountChanges()} */
+    private WaitingListCounts baseline = new WaitingListCounts();
 
     /**
      * list is initialized at the attribute level, for Firebase safety purposes
@@ -35,20 +59,15 @@ public class WaitingList {
 
     /**
      * Adds an entrant to the waiting list, only if the entrant is not already in the list.
+     * A full list ignores the call: this copy may be stale, and the cap is enforced
+     * by the join transaction, so use {@link #checkEntrant} to see if it was added.
      * @param entrant
      */
     public void addEntrant(User entrant) {
-        boolean exists = false;
         if(list.size() == capacity){
-            return; // TODO: throw runtime exception
+            return;
         }
-        for (Pair<User, WaitingListState> pair : this.list) {
-            if (pair.first.equals(entrant)) {
-                exists = true;
-                break;
-            }
-        }
-        if (!exists) {
+        if (list.slotOf(entrant) == -1) {
             this.list.add(new Pair<User, WaitingListState>(entrant, WaitingListState.ENTERED));
         }
         else {
@@ -58,6 +77,10 @@ public class WaitingList {
 
     /**
      * gets the underlying list
+     * <p>
+     * The returned list keeps the index up to date when it is mutated directly,
+     * so callers may keep using the regular {@link ArrayList} API on it.
+     * </p>
      * @return
      */
     public ArrayList<Pair<User, WaitingListState>> getList() {
@@ -66,28 +89,31 @@ public class WaitingList {
 
     /**
      * sets the underlying list
+     * <p>
+     * The entries are copied into a fresh indexed list; later changes to the
+     * passed-in list are not reflected here. The new contents are treated as
+     * already persisted, so nothing is dirty afterwards.
+     * </p>
      * @param list
      */
     public void setList(ArrayList<Pair<User, WaitingListState>> list) {
-        this.list = list;
+        this.list = new EntryList(list);
+        this.list.clearDirty();
+        this.baseline = WaitingListCounts.of(this);
     }
 
     /**
-     * Removes an entrant from the waiting list
+     * Removes an entrant from the waiting list.
+     * The last entry takes the removed entrant's slot, so the order of the
+     * remaining entries is not preserved.
      * @param entrant
      */
     public void removeEntrant(User entrant) {
-        boolean removed = false;
-        for (int i = 0; i < this.list.size(); i++) {
-            if (this.list.get(i).first.equals(entrant)) {
-                removed = true;
-                this.list.remove(i);
-                break;
-            }
-        }
-        if (!removed) {
+        int slot = list.slotOf(entrant);
+        if (slot == -1) {
             throw new UserNotInListException("User not found in list.");
         }
+        list.swapRemove(slot);
     }
 
     /**
@@ -96,14 +122,7 @@ public class WaitingList {
      * @return true if the entrant is in the class, false otherwise
      */
     public boolean checkEntrant(User entrant) {
-        boolean in = false;
-        for (Pair<User, WaitingListState> pair : this.list) {
-            if (pair.first.equals(entrant)) {
-                in = true;
-                break;
-            }
-        }
-        return in;
+        return list.slotOf(entrant) != -1;
     }
     /**
      * Updates the stored state for the given entrant.
@@ -113,25 +132,88 @@ public class WaitingList {
      * @return true if the entrant was found and updated; false otherwise
      */
     public boolean updateEntrantState(User entrant, WaitingListState state) {
-        int index = -1;
-        for (int i = 0; i < this.list.size(); i++) {
-            Pair<User, WaitingListState> pair = this.list.get(i);
-            if (pair.first.getUserId() != null && pair.first.getUserId().equals(entrant.getUserId())) {
-                index = i;
-                break;
-            }
+        if (entrant == null || entrant.getUserId() == null) {
+            return false;
         }
-
+        int index = list.slotOf(entrant.getUserId());
         if (index != -1) {
-            Pair<User, WaitingListState> newPair = new Pair<>(entrant, state);
-            this.list.remove(index);
-            this.list.add(index, newPair);
-
+            this.list.set(index, new Pair<>(entrant, state));
             return true;
         }
 
         return false;
     }
+
+    /**
+     * Looks up the state stored for a user.
+     *
+     * @param userId id of the entrant
+     * @return the entrant's state, or {@code NOT_IN} if the user is not in the list
+     */
+    public WaitingListState getEntrantState(String userId) {
+        int slot = list.slotOf(userId);
+        if (slot == -1) {
+            return WaitingListState.NOT_IN;
+        }
+        Pair<User, WaitingListState> entry = list.get(slot);
+        return entry.second != null ? entry.second : WaitingListState.NOT_IN;
+    }
+
+    /**
+     * @param state state to count
+     * @return number of entrants currently in {@code state}
+     */
+    public int getStateCount(WaitingListState state) {
+        return list.countOf(state);
+    }
+
+    /**
+     * @param state state to look up
+     * @return read-only view of the ids of entrants currently in {@code state}
+     */
+    public Set<String> getEntrantIdsInState(WaitingListState state) {
+        return list.idsIn(state);
+    }
+
+    /**
+     * Entrants changed since the last {@link #markClean()}, in change order.
+     *
+     * @return read-only map of userId to its new state; a null state means the entrant was removed
+     */
+    public Map<String, WaitingListState> getDirtyEntries() {
+        return list.dirtyEntries();
+    }
+
+    /**
+     * @return true if the list was changed in a way that can't be tracked per entry
+     * (clear, bulk edits, iterator removal), so the whole list must be written
+     */
+    public boolean isFullyDirty() {
+        return list.isAllDirty();
+    }
+
+    /** @return true if anything changed since the last {@link #markClean()} */
+    public boolean hasChanges() {
+        return list.isAllDirty() || !list.dirtyEntries().isEmpty();
+    }
+
+    /**
+     * Change in per-state counts since the last {@link #markClean()}, i.e. what the
+     * stored counters must be incremented by when the dirty entries are saved.
+     * Not meaningful while {@link #isFullyDirty()}; write the full counts instead.
+     *
+     * @return counts now minus counts when last clean
+     */
+    public WaitingListCounts getCountChanges() {
+        return WaitingListCounts.of(this).minus(baseline);
+    }
+
+    /** Forgets tracked changes, e.g. once they have been persisted. */
+    public void markClean() {
+        list.clearDirty();
+        baseline = WaitingListCounts.of(this);
+    }
+
     /** @return capacity limit; -1 means unlimited */
     public int getCapacity() {
         return capacity;
@@ -142,13 +224,50 @@ public class WaitingList {
     }
 
     /**
-     * Runs the unified lottery draw on this waiting list.
+     * Runs the unified lottery draw on this waiting list with a fresh seed.
      * Only entrants whose state is ENTERED or NOT_SELECTED are in the pool.
      *
      * @param numSelect maximum number of new winners to select
+     * @return record of the draw, or null if nothing was drawn
+     */
+    public DrawRecord lotterySelect(int numSelect) {
+        return lotterySelect(numSelect, LotterySystem.newSeed());
+    }
+
+    /**
+     * Runs a reproducible lottery draw on this waiting list.
+     *
+     * @param numSelect maximum number of new winners to select
+     * @param seed      seed for the draw
+     * @return record of the draw, or null if nothing was drawn
+     */
+    public DrawRecord lotterySelect(int numSelect, long seed) {
+        return lotterySelect(numSelect, seed, LotterySystem.UNIFORM);
+    }
+
+    /**
+     * Runs a reproducible lottery draw with a custom draw strategy.
+     *
+     * @param numSelect maximum number of new winners to select
+     * @param seed      seed for the draw
+     * @param strategy  how winners are chosen
+     * @return record of the draw, or null if nothing was drawn
      */
-    public void lotterySelect(int numSelect) {
-        LotterySystem.lotteryDraw(this.list, numSelect);
+    public DrawRecord lotterySelect(int numSelect, long seed, LotterySystem.DrawStrategy strategy) {
+        return LotterySystem.lotteryDraw(this.list, numSelect, seed, strategy);
+    }
+
+    /**
+     * Fills {@code numSelect} freed slots from the ENTERED and NOT_SELECTED entrants.
+     * Only the winners change state; see {@link LotterySystem#redraw}.
+     *
+     * @param numSelect number of replacements to select
+     * @param seed      seed for the draw
+     * @param strategy  how winners are chosen
+     * @return record whose winners are the entrants moved to SELECTED, or null if nothing was drawn
+     */
+    public DrawRecord redrawSelect(int numSelect, long seed, LotterySystem.DrawStrategy strategy) {
+        return LotterySystem.redraw(this.list, numSelect, seed, strategy);
     }
 
     /**
@@ -156,13 +275,7 @@ public class WaitingList {
      * @return number of entrants
      */
     public Integer getNumEntrants() {
-        Integer n = 0;
-        for (int i = 0; i < list.size(); i++) {
-            if (list.get(i).second != WaitingListState.NOT_IN) {
-                n++;
-            }
-        }
-        return n;
+        return list.entrantCount();
     }
     /**
      * @return all users in the waiting list (states discarded)
@@ -181,8 +294,15 @@ public class WaitingList {
     public List<User> getSelectedEntrants() {
         List<User> selectedUsers = new ArrayList<>();
 
+        if (list.isFullyIndexed()) {
+            for (String id : list.idsIn(WaitingListState.SELECTED)) {
+                selectedUsers.add(list.get(list.slotOf(id)).first);
+            }
+            return selectedUsers;
+        }
+
         for (Pair<User, WaitingListState> pair : this.list) {
-            if (pair.second == WaitingListState.SELECTED) {
+            if (pair != null && pair.second == WaitingListState.SELECTED) {
                 selectedUsers.add(pair.first);
             }
         }
@@ -210,4 +330,395 @@ public class WaitingList {
 
         return csvData.toString();
     }
+
+    /**
+     * ArrayList of (User, state) pairs that maintains a userId → slot index,
+     * per-state counters and per-state id sets alongside the entries.
+     * <p>
+     * Single-entry mutations update the index incrementally. Bulk operations,
+     * entries without a user id, and duplicate ids fall back to a lazy rebuild
+     * or a linear scan so the index never disagrees with the list contents.
+     * </p>
+     * <p>
+     * Single-entry mutations also record the changed userId as dirty; bulk
+     * operations mark the whole list dirty.
+     * </p>
+     */
+    static class EntryList extends ArrayList<Pair<User, WaitingListState>> {
+        private static final WaitingListState[] STATES = WaitingListState.values();
+        /** counters by state ordinal; the extra last slot counts entries with a null state */
+        private final int[] counts = new int[STATES.length + 1];
+        private final Map<String, Integer> slots = new HashMap<>();
+        private final Map<WaitingListState, Set<String>> members = new EnumMap<>(WaitingListState.class);
+        /** entries that are counted but not in the id index (null user/id or duplicate id) */
+        private int unindexed = 0;
+        private boolean stale = false;
+        private int indexedModCount = 0;
+        /** userId → state to persist; a null state means the entry was removed */
+        private final Map<String, WaitingListState> dirty = new LinkedHashMap<>();
+        private boolean allDirty = false;
+
+        EntryList() {
+            super();
+            for (WaitingListState s : STATES) {
+                members.put(s, new LinkedHashSet<>());
+            }
+        }
+
+        EntryList(Collection<? extends Pair<User, WaitingListState>> entries) {
+            this();
+            if (entries != null) {
+                addAll(entries);
+            }
+        }
+
+        // --- queries --------------------------------------------------------
+
+        int slotOf(String userId) {
+            ensureIndex();
+            if (userId == null) {
+                return -1;
+            }
+            Integer slot = slots.get(userId);
+            if (slot != null) {
+                return slot;
+            }
+            if (unindexed > 0) {
+                return scanFor(userId);
+            }
+            return -1;
+        }
+
+        int slotOf(User user) {
+            if (user == null) {
+                return -1;
+            }
+            if (user.getUserId() != null) {
+                return slotOf(user.getUserId());
+            }
+            // User.equals treats two id-less users as equal
+            ensureIndex();
+            if (unindexed == 0) {
+                return -1;
+            }
+            for (int i = 0; i < size(); i++) {
+                Pair<User, WaitingListState> e = get(i);
+                if (e != null && user.equals(e.first)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int countOf(WaitingListState state) {
+            ensureIndex();
+            return state == null ? counts[STATES.length] : counts[state.ordinal()];
+        }
+
+        int entrantCount() {
+            ensureIndex();
+            int n = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (i != WaitingListState.NOT_IN.ordinal()) {
+                    n += counts[i];
+                }
+            }
+            return n;
+        }
+
+        Set<String> idsIn(WaitingListState state) {
+            ensureIndex();
+            return Collections.unmodifiableSet(members.get(state));
+        }
+
+        boolean isFullyIndexed() {
+            ensureIndex();
+            return unindexed == 0;
+        }
+
+        Map<String, WaitingListState> dirtyEntries() {
+            ensureIndex();
+            return Collections.unmodifiableMap(dirty);
+        }
+
+        boolean isAllDirty() {
+            ensureIndex();
+            return allDirty;
+        }
+
+        void clearDirty() {
+            ensureIndex();
+            dirty.clear();
+            allDirty = false;
+        }
+
+        /**
+         * Removes the entry at {@code slot} in O(1) by moving the last entry into its place.
+         */
+        Pair<User, WaitingListState> swapRemove(int slot) {
+            ensureIndex();
+            int last = size() - 1;
+            if (slot == last) {
+                return remove(last);
+            }
+            Pair<User, WaitingListState> removed = get(slot);
+            unindex(removed, slot);
+            markRemoved(removed);
+            Pair<User, WaitingListState> moved = super.remove(last);
+            super.set(slot, moved);
+            String movedId = idOf(moved);
+            if (movedId != null && Integer.valueOf(last).equals(slots.get(movedId))) {
+                slots.put(movedId, slot);
+            }
+            synced();
+            return removed;
+        }
+
+        // --- single-entry mutators: incremental index maintenance ------------
+
+        @Override
+        public boolean add(Pair<User, WaitingListState> e) {
+            ensureIndex();
+            super.add(e);
+            index(e, size() - 1);
+            markChanged(e);
+            synced();
+            return true;
+        }
+
+        @Override
+        public void add(int i, Pair<User, WaitingListState> e) {
+            ensureIndex();
+            super.add(i, e);
+            markChanged(e);
+            rebuild();
+        }
+
+        @Override
+        public Pair<User, WaitingListState> set(int i, Pair<User, WaitingListState> e) {
+            ensureIndex();
+            Pair<User, WaitingListState> old = super.set(i, e);
+            unindex(old, i);
+            index(e, i);
+            if (!Objects.equals(idOf(old), idOf(e))) {
+                markRemoved(old);
+                markChanged(e);
+            } else if (old == null || e == null || old.second != e.second) {
+                markChanged(e);
+            }
+            return old;
+        }
+
+        @Override
+        public Pair<User, WaitingListState> remove(int i) {
+            ensureIndex();
+            Pair<User, WaitingListState> old = super.remove(i);
+            unindex(old, i);
+            markRemoved(old);
+            if (i < size()) {
+                shiftSlotsFrom(i);
+            }
+            synced();
+            return old;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            int i = indexOf(o);
+            if (i < 0) {
+                return false;
+            }
+            remove(i);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            resetIndex();
+            allDirty = true;
+            synced();
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends Pair<User, WaitingListState>> c) {
+            ensureCapacity(size() + c.size());
+            for (Pair<User, WaitingListState> e : c) {
+                add(e);
+            }
+            return !c.isEmpty();
+        }
+
+        // --- bulk mutators: rebuild the whole index -------------------------
+
+        @Override
+        public boolean addAll(int i, Collection<? extends Pair<User, WaitingListState>> c) {
+            boolean changed = super.addAll(i, c);
+            allDirty |= changed;
+            rebuild();
+            return changed;
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> c) {
+            boolean changed = super.removeAll(c);
+            allDirty |= changed;
+            rebuild();
+            return changed;
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> c) {
+            boolean changed = super.retainAll(c);
+            allDirty |= changed;
+            rebuild();
+            return changed;
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super Pair<User, WaitingListState>> filter) {
+            boolean changed = super.removeIf(filter);
+            allDirty |= changed;
+            rebuild();
+            return changed;
+        }
+
+        @Override
+        public void replaceAll(UnaryOperator<Pair<User, WaitingListState>> operator) {
+            super.replaceAll(operator);
+            allDirty = true;
+            rebuild();
+        }
+
+        @Override
+        public void sort(Comparator<? super Pair<User, WaitingListState>> c) {
+            ensureIndex();
+            super.sort(c);
+            rebuild();
+        }
+
+        // --- index bookkeeping ----------------------------------------------
+
+        private static String idOf(Pair<User, WaitingListState> e) {
+            return (e == null || e.first == null) ? null : e.first.getUserId();
+        }
+
+        private void markChanged(Pair<User, WaitingListState> e) {
+            String id = idOf(e);
+            if (id == null) {
+                return;
+            }
+            dirty.put(id, e.second);
+        }
+
+        private void markRemoved(Pair<User, WaitingListState> e) {
+            String id = idOf(e);
+            if (id == null) {
+                return;
+            }
+            if (stale) {
+                // a duplicate of this id may still be in the list
+                allDirty = true;
+            } else {
+                dirty.put(id, null);
+            }
+        }
+
+        private static int bucket(WaitingListState state) {
+            return state == null ? STATES.length : state.ordinal();
+        }
+
+        private void index(Pair<User, WaitingListState> e, int slot) {
+            if (e == null) {
+                unindexed++;
+                return;
+            }
+            counts[bucket(e.second)]++;
+            String id = idOf(e);
+            if (id == null || slots.containsKey(id)) {
+                unindexed++;
+                return;
+            }
+            slots.put(id, slot);
+            if (e.second != null) {
+                members.get(e.second).add(id);
+            }
+        }
+
+        private void unindex(Pair<User, WaitingListState> e, int slot) {
+            if (e == null) {
+                unindexed--;
+                return;
+            }
+            counts[bucket(e.second)]--;
+            String id = idOf(e);
+            if (id == null || !Integer.valueOf(slot).equals(slots.get(id))) {
+                unindexed--;
+                return;
+            }
+            slots.remove(id);
+            if (e.second != null) {
+                members.get(e.second).remove(id);
+            }
+            if (unindexed > 0) {
+                // a duplicate of this id may now deserve the index slot
+                stale = true;
+            }
+        }
+
+        private void shiftSlotsFrom(int from) {
+            if (unindexed > 0) {
+                stale = true;
+                return;
+            }
+            for (int i = from; i < size(); i++) {
+                String id = idOf(get(i));
+                if (id != null) {
+                    slots.put(id, i);
+                }
+            }
+        }
+
+        private int scanFor(String userId) {
+            for (int i = 0; i < size(); i++) {
+                if (userId.equals(idOf(get(i)))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void resetIndex() {
+            java.util.Arrays.fill(counts, 0);
+            slots.clear();
+            for (Set<String> s : members.values()) {
+                s.clear();
+            }
+            unindexed = 0;
+            stale = false;
+        }
+
+        private void rebuild() {
+            resetIndex();
+            for (int i = 0; i < size(); i++) {
+                index(get(i), i);
+            }
+            synced();
+        }
+
+        private void synced() {
+            indexedModCount = modCount;
+        }
+
+        /** Catches structural changes made through iterators or sub-lists. */
+        private void ensureIndex() {
+            if (indexedModCount != modCount) {
+                // changed behind our back; per-entry tracking is lost
+                allDirty = true;
+            }
+            if (stale || indexedModCount != modCount) {
+                rebuild();
+            }
+        }
+    }
 }
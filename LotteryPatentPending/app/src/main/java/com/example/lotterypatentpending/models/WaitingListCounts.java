@@ -0,0 +1,173 @@
+package com.example.lotterypatentpending.models;
+
+import androidx.core.util.Pair;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Number of waiting list entrants per {@link WaitingListState}, as stored in the
+ * {@code stateCounts} map of an event document and its summary.
+ * <p>
+ * The same type is used for a change in counts (a delta), where entries may be
+ * negative. {@link WaitingListState#NOT_IN} is never counted: moving an entrant
+ * from or to {@code NOT_IN} (or null) means joining or leaving the list.
+ * </p>
+ */
+public final class WaitingListCounts {
+    /** States that have a counter, in the order they are written. */
+    public static final WaitingListState[] COUNTED = {
+            WaitingListState.ENTERED, WaitingListState.NOT_SELECTED, WaitingListState.SELECTED,
+            WaitingListState.ACCEPTED, WaitingListState.DECLINED, WaitingListState.CANCELED
+    };
+
+    private final int[] counts = new int[WaitingListState.values().length];
+
+    public WaitingListCounts() {
+    }
+
+    /**
+     * Counts entries by state.
+     *
+     * @param entries waiting list entries; null entries and states are skipped
+     * @return counts of {@code entries}
+     */
+    public static WaitingListCounts of(Collection<Pair<User, WaitingListState>> entries) {
+        WaitingListCounts c = new WaitingListCounts();
+        if (entries != null) {
+            for (Pair<User, WaitingListState> entry : entries) {
+                if (entry != null) c.add(entry.second, 1);
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Reads the counters of a loaded waiting list from its index, without scanning it.
+     *
+     * @param waitingList list to count
+     * @return counts of {@code waitingList}
+     */
+    public static WaitingListCounts of(WaitingList waitingList) {
+        WaitingListCounts c = new WaitingListCounts();
+        if (waitingList != null) {
+            for (WaitingListState s : COUNTED) {
+                c.counts[s.ordinal()] = waitingList.getStateCount(s);
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Change in counts caused by moving one entrant between states.
+     *
+     * @param from state before the change; null or {@code NOT_IN} if the entrant wasn't on the list
+     * @param to   state after the change; null or {@code NOT_IN} if the entrant was removed
+     * @return the delta, all zero if {@code from == to}
+     */
+    public static WaitingListCounts transition(WaitingListState from, WaitingListState to) {
+        WaitingListCounts c = new WaitingListCounts();
+        if (from != to) {
+            c.add(from, -1);
+            c.add(to, 1);
+        }
+        return c;
+    }
+
+    /**
+     * Parses a {@code stateCounts} map read from Firestore.
+     *
+     * @param raw map of state name to number; unknown names are ignored
+     * @return the counts, or null if {@code raw} isn't a map
+     */
+    public static WaitingListCounts fromMap(Object raw) {
+        if (!(raw instanceof Map)) return null;
+        WaitingListCounts c = new WaitingListCounts();
+        for (Map.Entry<?, ?> e : ((Map<?, ?>) raw).entrySet()) {
+            if (!(e.getValue() instanceof Number)) continue;
+            try {
+                c.add(WaitingListState.valueOf(String.valueOf(e.getKey())), ((Number) e.getValue()).intValue());
+            } catch (IllegalArgumentException ignored) {
+                // state removed from the enum
+            }
+        }
+        return c;
+    }
+
+    /**
+     * @return map of state name to count with every counted state present, for Firestore
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (WaitingListState s : COUNTED) {
+            map.put(s.name(), (long) get(s));
+        }
+        return map;
+    }
+
+    /** Adds {@code n} to the counter of {@code state}; null and {@code NOT_IN} are ignored. */
+    public void add(WaitingListState state, int n) {
+        if (state != null && state != WaitingListState.NOT_IN) {
+            counts[state.ordinal()] += n;
+        }
+    }
+
+    /** Adds every counter of {@code other} to this one. */
+    public void addAll(WaitingListCounts other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+    }
+
+    /**
+     * @return {@code this - other}, i.e. the change from {@code other} to these counts
+     */
+    public WaitingListCounts minus(WaitingListCounts other) {
+        WaitingListCounts c = new WaitingListCounts();
+        for (int i = 0; i < counts.length; i++) {
+            c.counts[i] = counts[i] - other.counts[i];
+        }
+        return c;
+    }
+
+    public int get(WaitingListState state) {
+        return state == null ? 0 : counts[state.ordinal()];
+    }
+
+    /** @return number of entrants on the list, in any state */
+    public int getTotal() {
+        int n = 0;
+        for (int c : counts) n += c;
+        return n;
+    }
+
+    /** @return entrants holding a spot: SELECTED (pending response) or ACCEPTED */
+    public int getTakenSpots() {
+        return get(WaitingListState.SELECTED) + get(WaitingListState.ACCEPTED);
+    }
+
+    /** @return true if every counter is zero, e.g. a delta with no effect */
+    public boolean isZero() {
+        for (int c : counts) {
+            if (c != 0) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof WaitingListCounts && Arrays.equals(counts, ((WaitingListCounts) o).counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(counts);
+    }
+
+    @Override
+    public String toString() {
+        return "WaitingListCounts" + toMap();
+    }
+}
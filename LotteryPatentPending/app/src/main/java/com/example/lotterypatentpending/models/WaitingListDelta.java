@@ -0,0 +1,64 @@
+package com.example.lotterypatentpending.models;
+
+import androidx.core.util.Pair;
+
+import com.google.firebase.firestore.FieldValue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Turns the changes tracked by a {@link WaitingList} into per-entrant writes.
+ * <p>
+ * Waiting lists are stored as {@code waitingList: { <uid>: { state: "..." } }} or as one
+ * document per entrant. A changed entrant becomes a new state, a removed one a null
+ * state. When the list is fully dirty every entrant's state is written, still one
+ * entry at a time, and nobody is removed: an entrant missing from the list can't be
+ * told apart from one who joined after it was loaded.
+ * </p>
+ */
+public class WaitingListDelta {
+    public static final String FIELD = "waitingList";
+
+    private WaitingListDelta() {}
+
+    /**
+     * @param waitingList list whose tracked changes should be written
+     * @return new state per userId, null for a removed entrant; empty if nothing changed
+     */
+    public static Map<String, WaitingListState> toChanges(WaitingList waitingList) {
+        Map<String, WaitingListState> changes = new LinkedHashMap<>();
+        if (waitingList == null || !waitingList.hasChanges()) {
+            return changes;
+        }
+        if (!waitingList.isFullyDirty()) {
+            changes.putAll(waitingList.getDirtyEntries());
+            return changes;
+        }
+        for (Pair<User, WaitingListState> entry : waitingList.getList()) {
+            if (entry == null || entry.first == null || entry.first.getUserId() == null
+                    || entry.second == null) {
+                continue;
+            }
+            changes.put(entry.first.getUserId(), entry.second);
+        }
+        return changes;
+    }
+
+    /**
+     * @param waitingList list whose tracked changes should be written
+     * @return field-path updates for a single {@code DocumentReference.update} call; empty if nothing changed
+     */
+    public static Map<String, Object> toFieldUpdates(WaitingList waitingList) {
+        Map<String, Object> updates = new LinkedHashMap<>();
+        for (Map.Entry<String, WaitingListState> change : toChanges(waitingList).entrySet()) {
+            String path = FIELD + "." + change.getKey();
+            if (change.getValue() == null) {
+                updates.put(path, FieldValue.delete());
+            } else {
+                updates.put(path + ".state", change.getValue().name());
+            }
+        }
+        return updates;
+    }
+}
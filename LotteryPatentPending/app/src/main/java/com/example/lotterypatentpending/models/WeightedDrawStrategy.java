@@ -0,0 +1,112 @@
+package com.example.lotterypatentpending.models;
+
+import java.util.SplittableRandom;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Weighted lottery draw using Efraimidis–Spirakis keys.
+ * <p>
+ * Each candidate gets the key {@code log(u) / w} for a uniform {@code u} in (0, 1]
+ * and the {@code numSlots} largest keys win. This is the same as drawing one
+ * winner at a time with probability proportional to weight, without replacement.
+ * Keys are kept in a bounded min-heap, so a draw costs O(n log k).
+ * Candidates with a weight of zero or less are only picked once every
+ * positive-weight candidate has won.
+ * </p>
+ */
+public class WeightedDrawStrategy implements LotterySystem.DrawStrategy {
+
+    private final ToDoubleFunction<User> weights;
+
+    /**
+     * @param weights weight of each candidate; must be deterministic for draws to be replayable
+     */
+    public WeightedDrawStrategy(ToDoubleFunction<User> weights) {
+        this.weights = weights;
+    }
+
+    /**
+     * Gives returning entrants a better chance: weight is
+     * {@code 1 + bonusPerEvent * pastEventIds.size()}.
+     * Needs fully loaded users; id-only users all weigh 1.
+     *
+     * @param bonusPerEvent extra weight per entry in {@link User#getPastEventIds()}
+     */
+    public static WeightedDrawStrategy byPastEvents(double bonusPerEvent) {
+        return new WeightedDrawStrategy(u -> {
+            int past = u.getPastEventIds() == null ? 0 : u.getPastEventIds().size();
+            return 1.0 + bonusPerEvent * past;
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "WEIGHTED";
+    }
+
+    @Override
+    public int[] pick(User[] candidates, int numSlots, SplittableRandom rnd) {
+        int[] heap = new int[numSlots];
+        double[] keys = new double[numSlots];
+        int size = 0;
+
+        for (int i = 0; i < candidates.length; i++) {
+            // draw u for every candidate so the key stream doesn't depend on weights
+            double u = 1.0 - rnd.nextDouble();
+            double w = weights.applyAsDouble(candidates[i]);
+            double key = w > 0 ? Math.log(u) / w : Double.NEGATIVE_INFINITY;
+
+            if (size < numSlots) {
+                heap[size] = i;
+                keys[size] = key;
+                siftUp(heap, keys, size++);
+            } else if (key > keys[0]) {
+                heap[0] = i;
+                keys[0] = key;
+                siftDown(heap, keys, size);
+            }
+        }
+
+        // pop smallest first, filling from the back, so winners end up by descending key
+        int[] winners = new int[size];
+        for (int n = size; n > 0; n--) {
+            winners[n - 1] = heap[0];
+            heap[0] = heap[n - 1];
+            keys[0] = keys[n - 1];
+            siftDown(heap, keys, n - 1);
+        }
+        return winners;
+    }
+
+    private static void siftUp(int[] heap, double[] keys, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= keys[i]) break;
+            swap(heap, keys, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, double[] keys, int size) {
+        int i = 0;
+        while (true) {
+            int smallest = i;
+            int l = 2 * i + 1;
+            int r = l + 1;
+            if (l < size && keys[l] < keys[smallest]) smallest = l;
+            if (r < size && keys[r] < keys[smallest]) smallest = r;
+            if (smallest == i) return;
+            swap(heap, keys, i, smallest);
+            i = smallest;
+        }
+    }
+
+    private static void swap(int[] heap, double[] keys, int a, int b) {
+        int h = heap[a];
+        heap[a] = heap[b];
+        heap[b] = h;
+        double k = keys[a];
+        keys[a] = keys[b];
+        keys[b] = k;
+    }
+}
@@ -4,6 +4,8 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.ViewModel;
 
 import com.example.lotterypatentpending.models.LotteryResultNotifier;
+import com.example.lotterypatentpending.models.OutboxJob;
+import com.example.lotterypatentpending.models.OutboxProgress;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 
@@ -12,6 +14,7 @@ import java.util.List;
 /**
  * Thin ViewModel wrapper exposing "publish results" as a single Task.
  * Coordinates notifying winners and losers via LotteryResultNotifier.
+ * Sends are queued in the notification outbox first, so they survive the app dying.
  *
  * @author Moffat
  * @maintainer Moffat
@@ -20,27 +23,79 @@ public class OrganizerViewModel extends ViewModel {
 
     private final LotteryResultNotifier resultNotifier = new LotteryResultNotifier();
 
+    /**
+     * Queue a draw's winner and loser notifications, held until the draw is saved.
+     * Pass the jobs to FirebaseManager.saveWaitingListChanges, then publishResults.
+     */
+    public Task<List<OutboxJob>> prepareResults(@NonNull String organizerId,
+                                                @NonNull String eventId,
+                                                @NonNull String eventTitle,
+                                                @NonNull String drawId,
+                                                @NonNull List<String> allEntrantIds,
+                                                @NonNull List<String> winnerIds) {
+        return resultNotifier.prepareResults(organizerId, eventId, eventTitle, drawId, allEntrantIds, winnerIds);
+    }
+
+    /**
+     * Queue a redraw's replacement notifications, held until the redraw is saved.
+     */
+    public Task<List<OutboxJob>> prepareReplacements(@NonNull String organizerId,
+                                                     @NonNull String eventId,
+                                                     @NonNull String eventTitle,
+                                                     @NonNull String drawId,
+                                                     @NonNull List<String> replacementIds) {
+        return resultNotifier.prepareReplacements(organizerId, eventId, eventTitle, drawId, replacementIds);
+    }
+
     /**
      * Publish lottery results: notify winners AND losers.
      * Returns a Task<Void> that completes when both sub-tasks finish.
+     * @param drawId id of the draw, e.g. its seed; republishing it never notifies twice
      */
     public Task<Void> publishResults(@NonNull String organizerId,
                                      @NonNull String eventId,
                                      @NonNull String eventTitle,
+                                     @NonNull String drawId,
                                      @NonNull List<String> allEntrantIds,
                                      @NonNull List<String> winnerIds) {
 
         // Notify Winners (Category.LOTTERY_WIN)
         Task<Void> tWin = resultNotifier.notifyWinners(
-                organizerId, eventId, eventTitle, winnerIds
+                organizerId, eventId, eventTitle, drawId, winnerIds
         );
 
         // Notify Losers (Category.LOTTERY_LOSE)
         Task<Void> tLose = resultNotifier.notifyLosersFromPool(
-                organizerId, eventId, eventTitle, allEntrantIds, winnerIds
+                organizerId, eventId, eventTitle, drawId, allEntrantIds, winnerIds
         );
 
         // Completes successfully when BOTH finish, or fails if either fails
         return Tasks.whenAll(tWin, tLose);
     }
+
+    /**
+     * Publish a redraw: only the replacement winners are notified, since
+     * everyone else already got their result from the original draw.
+     */
+    public Task<Void> publishReplacements(@NonNull String organizerId,
+                                          @NonNull String eventId,
+                                          @NonNull String eventTitle,
+                                          @NonNull String drawId,
+                                          @NonNull List<String> replacementIds) {
+        return resultNotifier.notifyWinners(organizerId, eventId, eventTitle, drawId, replacementIds);
+    }
+
+    /**
+     * Finish result notifications that an earlier session didn't get to send.
+     */
+    public Task<Void> resumePendingNotifications(@NonNull String organizerId) {
+        return resultNotifier.resumePending(organizerId);
+    }
+
+    /**
+     * Delivery progress of an event's result notifications, e.g. "7,412 / 10,000 delivered".
+     */
+    public Task<OutboxProgress> getNotificationProgress(@NonNull String eventId) {
+        return resultNotifier.getProgress(eventId);
+    }
 }
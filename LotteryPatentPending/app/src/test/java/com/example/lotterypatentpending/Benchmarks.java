@@ -0,0 +1,8 @@
+package com.example.lotterypatentpending;
+
+/**
+ * JUnit category of the large-input suites. They are left out of the regular unit
+ * test run; include them with {@code ./gradlew test -Pbenchmarks}.
+ */
+public interface Benchmarks {
+}
@@ -0,0 +1,84 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.data.BulkUserLoader;
+import com.example.lotterypatentpending.data.UserBatchSource;
+import com.example.lotterypatentpending.models.User;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares loading a waiting list's users one {@code getUser} at a time with
+ * {@link BulkUserLoader} against a fake source that adds a fixed round-trip latency,
+ * by the reads each needs and how many of them overlap.
+ */
+@Category(Benchmarks.class)
+public class BulkUserLoaderBenchmarkTest {
+    private static final long LATENCY_MS = 5;
+    private final ScheduledExecutorService timer = Executors.newScheduledThreadPool(8);
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    private class SlowSource implements UserBatchSource {
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        @Override
+        public CompletableFuture<Map<String, User>> fetchChunk(List<String> ids) {
+            requests.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            List<String> copy = new ArrayList<>(ids);
+            CompletableFuture<Map<String, User>> f = new CompletableFuture<>();
+            timer.schedule(() -> {
+                Map<String, User> users = new HashMap<>();
+                for (String id : copy) users.put(id, new User(id, id, null, null));
+                inFlight.decrementAndGet();
+                f.complete(users);
+            }, LATENCY_MS, TimeUnit.MILLISECONDS);
+            return f;
+        }
+    }
+
+    @Test
+    public void testBatchedLoadNeedsOneReadPerChunk() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 600; i++) ids.add("u" + i);
+
+        // old path: deserializeWaitingList chained one getUser per entrant
+        SlowSource single = new SlowSource();
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (String id : ids) {
+            chain = chain.thenCompose(v -> single.fetchChunk(Collections.singletonList(id)).thenApply(m -> null));
+        }
+        chain.join();
+
+        SlowSource batched = new SlowSource();
+        List<User> users = new BulkUserLoader(batched).load(ids).join();
+
+        assertEquals(ids.size(), single.requests.get());
+        assertEquals(1, single.maxInFlight.get());
+        assertEquals(ids.size(), users.size());
+        assertEquals(ids.size() / BulkUserLoader.CHUNK_SIZE, batched.requests.get());
+        assertTrue(batched.maxInFlight.get() > 1);
+        assertTrue(batched.maxInFlight.get() <= BulkUserLoader.DEFAULT_MAX_IN_FLIGHT);
+    }
+}
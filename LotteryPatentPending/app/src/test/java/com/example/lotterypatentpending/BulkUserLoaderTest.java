@@ -0,0 +1,132 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.lotterypatentpending.data.BulkUserLoader;
+import com.example.lotterypatentpending.data.UserBatchSource;
+import com.example.lotterypatentpending.models.User;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BulkUserLoaderTest {
+    private final ScheduledExecutorService timer = Executors.newScheduledThreadPool(4);
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    /** Answers each chunk after a short delay and records request sizes and concurrency. */
+    private class FakeSource implements UserBatchSource {
+        final List<Integer> chunkSizes = new ArrayList<>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        String failOn;
+
+        @Override
+        public synchronized CompletableFuture<Map<String, User>> fetchChunk(List<String> ids) {
+            chunkSizes.add(ids.size());
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            List<String> copy = new ArrayList<>(ids);
+            CompletableFuture<Map<String, User>> f = new CompletableFuture<>();
+            timer.schedule(() -> {
+                inFlight.decrementAndGet();
+                if (copy.contains(failOn)) {
+                    f.completeExceptionally(new IllegalStateException("offline"));
+                    return;
+                }
+                Map<String, User> users = new HashMap<>();
+                for (String id : copy) {
+                    if (!id.startsWith("missing")) users.put(id, new User(id, "name " + id, null, null));
+                }
+                f.complete(users);
+            }, 2, TimeUnit.MILLISECONDS);
+            return f;
+        }
+    }
+
+    private static List<String> ids(int n) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < n; i++) ids.add("u" + i);
+        return ids;
+    }
+
+    @Test
+    public void testResultsFollowRequestOrder() {
+        FakeSource source = new FakeSource();
+        List<String> ids = ids(100);
+        Collections.shuffle(ids, new Random(3));
+
+        List<User> users = new BulkUserLoader(source).load(ids).join();
+
+        assertEquals(100, users.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(ids.get(i), users.get(i).getUserId());
+        }
+        List<Integer> sizes = new ArrayList<>(source.chunkSizes);
+        Collections.sort(sizes);
+        assertEquals(Arrays.asList(10, 30, 30, 30), sizes);
+    }
+
+    @Test
+    public void testDuplicatesFetchedOnceAndMissingAreNull() {
+        FakeSource source = new FakeSource();
+
+        List<User> users = new BulkUserLoader(source)
+                .load(Arrays.asList("a", "missing1", "a", null, "b")).join();
+
+        assertEquals(5, users.size());
+        assertEquals("a", users.get(0).getUserId());
+        assertNull(users.get(1));
+        assertEquals("a", users.get(2).getUserId());
+        assertNull(users.get(3));
+        assertEquals("b", users.get(4).getUserId());
+        assertEquals(Arrays.asList(3), source.chunkSizes);
+    }
+
+    @Test
+    public void testConcurrencyIsBounded() {
+        FakeSource source = new FakeSource();
+
+        new BulkUserLoader(source, 10, 3).load(ids(500)).join();
+
+        assertEquals(50, source.chunkSizes.size());
+        assertTrue("max in flight " + source.maxInFlight.get(), source.maxInFlight.get() <= 3);
+    }
+
+    @Test
+    public void testChunkFailureFailsLoad() {
+        FakeSource source = new FakeSource();
+        source.failOn = "u42";
+
+        try {
+            new BulkUserLoader(source).load(ids(100)).join();
+            fail("expected failure");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testEmptyRequest() {
+        assertTrue(new BulkUserLoader(new FakeSource()).load(new ArrayList<>()).join().isEmpty());
+    }
+}
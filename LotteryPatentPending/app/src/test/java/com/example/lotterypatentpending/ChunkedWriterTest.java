@@ -0,0 +1,99 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.models.BulkWriteResult;
+import com.example.lotterypatentpending.models.ChunkedWriter;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ChunkedWriterTest {
+    private final ScheduledExecutorService timer = Executors.newScheduledThreadPool(8);
+    private final List<Integer> chunkSizes = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    /** Commits a chunk after 2 ms, failing it if it holds {@code failOn}. */
+    private CompletableFuture<Void> commit(List<String> chunk, String failOn) {
+        chunkSizes.add(chunk.size());
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        boolean fail = chunk.contains(failOn);
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        timer.schedule(() -> {
+            inFlight.decrementAndGet();
+            if (fail) f.completeExceptionally(new IllegalStateException("offline"));
+            else f.complete(null);
+        }, 2, TimeUnit.MILLISECONDS);
+        return f;
+    }
+
+    private static List<String> ids(int n) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < n; i++) ids.add("u" + i);
+        return ids;
+    }
+
+    @Test
+    public void testSplitsIntoBatchesOfAtMost500() {
+        List<String> ids = ids(1234);
+
+        BulkWriteResult result = ChunkedWriter.write(ids, 10_000, 2, id -> id, c -> commit(c, null)).join();
+
+        Collections.sort(chunkSizes);
+        assertEquals(Arrays.asList(234, 500, 500), chunkSizes);
+        assertTrue(result.isComplete());
+        assertEquals(ids, result.getSucceeded());
+    }
+
+    @Test
+    public void testBoundsCommitsInFlight() {
+        ChunkedWriter.write(ids(300), 10, 3, id -> id, c -> commit(c, null)).join();
+
+        assertEquals(30, chunkSizes.size());
+        assertEquals(3, maxInFlight.get());
+    }
+
+    @Test
+    public void testFailedBatchFailsOnlyItsRecipients() {
+        BulkWriteResult result = ChunkedWriter.write(ids(100), 25, 4, id -> id, c -> commit(c, "u30")).join();
+
+        assertEquals(75, result.getSucceeded().size());
+        assertEquals(25, result.getFailed().size());
+        assertTrue(result.getFailed().containsKey("u25"));
+        assertTrue(result.getFailed().containsKey("u49"));
+        assertEquals("offline", result.getFailed().get("u30").getMessage());
+        assertTrue(result.getSucceeded().contains("u50"));
+    }
+
+    @Test
+    public void testThrowingCommitIsReportedNotThrown() {
+        BulkWriteResult result = ChunkedWriter.write(ids(3), 500, 1, id -> id, c -> {
+            throw new IllegalArgumentException("bad");
+        }).join();
+
+        assertEquals(3, result.getFailed().size());
+        assertTrue(result.getSucceeded().isEmpty());
+    }
+
+    @Test
+    public void testEmptyWriteCompletes() {
+        assertTrue(ChunkedWriter.write(new ArrayList<String>(), 500, 4, id -> id, c -> commit(c, null)).join().isComplete());
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.data.CounterShards;
+
+import org.junit.Test;
+
+public class CounterShardsTest {
+
+    @Test
+    public void testQuotasAddUpToCapacity() {
+        for (int shards = 2; shards <= CounterShards.MAX_SHARDS; shards++) {
+            for (int cap : new int[]{0, 1, 7, 250, 1001}) {
+                int sum = 0;
+                for (int k = 0; k < shards; k++) {
+                    int q = CounterShards.quota(cap, shards, k);
+                    assertTrue(q == cap / shards || q == cap / shards + 1);
+                    sum += q;
+                }
+                assertEquals(cap, sum);
+            }
+        }
+        assertEquals(-1, CounterShards.quota(-1, 8, 3));
+    }
+
+    @Test
+    public void testShardOfPrefersStoredShard() {
+        assertEquals(5, CounterShards.shardOf(5L, "u1", 8));
+        // out of range after the shard count shrank, or never stored
+        assertEquals(CounterShards.home("u1", 4), CounterShards.shardOf(5L, "u1", 4));
+        assertEquals(CounterShards.home("u1", 4), CounterShards.shardOf(null, "u1", 4));
+    }
+
+    @Test
+    public void testCountIsClamped() {
+        assertEquals(0, CounterShards.count(null));
+        assertEquals(0, CounterShards.count(-3L));
+        assertEquals(8, CounterShards.count(8L));
+        assertEquals(CounterShards.MAX_SHARDS, CounterShards.count(1_000));
+        assertFalse(CounterShards.isSharded(1));
+        assertTrue(CounterShards.isSharded(2));
+    }
+}
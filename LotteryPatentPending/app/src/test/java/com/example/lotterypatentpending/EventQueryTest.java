@@ -0,0 +1,300 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.data.EventPage;
+import com.example.lotterypatentpending.data.EventQuery;
+import com.example.lotterypatentpending.data.QueryOps;
+import com.example.lotterypatentpending.models.EventState;
+import com.example.lotterypatentpending.models.EventSummary;
+import com.google.firebase.Timestamp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Runs {@link EventQuery} against an in-memory fake of Firestore's query semantics:
+ * range filters never match missing values, nulls sort first, and
+ * {@code startAfter} compares the cursor with every ordering in turn.
+ */
+public class EventQueryTest {
+    private static final String[] TAGS = {"Sports", "Arts", "Music"};
+
+    /** An immutable query; every operation returns a copy, like Firestore's. */
+    private static final class FakeQuery {
+        final List<String> clauses = new ArrayList<>();
+        final List<Predicate<EventSummary>> filters = new ArrayList<>();
+        final List<String> orderBy = new ArrayList<>();
+        List<Object> startAfter;
+        long limit = Long.MAX_VALUE;
+
+        FakeQuery copy(String clause) {
+            FakeQuery q = new FakeQuery();
+            q.clauses.addAll(clauses);
+            q.clauses.add(clause);
+            q.filters.addAll(filters);
+            q.orderBy.addAll(orderBy);
+            q.startAfter = startAfter;
+            q.limit = limit;
+            return q;
+        }
+
+        List<EventSummary> get(List<EventSummary> docs) {
+            Comparator<EventSummary> order = (a, b) -> {
+                for (int i = 0; i < orderBy.size(); i++) {
+                    int c = compare(field(a, orderBy.get(i)), field(b, orderBy.get(i)));
+                    if (c != 0) return c;
+                }
+                return 0;
+            };
+            List<EventSummary> out = new ArrayList<>();
+            for (EventSummary d : docs) {
+                boolean match = true;
+                for (Predicate<EventSummary> f : filters) match &= f.test(d);
+                if (match) out.add(d);
+            }
+            out.sort(order);
+            if (startAfter != null) {
+                out.removeIf(d -> {
+                    for (int i = 0; i < orderBy.size(); i++) {
+                        int c = compare(field(d, orderBy.get(i)), startAfter.get(i));
+                        if (c != 0) return c < 0;
+                    }
+                    return true;
+                });
+            }
+            return out.size() > limit ? new ArrayList<>(out.subList(0, (int) limit)) : out;
+        }
+    }
+
+    private static final class FakeOps implements QueryOps<FakeQuery> {
+        @Override
+        public FakeQuery whereEqualTo(FakeQuery q, String field, Object value) {
+            FakeQuery c = q.copy(field + " == " + value);
+            c.filters.add(d -> Objects.equals(field(d, field), value));
+            return c;
+        }
+
+        @Override
+        public FakeQuery whereGreaterThan(FakeQuery q, String field, Object value) {
+            return range(q, field, " > ", value, c -> c > 0);
+        }
+
+        @Override
+        public FakeQuery whereGreaterThanOrEqualTo(FakeQuery q, String field, Object value) {
+            return range(q, field, " >= ", value, c -> c >= 0);
+        }
+
+        @Override
+        public FakeQuery whereLessThanOrEqualTo(FakeQuery q, String field, Object value) {
+            return range(q, field, " <= ", value, c -> c <= 0);
+        }
+
+        private FakeQuery range(FakeQuery q, String field, String op, Object value, Predicate<Integer> test) {
+            FakeQuery c = q.copy(field + op + seconds(value));
+            c.filters.add(d -> field(d, field) != null && test.test(compare(field(d, field), value)));
+            return c;
+        }
+
+        @Override
+        public FakeQuery orderBy(FakeQuery q, String field) {
+            FakeQuery c = q.copy("orderBy " + field);
+            c.orderBy.add(field);
+            return c;
+        }
+
+        @Override
+        public FakeQuery orderByDocumentId(FakeQuery q) {
+            FakeQuery c = q.copy("orderBy __name__");
+            c.orderBy.add("__name__");
+            return c;
+        }
+
+        @Override
+        public FakeQuery startAfter(FakeQuery q, List<Object> values) {
+            assertEquals("one cursor value per ordering", q.orderBy.size(), values.size());
+            FakeQuery c = q.copy("startAfter " + values.size());
+            c.startAfter = values;
+            return c;
+        }
+
+        @Override
+        public FakeQuery limit(FakeQuery q, long limit) {
+            FakeQuery c = q.copy("limit " + limit);
+            c.limit = limit;
+            return c;
+        }
+    }
+
+    private final FakeOps ops = new FakeOps();
+
+    private static Object field(EventSummary d, String field) {
+        switch (field) {
+            case EventQuery.TAG: return d.getTag();
+            case EventQuery.DATE: return d.getDate();
+            case EventQuery.REG_START: return d.getRegStartDate();
+            case EventQuery.REG_END: return d.getRegEndDate();
+            case "__name__": return d.getId();
+            default: throw new IllegalArgumentException(field);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object a, Object b) {
+        if (a == null || b == null) return a == b ? 0 : a == null ? -1 : 1;
+        return ((Comparable) a).compareTo(b);
+    }
+
+    private static Object seconds(Object value) {
+        return value instanceof Timestamp ? ((Timestamp) value).getSeconds() : value;
+    }
+
+    private static Timestamp at(long seconds) {
+        return new Timestamp(seconds, 0);
+    }
+
+    private static List<EventSummary> events(int n) {
+        List<EventSummary> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            EventSummary s = new EventSummary();
+            s.setId(String.format("e%03d", (i * 37) % n));
+            s.setTitle("Event " + i);
+            s.setTag(TAGS[i % TAGS.length]);
+            // few distinct dates, so pages split runs of equal dates
+            s.setDate(i % 11 == 0 ? null : at(1000 + (i % 7) * 100));
+            s.setRegStartDate(at(500 + (i % 5) * 100));
+            s.setRegEndDate(at(700 + (i % 4) * 100));
+            out.add(s);
+        }
+        return out;
+    }
+
+    private static List<String> ids(List<EventSummary> summaries) {
+        List<String> out = new ArrayList<>();
+        for (EventSummary s : summaries) out.add(s.getId());
+        return out;
+    }
+
+    /** Reads every page of {@code query} and checks each page's size. */
+    private List<EventSummary> readAll(EventQuery query, List<EventSummary> docs) {
+        List<EventSummary> all = new ArrayList<>();
+        EventQuery.Cursor cursor = null;
+        do {
+            List<EventSummary> results = query.build(ops, new FakeQuery(), cursor).get(docs);
+            assertTrue(results.size() <= query.getPageSize());
+            EventPage page = query.toPage(results);
+            all.addAll(page.getEvents());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return all;
+    }
+
+    @Test
+    public void testFiltersBecomeWhereClausesBeforeOrderingAndLimit() {
+        EventQuery query = new EventQuery().tag("Arts").dates(at(100), at(200)).pageSize(10);
+        FakeQuery q = query.build(ops, new FakeQuery(), null);
+
+        assertEquals(List.of("tag == Arts", "date >= 100", "date <= 200",
+                "orderBy date", "orderBy __name__", "limit 10"), q.clauses);
+    }
+
+    @Test
+    public void testUnfilteredQueryIsOrderedAndLimited() {
+        EventQuery query = new EventQuery();
+        assertFalse(query.isFiltered());
+        assertEquals(List.of("orderBy date", "orderBy __name__", "limit " + EventQuery.DEFAULT_PAGE_SIZE),
+                query.build(ops, new FakeQuery(), null).clauses);
+    }
+
+    @Test
+    public void testStatesFilterAndOrderOnRegistrationDates() {
+        Timestamp now = at(800);
+        assertEquals(List.of("regStartDate > 800", "orderBy date", "orderBy regStartDate",
+                        "orderBy __name__", "limit 25"),
+                new EventQuery().state(EventState.NOT_STARTED, now).build(ops, new FakeQuery(), null).clauses);
+        assertEquals(List.of("regStartDate <= 800", "regEndDate > 800", "orderBy date", "orderBy regStartDate",
+                        "orderBy regEndDate", "orderBy __name__", "limit 25"),
+                new EventQuery().state(EventState.OPEN_FOR_REG, now).build(ops, new FakeQuery(), null).clauses);
+        assertEquals(List.of("regEndDate <= 800", "orderBy date", "orderBy regEndDate",
+                        "orderBy __name__", "limit 25"),
+                new EventQuery().state(EventState.CLOSED_FOR_REG, now).build(ops, new FakeQuery(), null).clauses);
+    }
+
+    @Test
+    public void testPagesReturnEveryMatchOnceInOrder() {
+        List<EventSummary> docs = events(137);
+        EventQuery query = new EventQuery().tag("Sports").dates(at(1100), at(1500)).pageSize(7);
+
+        List<EventSummary> expected = new ArrayList<>();
+        for (EventSummary d : docs) {
+            if (d.getTag().equals("Sports") && d.getDate() != null
+                    && d.getDate().compareTo(at(1100)) >= 0 && d.getDate().compareTo(at(1500)) <= 0) {
+                expected.add(d);
+            }
+        }
+        expected.sort(Comparator.comparing((EventSummary d) -> d.getDate()).thenComparing(EventSummary::getId));
+
+        List<String> paged = ids(readAll(query, docs));
+        assertTrue(expected.size() > query.getPageSize() * 3);
+        assertEquals(ids(expected), paged);
+    }
+
+    @Test
+    public void testUnfilteredPagingIncludesUndatedEventsFirst() {
+        List<EventSummary> docs = events(60);
+        List<EventSummary> all = readAll(new EventQuery().pageSize(8), docs);
+
+        assertEquals(60, all.size());
+        assertNull(all.get(0).getDate());
+        assertEquals(60, new HashSet<>(ids(all)).size());
+    }
+
+    @Test
+    public void testOpenRegistrationMatchesEventStateRules() {
+        List<EventSummary> docs = events(90);
+        Timestamp now = at(750);
+        List<EventSummary> open = readAll(new EventQuery().state(EventState.OPEN_FOR_REG, now).pageSize(4), docs);
+
+        int expected = 0;
+        for (EventSummary d : docs) {
+            // Event.isOpenForReg: not before the start and not past the end
+            boolean isOpen = now.compareTo(d.getRegStartDate()) >= 0 && now.compareTo(d.getRegEndDate()) < 0;
+            if (isOpen) expected++;
+            assertEquals(d.getId(), isOpen, open.contains(d));
+        }
+        assertEquals(expected, open.size());
+    }
+
+    @Test
+    public void testShortPageIsLastAndFullPageHasCursor() {
+        EventQuery query = new EventQuery().pageSize(3);
+        List<EventSummary> docs = events(3);
+
+        EventPage full = query.toPage(query.build(ops, new FakeQuery(), null).get(docs));
+        assertTrue(full.hasMore());
+        assertEquals(List.of(full.getEvents().get(2).getDate(), full.getEvents().get(2).getId()),
+                full.getNextCursor().getValues());
+
+        EventPage last = query.toPage(query.build(ops, new FakeQuery(), full.getNextCursor()).get(docs));
+        assertTrue(last.getEvents().isEmpty());
+        assertFalse(last.hasMore());
+    }
+
+    @Test
+    public void testRejectsStatesAndPageSizesItCannotServe() {
+        assertThrows(IllegalArgumentException.class, () -> new EventQuery().state(EventState.CANCELLED));
+        assertThrows(IllegalArgumentException.class, () -> new EventQuery().pageSize(0));
+        assertEquals(EventQuery.MAX_PAGE_SIZE, new EventQuery().pageSize(1000).getPageSize());
+        assertFalse(new EventQuery().tag("").dates(null, null).state(null).isFiltered());
+    }
+}
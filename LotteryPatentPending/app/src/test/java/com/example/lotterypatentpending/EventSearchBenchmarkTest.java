@@ -0,0 +1,132 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.data.EventSearchIndex;
+import com.example.lotterypatentpending.models.EventSummary;
+import com.google.firebase.Timestamp;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Checks {@link EventSearchIndex} on 50,000 events against plain scans: the event
+ * list fragments' old date, tag and waiting list state loop, and a word-prefix scan
+ * for each keystroke of a typed query.
+ */
+@Category(Benchmarks.class)
+public class EventSearchBenchmarkTest {
+    private static final int EVENTS = 50_000;
+    private static final String[] WORDS = {"basketball", "swimming", "pottery", "yoga", "chess",
+            "robotics", "painting", "soccer", "coding", "dance", "choir", "hiking", "cooking",
+            "tennis", "drama", "photography", "gardening", "karate", "violin", "debate"};
+    private static final String[] KINDS = {"lessons", "tryouts", "night", "camp", "workshop", "club"};
+    private static final String[] TAGS = {"Sports", "Arts", "Music", "Tech", "Outdoors"};
+    private static final String[] TYPED = {"b", "ba", "bas", "bask", "baske", "basket",
+            "y", "yo", "yoga", "yoga c", "yoga ca", "yoga camp", "pho", "photography night"};
+
+    private static List<EventSummary> events() {
+        Random random = new Random(7);
+        List<EventSummary> out = new ArrayList<>(EVENTS);
+        for (int i = 0; i < EVENTS; i++) {
+            EventSummary s = new EventSummary();
+            s.setId(String.format("e%06d", i));
+            s.setTitle(WORDS[random.nextInt(WORDS.length)] + " " + KINDS[random.nextInt(KINDS.length)]
+                    + " " + (i % 97));
+            s.setTag(TAGS[random.nextInt(TAGS.length)]);
+            s.setLocation("Hall " + random.nextInt(200));
+            s.setDate(new Timestamp(1_700_000_000L + random.nextInt(365 * 86_400), 0));
+            out.add(s);
+        }
+        return out;
+    }
+
+    /** The fragments' loop: title contains, date overlap, tag, then state. */
+    private static List<EventSummary> legacyFilter(List<EventSummary> base, String query, Timestamp start,
+                                                   Timestamp end, String tag, Set<String> stateIds) {
+        String q = query.toLowerCase().trim();
+        List<EventSummary> out = new ArrayList<>();
+        for (EventSummary e : base) {
+            if (!q.isEmpty() && (e.getTitle() == null || !e.getTitle().toLowerCase().contains(q))) continue;
+            Timestamp date = e.getDate();
+            if (date != null && start != null && date.compareTo(start) < 0) continue;
+            if (date != null && end != null && date.compareTo(end) > 0) continue;
+            if (tag != null && (e.getTag() == null || !e.getTag().equalsIgnoreCase(tag))) continue;
+            if (stateIds != null && !stateIds.contains(e.getId())) continue;
+            out.add(e);
+        }
+        return out;
+    }
+
+    /** The index's text match as a scan: every query word prefixes a title, tag or location word. */
+    private static List<EventSummary> prefixScan(List<EventSummary> base, String query) {
+        String[] wanted = query.toLowerCase(Locale.ROOT).trim().split("[^a-z0-9]+");
+        List<EventSummary> out = new ArrayList<>();
+        for (EventSummary e : base) {
+            String[] words = (e.getTitle() + " " + e.getTag() + " " + e.getLocation())
+                    .toLowerCase(Locale.ROOT).split("[^a-z0-9]+");
+            boolean all = true;
+            for (String w : wanted) {
+                boolean any = false;
+                for (String word : words) {
+                    if (word.startsWith(w)) {
+                        any = true;
+                        break;
+                    }
+                }
+                all &= any;
+            }
+            if (all) out.add(e);
+        }
+        return out;
+    }
+
+    @Test
+    public void testIndexedSearchOnFiftyThousandEvents() {
+        List<EventSummary> events = events();
+        Timestamp from = new Timestamp(1_700_000_000L + 30 * 86_400, 0);
+        Timestamp to = new Timestamp(1_700_000_000L + 60 * 86_400, 0);
+        Set<String> onWaitingList = new HashSet<>();
+        for (int i = 0; i < EVENTS; i += 500) onWaitingList.add(events.get(i).getId());
+
+        EventSearchIndex index = new EventSearchIndex();
+        index.update(events);
+
+        // a live snapshot where one event changed
+        List<EventSummary> next = new ArrayList<>(events);
+        EventSummary renamed = new EventSummary();
+        renamed.setId(events.get(10).getId());
+        renamed.setTitle("zumba night");
+        renamed.setTag("Sports");
+        next.set(10, renamed);
+        int before = index.getReindexedCount();
+        index.update(next);
+        assertEquals(1, index.getReindexedCount() - before);
+        assertEquals(1, index.search(new EventSearchIndex.Filter().text("zumba")).size());
+        index.update(events);
+        assertTrue(index.search(new EventSearchIndex.Filter().text("zumba")).isEmpty());
+
+        // every keystroke finds what a scan for the same word prefixes finds
+        for (String q : TYPED) {
+            List<EventSummary> found = index.search(new EventSearchIndex.Filter().text(q));
+            assertEquals(q, prefixScan(events, q), found);
+            assertTrue(q, found.size() > 0);
+        }
+
+        // combined date, tag and state filter
+        EventSearchIndex.Filter combined = new EventSearchIndex.Filter()
+                .dates(from, to).tag("arts").ids(onWaitingList);
+        assertEquals(legacyFilter(events, "", from, to, "arts", onWaitingList), index.search(combined));
+        EventSearchIndex.Filter dateTag = new EventSearchIndex.Filter().dates(from, to).tag("arts");
+        assertEquals(legacyFilter(events, "", from, to, "arts", null), index.search(dateTag));
+        assertTrue(index.search(dateTag).size() > 0);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.data.EventSearchIndex;
+import com.example.lotterypatentpending.models.EventSummary;
+import com.google.firebase.Timestamp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class EventSearchIndexTest {
+    private final EventSearchIndex index = new EventSearchIndex();
+
+    private static EventSummary summary(String id, String title, String tag, String location, Long seconds) {
+        EventSummary s = new EventSummary();
+        s.setId(id);
+        s.setTitle(title);
+        s.setTag(tag);
+        s.setLocation(location);
+        if (seconds != null) s.setDate(new Timestamp(seconds, 0));
+        return s;
+    }
+
+    private static List<String> ids(List<EventSummary> summaries) {
+        List<String> out = new ArrayList<>();
+        for (EventSummary s : summaries) out.add(s.getId());
+        return out;
+    }
+
+    private List<String> search(String text) {
+        return ids(index.search(new EventSearchIndex.Filter().text(text)));
+    }
+
+    @Before
+    public void setUp() {
+        index.update(List.of(
+                summary("c", "Basketball Tryouts", "Sports", "North Gym", 300L),
+                summary("a", "Swimming Lessons", "sports", "Aquatic Centre", 100L),
+                summary("b", "Pottery Night", "Arts", "Basement Studio", 200L),
+                summary("d", "Open Mic", null, null, null)));
+    }
+
+    @Test
+    public void testEmptyFilterReturnsEverythingInListOrder() {
+        assertEquals(List.of("c", "a", "b", "d"), search(""));
+        assertEquals(List.of("c", "a", "b", "d"), search("  "));
+    }
+
+    @Test
+    public void testTokensMatchByPrefixAcrossTitleTagAndLocation() {
+        assertEquals(List.of("c", "b"), search("bas"));   // Basketball, Basement
+        assertEquals(List.of("c", "a"), search("SPORT"));
+        assertEquals(List.of("a"), search("aqua"));
+        assertEquals(List.of(), search("ball"));          // prefixes only, not substrings
+    }
+
+    @Test
+    public void testEveryQueryTokenMustMatch() {
+        assertEquals(List.of("c"), search("bas gym"));
+        assertEquals(List.of("b"), search("night, bas"));
+        assertEquals(List.of(), search("swim gym"));
+    }
+
+    @Test
+    public void testTagFilterIgnoresCase() {
+        EventSearchIndex.Filter f = new EventSearchIndex.Filter().tag("SPORTS");
+        assertEquals(List.of("c", "a"), ids(index.search(f)));
+        assertEquals(List.of(), ids(index.search(new EventSearchIndex.Filter().tag("Music"))));
+    }
+
+    @Test
+    public void testDateRangeIsInclusiveAndKeepsUndatedEvents() {
+        EventSearchIndex.Filter f = new EventSearchIndex.Filter()
+                .dates(new Timestamp(200, 0), new Timestamp(300, 0));
+        assertEquals(List.of("c", "b", "d"), ids(index.search(f)));
+
+        f.dates(null, new Timestamp(150, 0));
+        assertEquals(List.of("a", "d"), ids(index.search(f)));
+
+        f.dates(new Timestamp(250, 0), null);
+        assertEquals(List.of("c", "d"), ids(index.search(f)));
+    }
+
+    @Test
+    public void testIdsRestrictResults() {
+        EventSearchIndex.Filter f = new EventSearchIndex.Filter().ids(Set.of("a", "b", "zzz")).text("s");
+        assertEquals(List.of("a", "b"), ids(index.search(f)));
+    }
+
+    @Test
+    public void testUpdateOnlyReindexesChangedEvents() {
+        assertEquals(4, index.getReindexedCount());
+        EventSummary recounted = summary("a", "Swimming Lessons", "sports", "Aquatic Centre", 100L);
+        EventSummary renamed = summary("b", "Glazing Night", "Arts", "Basement Studio", 200L);
+
+        index.update(List.of(
+                summary("c", "Basketball Tryouts", "Sports", "North Gym", 300L),
+                recounted, renamed,
+                summary("d", "Open Mic", null, null, null)));
+
+        assertEquals(5, index.getReindexedCount());
+        assertSame(recounted, index.search(new EventSearchIndex.Filter().text("swim")).get(0));
+        assertEquals(List.of(), search("pottery"));
+        assertEquals(List.of("b"), search("glaz"));
+    }
+
+    @Test
+    public void testUpdateRemovesMissingEventsAndFollowsNewOrder() {
+        index.update(List.of(
+                summary("e", "Basket Weaving", "Arts", "Library", 400L),
+                summary("b", "Pottery Night", "Arts", "Basement Studio", 200L),
+                summary("c", "Basketball Tryouts", "Sports", "North Gym", 300L)));
+
+        assertEquals(3, index.size());
+        assertEquals(List.of("e", "b", "c"), search("bas"));
+        assertEquals(List.of(), search("swim"));
+        assertEquals(List.of("e", "b"), ids(index.search(new EventSearchIndex.Filter().tag("arts"))));
+        assertTrue(index.search(new EventSearchIndex.Filter().tag("arts").text("north")).isEmpty());
+    }
+}
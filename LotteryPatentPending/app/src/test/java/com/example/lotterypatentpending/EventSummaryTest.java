@@ -0,0 +1,66 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.models.Event;
+import com.example.lotterypatentpending.models.EventSummary;
+import com.example.lotterypatentpending.models.User;
+import com.example.lotterypatentpending.models.WaitingListState;
+
+import org.junit.Test;
+
+public class EventSummaryTest {
+
+    private static Event eventWithEntrants() {
+        Event event = new Event("Swim lessons", "desc", 10, new User("org1", "Org", null, null));
+        event.setTag("Sports");
+        event.setWaitingListCapacity(50);
+        WaitingListState[] states = {
+                WaitingListState.ENTERED, WaitingListState.ACCEPTED, WaitingListState.SELECTED,
+                WaitingListState.ACCEPTED, WaitingListState.DECLINED
+        };
+        for (int i = 0; i < states.length; i++) {
+            User u = new User("u" + i, "name", null, null);
+            event.addToWaitingList(u);
+            event.updateEntrantState(u, states[i]);
+        }
+        return event;
+    }
+
+    @Test
+    public void testSummaryCopiesRowFieldsAndCounts() {
+        Event event = eventWithEntrants();
+
+        EventSummary summary = EventSummary.of(event);
+
+        assertEquals(event.getId(), summary.getId());
+        assertEquals("Swim lessons", summary.getTitle());
+        assertEquals("Sports", summary.getTag());
+        assertEquals(10, summary.getCapacity());
+        assertEquals(50, summary.getWaitingListCapacity());
+        assertEquals("org1", summary.getOrganizerId());
+        assertEquals(5, summary.getEntrantCount());
+        assertEquals(2, summary.getAcceptedCount());
+        assertFalse(summary.hasPoster());
+    }
+
+    @Test
+    public void testSummaryOnlyFlagsPoster() {
+        Event event = eventWithEntrants();
+        event.setPosterBytes(new byte[900 * 1024]);
+
+        assertTrue(EventSummary.of(event).hasPoster());
+    }
+
+    @Test
+    public void testSummaryOfBareEvent() {
+        EventSummary summary = EventSummary.of(new Event());
+
+        assertNull(summary.getOrganizerId());
+        assertEquals(0, summary.getEntrantCount());
+        assertEquals("Not set", summary.getFormattedRegWindow());
+    }
+}
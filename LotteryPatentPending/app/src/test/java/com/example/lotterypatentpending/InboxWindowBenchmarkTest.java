@@ -0,0 +1,127 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.data.NotificationWindow;
+import com.example.lotterypatentpending.models.Notification;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares keeping a 10,000 notification inbox on screen with a full-history
+ * listener, which deserializes every document on every change, against a
+ * {@link NotificationWindow} that listens to the newest page and applies only the
+ * changed documents. Documents are maps deserialized field by field, standing in
+ * for {@code toObject}, and the documents each one reads are counted.
+ */
+@Category(Benchmarks.class)
+public class InboxWindowBenchmarkTest {
+    private static final int INBOX = 10_000;
+    private static final int CHANGES = 200;
+    private static final int PAGE = NotificationWindow.DEFAULT_PAGE_SIZE;
+
+    private int deserialized;
+
+    private static Map<String, Object> doc(int i) {
+        Map<String, Object> d = new HashMap<>();
+        d.put("id", "n" + i);
+        d.put("title", "Lottery results for event " + (i % 40));
+        d.put("body", "You were not selected this time. We will notify you if a spot opens up.");
+        d.put("category", Notification.Category.LOTTERY_LOSE.name());
+        d.put("read", i % 3 == 0);
+        d.put("createdAt", new Date(1_000_000L + i));
+        return d;
+    }
+
+    private Notification toObject(Map<String, Object> d) {
+        deserialized++;
+        Notification n = new Notification();
+        n.setId((String) d.get("id"));
+        n.setUserId("u1");
+        n.setTitle((String) d.get("title"));
+        n.setBody((String) d.get("body"));
+        n.setCategory(Notification.Category.valueOf((String) d.get("category")));
+        n.setRead((Boolean) d.get("read"));
+        n.setCreatedAt((Date) d.get("createdAt"));
+        return n;
+    }
+
+    /** Server side inbox, newest last. */
+    private static List<Map<String, Object>> inbox() {
+        List<Map<String, Object>> docs = new ArrayList<>();
+        for (int i = 0; i < INBOX; i++) docs.add(doc(i));
+        return docs;
+    }
+
+    private List<Notification> fullSnapshot(List<Map<String, Object>> docs) {
+        List<Notification> out = new ArrayList<>(docs.size());
+        for (int i = docs.size() - 1; i >= 0; i--) out.add(toObject(docs.get(i)));
+        return out;
+    }
+
+    @Test
+    public void testWindowedListenerOnTenThousandNotifications() {
+        // full-history listener: every change re-reads the whole inbox
+        List<Map<String, Object>> docs = inbox();
+        deserialized = 0;
+        List<Notification> shown = fullSnapshot(docs);
+        int fullInitial = deserialized;
+        for (int c = 0; c < CHANGES; c++) {
+            if (c % 2 == 0) docs.add(doc(INBOX + c));
+            else docs.get(docs.size() - 1 - (c % PAGE)).put("read", true);
+            shown = fullSnapshot(docs);
+        }
+        int fullChanges = deserialized - fullInitial;
+        assertEquals(INBOX + CHANGES / 2, shown.size());
+
+        // windowed listener: the newest page, then one change at a time
+        docs = inbox();
+        deserialized = 0;
+        NotificationWindow window = new NotificationWindow();
+        for (int i = 0; i < PAGE; i++) window.put(toObject(docs.get(docs.size() - 1 - i)));
+        window.setHasMore(true);
+        shown = window.snapshot();
+        int windowInitial = deserialized;
+        for (int c = 0; c < CHANGES; c++) {
+            if (c % 2 == 0) {
+                docs.add(doc(INBOX + c));
+                window.put(toObject(docs.get(docs.size() - 1)));
+                // the live page is full, so its oldest document drops off
+                Notification tail = window.get((String) docs.get(docs.size() - PAGE).get("id"));
+                window.leaveLivePage(toObject(docs.get(docs.size() - 1 - PAGE)), tail);
+            } else {
+                Map<String, Object> d = docs.get(docs.size() - 1 - (c % PAGE));
+                d.put("read", true);
+                window.put(toObject(d));
+            }
+            shown = window.snapshot();
+        }
+        int windowChanges = deserialized - windowInitial;
+        assertEquals(PAGE + CHANGES / 2, shown.size());
+
+        // scrolling to the bottom reads every older page once
+        deserialized = 0;
+        while (window.hasMore()) {
+            // the window holds the newest documents without gaps
+            int from = docs.size() - 1 - window.size();
+            List<Notification> page = new ArrayList<>();
+            for (int i = from; i > from - PAGE && i >= 0; i--) page.add(toObject(docs.get(i)));
+            window.appendPage(page, page.size() == PAGE);
+        }
+        assertEquals(docs.size(), window.size());
+        assertEquals(docs.size() - PAGE - CHANGES / 2, deserialized);
+
+        assertEquals(INBOX, fullInitial);
+        assertEquals(PAGE, windowInitial);
+        assertEquals(CHANGES / 2 * 2 + CHANGES / 2, windowChanges);
+        assertTrue(fullChanges >= INBOX * CHANGES);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.data.ChangeSet;
+import com.example.lotterypatentpending.data.KeyedLiveList;
+import com.example.lotterypatentpending.models.EventSummary;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class KeyedLiveListTest {
+    private final KeyedLiveList<EventSummary> list = new KeyedLiveList<>();
+
+    private static EventSummary summary(String id, String title) {
+        EventSummary s = new EventSummary();
+        s.setId(id);
+        s.setTitle(title);
+        return s;
+    }
+
+    private static List<String> ids(List<EventSummary> summaries) {
+        List<String> out = new ArrayList<>();
+        for (EventSummary s : summaries) out.add(s.getId());
+        return out;
+    }
+
+    @Test
+    public void testFirstSnapshotIsAllAdded() {
+        list.apply(KeyedLiveList.Type.ADDED, "b", summary("b", "Yoga"));
+        list.apply(KeyedLiveList.Type.ADDED, "a", summary("a", "Swim"));
+        ChangeSet<EventSummary> changes = list.commit();
+
+        assertEquals(List.of("b", "a"), ids(changes.getAdded()));
+        assertTrue(changes.getModified().isEmpty());
+        assertTrue(changes.getRemoved().isEmpty());
+        // document id order, like a Firestore query without orderBy
+        assertEquals(List.of("a", "b"), ids(changes.getItems()));
+    }
+
+    @Test
+    public void testChangeSetOnlyHoldsWhatChanged() {
+        for (int i = 0; i < 10; i++) {
+            list.apply(KeyedLiveList.Type.ADDED, "e" + i, summary("e" + i, "Event " + i));
+        }
+        ChangeSet<EventSummary> initial = list.commit();
+
+        list.apply(KeyedLiveList.Type.MODIFIED, "e3", summary("e3", "Renamed"));
+        list.apply(KeyedLiveList.Type.REMOVED, "e5", null);
+        list.apply(KeyedLiveList.Type.ADDED, "e99", summary("e99", "New"));
+        ChangeSet<EventSummary> changes = list.commit();
+
+        assertEquals(List.of("e99"), ids(changes.getAdded()));
+        assertEquals(List.of("e3"), ids(changes.getModified()));
+        assertEquals(List.of("e5"), ids(changes.getRemoved()));
+        assertEquals("Event 5", changes.getRemoved().get(0).getTitle());
+        assertEquals(10, changes.getItems().size());
+        assertEquals("Renamed", list.get("e3").getTitle());
+        assertNull(list.get("e5"));
+
+        // untouched rows are the same objects, so nothing has to rebind them
+        assertSame(initial.getItems().get(0), changes.getItems().get(0));
+    }
+
+    @Test
+    public void testUnparsableDocumentIsDropped() {
+        list.apply(KeyedLiveList.Type.ADDED, "a", summary("a", "Swim"));
+        list.commit();
+
+        list.apply(KeyedLiveList.Type.MODIFIED, "a", null);
+        ChangeSet<EventSummary> changes = list.commit();
+
+        assertEquals(List.of("a"), ids(changes.getRemoved()));
+        assertEquals(0, list.size());
+    }
+
+    @Test
+    public void testCommitWithoutChangesIsEmpty() {
+        list.apply(KeyedLiveList.Type.ADDED, "a", summary("a", "Swim"));
+        list.commit();
+
+        ChangeSet<EventSummary> changes = list.commit();
+        assertTrue(changes.isEmpty());
+        assertEquals(1, changes.getItems().size());
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+
+import androidx.core.util.Pair;
+
+import com.example.lotterypatentpending.models.DrawRecord;
+import com.example.lotterypatentpending.models.LotterySystem;
+import com.example.lotterypatentpending.models.StratifiedDrawStrategy;
+import com.example.lotterypatentpending.models.User;
+import com.example.lotterypatentpending.models.WaitingListState;
+import com.example.lotterypatentpending.models.WeightedDrawStrategy;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Runs the partial Fisher–Yates draw next to the previous shuffle-everything
+ * implementation on a 50k-entrant pool with 20 slots, round after round,
+ * and runs each {@link LotterySystem.DrawStrategy} on pools up to 100k.
+ */
+@Category(Benchmarks.class)
+public class LotterySystemBenchmarkTest {
+    private static final int POOL = 50_000;
+    private static final int SLOTS = 20;
+    private static final int ROUNDS = 30;
+    private static final int STRATEGY_SLOTS = 100;
+
+    @Test
+    public void testPartialDrawDecidesTheSameAsFullShuffle() {
+        List<Pair<User, WaitingListState>> current = buildPool();
+        List<Pair<User, WaitingListState>> legacy = buildPool();
+        Random rnd = new Random(1);
+
+        // first draw turns everyone into SELECTED/NOT_SELECTED; later rounds are redraws
+        for (int i = 0; i < 5; i++) {
+            LotterySystem.lotteryDraw(current, SLOTS, rnd);
+            legacyDraw(legacy, SLOTS);
+            resetWinners(current);
+            resetWinners(legacy);
+        }
+
+        for (int i = 0; i < ROUNDS; i++) {
+            LotterySystem.lotteryDraw(current, SLOTS, rnd);
+            legacyDraw(legacy, SLOTS);
+
+            // only the winners are touched, yet everyone ends up decided as before
+            assertEquals(count(legacy, WaitingListState.SELECTED), count(current, WaitingListState.SELECTED));
+            assertEquals(SLOTS, count(current, WaitingListState.SELECTED));
+            assertEquals(POOL - SLOTS, count(current, WaitingListState.NOT_SELECTED));
+            resetWinners(current);
+            resetWinners(legacy);
+        }
+    }
+
+    @Test
+    public void testStrategiesDrawReproduciblyOnLargePools() {
+        Map<String, Integer> quotas = new HashMap<>();
+        for (int g = 0; g < 10; g++) {
+            quotas.put("g" + g, 10);
+        }
+        LotterySystem.DrawStrategy[] strategies = {
+                LotterySystem.UNIFORM,
+                WeightedDrawStrategy.byPastEvents(0.5),
+                new StratifiedDrawStrategy(u -> "g" + (u.getUserId().hashCode() & 15), quotas),
+        };
+
+        for (LotterySystem.DrawStrategy strategy : strategies) {
+            checkStrategy(strategy, 10_000);
+            checkStrategy(strategy, 100_000);
+        }
+    }
+
+    /**
+     * Draws {@link #STRATEGY_SLOTS} winners from {@code n} entrants once per round and
+     * checks each draw picks that many distinct entrants, the same ones for the same seed.
+     */
+    private static void checkStrategy(LotterySystem.DrawStrategy strategy, int n) {
+        List<Pair<User, WaitingListState>> pool = buildPool(n);
+        for (int i = 0; i < n; i += 3) {
+            pool.get(i).first.getPastEventIds().add("past");
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            DrawRecord record = LotterySystem.lotteryDraw(pool, STRATEGY_SLOTS, round, strategy);
+            assertEquals(STRATEGY_SLOTS, new HashSet<>(record.getWinnerIds()).size());
+            assertEquals(STRATEGY_SLOTS, count(pool, WaitingListState.SELECTED));
+            resetWinners(pool);
+
+            DrawRecord again = LotterySystem.lotteryDraw(pool, STRATEGY_SLOTS, round, strategy);
+            assertEquals(strategy.getName(), record.getWinnerIds(), again.getWinnerIds());
+            resetWinners(pool);
+        }
+    }
+
+    private static List<Pair<User, WaitingListState>> buildPool() {
+        return buildPool(POOL);
+    }
+
+    private static List<Pair<User, WaitingListState>> buildPool(int size) {
+        List<Pair<User, WaitingListState>> pool = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            pool.add(new Pair<>(new User("u" + i, null, null, null), WaitingListState.ENTERED));
+        }
+        return pool;
+    }
+
+    /** Puts this round's winners back into the pool, as a redraw after declines would. */
+    private static void resetWinners(List<Pair<User, WaitingListState>> pool) {
+        for (int i = 0; i < pool.size(); i++) {
+            if (pool.get(i).second == WaitingListState.SELECTED) {
+                pool.set(i, new Pair<>(pool.get(i).first, WaitingListState.NOT_SELECTED));
+            }
+        }
+    }
+
+    private static int count(List<Pair<User, WaitingListState>> pool, WaitingListState state) {
+        int n = 0;
+        for (Pair<User, WaitingListState> p : pool) {
+            if (p.second == state) n++;
+        }
+        return n;
+    }
+
+    /** The draw as it was before the partial Fisher–Yates engine. */
+    private static void legacyDraw(List<Pair<User, WaitingListState>> list, int numSlots) {
+        List<Integer> candidateIndices = new ArrayList<>();
+        for (int i = 0; i < list.size(); i++) {
+            WaitingListState state = list.get(i).second;
+            if (state == WaitingListState.ENTERED || state == WaitingListState.NOT_SELECTED) {
+                candidateIndices.add(i);
+            }
+        }
+        if (candidateIndices.isEmpty()) return;
+        Collections.shuffle(candidateIndices);
+        int toSelect = Math.min(numSlots, candidateIndices.size());
+        for (int k = 0; k < candidateIndices.size(); k++) {
+            int idx = candidateIndices.get(k);
+            WaitingListState newState =
+                    (k < toSelect) ? WaitingListState.SELECTED : WaitingListState.NOT_SELECTED;
+            list.set(idx, new Pair<>(list.get(idx).first, newState));
+        }
+    }
+}
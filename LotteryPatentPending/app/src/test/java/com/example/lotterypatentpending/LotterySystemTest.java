@@ -1,22 +1,34 @@
 package com.example.lotterypatentpending;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import androidx.core.util.Pair;
 
+import com.example.lotterypatentpending.models.DrawRecord;
+import com.example.lotterypatentpending.models.Event;
 import com.example.lotterypatentpending.models.LotterySystem;
+import com.example.lotterypatentpending.models.StratifiedDrawStrategy;
 import com.example.lotterypatentpending.models.User;
 import com.example.lotterypatentpending.models.WaitingListState;
+import com.example.lotterypatentpending.models.WeightedDrawStrategy;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 public class LotterySystemTest {
     private List<Pair<User, WaitingListState>> list;
@@ -178,4 +190,230 @@ public class LotterySystemTest {
         assertEquals(WaitingListState.SELECTED, list.get(1).second);
         assertEquals(WaitingListState.SELECTED, list.get(2).second);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDrawOnlyRewritesChangedEntries() {
+        list.set(0, new Pair<>(user1, WaitingListState.NOT_SELECTED));
+        Pair<User, WaitingListState> unchanged = list.get(0);
+
+        // all five are candidates, but only one can win
+        LotterySystem.lotteryDraw(list, 1, new Random(7));
+
+        if (list.get(0).second == WaitingListState.NOT_SELECTED) {
+            assertSame(unchanged, list.get(0));
+        }
+    }
+
+    @Test
+    public void testDrawIsUniformChiSquare() {
+        int n = 20;
+        int k = 5;
+        int trials = 20_000;
+        int[] wins = new int[n];
+        Random rnd = new Random(12345);
+
+        for (int t = 0; t < trials; t++) {
+            List<Pair<User, WaitingListState>> pool = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                pool.add(new Pair<>(new User("u" + i, null, null, null), WaitingListState.ENTERED));
+            }
+            LotterySystem.lotteryDraw(pool, k, rnd);
+            for (int i = 0; i < n; i++) {
+                if (pool.get(i).second == WaitingListState.SELECTED) wins[i]++;
+            }
+        }
+
+        double expected = (double) trials * k / n;
+        double chiSquare = 0;
+        for (int w : wins) {
+            chiSquare += (w - expected) * (w - expected) / expected;
+        }
+        // critical value for 19 degrees of freedom at p = 0.001
+        assertTrue("chi-square too large: " + chiSquare, chiSquare < 43.82);
+    }
+
+    @Test
+    public void testSeededDrawIsReproducibleAcrossListOrder() {
+        List<Pair<User, WaitingListState>> reversed = new ArrayList<>(list);
+        Collections.reverse(reversed);
+
+        DrawRecord a = LotterySystem.lotteryDraw(list, 2, 99L);
+        DrawRecord b = LotterySystem.lotteryDraw(reversed, 2, 99L);
+
+        assertNotNull(a);
+        assertEquals(a.getWinnerIds(), b.getWinnerIds());
+        assertEquals(a.getCandidateHash(), b.getCandidateHash());
+        assertEquals(5, a.getNumCandidates());
+        for (Pair<User, WaitingListState> pair : list) {
+            boolean won = a.getWinnerIds().contains(pair.first.getUserId());
+            assertEquals(won ? WaitingListState.SELECTED : WaitingListState.NOT_SELECTED, pair.second);
+        }
+    }
+
+    @Test
+    public void testVerifyDraw() {
+        DrawRecord record = LotterySystem.lotteryDraw(list, 2, 2024L);
+        List<String> pool = Arrays.asList("test_id_5", "test_id_3", "test_id_1", "test_id_4", "test_id_2");
+
+        assertTrue(LotterySystem.verifyDraw(record, pool));
+        assertEquals(record.getWinnerIds(), LotterySystem.replayDraw(2024L, pool, 2));
+        assertFalse(LotterySystem.verifyDraw(record, pool.subList(0, 4)));
+
+        record.setSeed(2025L);
+        assertFalse(LotterySystem.verifyDraw(record, pool));
+    }
+
+    @Test
+    public void testEventRunLotteryKeepsDrawRecord() {
+        Event event = new Event("title", "desc", 2, user1);
+        for (Pair<User, WaitingListState> pair : list) {
+            event.getWaitingList().addEntrant(pair.first);
+        }
+
+        DrawRecord record = event.runLottery(7L);
+
+        assertNotNull(record);
+        assertSame(record, event.getLastDraw());
+        assertEquals(2, record.getWinnerIds().size());
+        assertEquals(2, event.getTakenSpotsCount());
+    }
+
+    @Test
+    public void testWeightedDrawFavoursHeavierEntrants() {
+        User heavy = user1;
+        LotterySystem.DrawStrategy strategy =
+                new WeightedDrawStrategy(u -> u == heavy ? 3.0 : 1.0);
+        User[] pool = {user1, user2};
+
+        int heavyWins = 0;
+        int trials = 20_000;
+        for (int seed = 0; seed < trials; seed++) {
+            List<String> winners = LotterySystem.replayDraw(seed, pool, 1, strategy);
+            if (winners.get(0).equals(heavy.getUserId())) heavyWins++;
+        }
+
+        // P(heavy) = 3 / (3 + 1); std dev is about 0.003 at 20k trials
+        double share = (double) heavyWins / trials;
+        assertTrue("heavy entrant won " + share, Math.abs(share - 0.75) < 0.02);
+    }
+
+    @Test
+    public void testWeightedDrawPicksZeroWeightsLast() {
+        user4.getPastEventIds().add("e1");
+        user5.getPastEventIds().add("e2");
+        LotterySystem.DrawStrategy strategy = new WeightedDrawStrategy(
+                u -> u.getPastEventIds().isEmpty() ? 0.0 : 1.0);
+
+        DrawRecord record = LotterySystem.lotteryDraw(list, 3, 5L, strategy);
+
+        assertEquals("WEIGHTED", record.getStrategy());
+        assertEquals(3, record.getWinnerIds().size());
+        assertTrue(record.getWinnerIds().containsAll(Arrays.asList("test_id_4", "test_id_5")));
+        assertEquals(3, countState(WaitingListState.SELECTED));
+        assertEquals(2, countState(WaitingListState.NOT_SELECTED));
+    }
+
+    @Test
+    public void testStratifiedDrawFillsQuotasThenLeftovers() {
+        Map<String, Integer> quotas = new HashMap<>();
+        quotas.put("a", 1);
+        quotas.put("b", 5); // more than group b has
+        LotterySystem.DrawStrategy strategy = new StratifiedDrawStrategy(
+                u -> u == user1 || u == user2 || u == user3 ? "a" : "b", quotas);
+
+        DrawRecord record = LotterySystem.lotteryDraw(list, 4, 11L, strategy);
+
+        List<String> winners = record.getWinnerIds();
+        assertEquals(4, winners.size());
+        // both group b entrants win, one from a by quota and one more as leftover
+        assertTrue(winners.containsAll(Arrays.asList("test_id_4", "test_id_5")));
+        assertEquals(4, new HashSet<>(winners).size());
+        assertEquals(1, countState(WaitingListState.NOT_SELECTED));
+    }
+
+    @Test
+    public void testVerifyDrawChecksStrategy() {
+        LotterySystem.DrawStrategy weighted = WeightedDrawStrategy.byPastEvents(2.0);
+        User[] pool = list.stream().map(p -> p.first).toArray(User[]::new);
+        DrawRecord record = LotterySystem.lotteryDraw(list, 2, 42L, weighted);
+
+        assertTrue(LotterySystem.verifyDraw(record, pool, weighted));
+        assertFalse(LotterySystem.verifyDraw(record, pool, LotterySystem.UNIFORM));
+    }
+
+    @Test
+    public void testRedrawOnlyTouchesReplacements() {
+        list.set(0, new Pair<>(user1, WaitingListState.ACCEPTED));
+        list.set(1, new Pair<>(user2, WaitingListState.DECLINED));
+        list.set(2, new Pair<>(user3, WaitingListState.NOT_SELECTED));
+        list.set(3, new Pair<>(user4, WaitingListState.NOT_SELECTED));
+        list.set(4, new Pair<>(user5, WaitingListState.NOT_SELECTED));
+        int[] writes = {0};
+        List<Pair<User, WaitingListState>> counting = new ArrayList<Pair<User, WaitingListState>>(list) {
+            @Override
+            public Pair<User, WaitingListState> set(int index, Pair<User, WaitingListState> element) {
+                writes[0]++;
+                return super.set(index, element);
+            }
+        };
+
+        DrawRecord record = LotterySystem.redraw(counting, 1, 3L, LotterySystem.UNIFORM);
+
+        assertEquals(1, record.getWinnerIds().size());
+        assertEquals(3, record.getNumCandidates());
+        assertEquals(1, writes[0]);
+        assertEquals(WaitingListState.ACCEPTED, counting.get(0).second);
+        assertEquals(WaitingListState.DECLINED, counting.get(1).second);
+        for (Pair<User, WaitingListState> p : counting.subList(2, 5)) {
+            boolean won = record.getWinnerIds().contains(p.first.getUserId());
+            assertEquals(won ? WaitingListState.SELECTED : WaitingListState.NOT_SELECTED, p.second);
+        }
+        assertTrue(LotterySystem.verifyDraw(record, Arrays.asList("test_id_3", "test_id_4", "test_id_5")));
+    }
+
+    @Test
+    public void testRedrawIncludesLateJoiners() {
+        // one entrant lost the first draw; the other four joined after it
+        list.set(0, new Pair<>(user1, WaitingListState.NOT_SELECTED));
+
+        DrawRecord record = LotterySystem.redraw(list, 2, 8L, LotterySystem.UNIFORM);
+
+        assertEquals(5, record.getNumCandidates());
+        assertEquals(2, countState(WaitingListState.SELECTED));
+        for (Pair<User, WaitingListState> p : list) {
+            if (record.getWinnerIds().contains(p.first.getUserId())) continue;
+            // losers keep their state: late joiners stay ENTERED
+            assertEquals(p.first == user1 ? WaitingListState.NOT_SELECTED : WaitingListState.ENTERED, p.second);
+        }
+        assertTrue(LotterySystem.verifyDraw(record,
+                Arrays.asList("test_id_1", "test_id_2", "test_id_3", "test_id_4", "test_id_5")));
+    }
+
+    @Test
+    public void testEventRunRedrawFillsFreedSpots() {
+        Event event = new Event("title", "desc", 2, user1);
+        for (Pair<User, WaitingListState> pair : list) {
+            event.getWaitingList().addEntrant(pair.first);
+        }
+        DrawRecord first = event.runLottery(7L);
+        User decliner = new User(first.getWinnerIds().get(0), null, null, null);
+        event.getWaitingList().updateEntrantState(decliner, WaitingListState.DECLINED);
+
+        DrawRecord redraw = event.runRedraw(9L);
+
+        assertEquals(1, redraw.getWinnerIds().size());
+        assertFalse(first.getWinnerIds().contains(redraw.getWinnerIds().get(0)));
+        assertSame(redraw, event.getLastDraw());
+        assertEquals(2, event.getTakenSpotsCount());
+        assertEquals(2, event.getWaitingList().getStateCount(WaitingListState.NOT_SELECTED));
+        assertNull(event.runRedraw(10L)); // full again
+    }
+
+    private int countState(WaitingListState state) {
+        int n = 0;
+        for (Pair<User, WaitingListState> p : list) {
+            if (p.second == state) n++;
+        }
+        return n;
+    }
+}
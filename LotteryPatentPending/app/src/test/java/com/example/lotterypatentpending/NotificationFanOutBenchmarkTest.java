@@ -0,0 +1,167 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.models.BulkWriteResult;
+import com.example.lotterypatentpending.models.ChunkedWriter;
+import com.example.lotterypatentpending.models.Notification;
+import com.example.lotterypatentpending.models.NotificationRepository;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Compares publishing lottery results with one {@code add} per recipient against
+ * {@link NotificationRepository#addAll} on a fake repository. Every round-trip costs
+ * {@code latencyMs} plus {@code perWriteMicros} per write, and like a single phone the
+ * fake only has {@code connections} requests on the wire at once.
+ */
+@Category(Benchmarks.class)
+public class NotificationFanOutBenchmarkTest {
+    private final ScheduledExecutorService timer = Executors.newScheduledThreadPool(8);
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    private class SlowRepository implements NotificationRepository {
+        final long latencyMs;
+        final long perWriteMicros;
+        final int connections;
+        boolean batches = true;
+        final AtomicInteger roundTrips = new AtomicInteger();
+        final List<Notification> stored = new ArrayList<>();
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+        private int busy;
+
+        SlowRepository(long latencyMs, long perWriteMicros, int connections) {
+            this.latencyMs = latencyMs;
+            this.perWriteMicros = perWriteMicros;
+            this.connections = connections;
+        }
+
+        private CompletableFuture<Void> roundTrip(List<Notification> writes) {
+            CompletableFuture<Void> f = new CompletableFuture<>();
+            Runnable send = () -> {
+                roundTrips.incrementAndGet();
+                timer.schedule(() -> {
+                    synchronized (this) {
+                        stored.addAll(writes);
+                        busy--;
+                        Runnable next = waiting.poll();
+                        if (next != null) {
+                            busy++;
+                            next.run();
+                        }
+                    }
+                    f.complete(null);
+                }, latencyMs * 1000 + perWriteMicros * writes.size(), TimeUnit.MICROSECONDS);
+            };
+            synchronized (this) {
+                if (busy < connections) {
+                    busy++;
+                    send.run();
+                } else {
+                    waiting.add(send);
+                }
+            }
+            return f;
+        }
+
+        @Override
+        public CompletableFuture<Void> add(Notification n) {
+            List<Notification> one = new ArrayList<>();
+            one.add(n);
+            return roundTrip(one);
+        }
+
+        @Override
+        public CompletableFuture<BulkWriteResult> addAll(List<Notification> notifications) {
+            if (!batches) return NotificationRepository.super.addAll(notifications);
+            return ChunkedWriter.write(notifications, ChunkedWriter.MAX_BATCH_OPS, ChunkedWriter.DEFAULT_MAX_IN_FLIGHT,
+                    Notification::getUserId, this::roundTrip);
+        }
+
+        @Override
+        public CompletableFuture<Void> markRead(String userId, String notificationId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<List<Notification>> getForUser(String userId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<String> createForUser(String userId, Notification notification) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ListenerRegistration listenUnreadCount(String userId, Consumer<Integer> onCount,
+                                                      Consumer<Exception> onError) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ListenerRegistration listenUserNotifications(String userId, NotificationsListener listener) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static List<Notification> results(int n) {
+        List<Notification> list = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            list.add(new Notification("u" + i, "e1", "org1", "Update for Swim lessons", "You were not selected",
+                    Notification.Category.LOTTERY_LOSE));
+        }
+        return list;
+    }
+
+    @Test
+    public void testBatchedFanOutNeedsOneRoundTripPerBatch() {
+        int recipients = 3000;
+
+        // old path: fanOutLose fired one add() per recipient and waited for all of them
+        SlowRepository single = new SlowRepository(5, 20, 8);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Notification n : results(recipients)) futures.add(single.add(n));
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        SlowRepository batched = new SlowRepository(5, 20, 8);
+        BulkWriteResult result = batched.addAll(results(recipients)).join();
+
+        assertEquals(recipients, single.roundTrips.get());
+        assertEquals(recipients, single.stored.size());
+        assertTrue(result.isComplete());
+        assertEquals(recipients, result.getSucceeded().size());
+        assertEquals(recipients, batched.stored.size());
+        assertEquals(6, batched.roundTrips.get());
+    }
+
+    @Test
+    public void testDefaultAddAllStillWritesEveryRecipient() {
+        SlowRepository repo = new SlowRepository(1, 0, 8);
+        repo.batches = false;
+
+        BulkWriteResult result = repo.addAll(results(40)).join();
+
+        assertEquals(40, result.getSucceeded().size());
+        assertEquals(40, repo.roundTrips.get());
+    }
+}
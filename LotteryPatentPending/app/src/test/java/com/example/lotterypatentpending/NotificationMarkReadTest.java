@@ -0,0 +1,130 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.models.BulkWriteResult;
+import com.example.lotterypatentpending.models.InMemoryNotificationRepository;
+import com.example.lotterypatentpending.models.Notification;
+import com.example.lotterypatentpending.models.NotificationRepository;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks the Firestore cost of marking notifications read, counted by
+ * {@link InMemoryNotificationRepository}. Marking is transactional so the unread
+ * counter stays exact: every id is read once and each transaction of
+ * {@link NotificationRepository#MARK_READ_CHUNK_SIZE} ids commits separately.
+ */
+public class NotificationMarkReadTest {
+    private static final int CHUNK = NotificationRepository.MARK_READ_CHUNK_SIZE;
+    private final InMemoryNotificationRepository repo = new InMemoryNotificationRepository();
+    private final List<String> ids = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        List<Notification> inbox = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            Notification n = new Notification("u1", "e1", "org1", "t", "b", Notification.Category.WAITLIST);
+            n.setId("n" + i);
+            n.setRead(i % 12 >= 7);   // 700 unread, 500 read
+            inbox.add(n);
+            ids.add(n.getId());
+        }
+        repo.addAll(inbox).join();
+        repo.resetCounts();
+    }
+
+    private int unread() {
+        int count = 0;
+        for (Notification n : repo.getForUser("u1").join()) if (!n.isRead()) count++;
+        return count;
+    }
+
+    @Test
+    public void testMarkReadReadsAndUpdatesOneNotification() {
+        repo.markRead("u1", "n600").join();
+
+        assertEquals(1, repo.getReadCount());
+        assertEquals(2, repo.getWriteCount());   // the notification and the unread counter
+        assertEquals(1, repo.getCommitCount());
+        assertEquals(699, unread());
+        assertEquals(699, repo.getUnreadCounter("u1"));
+    }
+
+    @Test
+    public void testMarkingAReadNotificationWritesNothing() {
+        repo.markRead("u1", "n600").join();
+        repo.resetCounts();
+
+        repo.markRead("u1", "n600").join();   // a second device, or a second tap
+        repo.markRead("u1", "n7").join();     // read from the start
+
+        assertEquals(0, repo.getWriteCount());
+        assertEquals(699, repo.getUnreadCounter("u1"));
+    }
+
+    @Test
+    public void testMarkReadOfManyIdsOnlyWritesUnreadOnes() {
+        BulkWriteResult result = repo.markRead("u1", ids).join();
+
+        assertTrue(result.isComplete());
+        assertEquals(1200, repo.getReadCount());
+        assertEquals(700 + 1200 / CHUNK, repo.getWriteCount());   // one counter decrement per transaction
+        assertEquals(1200 / CHUNK, repo.getCommitCount());
+        assertEquals(0, unread());
+        assertEquals(0, repo.getUnreadCounter("u1"));
+    }
+
+    @Test
+    public void testMarkAllReadOnlyQueriesUnreadNotifications() {
+        int marked = repo.markAllRead("u1").join();
+
+        assertEquals(700, marked);
+        assertEquals(700 + 700, repo.getReadCount());   // the query, then each transaction
+        assertEquals(700 + 700 / CHUNK, repo.getWriteCount());
+        assertEquals(1 + 700 / CHUNK, repo.getCommitCount());
+        assertEquals(0, unread());
+    }
+
+    @Test
+    public void testTapRacingMarkAllReadCountsOnce() {
+        // the tap lands after markAllRead queried but before its transactions ran
+        List<String> queried = new ArrayList<>();
+        for (Notification n : repo.getForUser("u1").join()) if (!n.isRead()) queried.add(n.getId());
+        repo.markRead("u1", queried.get(0)).join();
+
+        repo.markRead("u1", queried).join();
+
+        assertEquals(0, unread());
+        assertEquals(0, repo.getUnreadCounter("u1"));
+    }
+
+    @Test
+    public void testMarkAllReadWithNothingUnreadWritesNothing() {
+        repo.markAllRead("u1").join();
+        repo.resetCounts();
+
+        assertEquals(0, (int) repo.markAllRead("u1").join());
+        assertEquals(1, repo.getReadCount());
+        assertEquals(0, repo.getWriteCount());
+    }
+
+    @Test
+    public void testMissingIdFailsOnlyItsTransaction() {
+        List<String> some = new ArrayList<>(ids.subList(0, 600));
+        some.add(0, "deleted");
+
+        BulkWriteResult result = repo.markRead("u1", some).join();
+
+        assertEquals(CHUNK, result.getFailed().size());
+        assertTrue(result.getFailed().containsKey("deleted"));
+        assertEquals(601 - CHUNK, result.getSucceeded().size());
+        assertFalse(result.isComplete());
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.data.InMemoryNotificationOutbox;
+import com.example.lotterypatentpending.models.Notification;
+import com.example.lotterypatentpending.models.OutboxJob;
+import com.example.lotterypatentpending.models.OutboxProgress;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class NotificationOutboxTest {
+    private final InMemoryNotificationOutbox outbox = new InMemoryNotificationOutbox();
+
+    private static OutboxJob job(String drawId, Notification.Category cat, int recipients) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < recipients; i++) ids.add("u" + i);
+        return new OutboxJob("org1", "e1", drawId, cat, "Update for Swim lessons", "body", ids);
+    }
+
+    @Test
+    public void testInterruptedSendResumesWithoutDoubleNotifying() {
+        OutboxJob job = outbox.enqueue(job("42", Notification.Category.LOTTERY_LOSE, 1200)).join();
+        assertEquals(5, job.getChunkCount());   // room for each recipient's unread counter
+
+        // the app "dies" after the first batch
+        outbox.failAfter(1);
+        OutboxJob partial = outbox.drain(job).join();
+        assertFalse(partial.isComplete());
+        assertEquals(OutboxJob.CHUNK_SIZE, partial.getDelivered());
+
+        OutboxProgress progress = outbox.progress("e1").join();
+        assertEquals(OutboxJob.CHUNK_SIZE, progress.getDelivered());
+        assertEquals(1200, progress.getTotal());
+
+        // next start: drain whatever is pending
+        outbox.failAfter(-1);
+        List<OutboxJob> resumed = outbox.drainPending("org1").join();
+
+        assertEquals(1, resumed.size());
+        assertTrue(resumed.get(0).isComplete());
+        assertEquals(5, outbox.getChunkWrites());
+        assertEquals(1200, outbox.getNotifiedUsers().size());
+        for (int i = 0; i < 1200; i++) {
+            assertEquals(1, outbox.getInbox("u" + i).size());
+        }
+        assertTrue(outbox.pending("org1").join().isEmpty());
+        assertEquals(0, resumed.get(0).getRemainingChunks());
+    }
+
+    @Test
+    public void testStaleCopyRedeliversNothing() {
+        OutboxJob job = outbox.enqueue(job("42", Notification.Category.LOTTERY_WIN, 10)).join();
+        assertEquals(1, job.getRemainingChunks());
+        outbox.drain(job).join();
+        outbox.getInbox("u3").values().iterator().next().setRead(true);
+
+        // another device still holds the job from before the drain
+        outbox.deliverChunk(job, 0).join();
+
+        assertEquals(1, outbox.getChunkWrites());
+        assertTrue(outbox.getInbox("u3").values().iterator().next().isRead());
+        assertEquals(1, outbox.getUnreadCounter("u3"));
+        assertTrue(outbox.pending("org1").join().isEmpty());
+    }
+
+    @Test
+    public void testJobStoredBeforeUnreadCountersKeepsItsChunks() {
+        OutboxJob legacy = job("7", Notification.Category.LOTTERY_LOSE, 1200);
+        legacy.setChunkSize(0);   // field missing in the stored document
+
+        assertEquals(OutboxJob.LEGACY_CHUNK_SIZE, legacy.getChunkSize());
+        assertEquals(3, legacy.getChunkCount());
+        assertFalse(legacy.isCountingUnread());
+        assertTrue(job("8", Notification.Category.LOTTERY_LOSE, 1).isCountingUnread());
+    }
+
+    @Test
+    public void testPublishingTheSameDrawAgainSendsNothing() {
+        OutboxJob first = outbox.enqueue(job("42", Notification.Category.LOTTERY_WIN, 10)).join();
+        outbox.drain(first).join();
+
+        OutboxJob again = outbox.enqueue(job("42", Notification.Category.LOTTERY_WIN, 10)).join();
+        outbox.drain(again).join();
+
+        assertTrue(again.isComplete());
+        assertEquals(1, outbox.getChunkWrites());
+        assertEquals(1, outbox.getInbox("u3").size());
+    }
+
+    @Test
+    public void testEachDrawAndCategoryIsItsOwnSend() {
+        outbox.drain(outbox.enqueue(job("42", Notification.Category.LOTTERY_WIN, 5)).join()).join();
+        outbox.drain(outbox.enqueue(job("43", Notification.Category.LOTTERY_WIN, 5)).join()).join();
+        outbox.drain(outbox.enqueue(job("43", Notification.Category.LOTTERY_LOSE, 5)).join()).join();
+
+        assertEquals(3, outbox.getInbox("u0").size());
+        OutboxProgress progress = outbox.progress("e1").join();
+        assertEquals(15, progress.getTotal());
+        assertTrue(progress.isComplete());
+    }
+
+    @Test
+    public void testHeldJobWaitsForItsDrawToBeSaved() {
+        OutboxJob held = job("42", Notification.Category.LOTTERY_WIN, 300);
+        held.hold();
+        OutboxJob stored = outbox.enqueue(held).join();
+
+        // the draw's save hasn't released it: nothing is pending, sent or counted
+        assertTrue(stored.isHeld());
+        assertTrue(outbox.pending("org1").join().isEmpty());
+        outbox.drain(stored).join();
+        assertEquals(0, outbox.getChunkWrites());
+        assertEquals(0, outbox.progress("e1").join().getTotal());
+
+        outbox.release(Collections.singletonList(stored));
+        List<OutboxJob> resumed = outbox.drainPending("org1").join();
+
+        assertEquals(1, resumed.size());
+        assertFalse(resumed.get(0).isHeld());
+        assertTrue(resumed.get(0).isComplete());
+        assertEquals(300, outbox.getNotifiedUsers().size());
+        assertEquals(300, outbox.progress("e1").join().getDelivered());
+    }
+
+    @Test
+    public void testReleasingAgainKeepsProgress() {
+        OutboxJob held = job("42", Notification.Category.LOTTERY_LOSE, 300);
+        held.hold();
+        outbox.release(Collections.singletonList(outbox.enqueue(held).join()));
+        outbox.failAfter(1);
+        OutboxJob partial = outbox.drain(outbox.load(held.getId()).join()).join();
+
+        outbox.release(Collections.singletonList(partial));
+
+        assertEquals(1, outbox.load(held.getId()).join().getRemainingChunks());
+    }
+
+    @Test
+    public void testIdempotencyKeyNamesEveryPart() {
+        String key = OutboxJob.keyFor("e1", "42", Notification.Category.LOTTERY_WIN, "u7");
+
+        assertEquals("e1_42_LOTTERY_WIN_u7", key);
+        assertEquals(key, job("42", Notification.Category.LOTTERY_WIN, 8).notificationFor("u7").getId());
+        assertNotEquals(key, OutboxJob.keyFor("e1", "43", Notification.Category.LOTTERY_WIN, "u7"));
+        assertNotEquals(key, OutboxJob.keyFor("e1", "42", Notification.Category.LOTTERY_LOSE, "u7"));
+    }
+}
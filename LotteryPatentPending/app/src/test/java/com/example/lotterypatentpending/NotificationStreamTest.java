@@ -0,0 +1,117 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.data.NotificationStream;
+import com.example.lotterypatentpending.models.InMemoryNotificationRepository;
+import com.example.lotterypatentpending.models.Notification;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class NotificationStreamTest {
+    private final InMemoryNotificationRepository repo = new InMemoryNotificationRepository();
+    private final NotificationStream stream = new NotificationStream(repo, "u1", 50);
+    private final List<String> log = new ArrayList<>();
+
+    private static Notification to(String title) {
+        return new Notification("u1", "e1", "org1", title, "b", Notification.Category.WAITLIST);
+    }
+
+    /** Logs every event as "name:event". */
+    private NotificationStream.Subscriber recorder(String name) {
+        return new NotificationStream.Subscriber() {
+            @Override public void onNotifications(List<Notification> notifications) {
+                log.add(name + ":list" + notifications.size());
+            }
+            @Override public void onUnreadCount(int count) {
+                log.add(name + ":unread" + count);
+            }
+            @Override public void onNewNotification(Notification n) {
+                log.add(name + ":new " + n.getTitle());
+            }
+        };
+    }
+
+    @Test
+    public void testSubscribersShareOneSetOfListeners() {
+        ListenerRegistration badge = stream.subscribe(new NotificationStream.Subscriber() {});
+        ListenerRegistration popup = stream.subscribe(new NotificationStream.Subscriber() {});
+        ListenerRegistration inbox = stream.subscribe(new NotificationStream.Subscriber() {});
+
+        assertEquals(3, stream.getSubscriberCount());
+        assertEquals(2, repo.getListenerCount());   // the inbox window and the unread counter
+
+        badge.remove();
+        popup.remove();
+        popup.remove();   // twice is harmless
+        assertTrue(stream.isOpen());
+        assertEquals(2, repo.getListenerCount());
+
+        inbox.remove();
+        assertFalse(stream.isOpen());
+        assertEquals(0, repo.getListenerCount());
+    }
+
+    @Test
+    public void testEventsReachSubscribersInOrder() {
+        repo.add(to("old")).join();
+        stream.subscribe(recorder("A"));
+        stream.subscribe(recorder("B"));
+        assertEquals(Arrays.asList("A:list1", "A:unread1", "B:list1", "B:unread1"), log);
+        log.clear();
+
+        repo.add(to("hello")).join();
+
+        assertEquals(Arrays.asList("A:list2", "B:list2", "A:new hello", "B:new hello",
+                "A:unread2", "B:unread2"), log);
+    }
+
+    @Test
+    public void testOnlyUnreadArrivalsAreNewOldestFirst() {
+        repo.add(to("before")).join();
+        List<String> arrived = new ArrayList<>();
+        stream.subscribe(new NotificationStream.Subscriber() {
+            @Override public void onNewNotification(Notification n) {
+                arrived.add(n.getTitle());
+            }
+        });
+        assertTrue(arrived.isEmpty());   // what was there on open is not new
+
+        Notification read = to("read");
+        read.setRead(true);
+        repo.addAll(Arrays.asList(to("first"), read, to("second"))).join();
+        repo.markRead("u1", repo.getForUser("u1").join().get(0).getId()).join();
+
+        assertEquals(Arrays.asList("first", "second"), arrived);
+    }
+
+    @Test
+    public void testReopenedStreamStartsFresh() {
+        ListenerRegistration reg = stream.subscribe(new NotificationStream.Subscriber() {});
+        repo.add(to("while open")).join();
+        reg.remove();
+        repo.add(to("while closed")).join();
+
+        List<String> arrived = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        stream.subscribe(new NotificationStream.Subscriber() {
+            @Override public void onNotifications(List<Notification> notifications) {
+                sizes.add(notifications.size());
+            }
+            @Override public void onNewNotification(Notification n) {
+                arrived.add(n.getTitle());
+            }
+        });
+
+        assertEquals(Collections.singletonList(2), sizes);
+        assertTrue(arrived.isEmpty());
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.models.Notification;
+import com.example.lotterypatentpending.models.NotificationTemplate;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Estimates what one send costs in Firestore with the full text copied into every
+ * notification versus one {@link NotificationTemplate} plus small per-recipient
+ * documents, using Firestore's documented storage size rules (document name,
+ * field names and values, 32 bytes per document, and one single-field index entry
+ * per indexed field and order). Full notifications had every field indexed both
+ * ways; templated ones only keep the orders in {@code firestore.indexes.json}.
+ */
+public class NotificationTemplateSizeTest {
+    private static final int RECIPIENTS = 10_000;
+    private static final String UID = "Xq7Lr0mQ2sVw9pZt4kYb6nHc3aJd";   // 28-char auth uid
+    private static final String AUTO_ID = "3fGh8JkL1mNp5QrS7tUv";        // 20-char document id
+    private static final String TITLE = "Update for Swim lessons";
+    private static final String BODY = "You were not selected in the lottery this time. We will notify you if a spot opens up.";
+    /** Indexed orders per field of a notification under {@code firestore.indexes.json}; others are exempt. */
+    private static final Map<String, Integer> EXEMPTED = new HashMap<>();
+    static {
+        EXEMPTED.put("read", 1);        // whereEqualTo("read", false)
+        EXEMPTED.put("createdAt", 2);   // inbox newest first, admin list oldest first
+    }
+
+    private static long valueSize(Object v) {
+        if (v == null || v instanceof Boolean) return 1;
+        if (v instanceof String) return ((String) v).length() + 1;
+        return 8;   // numbers, timestamps and server timestamp sentinels
+    }
+
+    private static long nameSize(String path) {
+        long size = 16;
+        for (String segment : path.split("/")) size += segment.length() + 1;
+        return size;
+    }
+
+    /** @return bytes written to the document itself */
+    private static long docSize(String path, Map<String, Object> fields) {
+        long size = nameSize(path) + 32;
+        for (Map.Entry<String, Object> f : fields.entrySet()) {
+            size += f.getKey().length() + 1 + valueSize(f.getValue());
+        }
+        return size;
+    }
+
+    /**
+     * @param orders indexed orders per field, or null for Firestore's default of both
+     * @return bytes of the single-field index entries of the document
+     */
+    private static long indexSize(String path, Map<String, Object> fields, Map<String, Integer> orders) {
+        long size = 0;
+        String collection = path.substring(0, path.lastIndexOf('/'));
+        collection = collection.substring(collection.lastIndexOf('/') + 1);
+        for (Map.Entry<String, Object> f : fields.entrySet()) {
+            long entry = nameSize(path) + collection.length() + 1 + f.getKey().length() + 1 + valueSize(f.getValue()) + 32;
+            size += (orders == null ? 2 : orders.getOrDefault(f.getKey(), 0)) * entry;
+        }
+        return size;
+    }
+
+    /** Fields the full {@code set(notification)} writes, as before templates. */
+    private static Map<String, Object> fullFields(Notification n) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("userId", n.getUserId());
+        m.put("eventId", n.getEventId());
+        m.put("senderId", n.getSenderId());
+        m.put("title", n.getTitle());
+        m.put("body", n.getBody());
+        m.put("status", n.getStatus());
+        m.put("category", n.getCategory().name());
+        m.put("recipients", null);
+        m.put("read", n.isRead());
+        m.put("createdAt", 0L);
+        return m;
+    }
+
+    @Test
+    public void testTemplatedSendStoresFarLess() {
+        String path = "users/" + UID + "/notifications/" + AUTO_ID;
+        NotificationTemplate template = new NotificationTemplate(AUTO_ID, AUTO_ID, UID,
+                Notification.Category.LOTTERY_LOSE, TITLE, BODY);
+        Notification n = template.notificationFor(UID);
+
+        Map<String, Object> full = fullFields(n);
+        Map<String, Object> templated = n.toTemplatedMap();
+        Map<String, Object> templateFields = new LinkedHashMap<>();
+        templateFields.put("eventId", template.getEventId());
+        templateFields.put("senderId", template.getSenderId());
+        templateFields.put("category", template.getCategory().name());
+        templateFields.put("title", TITLE);
+        templateFields.put("body", BODY);
+        templateFields.put("createdAt", 0L);
+
+        // the log used to list every recipient id; now it stores a count and the template id
+        long oldLogIds = (long) RECIPIENTS * (UID.length() + 1);
+
+        long oldWrite = RECIPIENTS * docSize(path, full) + oldLogIds;
+        long newWrite = RECIPIENTS * docSize(path, templated)
+                + docSize(NotificationTemplate.COLLECTION + "/" + AUTO_ID, templateFields) + 8;
+        long oldPayload = RECIPIENTS * (docSize(path, full) - nameSize(path) - 32) + oldLogIds;
+        long newPayload = RECIPIENTS * (docSize(path, templated) - nameSize(path) - 32);
+        long oldStored = oldWrite + RECIPIENTS * indexSize(path, full, null);
+        long newStored = newWrite + RECIPIENTS * indexSize(path, templated, EXEMPTED);
+
+        // document names cost the same per recipient either way, so the field bytes
+        // shrink by close to an order of magnitude but whole writes only by half;
+        // exempting templateId halves what is left of the index entries on top
+        assertTrue(oldPayload >= 5 * newPayload);
+        assertTrue(oldWrite >= 2 * newWrite);
+        assertTrue(2 * indexSize(path, templated, EXEMPTED) <= indexSize(path, templated, null));
+        assertTrue(oldStored >= 5 * newStored);
+    }
+}
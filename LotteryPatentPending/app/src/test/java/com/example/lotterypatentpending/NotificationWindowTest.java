@@ -0,0 +1,100 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.data.NotificationWindow;
+import com.example.lotterypatentpending.models.Notification;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+public class NotificationWindowTest {
+    private final NotificationWindow window = new NotificationWindow();
+
+    private static Notification at(String id, Long time) {
+        Notification n = new Notification("u1", "e1", "org1", "title " + id, "body", Notification.Category.WAITLIST);
+        n.setId(id);
+        n.setCreatedAt(time == null ? null : new Date(time));
+        return n;
+    }
+
+    private List<String> ids() {
+        List<String> ids = new ArrayList<>();
+        for (Notification n : window.snapshot()) ids.add(n.getId());
+        return ids;
+    }
+
+    @Test
+    public void testPutKeepsNewestFirstWithPendingOnTop() {
+        window.put(at("a", 10L));
+        window.put(at("c", 30L));
+        window.put(at("p", null));
+        window.put(at("b", 20L));
+
+        assertEquals(Arrays.asList("p", "c", "b", "a"), ids());
+    }
+
+    @Test
+    public void testModifiedNotificationIsReplacedAndMoved() {
+        Notification a = at("a", 10L);
+        Notification b = at("b", 20L);
+        window.put(a);
+        window.put(b);
+        window.put(at("p", null));
+
+        Notification confirmed = at("p", 15L);
+        window.put(confirmed);
+
+        assertEquals(Arrays.asList("b", "p", "a"), ids());
+        assertSame(confirmed, window.get("p"));
+        assertSame(a, window.snapshot().get(2));   // untouched rows keep their instance
+        assertEquals(3, window.size());
+    }
+
+    @Test
+    public void testDroppingOffAFullLivePageKeepsTheNotification() {
+        window.put(at("b", 20L));
+        window.put(at("c", 30L));
+        Notification a = at("a", 10L);
+        window.put(a);
+
+        // page of 2 after "d" arrives: d, c; "b" and "a" were pushed out, not deleted
+        window.put(at("d", 40L));
+        assertFalse(window.leaveLivePage(at("b", 20L), window.get("c")));
+
+        // "c" deleted: the page refills with "b", so "c" was newer than the new tail
+        assertTrue(window.leaveLivePage(at("c", 30L), window.get("b")));
+        // with a short live page nothing can have been pushed out
+        assertTrue(window.leaveLivePage(a, null));
+
+        assertEquals(Arrays.asList("d", "b"), ids());
+    }
+
+    @Test
+    public void testAppendPageAddsOlderAndSkipsDuplicates() {
+        window.put(at("d", 40L));
+        window.put(at("c", 30L));
+
+        window.appendPage(Arrays.asList(at("c", 30L), at("b", 20L), at("a", 10L)), false);
+
+        assertEquals(Arrays.asList("d", "c", "b", "a"), ids());
+        assertEquals("a", window.oldest().getId());
+        assertFalse(window.hasMore());
+    }
+
+    @Test
+    public void testEmptyWindow() {
+        assertNull(window.oldest());
+        assertTrue(window.hasMore());
+        assertFalse(window.remove("x"));
+        assertTrue(window.snapshot().isEmpty());
+    }
+}
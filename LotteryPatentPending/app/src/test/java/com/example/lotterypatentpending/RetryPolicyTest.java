@@ -0,0 +1,92 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.lotterypatentpending.data.RetryPolicy;
+import com.example.lotterypatentpending.exceptions.ContentionException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RetryPolicyTest {
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    private RetryPolicy policy(int maxAttempts) {
+        return new RetryPolicy(maxAttempts, 1, 4, new Random(7), timer);
+    }
+
+    private static CompletableFuture<String> failed(RuntimeException e) {
+        CompletableFuture<String> f = new CompletableFuture<>();
+        f.completeExceptionally(e);
+        return f;
+    }
+
+    @Test
+    public void testRetriesUntilSuccess() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = policy(5).run(() -> attempts.incrementAndGet() < 3
+                        ? failed(new ContentionException("busy"))
+                        : CompletableFuture.completedFuture("ok"),
+                e -> e instanceof ContentionException).join();
+
+        assertEquals("ok", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            policy(4).run(() -> {
+                attempts.incrementAndGet();
+                return failed(new ContentionException("busy"));
+            }, e -> e instanceof ContentionException).join();
+            fail("expected the last failure");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof ContentionException);
+        }
+        assertEquals(4, attempts.get());
+    }
+
+    @Test
+    public void testDoesNotRetryOtherFailures() {
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            policy(4).run(() -> {
+                attempts.incrementAndGet();
+                return failed(new IllegalStateException("permission denied"));
+            }, e -> e instanceof ContentionException).join();
+            fail("expected the failure");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void testDelaysStayInsideJitterWindow() {
+        RetryPolicy retry = new RetryPolicy(10, 50, 400, new Random(1), timer);
+        long[] windows = {50, 100, 200, 400, 400, 400};
+        for (int i = 0; i < windows.length; i++) {
+            for (int n = 0; n < 200; n++) {
+                long d = retry.delayBefore(i + 1);
+                assertTrue("retry " + (i + 1) + " waited " + d, d >= 0 && d <= windows[i]);
+            }
+        }
+    }
+}
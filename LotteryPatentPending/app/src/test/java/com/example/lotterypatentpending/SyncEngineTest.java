@@ -0,0 +1,300 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.data.ChangeSet;
+import com.example.lotterypatentpending.data.InMemoryLocalEventStore;
+import com.example.lotterypatentpending.data.SyncEngine;
+import com.example.lotterypatentpending.data.SyncPage;
+import com.example.lotterypatentpending.data.SyncSource;
+import com.example.lotterypatentpending.models.EventSummary;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SyncEngineTest {
+    /**
+     * Stands in for Firestore: documents carry a server change time, deletions leave
+     * tombstones, and listeners get the backlog since their mark, then live changes.
+     */
+    private static class FakeSyncSource implements SyncSource {
+        final Map<String, EventSummary> docs = new HashMap<>();
+        final Map<String, Long> updatedAt = new HashMap<>();
+        final Map<String, Long> deletedAt = new HashMap<>();
+        final List<Listener<EventSummary>> listeners = new ArrayList<>();
+        final List<Long> attachedSince = new ArrayList<>();
+        long clock = 1_000;
+        int downloaded = 0;
+
+        void put(String id, String organizerId, String title) {
+            EventSummary s = summary(id, organizerId, title);
+            long now = ++clock;
+            docs.put(id, s);
+            updatedAt.put(id, now);
+            deletedAt.remove(id);
+            push(new SyncPage<>(Collections.singletonList(s), Collections.emptyList(), now));
+        }
+
+        void delete(String id) {
+            long now = ++clock;
+            docs.remove(id);
+            updatedAt.remove(id);
+            deletedAt.put(id, now);
+            push(new SyncPage<>(Collections.emptyList(), Collections.singletonList(id), now));
+        }
+
+        void fail(Exception e) {
+            for (Listener<EventSummary> l : new ArrayList<>(listeners)) l.onError(e);
+        }
+
+        private void push(SyncPage<EventSummary> page) {
+            downloaded += page.getUpserts().size();
+            for (Listener<EventSummary> l : new ArrayList<>(listeners)) l.onChanges(page);
+        }
+
+        @Override
+        public ListenerRegistration listenEventSummaries(long since, Listener<EventSummary> listener) {
+            attachedSince.add(since);
+            List<EventSummary> put = new ArrayList<>();
+            List<String> deleted = new ArrayList<>();
+            long hwm = 0;
+            for (Map.Entry<String, Long> e : updatedAt.entrySet()) {
+                if (e.getValue() >= since) {
+                    put.add(docs.get(e.getKey()));
+                    hwm = Math.max(hwm, e.getValue());
+                }
+            }
+            for (Map.Entry<String, Long> e : deletedAt.entrySet()) {
+                if (e.getValue() >= since) {
+                    deleted.add(e.getKey());
+                    hwm = Math.max(hwm, e.getValue());
+                }
+            }
+            downloaded += put.size();
+            listeners.add(listener);
+            listener.onChanges(new SyncPage<>(put, deleted, hwm));
+            return () -> listeners.remove(listener);
+        }
+    }
+
+    private final FakeSyncSource server = new FakeSyncSource();
+    private final InMemoryLocalEventStore disk = new InMemoryLocalEventStore();
+    private final SyncEngine engine = new SyncEngine(server, disk, Runnable::run, Runnable::run);
+
+    private static EventSummary summary(String id, String organizerId, String title) {
+        EventSummary s = new EventSummary();
+        s.setId(id);
+        s.setOrganizerId(organizerId);
+        s.setTitle(title);
+        return s;
+    }
+
+    private static List<String> titles(List<EventSummary> summaries) {
+        List<String> out = new ArrayList<>();
+        for (EventSummary s : summaries) out.add(s.getTitle());
+        return out;
+    }
+
+    /** Records every change set an observer is sent, and its list as titles. */
+    private static class Recorder {
+        final List<ChangeSet<EventSummary>> changes = new ArrayList<>();
+        final List<List<String>> lists = new ArrayList<>();
+        final List<Exception> errors = new ArrayList<>();
+
+        ListenerRegistration observe(SyncEngine engine, String organizerId) {
+            return engine.observeEventSummaries(organizerId, c -> {
+                changes.add(c);
+                lists.add(titles(c.getItems()));
+            }, errors::add);
+        }
+
+        ChangeSet<EventSummary> lastChanges() {
+            return changes.get(changes.size() - 1);
+        }
+
+        List<String> last() {
+            return lists.get(lists.size() - 1);
+        }
+    }
+
+    @Test
+    public void testFirstSyncWaitsForNetworkThenStoresEverything() {
+        server.put("e1", "org1", "Swim");
+        server.put("e2", "org2", "Yoga");
+
+        Recorder r = new Recorder();
+        r.observe(engine, null);
+
+        // nothing on disk yet, so the first list comes from the sync, not an empty disk read
+        assertEquals(1, r.lists.size());
+        assertEquals(List.of("Swim", "Yoga"), r.last());
+        assertEquals(2, disk.getEventSummaries().size());
+        assertEquals(1_002, disk.getHighWaterMark(SyncSource.EVENT_SUMMARIES));
+        assertEquals(List.of(0L), server.attachedSince);
+    }
+
+    @Test
+    public void testFirstSyncOfAnEmptyServerSendsAnEmptyList() {
+        Recorder r = new Recorder();
+        r.observe(engine, null);
+
+        assertEquals(1, r.lists.size());
+        assertTrue(r.last().isEmpty());
+    }
+
+    @Test
+    public void testStoredListIsShownBeforeNetwork() {
+        server.put("e1", "org1", "Swim");
+        engine.observeEventSummaries(null, l -> {}, e -> {}).remove();
+
+        // offline: the source never answers
+        SyncSource offline = (since, listener) -> () -> {};
+        SyncEngine restarted = new SyncEngine(offline, disk, Runnable::run, Runnable::run);
+        Recorder r = new Recorder();
+        r.observe(restarted, null);
+
+        assertEquals(1, r.lists.size());
+        assertEquals(List.of("Swim"), r.last());
+    }
+
+    @Test
+    public void testLiveDeltasAreAppliedOneDocumentAtATime() {
+        server.put("e1", "org1", "Swim");
+        server.put("e2", "org1", "Yoga");
+        Recorder r = new Recorder();
+        r.observe(engine, null);
+        int writesAfterFirstSync = disk.getSummaryWrites();
+
+        server.put("e2", "org1", "Hot yoga");
+        server.put("e3", "org2", "Chess");
+        server.delete("e1");
+
+        assertEquals(List.of("Hot yoga", "Chess"), r.last());
+        assertEquals(3, disk.getSummaryWrites() - writesAfterFirstSync);
+        assertNull(disk.getEventSummary("e1"));
+        assertEquals(server.clock, disk.getHighWaterMark(SyncSource.EVENT_SUMMARIES));
+    }
+
+    @Test
+    public void testDeltaSendsOnlyWhatChangedWithoutReadingDisk() {
+        server.put("e1", "org1", "Swim");
+        server.put("e2", "org1", "Yoga");
+        server.put("e3", "org1", "Chess");
+        Recorder r = new Recorder();
+        r.observe(engine, "org1");
+        List<EventSummary> before = r.lastChanges().getItems();
+        int reads = disk.getSummaryReads();
+
+        server.put("e2", "org1", "Hot yoga");
+
+        ChangeSet<EventSummary> changes = r.lastChanges();
+        assertEquals(1, changes.getModified().size());
+        assertEquals("Hot yoga", changes.getModified().get(0).getTitle());
+        assertTrue(changes.getAdded().isEmpty());
+        assertTrue(changes.getRemoved().isEmpty());
+        assertSame(before.get(0), changes.getItems().get(0));
+        assertSame(before.get(2), changes.getItems().get(2));
+        assertEquals(reads, disk.getSummaryReads());
+
+        // handed to another organizer: it leaves this observer's list
+        server.put("e1", "org2", "Swim");
+        assertEquals("e1", r.lastChanges().getRemoved().get(0).getId());
+        assertEquals(List.of("Hot yoga", "Chess"), r.last());
+
+        // a change to someone else's event sends nothing
+        int sent = r.changes.size();
+        server.put("e4", "org2", "Golf");
+        assertEquals(sent, r.changes.size());
+    }
+
+    @Test
+    public void testReattachResumesFromHighWaterMark() {
+        for (int i = 0; i < 100; i++) server.put("e" + i, "org1", "Event " + i);
+        ListenerRegistration first = engine.observeEventSummaries(null, l -> {}, e -> {});
+        first.remove();
+        assertFalse(engine.isSyncing());
+        long mark = disk.getHighWaterMark(SyncSource.EVENT_SUMMARIES);
+
+        // changes while nobody listened: one edit and one deletion
+        server.put("e5", "org1", "Renamed");
+        server.delete("e7");
+        server.downloaded = 0;
+
+        Recorder r = new Recorder();
+        r.observe(engine, null);
+
+        assertEquals(List.of(0L, mark), server.attachedSince);
+        // the boundary document is read again, plus the one edit; not all 100
+        assertTrue("downloaded " + server.downloaded, server.downloaded <= 2);
+        assertEquals(99, r.last().size());
+        assertEquals("Renamed", disk.getEventSummary("e5").getTitle());
+        assertNull(disk.getEventSummary("e7"));
+    }
+
+    @Test
+    public void testObserversShareOneListener() {
+        server.put("e1", "org1", "Swim");
+        server.put("e2", "org2", "Yoga");
+        Recorder all = new Recorder();
+        Recorder mine = new Recorder();
+        ListenerRegistration a = all.observe(engine, null);
+        ListenerRegistration b = mine.observe(engine, "org1");
+
+        assertEquals(1, server.listeners.size());
+        assertEquals(List.of("Swim"), mine.last());
+
+        server.put("e3", "org1", "Chess");
+        assertEquals(List.of("Swim", "Yoga", "Chess"), all.last());
+        assertEquals(List.of("Swim", "Chess"), mine.last());
+
+        a.remove();
+        assertTrue(engine.isSyncing());
+        b.remove();
+        assertFalse(engine.isSyncing());
+        assertEquals(0, server.listeners.size());
+
+        int sent = mine.lists.size();
+        server.put("e4", "org1", "Golf");
+        assertEquals(sent, mine.lists.size());
+    }
+
+    @Test
+    public void testErrorReachesObserversAndNextObserverReattaches() {
+        server.put("e1", "org1", "Swim");
+        Recorder r = new Recorder();
+        r.observe(engine, null);
+
+        server.fail(new IllegalStateException("permission denied"));
+        assertEquals(1, r.errors.size());
+        assertFalse(engine.isSyncing());
+
+        Recorder next = new Recorder();
+        next.observe(engine, null);
+        assertTrue(engine.isSyncing());
+        assertEquals(2, server.attachedSince.size());
+    }
+
+    @Test
+    public void testHighWaterMarkNeverMovesBack() {
+        server.put("e1", "org1", "Swim");
+        engine.observeEventSummaries(null, l -> {}, e -> {});
+        long mark = disk.getHighWaterMark(SyncSource.EVENT_SUMMARIES);
+
+        // a pending local write has no server time yet
+        server.listeners.get(0).onChanges(new SyncPage<>(
+                Collections.singletonList(summary("e1", "org1", "Swim!")), Collections.emptyList(), 0));
+
+        assertEquals(mark, disk.getHighWaterMark(SyncSource.EVENT_SUMMARIES));
+        assertEquals("Swim!", disk.getEventSummary("e1").getTitle());
+    }
+}
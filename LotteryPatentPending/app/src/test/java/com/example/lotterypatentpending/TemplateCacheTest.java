@@ -0,0 +1,155 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.data.TemplateCache;
+import com.example.lotterypatentpending.data.TemplateSource;
+import com.example.lotterypatentpending.models.Notification;
+import com.example.lotterypatentpending.models.NotificationTemplate;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class TemplateCacheTest {
+
+    /** Serves any id starting with "t" and records each request; holds answers back unless {@code answerNow}. */
+    private static class FakeSource implements TemplateSource {
+        final List<List<String>> requests = new ArrayList<>();
+        final List<Runnable> heldBack = new ArrayList<>();
+        boolean answerNow = true;
+
+        @Override
+        public synchronized CompletableFuture<Map<String, NotificationTemplate>> fetchChunk(List<String> ids) {
+            requests.add(new ArrayList<>(ids));
+            Map<String, NotificationTemplate> found = new HashMap<>();
+            for (String id : ids) {
+                if (id.startsWith("t")) {
+                    found.put(id, new NotificationTemplate(id, "e1", "org1", Notification.Category.LOTTERY_WIN,
+                            "Update for " + id, "body of " + id));
+                }
+            }
+            CompletableFuture<Map<String, NotificationTemplate>> f = new CompletableFuture<>();
+            if (answerNow) f.complete(found);
+            else heldBack.add(() -> f.complete(found));
+            return f;
+        }
+
+        synchronized void answerAll() {
+            for (Runnable r : heldBack) r.run();
+        }
+    }
+
+    private static Notification templated(String userId, String templateId) {
+        Notification n = new Notification();
+        n.setUserId(userId);
+        n.setTemplateId(templateId);
+        return n;
+    }
+
+    @Test
+    public void testResolveFillsInTemplatedNotificationsOnly() {
+        FakeSource source = new FakeSource();
+        TemplateCache cache = new TemplateCache(source, 10);
+        Notification full = new Notification("u1", "e2", "org2", "Old title", "Old body",
+                Notification.Category.WAITLIST);
+        List<Notification> list = new ArrayList<>();
+        list.add(templated("u1", "t1"));
+        list.add(full);
+        list.add(templated("u1", "t1"));
+
+        cache.resolve(list).join();
+
+        assertEquals("Update for t1", list.get(0).getTitle());
+        assertEquals("body of t1", list.get(2).getBody());
+        assertEquals(Notification.Category.LOTTERY_WIN, list.get(0).getCategory());
+        assertEquals("e1", list.get(0).getEventId());
+        assertEquals("Old title", full.getTitle());
+        assertFalse(list.get(0).needsTemplate());
+        assertEquals(1, source.requests.size());
+    }
+
+    @Test
+    public void testCachedTemplatesAreNotFetchedAgain() {
+        FakeSource source = new FakeSource();
+        TemplateCache cache = new TemplateCache(source, 10);
+        List<Notification> inbox = new ArrayList<>();
+        for (int i = 0; i < 50; i++) inbox.add(templated("u1", "t" + (i % 5)));
+
+        cache.resolve(inbox).join();
+        List<Notification> again = new ArrayList<>();
+        for (int i = 0; i < 50; i++) again.add(templated("u1", "t" + (i % 5)));
+        CompletableFuture<List<Notification>> second = cache.resolve(again);
+
+        assertTrue("cached templates resolve synchronously", second.isDone());
+        assertEquals(1, cache.getFetchCount());
+        assertEquals("Update for t4", again.get(49).getTitle());
+    }
+
+    @Test
+    public void testMissesAreFetchedInChunks() {
+        FakeSource source = new FakeSource();
+        TemplateCache cache = new TemplateCache(source, 100);
+        HashSet<String> ids = new HashSet<>();
+        for (int i = 0; i < 65; i++) ids.add("t" + i);
+
+        Map<String, NotificationTemplate> found = cache.getAll(ids).join();
+
+        assertEquals(65, found.size());
+        assertEquals(3, source.requests.size());
+        for (List<String> r : source.requests) assertTrue(r.size() <= TemplateSource.CHUNK_SIZE);
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneFetch() {
+        FakeSource source = new FakeSource();
+        source.answerNow = false;
+        TemplateCache cache = new TemplateCache(source, 10);
+        List<Notification> a = new ArrayList<>();
+        a.add(templated("u1", "t1"));
+        List<Notification> b = new ArrayList<>();
+        b.add(templated("u1", "t1"));
+
+        CompletableFuture<List<Notification>> fa = cache.resolve(a);
+        CompletableFuture<List<Notification>> fb = cache.resolve(b);
+        source.answerAll();
+
+        fa.join();
+        fb.join();
+        assertEquals(1, source.requests.size());
+        assertEquals("Update for t1", b.get(0).getTitle());
+    }
+
+    @Test
+    public void testMissingTemplateLeavesNotificationUnresolved() {
+        TemplateCache cache = new TemplateCache(new FakeSource(), 10);
+        List<Notification> list = new ArrayList<>();
+        list.add(templated("u1", "gone"));
+
+        cache.resolve(list).join();
+
+        assertTrue(list.get(0).needsTemplate());
+        assertNull(cache.peek("gone"));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        TemplateCache cache = new TemplateCache(new FakeSource(), 2);
+        cache.put(new NotificationTemplate("a", "e", "o", Notification.Category.WAITLIST, "A", "a"));
+        cache.put(new NotificationTemplate("b", "e", "o", Notification.Category.WAITLIST, "B", "b"));
+        cache.peek("a");
+        cache.put(new NotificationTemplate("c", "e", "o", Notification.Category.WAITLIST, "C", "c"));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.peek("b"));
+        assertEquals("A", cache.peek("a").getTitle());
+    }
+}
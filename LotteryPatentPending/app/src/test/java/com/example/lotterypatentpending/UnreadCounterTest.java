@@ -0,0 +1,110 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+
+import com.example.lotterypatentpending.models.InMemoryNotificationRepository;
+import com.example.lotterypatentpending.models.Notification;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks the per-user unread counter on {@link InMemoryNotificationRepository},
+ * which changes it in the same writes as Firestore does.
+ */
+public class UnreadCounterTest {
+    private final InMemoryNotificationRepository repo = new InMemoryNotificationRepository();
+
+    private static Notification to(String userId) {
+        return new Notification(userId, "e1", "org1", "t", "b", Notification.Category.WAITLIST);
+    }
+
+    @Test
+    public void testCounterFollowsCreatesAndReads() {
+        List<Notification> batch = new ArrayList<>();
+        for (int i = 0; i < 600; i++) batch.add(to(i % 2 == 0 ? "u1" : "u2"));
+        repo.addAll(batch).join();
+        Notification single = to("u1");
+        repo.add(single).join();
+        Notification alreadyRead = to("u1");
+        alreadyRead.setRead(true);
+        repo.add(alreadyRead).join();
+
+        assertEquals(301, repo.getUnreadCounter("u1"));
+        assertEquals(300, repo.getUnreadCounter("u2"));
+
+        repo.markRead("u1", single.getId()).join();
+        assertEquals(300, repo.getUnreadCounter("u1"));
+
+        repo.markAllRead("u2").join();
+        assertEquals(0, repo.getUnreadCounter("u2"));
+    }
+
+    @Test
+    public void testBadgeReadsOneDocumentPerUpdateWhateverTheBacklog() {
+        List<Notification> backlog = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) backlog.add(to("u1"));
+        repo.addAll(backlog).join();
+        repo.resetCounts();
+
+        AtomicInteger shown = new AtomicInteger(-1);
+        repo.listenUnreadCount("u1", shown::set, e -> { }).remove();
+
+        assertEquals(5000, shown.get());
+        assertEquals(1, repo.getReadCount());
+    }
+
+    @Test
+    public void testMarkingTwiceDecrementsOnce() {
+        Notification n = to("u1");
+        repo.add(n).join();
+        repo.add(to("u1")).join();
+
+        repo.markRead("u1", n.getId()).join();
+        repo.markRead("u1", n.getId()).join();
+        repo.markRead("u1", List.of(n.getId())).join();
+
+        assertEquals(1, repo.getUnreadCounter("u1"));
+    }
+
+    @Test
+    public void testReconcileRepairsDriftedCounter() {
+        Notification n = to("u1");
+        repo.add(n).join();
+        repo.add(to("u1")).join();
+        repo.markRead("u1", n.getId()).join();
+        // e.g. an older app version decremented it blindly
+        repo.setUnreadCounter("u1", 0);
+
+        AtomicInteger shown = new AtomicInteger(-1);
+        repo.listenUnreadCount("u1", shown::set, e -> { });
+        repo.resetCounts();
+
+        assertEquals(1, (int) repo.reconcileUnreadCount("u1").join());
+        assertEquals(1, repo.getUnreadCounter("u1"));
+        assertEquals(1, shown.get());
+        assertEquals(1, repo.getWriteCount());
+
+        // a consistent counter is left alone
+        repo.resetCounts();
+        repo.reconcileUnreadCount("u1").join();
+        assertEquals(0, repo.getWriteCount());
+    }
+
+    @Test
+    public void testBadgeNeverShowsNegativeCount() {
+        Notification n = to("u1");
+        repo.add(n).join();
+        repo.markRead("u1", n.getId()).join();
+        repo.setUnreadCounter("u1", -1);
+
+        AtomicInteger shown = new AtomicInteger(-1);
+        repo.listenUnreadCount("u1", shown::set, e -> { });
+
+        assertEquals(-1, repo.getUnreadCounter("u1"));
+        assertEquals(0, shown.get());
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.data.BulkUserLoader;
+import com.example.lotterypatentpending.data.UserBatchSource;
+import com.example.lotterypatentpending.data.UserCache;
+import com.example.lotterypatentpending.models.User;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class UserCacheTest {
+    /** Holds each request open until the test releases it. */
+    private static class ManualSource implements UserBatchSource {
+        final List<List<String>> requests = new ArrayList<>();
+        final List<CompletableFuture<Map<String, User>>> replies = new ArrayList<>();
+
+        @Override
+        public CompletableFuture<Map<String, User>> fetchChunk(List<String> ids) {
+            requests.add(new ArrayList<>(ids));
+            CompletableFuture<Map<String, User>> f = new CompletableFuture<>();
+            replies.add(f);
+            return f;
+        }
+
+        void releaseAll() {
+            for (int i = 0; i < replies.size(); i++) {
+                Map<String, User> users = new HashMap<>();
+                for (String id : requests.get(i)) {
+                    if (!id.startsWith("missing")) users.put(id, new User(id, "name " + id, null, null));
+                }
+                replies.get(i).complete(users);
+            }
+        }
+    }
+
+    private ManualSource source;
+    private long now;
+    private UserCache cache;
+
+    @Before
+    public void setUp() {
+        source = new ManualSource();
+        now = 0;
+        cache = new UserCache(new BulkUserLoader(source), 3, 1_000, () -> now);
+    }
+
+    private User load(String id) {
+        CompletableFuture<User> f = cache.get(id);
+        source.releaseAll();
+        return f.join();
+    }
+
+    @Test
+    public void testSecondReadIsAHit() {
+        User first = load("a");
+        User second = cache.get("a").join();
+
+        assertSame(first, second);
+        assertEquals(1, source.requests.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testConcurrentReadsShareOneRequest() {
+        CompletableFuture<User> a1 = cache.get("a");
+        CompletableFuture<User> a2 = cache.get("a");
+        CompletableFuture<List<User>> both = cache.getAll(Arrays.asList("a", "b"));
+        source.releaseAll();
+
+        assertSame(a1.join(), a2.join());
+        assertSame(a1.join(), both.join().get(0));
+        assertEquals("b", both.join().get(1).getUserId());
+        assertEquals(Arrays.asList(Arrays.asList("a"), Arrays.asList("b")), source.requests);
+    }
+
+    @Test
+    public void testExpiredEntryIsReloaded() {
+        load("a");
+        now = 999;
+        cache.get("a").join();
+        now = 1_000;
+        load("a");
+
+        assertEquals(2, source.requests.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        load("a");
+        load("b");
+        load("c");
+        cache.get("a").join();   // b is now the oldest
+        load("d");
+
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        cache.get("a").join();
+        cache.get("b");
+        assertEquals(5, source.requests.size());
+    }
+
+    @Test
+    public void testInvalidateDuringLoadIsNotCached() {
+        CompletableFuture<User> f = cache.get("a");
+        cache.invalidate("a");
+        source.releaseAll();
+
+        assertEquals("a", f.join().getUserId());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testPutServesWrittenUser() {
+        load("a");
+        User edited = new User("a", "new name", null, null);
+        cache.put(edited);
+
+        assertSame(edited, cache.get("a").join());
+        assertEquals(1, source.requests.size());
+    }
+
+    @Test
+    public void testMissingUsersAreNotCached() {
+        assertNull(load("missing1"));
+        assertNull(load("missing1"));
+        assertEquals(2, source.requests.size());
+    }
+
+    @Test
+    public void testFailedLoadCanBeRetried() {
+        CompletableFuture<User> f = cache.get("a");
+        source.replies.get(0).completeExceptionally(new IllegalStateException("offline"));
+
+        assertTrue(f.isCompletedExceptionally());
+        assertEquals("a", load("a").getUserId());
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.models.User;
+import com.example.lotterypatentpending.models.WaitingList;
+import com.example.lotterypatentpending.models.WaitingListState;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Random;
+
+/**
+ * Large-list workout for the indexed WaitingList: the join, lookup, state update
+ * and leave mix over 100 to 1,000,000 entrants, checking every result and that the
+ * per-state counts stay in step with the entries.
+ */
+@Category(Benchmarks.class)
+public class WaitingListBenchmarkTest {
+    private static final int[] SIZES = {100, 10_000, 100_000, 1_000_000};
+    private static final int OPS = 50_000;
+
+    @Test
+    public void testOperationsStayConsistentAtEverySize() {
+        for (int n : SIZES) {
+            run(n);
+        }
+    }
+
+    private static void run(int n) {
+        WaitingList wl = new WaitingList();
+        User[] users = new User[n];
+        for (int i = 0; i < n; i++) {
+            users[i] = new User("u" + i, null, null, null);
+            wl.addEntrant(users[i]);
+        }
+
+        Random rnd = new Random(42);
+        for (int k = 0; k < OPS; k++) {
+            User u = users[rnd.nextInt(n)];
+            assertTrue(wl.checkEntrant(u));
+            wl.updateEntrantState(u, WaitingListState.SELECTED);
+            assertEquals(1, wl.getStateCount(WaitingListState.SELECTED));
+            assertEquals(WaitingListState.SELECTED, wl.getEntrantState(u.getUserId()));
+            wl.updateEntrantState(u, WaitingListState.ENTERED);
+            wl.removeEntrant(u);
+            assertFalse(wl.checkEntrant(u));
+            wl.addEntrant(u);
+        }
+
+        assertEquals(n, wl.getNumEntrants().intValue());
+        assertEquals(n, wl.getStateCount(WaitingListState.ENTERED));
+        assertEquals(0, wl.getStateCount(WaitingListState.SELECTED));
+    }
+}
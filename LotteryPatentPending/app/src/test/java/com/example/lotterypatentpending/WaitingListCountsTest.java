@@ -0,0 +1,85 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.models.Event;
+import com.example.lotterypatentpending.models.User;
+import com.example.lotterypatentpending.models.WaitingList;
+import com.example.lotterypatentpending.models.WaitingListCounts;
+import com.example.lotterypatentpending.models.WaitingListState;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class WaitingListCountsTest {
+
+    @Test
+    public void testTransitionMovesOneEntrant() {
+        WaitingListCounts join = WaitingListCounts.transition(null, WaitingListState.ENTERED);
+        WaitingListCounts select = WaitingListCounts.transition(WaitingListState.ENTERED, WaitingListState.SELECTED);
+        WaitingListCounts leave = WaitingListCounts.transition(WaitingListState.SELECTED, WaitingListState.NOT_IN);
+
+        assertEquals(1, join.get(WaitingListState.ENTERED));
+        assertEquals(1, join.getTotal());
+        assertEquals(-1, select.get(WaitingListState.ENTERED));
+        assertEquals(0, select.getTotal());
+        assertEquals(-1, leave.getTotal());
+        assertTrue(WaitingListCounts.transition(WaitingListState.ACCEPTED, WaitingListState.ACCEPTED).isZero());
+    }
+
+    @Test
+    public void testMapRoundTrip() {
+        WaitingListCounts counts = new WaitingListCounts();
+        counts.add(WaitingListState.ACCEPTED, 3);
+        counts.add(WaitingListState.CANCELED, 1);
+
+        Map<String, Object> stored = new HashMap<>(counts.toMap());
+        stored.put("GONE", 7L);
+
+        assertEquals(counts, WaitingListCounts.fromMap(stored));
+        assertEquals(WaitingListCounts.COUNTED.length, counts.toMap().size());
+        assertNull(WaitingListCounts.fromMap("not a map"));
+    }
+
+    @Test
+    public void testCountChangesSinceMarkClean() {
+        WaitingList list = new WaitingList();
+        User a = new User("a", "A", null, null);
+        User b = new User("b", "B", null, null);
+        list.addEntrant(a);
+        list.addEntrant(b);
+        list.markClean();
+
+        list.updateEntrantState(a, WaitingListState.SELECTED);
+        list.removeEntrant(b);
+        WaitingListCounts changes = list.getCountChanges();
+
+        assertEquals(-2, changes.get(WaitingListState.ENTERED));
+        assertEquals(1, changes.get(WaitingListState.SELECTED));
+        list.markClean();
+        assertTrue(list.getCountChanges().isZero());
+    }
+
+    @Test
+    public void testEventWithoutLoadedListUsesStoredCounters() {
+        Event event = new Event("Swim", "desc", 10, new User("org", "Org", null, null));
+        WaitingListCounts stored = new WaitingListCounts();
+        stored.add(WaitingListState.ENTERED, 40);
+        stored.add(WaitingListState.ACCEPTED, 6);
+        stored.add(WaitingListState.SELECTED, 2);
+        event.setStoredCounts(stored);
+
+        assertEquals(48, event.getEntrantCount());
+        assertEquals(6, event.getAcceptedCount());
+        assertEquals(2, event.getRemainingCapacity());
+
+        // a local join that isn't saved yet is added on top
+        event.addToWaitingList(new User("me", "Me", null, null));
+        assertEquals(49, event.getEntrantCount());
+        assertEquals(40, stored.get(WaitingListState.ENTERED));
+    }
+}
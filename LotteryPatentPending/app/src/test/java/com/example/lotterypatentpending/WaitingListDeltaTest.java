@@ -0,0 +1,123 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.models.DrawRecord;
+import com.example.lotterypatentpending.models.LotterySystem;
+import com.example.lotterypatentpending.models.User;
+import com.example.lotterypatentpending.models.WaitingList;
+import com.example.lotterypatentpending.models.WaitingListDelta;
+import com.example.lotterypatentpending.models.WaitingListState;
+import com.google.firebase.firestore.FieldValue;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Checks that waiting list saves only carry the entrants that changed, counting
+ * fields and approximate Firestore bytes (strings are UTF-8 length + 1, maps are
+ * the sum of their keys and values).
+ */
+public class WaitingListDeltaTest {
+    private static final int POOL = 5_000;
+
+    @Test
+    public void testRedrawWritesOnlyReplacements() {
+        WaitingList wl = drawnList();
+        DrawRecord first = wl.lotterySelect(50, 1L);
+        wl.markClean();
+        int fullBytes = sizeOf(WaitingListDelta.toFieldUpdates(fullyDirtyCopy(wl)));
+
+        // three winners decline, three replacements are drawn
+        for (int i = 0; i < 3; i++) {
+            wl.updateEntrantState(new User(first.getWinnerIds().get(i), null, null, null),
+                    WaitingListState.DECLINED);
+        }
+        wl.redrawSelect(3, 2L, LotterySystem.UNIFORM);
+
+        Map<String, Object> updates = WaitingListDelta.toFieldUpdates(wl);
+        int deltaBytes = sizeOf(updates);
+
+        assertEquals(6, updates.size());
+        for (String path : updates.keySet()) {
+            assertTrue(path, path.matches("waitingList\\.u\\d+\\.state"));
+        }
+        assertTrue(deltaBytes * 100 < fullBytes);
+    }
+
+    @Test
+    public void testRemovedEntrantDeletesItsKey() {
+        WaitingList wl = drawnList();
+        User leaving = new User("u7", null, null, null);
+        wl.removeEntrant(leaving);
+
+        Map<String, Object> updates = WaitingListDelta.toFieldUpdates(wl);
+
+        assertEquals(1, updates.size());
+        assertSame(FieldValue.delete(), updates.get("waitingList.u7"));
+    }
+
+    @Test
+    public void testCleanListProducesNoUpdates() {
+        assertTrue(WaitingListDelta.toFieldUpdates(drawnList()).isEmpty());
+    }
+
+    @Test
+    public void testFullyDirtyListWritesEveryEntrantOneByOne() {
+        WaitingList wl = drawnList();
+        wl.getList().replaceAll(p -> p);
+
+        Map<String, WaitingListState> changes = WaitingListDelta.toChanges(wl);
+
+        assertTrue(wl.isFullyDirty());
+        assertEquals(POOL, changes.size());
+        assertEquals(WaitingListState.ENTERED, changes.get("u7"));
+        assertEquals(POOL, WaitingListDelta.toFieldUpdates(wl).size());
+    }
+
+    @Test
+    public void testFullyDirtyListNeverRemovesEntrants() {
+        WaitingList wl = drawnList();
+        // someone may have joined since the list was loaded, so a cleared list deletes nobody
+        wl.getList().clear();
+
+        assertTrue(wl.isFullyDirty());
+        assertTrue(WaitingListDelta.toChanges(wl).isEmpty());
+        assertTrue(WaitingListDelta.toFieldUpdates(wl).isEmpty());
+    }
+
+    /** A list as loaded from Firestore: everyone ENTERED, nothing dirty. */
+    private static WaitingList drawnList() {
+        WaitingList wl = new WaitingList();
+        for (int i = 0; i < POOL; i++) {
+            wl.addEntrant(new User("u" + i, null, null, null));
+        }
+        wl.markClean();
+        return wl;
+    }
+
+    private static WaitingList fullyDirtyCopy(WaitingList wl) {
+        WaitingList copy = new WaitingList();
+        copy.setList(wl.getList());
+        copy.getList().replaceAll(p -> p); // bulk edit: every entrant gets written
+        return copy;
+    }
+
+    private static int sizeOf(Object value) {
+        if (value instanceof String) {
+            return ((String) value).getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+        if (value instanceof Map) {
+            int n = 0;
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                n += sizeOf(e.getKey()) + sizeOf(e.getValue());
+            }
+            return n;
+        }
+        return 8; // numbers, sentinels
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+
+import com.example.lotterypatentpending.data.CounterShards;
+import com.example.lotterypatentpending.data.InMemoryWaitingListStore;
+import com.example.lotterypatentpending.data.RetryPolicy;
+import com.example.lotterypatentpending.data.WaitingListStore.JoinResult;
+import com.example.lotterypatentpending.models.WaitingListCounts;
+import com.example.lotterypatentpending.models.WaitingListState;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many users hitting "join" on a capped event at once, against the in-memory store
+ * with a commit latency so attempts really overlap. The transactional join must stop
+ * exactly at the cap; the old check-then-write path overshoots it.
+ */
+public class WaitingListJoinLoadTest {
+    private static final String EVENT = "event1";
+    private static final String EVENT_PATH = "events/" + EVENT;
+    private static final String SUMMARY = "eventSummaries/" + EVENT;
+    private static final int JOINERS = 1_000;
+    private static final int CAPACITY = 250;
+    private static final long LATENCY_MS = 2;
+    private final ScheduledExecutorService timer = Executors.newScheduledThreadPool(8);
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentJoinsStopExactlyAtCapacity() {
+        InMemoryWaitingListStore store = new InMemoryWaitingListStore();
+        store.setCounts(SUMMARY, new WaitingListCounts());
+        store.setWaitingListCapacity(EVENT, CAPACITY);
+        store.simulateLatency(timer, LATENCY_MS);
+        RetryPolicy retry = new RetryPolicy(20, 5, 1_000, new Random(42), timer);
+        List<String> mirrors = Collections.singletonList(SUMMARY);
+
+        List<CompletableFuture<JoinResult>> joins = new ArrayList<>();
+        for (int i = 0; i < JOINERS; i++) {
+            joins.add(store.join(EVENT, "user" + i, mirrors, retry));
+        }
+        Map<JoinResult, Integer> outcomes = new EnumMap<>(JoinResult.class);
+        for (CompletableFuture<JoinResult> join : joins) {
+            outcomes.merge(join.join(), 1, Integer::sum);
+        }
+
+        assertEquals(CAPACITY, outcomes.getOrDefault(JoinResult.JOINED, 0).intValue());
+        assertEquals(JOINERS - CAPACITY, outcomes.getOrDefault(JoinResult.FULL, 0).intValue());
+        assertEquals(CAPACITY, store.getCounts(EVENT_PATH).get(WaitingListState.ENTERED));
+        assertEquals(store.getCounts(EVENT_PATH), store.getCounts(SUMMARY));
+        assertEquals(0, store.reconcileCounts(EVENT, mirrors).join().intValue());
+
+        int withEvent = 0;
+        for (int i = 0; i < JOINERS; i++) {
+            if (store.getJoinedEventIds("user" + i).contains(EVENT)) withEvent++;
+        }
+        assertEquals(CAPACITY, withEvent);
+    }
+
+    @Test
+    public void testShardedJoinsStopExactlyAtCapacity() {
+        int shards = 8;
+        InMemoryWaitingListStore store = new InMemoryWaitingListStore();
+        store.setCounterShards(EVENT, shards);
+        store.setWaitingListCapacity(EVENT, CAPACITY);
+        store.simulateLatency(timer, LATENCY_MS);
+        RetryPolicy retry = new RetryPolicy(20, 5, 1_000, new Random(42), timer);
+
+        List<CompletableFuture<JoinResult>> joins = new ArrayList<>();
+        for (int i = 0; i < JOINERS; i++) {
+            joins.add(store.join(EVENT, "user" + i, Collections.emptyList(), retry));
+        }
+        int joined = 0;
+        for (CompletableFuture<JoinResult> join : joins) {
+            if (join.join() == JoinResult.JOINED) joined++;
+        }
+
+        // uneven hashing fills some shards first; spill-over still uses every spot
+        assertEquals(CAPACITY, joined);
+        assertEquals(CAPACITY, store.readCounts(EVENT, shards).join().getTotal());
+        for (int k = 0; k < shards; k++) {
+            assertEquals(CounterShards.quota(CAPACITY, shards, k),
+                    store.getCounts(EVENT_PATH + "/counterShards/" + k).getTotal());
+        }
+        // the shards were exact; only the event's roll-up was missing
+        assertEquals(1, store.reconcileCounts(EVENT, Collections.emptyList()).join().intValue());
+        assertEquals(CAPACITY, store.getCounts(EVENT_PATH).getTotal());
+    }
+
+    @Test
+    public void testCheckThenWriteOvershootsCapacity() {
+        InMemoryWaitingListStore store = new InMemoryWaitingListStore();
+
+        // old path: each joiner checked the size on the event they had loaded, then wrote
+        // the entry a round trip later; all of them loaded it before anyone's write landed
+        WaitingListCounts loaded = new WaitingListCounts();
+        List<CompletableFuture<Void>> joins = new ArrayList<>();
+        for (int i = 0; i < JOINERS; i++) {
+            String uid = "user" + i;
+            if (loaded.getTotal() >= CAPACITY) continue;
+            CompletableFuture<Void> write = new CompletableFuture<>();
+            timer.schedule(() -> {
+                store.applyCountedChanges(EVENT, Collections.singletonMap(uid, WaitingListState.ENTERED),
+                        Collections.emptyList()).join();
+                write.complete(null);
+            }, LATENCY_MS, TimeUnit.MILLISECONDS);
+            joins.add(write);
+        }
+        CompletableFuture.allOf(joins.toArray(new CompletableFuture[0])).join();
+
+        int total = store.getCounts(EVENT_PATH).getTotal();
+        assertEquals(JOINERS, total);
+    }
+}
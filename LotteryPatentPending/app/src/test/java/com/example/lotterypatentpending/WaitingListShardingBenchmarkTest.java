@@ -0,0 +1,75 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.lotterypatentpending.data.CounterShards;
+import com.example.lotterypatentpending.data.InMemoryWaitingListStore;
+import com.example.lotterypatentpending.data.RetryPolicy;
+import com.example.lotterypatentpending.data.WaitingListStore.JoinResult;
+import com.example.lotterypatentpending.models.WaitingListCounts;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * A registration burst with the counters on the event document versus spread over
+ * {@link CounterShards}. Every join commit lands a simulated round trip after its
+ * read, so joins sharing a counter document conflict and back off; more shards mean
+ * fewer of them share one.
+ */
+@Category(Benchmarks.class)
+public class WaitingListShardingBenchmarkTest {
+    private static final String EVENT = "event1";
+    private static final String SUMMARY = "eventSummaries/" + EVENT;
+    private static final int JOINERS = 400;
+    private static final long LATENCY_MS = 2;
+    private final ScheduledExecutorService timer = Executors.newScheduledThreadPool(8);
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    /** @return the conflicts the burst ran into */
+    private int burst(int shards) {
+        InMemoryWaitingListStore store = new InMemoryWaitingListStore();
+        store.setCounts(SUMMARY, new WaitingListCounts());
+        store.setCounterShards(EVENT, shards);
+        store.simulateLatency(timer, LATENCY_MS);
+        RetryPolicy retry = new RetryPolicy(40, 2, 500, new Random(42), timer);
+        List<String> mirrors = Collections.singletonList(SUMMARY);
+
+        List<CompletableFuture<JoinResult>> joins = new ArrayList<>();
+        for (int i = 0; i < JOINERS; i++) {
+            joins.add(store.join(EVENT, "user" + i, mirrors, retry));
+        }
+        for (CompletableFuture<JoinResult> join : joins) {
+            assertEquals(JoinResult.JOINED, join.join());
+        }
+
+        assertEquals(JOINERS, store.readCounts(EVENT, shards).join().getTotal());
+        store.reconcileCounts(EVENT, mirrors).join();
+        assertEquals(JOINERS, store.getCounts(SUMMARY).getTotal());
+        return store.getConflictCount();
+    }
+
+    @Test
+    public void testShardsCutConflictsAndKeepCounts() {
+        int single = burst(0);
+        burst(4);
+        int sixteen = burst(16);
+
+        assertTrue("16 shards had " + sixteen + " conflicts, one counter document " + single,
+                sixteen < single);
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.lotterypatentpending;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.core.util.Pair;
+
+import com.example.lotterypatentpending.data.InMemoryWaitingListStore;
+import com.example.lotterypatentpending.data.WaitingListMigration;
+import com.example.lotterypatentpending.data.WaitingListPage;
+import com.example.lotterypatentpending.data.WaitingListStore;
+import com.example.lotterypatentpending.data.WaitingListStore.JoinResult;
+import com.example.lotterypatentpending.models.User;
+import com.example.lotterypatentpending.models.WaitingListCounts;
+import com.example.lotterypatentpending.models.WaitingListState;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Paging, per-state queries and migration for waiting list stores, run against
+ * the in-memory store that mirrors the Firestore stores' ordering and cursor rules.
+ */
+public class WaitingListStoreTest {
+    private static final String EVENT = "event1";
+    private static final String EVENT_PATH = "events/" + EVENT;
+    private static final String SUMMARY = "eventSummaries/" + EVENT;
+    private InMemoryWaitingListStore store;
+
+    @Before
+    public void setUp() {
+        store = new InMemoryWaitingListStore();
+        Map<String, WaitingListState> entries = new HashMap<>();
+        for (int i = 0; i < 1_234; i++) {
+            entries.put(String.format("u%04d", i), i % 3 == 0 ? WaitingListState.SELECTED : WaitingListState.ENTERED);
+        }
+        store.applyChanges(EVENT, entries).join();
+    }
+
+    @Test
+    public void testPagesCoverListInOrderWithoutOverlap() {
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            WaitingListPage page = store.getPage(EVENT, null, cursor, 100).join();
+            assertTrue(page.getEntries().size() <= 100);
+            for (Pair<User, WaitingListState> p : page.getEntries()) {
+                seen.add(p.first.getUserId());
+            }
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(13, pages);
+        assertEquals(1_234, seen.size());
+        List<String> sorted = new ArrayList<>(seen);
+        Collections.sort(sorted);
+        assertEquals(sorted, seen);
+    }
+
+    @Test
+    public void testStateQueryOnlyReadsThatState() {
+        List<Pair<User, WaitingListState>> selected = store.getAll(EVENT, WaitingListState.SELECTED).join();
+
+        assertEquals(412, selected.size());
+        for (Pair<User, WaitingListState> p : selected) {
+            assertEquals(WaitingListState.SELECTED, p.second);
+        }
+        assertEquals(412, store.getReadCount());
+    }
+
+    @Test
+    public void testLastFullPageHasNoCursor() {
+        InMemoryWaitingListStore small = new InMemoryWaitingListStore();
+        small.applyChanges(EVENT, Collections.singletonMap("a", WaitingListState.ENTERED)).join();
+
+        WaitingListPage page = small.getPage(EVENT, null, null, 1).join();
+
+        assertEquals(1, page.getEntries().size());
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    public void testNullStateRemovesEntrant() {
+        store.applyChanges(EVENT, Collections.singletonMap("u0000", null)).join();
+
+        WaitingListPage first = store.getPage(EVENT, null, null, 1).join();
+
+        assertEquals("u0001", first.getEntries().get(0).first.getUserId());
+    }
+
+    @Test
+    public void testStatesForUserOnlyReadsThatUser() {
+        store.applyChanges("event2", Collections.singletonMap("u0003", WaitingListState.ACCEPTED)).join();
+        int readsBefore = store.getReadCount();
+
+        Map<String, WaitingListState> states = store.getStatesForUser("u0003").join();
+
+        assertEquals(2, states.size());
+        assertEquals(WaitingListState.SELECTED, states.get(EVENT));
+        assertEquals(WaitingListState.ACCEPTED, states.get("event2"));
+        assertEquals(2, store.getReadCount() - readsBefore);
+        assertTrue(store.getStatesForUser("nobody").join().isEmpty());
+    }
+
+    @Test
+    public void testMigrationCopiesEverythingAndClearsSource() {
+        InMemoryWaitingListStore target = new InMemoryWaitingListStore();
+
+        int copied = new WaitingListMigration(store, target, 250).migrate(EVENT, true).join();
+
+        assertEquals(1_234, copied);
+        assertEquals(1_234, target.getAll(EVENT, null).join().size());
+        assertEquals(412, target.getAll(EVENT, WaitingListState.SELECTED).join().size());
+        assertTrue(store.getAll(EVENT, null).join().isEmpty());
+    }
+
+    @Test
+    public void testMigrationIsIdempotent() {
+        InMemoryWaitingListStore target = new InMemoryWaitingListStore();
+        WaitingListMigration migration = new WaitingListMigration(store, target, 500);
+
+        migration.migrate(EVENT, false).join();
+        migration.migrate(EVENT, false).join();
+
+        assertEquals(1_234, target.getAll(EVENT, null).join().size());
+        assertNull(target.getPage("other", null, null, 10).join().getNextCursor());
+    }
+
+    @Test
+    public void testCountedChangesOnlyMoveCountersOnRealTransitions() {
+        store.setCounts(SUMMARY, new WaitingListCounts());
+        assertEquals(2, store.reconcileCounts(EVENT, Collections.singletonList(SUMMARY)).join().intValue());
+        List<String> mirrors = Collections.singletonList(SUMMARY);
+
+        WaitingListCounts accept = store.applyCountedChanges(EVENT,
+                Collections.singletonMap("u0000", WaitingListState.ACCEPTED), mirrors).join();
+        store.applyCountedChanges(EVENT, Collections.singletonMap("new", WaitingListState.ENTERED), mirrors).join();
+        WaitingListCounts rejoin = store.applyCountedChanges(EVENT,
+                Collections.singletonMap("new", WaitingListState.ENTERED), mirrors).join();
+        store.applyCountedChanges(EVENT, Collections.singletonMap("u0001", null), mirrors).join();
+
+        assertEquals(-1, accept.get(WaitingListState.SELECTED));
+        assertEquals(1, accept.get(WaitingListState.ACCEPTED));
+        assertTrue(rejoin.isZero());
+        WaitingListCounts counts = store.getCounts(EVENT_PATH);
+        assertEquals(411, counts.get(WaitingListState.SELECTED));
+        assertEquals(1, counts.get(WaitingListState.ACCEPTED));
+        assertEquals(822, counts.get(WaitingListState.ENTERED));
+        assertEquals(1_234, counts.getTotal());
+        assertEquals(counts, store.getCounts(SUMMARY));
+        assertEquals(0, store.reconcileCounts(EVENT, mirrors).join().intValue());
+    }
+
+    @Test
+    public void testReconcileRepairsDriftedCounters() {
+        store.reconcileCounts(EVENT, Collections.emptyList()).join();
+        WaitingListCounts truth = store.getCounts(EVENT_PATH);
+        store.setCounts(SUMMARY, truth);
+
+        // a plain write doesn't touch the counters, so they drift
+        store.applyChanges(EVENT, Collections.singletonMap("u0003", WaitingListState.DECLINED)).join();
+        List<String> mirrors = Arrays.asList(SUMMARY, "eventSummaries/missing");
+        int repaired = store.reconcileCounts(EVENT, mirrors).join();
+
+        assertEquals(2, repaired);
+        assertEquals(1, store.getCounts(SUMMARY).get(WaitingListState.DECLINED));
+        assertEquals(store.getCounts(EVENT_PATH), store.getCounts(SUMMARY));
+        assertNull(store.getCounts("eventSummaries/missing"));
+    }
+
+    @Test
+    public void testJoinEnforcesCapacity() {
+        store.reconcileCounts(EVENT, Collections.emptyList()).join();
+        store.setCounts(SUMMARY, store.getCounts(EVENT_PATH));
+        store.setWaitingListCapacity(EVENT, 1_236);
+        List<String> mirrors = Collections.singletonList(SUMMARY);
+
+        assertEquals(JoinResult.JOINED, store.join(EVENT, "new1", mirrors).join());
+        assertEquals(JoinResult.JOINED, store.join(EVENT, "new2", mirrors).join());
+        assertEquals(JoinResult.FULL, store.join(EVENT, "new3", mirrors).join());
+
+        assertEquals(1_236, store.getCounts(EVENT_PATH).getTotal());
+        assertEquals(store.getCounts(EVENT_PATH), store.getCounts(SUMMARY));
+        assertTrue(store.getJoinedEventIds("new2").contains(EVENT));
+        assertTrue(store.getJoinedEventIds("new3").isEmpty());
+    }
+
+    @Test
+    public void testJoinTwiceLeavesCountersAlone() {
+        store.reconcileCounts(EVENT, Collections.emptyList()).join();
+
+        assertEquals(JoinResult.ALREADY_JOINED, store.join(EVENT, "u0003", Collections.emptyList()).join());
+        assertEquals(JoinResult.JOINED, store.join(EVENT, "new1", Collections.emptyList()).join());
+        assertEquals(JoinResult.ALREADY_JOINED, store.join(EVENT, "new1", Collections.emptyList()).join());
+
+        assertEquals(1_235, store.getCounts(EVENT_PATH).getTotal());
+        assertEquals(0, store.reconcileCounts(EVENT, Collections.emptyList()).join().intValue());
+    }
+
+    @Test
+    public void testTurningOnShardsMovesCountsIntoShards() {
+        store.reconcileCounts(EVENT, Collections.emptyList()).join();
+        store.setCounts(SUMMARY, store.getCounts(EVENT_PATH));
+        WaitingListCounts before = store.getCounts(EVENT_PATH);
+        List<String> mirrors = Collections.singletonList(SUMMARY);
+
+        store.setCounterShards(EVENT, 4);
+        assertEquals(4, store.reconcileCounts(EVENT, mirrors).join().intValue());
+        assertEquals(before, store.readCounts(EVENT, 4).join());
+
+        // counted changes go to the entrant's shard and are rolled up into the mirrors
+        store.applyCountedChanges(EVENT, Collections.singletonMap("u0003", WaitingListState.DECLINED), mirrors).join();
+        assertEquals(1, store.readCounts(EVENT, 4).join().get(WaitingListState.DECLINED));
+        assertEquals(1, store.getCounts(SUMMARY).get(WaitingListState.DECLINED));
+        assertEquals(0, store.reconcileCounts(EVENT, mirrors).join().intValue());
+    }
+
+    @Test
+    public void testEventsWithoutALayoutAreEmbedded() {
+        assertEquals(WaitingListStore.Layout.SUBCOLLECTION, WaitingListStore.layoutOf("SUBCOLLECTION"));
+        assertEquals(WaitingListStore.Layout.EMBEDDED, WaitingListStore.layoutOf("EMBEDDED"));
+        assertEquals(WaitingListStore.Layout.EMBEDDED, WaitingListStore.layoutOf(null));
+        assertEquals(WaitingListStore.Layout.EMBEDDED, WaitingListStore.layoutOf("SHARDED"));
+    }
+}
@@ -3,6 +3,7 @@ package com.example.lotterypatentpending;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -20,6 +21,7 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class WaitingListTest {
     private WaitingList waitingList;
@@ -225,4 +227,125 @@ public class WaitingListTest {
 
         assertEquals(expectedCsv, waitingList.exportAcceptedEntrantsToCsv());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStateCountsTrackMutations() {
+        waitingList.addEntrant(user1);
+        waitingList.addEntrant(user2);
+        waitingList.addEntrant(user3);
+        assertEquals(3, waitingList.getStateCount(WaitingListState.ENTERED));
+
+        waitingList.updateEntrantState(user2, WaitingListState.SELECTED);
+        assertEquals(2, waitingList.getStateCount(WaitingListState.ENTERED));
+        assertEquals(1, waitingList.getStateCount(WaitingListState.SELECTED));
+        assertTrue(waitingList.getEntrantIdsInState(WaitingListState.SELECTED).contains("test_id_2"));
+
+        waitingList.removeEntrant(user2);
+        assertEquals(0, waitingList.getStateCount(WaitingListState.SELECTED));
+        assertEquals(WaitingListState.NOT_IN, waitingList.getEntrantState("test_id_2"));
+        assertEquals(WaitingListState.ENTERED, waitingList.getEntrantState("test_id_3"));
+        assertTrue(waitingList.checkEntrant(user3));
+    }
+
+    @Test
+    public void testIndexFollowsDirectListMutation() {
+        waitingList.getList().add(new Pair<>(user1, WaitingListState.ACCEPTED));
+        waitingList.getList().add(new Pair<>(user2, WaitingListState.ENTERED));
+        assertTrue(waitingList.checkEntrant(user1));
+        assertEquals(1, waitingList.getStateCount(WaitingListState.ACCEPTED));
+
+        waitingList.getList().set(0, new Pair<>(user1, WaitingListState.DECLINED));
+        assertEquals(0, waitingList.getStateCount(WaitingListState.ACCEPTED));
+        assertEquals(WaitingListState.DECLINED, waitingList.getEntrantState("test_id_1"));
+
+        waitingList.getList().remove(0);
+        assertFalse(waitingList.checkEntrant(user1));
+        assertEquals(WaitingListState.ENTERED, waitingList.getEntrantState("test_id_2"));
+
+        waitingList.getList().removeIf(p -> p.first.equals(user2));
+        assertFalse(waitingList.checkEntrant(user2));
+        assertEquals(Integer.valueOf(0), waitingList.getNumEntrants());
+    }
+
+    @Test
+    public void testSetListCopiesTheGivenList() {
+        ArrayList<Pair<User, WaitingListState>> stored = new ArrayList<>();
+        stored.add(new Pair<>(user1, WaitingListState.ENTERED));
+        waitingList.setList(stored);
+
+        // the caller's list is no longer the waiting list, so changing it changes nothing here
+        stored.add(new Pair<>(user2, WaitingListState.ENTERED));
+        stored.set(0, new Pair<>(user1, WaitingListState.SELECTED));
+
+        assertEquals(Integer.valueOf(1), waitingList.getNumEntrants());
+        assertFalse(waitingList.checkEntrant(user2));
+        assertEquals(WaitingListState.ENTERED, waitingList.getList().get(0).second);
+        assertFalse(waitingList.hasChanges());
+    }
+
+    @Test
+    public void testSetListCountsEntriesWithoutUsers() {
+        ArrayList<Pair<User, WaitingListState>> list = new ArrayList<>();
+        list.add(new Pair<>(null, WaitingListState.ACCEPTED));
+        list.add(new Pair<>(user1, WaitingListState.NOT_IN));
+        list.add(new Pair<>(user2, WaitingListState.SELECTED));
+        waitingList.setList(list);
+
+        assertEquals(1, waitingList.getStateCount(WaitingListState.ACCEPTED));
+        assertEquals(Integer.valueOf(2), waitingList.getNumEntrants());
+        assertEquals(1, waitingList.getSelectedEntrants().size());
+    }
+
+    @Test
+    public void testDirtyEntriesTrackChangedEntrantsOnly() {
+        ArrayList<Pair<User, WaitingListState>> stored = new ArrayList<>();
+        stored.add(new Pair<>(user1, WaitingListState.ENTERED));
+        stored.add(new Pair<>(user2, WaitingListState.ENTERED));
+        stored.add(new Pair<>(user3, WaitingListState.ENTERED));
+        waitingList.setList(stored);
+        assertFalse(waitingList.hasChanges());
+
+        waitingList.updateEntrantState(user1, WaitingListState.SELECTED);
+        waitingList.updateEntrantState(user2, WaitingListState.ENTERED); // no-op
+        waitingList.removeEntrant(user3);
+
+        Map<String, WaitingListState> dirty = waitingList.getDirtyEntries();
+        assertEquals(2, dirty.size());
+        assertEquals(WaitingListState.SELECTED, dirty.get("test_id_1"));
+        assertTrue(dirty.containsKey("test_id_3"));
+        assertNull(dirty.get("test_id_3"));
+        assertFalse(waitingList.isFullyDirty());
+
+        waitingList.markClean();
+        assertFalse(waitingList.hasChanges());
+    }
+
+    @Test
+    public void testBulkEditsMarkWholeListDirty() {
+        waitingList.addEntrant(user1);
+        waitingList.addEntrant(user2);
+        waitingList.markClean();
+
+        waitingList.getList().removeIf(p -> p.first == user1);
+
+        assertTrue(waitingList.isFullyDirty());
+        assertTrue(waitingList.hasChanges());
+    }
+
+    @Test
+    public void testLotteryDrawMarksOnlyStateChanges() {
+        waitingList.addEntrant(user1);
+        waitingList.addEntrant(user2);
+        waitingList.addEntrant(user3);
+        waitingList.updateEntrantState(user1, WaitingListState.ACCEPTED);
+        waitingList.updateEntrantState(user2, WaitingListState.NOT_SELECTED);
+        waitingList.updateEntrantState(user3, WaitingListState.NOT_SELECTED);
+        waitingList.markClean();
+
+        waitingList.redrawSelect(1, 4L, LotterySystem.UNIFORM);
+
+        assertEquals(1, waitingList.getDirtyEntries().size());
+        assertEquals(WaitingListState.SELECTED,
+                waitingList.getDirtyEntries().values().iterator().next());
+    }
+}
@@ -10,6 +10,7 @@ import androidx.core.util.Pair;
 
 import com.example.lotterypatentpending.R;
 import com.example.lotterypatentpending.models.Event;
+import com.example.lotterypatentpending.models.EventSummary;
 import com.example.lotterypatentpending.models.WaitingList;
 import com.example.lotterypatentpending.models.WaitingListState;
 
@@ -21,7 +22,9 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -29,7 +32,7 @@ import static org.junit.Assert.*;
 public class EventListAdapterTest {
 
     private Context context;
-    private List<Event> events;
+    private List<EventSummary> events;
     private EventListAdapter adapter;
 
     @Before
@@ -55,28 +58,53 @@ public class EventListAdapterTest {
         event2.setLocation(null); // test "Not set"
         event2.setCapacity(20);
 
-        events.add(event1);
-        events.add(event2);
+        EventSummary summary1 = EventSummary.of(event1);
+        summary1.setId("e1");
+        EventSummary summary2 = EventSummary.of(event2);
+        summary2.setId("e2");
+        events.add(summary1);
+        events.add(summary2);
 
-        adapter = new EventListAdapter(context, events);
+        adapter = new EventListAdapter();
+        adapter.submitEvents(events);
+    }
+
+    /** Creates and binds the row at {@code position}, like the RecyclerView would. */
+    private static View bind(EventListAdapter adapter, Context context, int position) {
+        LinearLayout parent = new LinearLayout(context);
+        EventListAdapter.Holder holder = adapter.onCreateViewHolder(parent, 0);
+        adapter.onBindViewHolder(holder, position);
+        return holder.itemView;
     }
 
     @Test
     public void testGetCount() {
-        assertEquals(2, adapter.getCount());
+        assertEquals(2, adapter.getItemCount());
     }
 
     @Test
     public void testGetItem() {
-        Event item = adapter.getItem(0);
+        EventSummary item = adapter.getEvent(0);
         assertNotNull(item);
         assertEquals("Test Event 1", item.getTitle());
     }
 
+    @Test
+    public void testSameSummariesReuseTheirRows() {
+        EventRow first = adapter.getCurrentList().get(0);
+        Map<String, EventRow> shown = new HashMap<>();
+        shown.put(first.getId(), first);
+
+        // the same instance keeps its row; an updated copy gets a new one
+        assertSame(first, EventRow.of(events, shown).get(0));
+        EventSummary updated = EventSummary.of(new Event());
+        updated.setId(first.getId());
+        assertNotSame(first, EventRow.of(List.of(updated), shown).get(0));
+    }
+
     @Test
     public void testGetView_PopulatesFields() {
-        LinearLayout parent = new LinearLayout(context);
-        View view = adapter.getView(0, null, parent);
+        View view = bind(adapter, context, 0);
 
         assertNotNull(view);
 
@@ -103,21 +131,21 @@ public class EventListAdapterTest {
 
     @Test
     public void testGetView_WithActions_ShowsButtons() {
-        EventListAdapter adapterWithActions = new EventListAdapter(context, events,
+        EventListAdapter adapterWithActions = new EventListAdapter(
                 new EventListAdapter.OnEventActionListener() {
                     @Override
-                    public void onEdit(Event event) {
+                    public void onEdit(EventSummary event) {
                         // no-op
                     }
 
                     @Override
-                    public void onDelete(Event event) {
+                    public void onDelete(EventSummary event) {
                         // no-op
                     }
                 });
+        adapterWithActions.submitEvents(events);
 
-        LinearLayout parent = new LinearLayout(context);
-        View view = adapterWithActions.getView(0, null, parent);
+        View view = bind(adapterWithActions, context, 0);
 
         ImageButton editBtn = view.findViewById(R.id.btnEdit);
         ImageButton deleteBtn = view.findViewById(R.id.btnDelete);
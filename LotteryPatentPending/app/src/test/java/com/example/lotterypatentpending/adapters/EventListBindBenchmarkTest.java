@@ -0,0 +1,113 @@
+package com.example.lotterypatentpending.adapters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import android.content.Context;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import com.example.lotterypatentpending.Benchmarks;
+import com.example.lotterypatentpending.R;
+import com.example.lotterypatentpending.helpers.DateTimeFormatHelper;
+import com.example.lotterypatentpending.models.EventSummary;
+import com.example.lotterypatentpending.models.WaitingListCounts;
+import com.example.lotterypatentpending.models.WaitingListState;
+import com.google.firebase.Timestamp;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binds a long list of event rows from prepared {@link EventRow}s and checks every
+ * row shows what the previous bind, which formatted both dates and built the count
+ * texts on every bind, showed.
+ */
+@Category(Benchmarks.class)
+@RunWith(RobolectricTestRunner.class)
+public class EventListBindBenchmarkTest {
+    private static final int ROWS = 2_000;
+
+    private static List<EventSummary> summaries() {
+        List<EventSummary> out = new ArrayList<>();
+        long base = 1_760_000_000_000L;
+        for (int i = 0; i < ROWS; i++) {
+            EventSummary s = new EventSummary();
+            s.setId(String.format("e%05d", i));
+            s.setTitle("Event " + i);
+            s.setTag("Sports");
+            s.setLocation("Hall " + (i % 7));
+            s.setDate(new Timestamp(new Date(base + i * 3_600_000L)));
+            s.setRegStartDate(new Timestamp(new Date(base - 86_400_000L)));
+            s.setRegEndDate(new Timestamp(new Date(base + i * 60_000L)));
+            s.setCapacity(40);
+            s.setWaitingListCapacity(i % 3 == 0 ? -1 : 200);
+            WaitingListCounts counts = new WaitingListCounts();
+            counts.add(WaitingListState.ENTERED, i % 50);
+            counts.add(WaitingListState.ACCEPTED, i % 10);
+            s.setCounts(counts);
+            out.add(s);
+        }
+        return out;
+    }
+
+    /** The bind before rows were prepared: formats and counts on every call. */
+    private static void legacyBind(EventListAdapter.Holder h, EventSummary event) {
+        h.name.setText(event.getTitle());
+        h.tag.setText(event.getTag());
+        String locationText = event.getLocation() != null && !event.getLocation().isEmpty() ?
+                event.getLocation() : "Not set";
+        h.location.setText(locationText);
+        h.eventTime.setText(DateTimeFormatHelper.formatTimestamp(event.getDate()));
+        h.regTime.setText(event.getFormattedRegWindow());
+        int wlCap = event.getWaitingListCapacity();
+        h.waitlist.setText(wlCap == -1 ? "N/A" : event.getEntrantCount() + " / " + wlCap);
+        h.capacity.setText(event.getAcceptedCount() + " / " + event.getCapacity());
+    }
+
+    private static List<String> texts(EventListAdapter.Holder h) {
+        List<String> out = new ArrayList<>();
+        for (TextView view : new TextView[]{h.name, h.tag, h.location, h.eventTime, h.regTime,
+                h.waitlist, h.capacity}) {
+            out.add(view.getText().toString());
+        }
+        return out;
+    }
+
+    @Test
+    public void testPreparedRowsBindLikeTheOldBind() {
+        Context context = RuntimeEnvironment.getApplication();
+        List<EventSummary> events = summaries();
+        EventListAdapter adapter = new EventListAdapter();
+        adapter.submitEvents(events);
+
+        EventListAdapter.Holder holder = adapter.onCreateViewHolder(new LinearLayout(context), 0);
+
+        for (int i = 0; i < ROWS; i++) {
+            adapter.onBindViewHolder(holder, i);
+            List<String> prepared = texts(holder);
+            legacyBind(holder, events.get(i));
+            assertEquals(events.get(i).getId(), texts(holder), prepared);
+        }
+        assertEquals(((TextView) holder.itemView.findViewById(R.id.eventTime)).getText().toString(),
+                adapter.getCurrentList().get(ROWS - 1).getDateText());
+
+        // a filter pass hands back the same summaries, so no row is built again
+        List<EventRow> shown = adapter.getCurrentList();
+        Map<String, EventRow> byId = new HashMap<>();
+        for (EventRow row : shown) byId.put(row.getId(), row);
+        List<EventRow> again = EventRow.of(events, byId);
+        for (int i = 0; i < ROWS; i++) {
+            assertSame(shown.get(i), again.get(i));
+        }
+    }
+}
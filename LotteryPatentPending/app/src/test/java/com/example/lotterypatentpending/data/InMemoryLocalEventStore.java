@@ -0,0 +1,138 @@
+package com.example.lotterypatentpending.data;
+
+import androidx.annotation.Nullable;
+
+import com.example.lotterypatentpending.models.EventSummary;
+import com.example.lotterypatentpending.models.User;
+import com.example.lotterypatentpending.models.WaitingListState;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory {@link LocalEventStore} with the same ordering as the SQLite store.
+ * Counts summaries read and written and transactions so tests can check that
+ * deltas, not full lists, are read and written.
+ */
+public class InMemoryLocalEventStore implements LocalEventStore {
+    private TreeMap<String, EventSummary> summaries = new TreeMap<>();
+    private Map<String, Map<String, WaitingListState>> states = new HashMap<>();
+    private Map<String, User> users = new HashMap<>();
+    private Map<String, Long> highWaterMarks = new HashMap<>();
+    private int summaryReads = 0;
+    private int summaryWrites = 0;
+    private int transactions = 0;
+
+    @Override
+    public synchronized List<EventSummary> getEventSummaries() {
+        summaryReads += summaries.size();
+        return new ArrayList<>(summaries.values());
+    }
+
+    @Override
+    public synchronized List<EventSummary> getEventSummariesByOrganizer(String organizerId) {
+        List<EventSummary> mine = new ArrayList<>();
+        for (EventSummary s : summaries.values()) {
+            if (organizerId.equals(s.getOrganizerId())) mine.add(s);
+        }
+        summaryReads += mine.size();
+        return mine;
+    }
+
+    @Nullable
+    @Override
+    public synchronized EventSummary getEventSummary(String eventId) {
+        return summaries.get(eventId);
+    }
+
+    @Override
+    public synchronized void putEventSummaries(Collection<EventSummary> put) {
+        for (EventSummary s : put) {
+            summaries.put(s.getId(), s);
+            summaryWrites++;
+        }
+    }
+
+    @Override
+    public synchronized void deleteEventSummaries(Collection<String> eventIds) {
+        for (String id : eventIds) {
+            if (summaries.remove(id) != null) summaryWrites++;
+            for (Map<String, WaitingListState> byEvent : states.values()) {
+                byEvent.remove(id);
+            }
+        }
+    }
+
+    @Override
+    public synchronized Map<String, WaitingListState> getStatesForUser(String userId) {
+        Map<String, WaitingListState> mine = states.get(userId);
+        return mine == null ? new HashMap<>() : new HashMap<>(mine);
+    }
+
+    @Override
+    public synchronized void putStatesForUser(String userId, Map<String, WaitingListState> put) {
+        states.put(userId, new HashMap<>(put));
+    }
+
+    @Nullable
+    @Override
+    public synchronized User getUser(String userId) {
+        return users.get(userId);
+    }
+
+    @Override
+    public synchronized void putUser(User user) {
+        users.put(user.getUserId(), user);
+    }
+
+    @Override
+    public synchronized long getHighWaterMark(String collection) {
+        Long hwm = highWaterMarks.get(collection);
+        return hwm == null ? 0 : hwm;
+    }
+
+    @Override
+    public synchronized void setHighWaterMark(String collection, long millis) {
+        highWaterMarks.put(collection, millis);
+    }
+
+    @Override
+    public synchronized void runInTransaction(Runnable body) {
+        TreeMap<String, EventSummary> summariesBefore = new TreeMap<>(summaries);
+        Map<String, Map<String, WaitingListState>> statesBefore = new HashMap<>();
+        for (Map.Entry<String, Map<String, WaitingListState>> e : states.entrySet()) {
+            statesBefore.put(e.getKey(), new HashMap<>(e.getValue()));
+        }
+        Map<String, User> usersBefore = new HashMap<>(users);
+        Map<String, Long> marksBefore = new HashMap<>(highWaterMarks);
+        try {
+            body.run();
+            transactions++;
+        } catch (RuntimeException e) {
+            summaries = summariesBefore;
+            states = statesBefore;
+            users = usersBefore;
+            highWaterMarks = marksBefore;
+            throw e;
+        }
+    }
+
+    /** @return number of summaries returned by list queries so far */
+    public synchronized int getSummaryReads() {
+        return summaryReads;
+    }
+
+    /** @return number of summaries written or deleted so far */
+    public synchronized int getSummaryWrites() {
+        return summaryWrites;
+    }
+
+    /** @return number of committed transactions so far */
+    public synchronized int getTransactions() {
+        return transactions;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.lotterypatentpending.data;
+
+import com.example.lotterypatentpending.models.Notification;
+import com.example.lotterypatentpending.models.OutboxJob;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * In-memory {@link NotificationOutbox}. Notifications are kept by document id per
+ * user, like {@code users/{uid}/notifications/{id}}, so tests can check that a
+ * resumed drain doesn't notify anyone twice. {@link #failAfter} simulates the app
+ * dying midway through a send, and {@link #release} stands in for the draw's write
+ * that releases its held jobs.
+ */
+public class InMemoryNotificationOutbox implements NotificationOutbox {
+    private final Map<String, OutboxJob> jobs = new LinkedHashMap<>();
+    private final Map<String, Map<String, Notification>> inboxes = new LinkedHashMap<>();
+    private final Map<String, Long> unread = new LinkedHashMap<>();
+    private int chunkWrites = 0;
+    private int failAfter = -1;
+
+    @Override
+    public synchronized CompletableFuture<OutboxJob> enqueue(OutboxJob job) {
+        OutboxJob stored = jobs.get(job.getId());
+        if (stored == null) {
+            stored = copy(job);
+            stored.setCreatedAt(new Date());
+            jobs.put(job.getId(), stored);
+        }
+        return CompletableFuture.completedFuture(copy(stored));
+    }
+
+    @Override
+    public synchronized CompletableFuture<Void> deliverChunk(OutboxJob job, int chunk) {
+        OutboxJob stored = jobs.get(job.getId());
+        if (stored == null) {
+            return failed(new IllegalStateException("no outbox job " + job.getId()));
+        }
+        if (stored.isChunkDone(chunk)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (failAfter == 0) {
+            return failed(new IllegalStateException("offline"));
+        }
+        if (failAfter > 0) failAfter--;
+
+        for (String uid : stored.chunk(chunk)) {
+            Notification n = stored.notificationFor(uid);
+            inboxes.computeIfAbsent(uid, k -> new LinkedHashMap<>()).put(n.getId(), n);
+            if (stored.isCountingUnread()) unread.merge(uid, 1L, Long::sum);
+        }
+        stored.getDoneChunks().add((long) chunk);
+        stored.setRemainingChunks(stored.getRemainingChunks() - 1);
+        chunkWrites++;
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public synchronized CompletableFuture<OutboxJob> load(String jobId) {
+        OutboxJob stored = jobs.get(jobId);
+        return CompletableFuture.completedFuture(stored == null ? null : copy(stored));
+    }
+
+    @Override
+    public synchronized CompletableFuture<List<OutboxJob>> pending(String organizerId) {
+        List<OutboxJob> pending = new ArrayList<>();
+        for (OutboxJob job : jobs.values()) {
+            if (organizerId.equals(job.getOrganizerId()) && job.getRemainingChunks() > 0) pending.add(copy(job));
+        }
+        return CompletableFuture.completedFuture(pending);
+    }
+
+    @Override
+    public synchronized CompletableFuture<List<OutboxJob>> forEvent(String eventId) {
+        List<OutboxJob> list = new ArrayList<>();
+        for (OutboxJob job : jobs.values()) {
+            if (eventId.equals(job.getEventId())) list.add(copy(job));
+        }
+        return CompletableFuture.completedFuture(list);
+    }
+
+    /** Releases every held job in {@code held}, like the batch that saves their draw. */
+    public synchronized void release(Collection<OutboxJob> held) {
+        for (OutboxJob job : held) {
+            OutboxJob stored = jobs.get(job.getId());
+            if (stored != null && stored.isHeld()) stored.release();
+        }
+    }
+
+    /** Lets {@code chunks} more chunks through, then fails every delivery; -1 never fails. */
+    public synchronized void failAfter(int chunks) {
+        this.failAfter = chunks;
+    }
+
+    /** @return the notifications a user received, by document id */
+    public synchronized Map<String, Notification> getInbox(String userId) {
+        return new LinkedHashMap<>(inboxes.getOrDefault(userId, new LinkedHashMap<>()));
+    }
+
+    /** @return the user's unread counter as the deliveries left it */
+    public synchronized long getUnreadCounter(String userId) {
+        return unread.getOrDefault(userId, 0L);
+    }
+
+    /** @return users with at least one notification */
+    public synchronized Set<String> getNotifiedUsers() {
+        return new HashSet<>(inboxes.keySet());
+    }
+
+    /** @return chunks written so far, i.e. batch commits */
+    public synchronized int getChunkWrites() {
+        return chunkWrites;
+    }
+
+    private static OutboxJob copy(OutboxJob job) {
+        OutboxJob c = new OutboxJob(job.getOrganizerId(), job.getEventId(), job.getDrawId(), job.getCategory(),
+                job.getTitle(), job.getBody(), job.getRecipientIds());
+        c.setId(job.getId());
+        c.setDoneChunks(new ArrayList<>(job.getDoneChunks()));
+        c.setChunkSize(job.getChunkSize());
+        c.setRemainingChunks(job.getRemainingChunks());
+        c.setHeld(job.isHeld());
+        c.setCreatedAt(job.getCreatedAt());
+        return c;
+    }
+
+    private static <T> CompletableFuture<T> failed(Exception e) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        f.completeExceptionally(e);
+        return f;
+    }
+}
@@ -0,0 +1,378 @@
+package com.example.lotterypatentpending.data;
+
+import androidx.annotation.Nullable;
+import androidx.core.util.Pair;
+
+import com.example.lotterypatentpending.exceptions.ContentionException;
+import com.example.lotterypatentpending.models.User;
+import com.example.lotterypatentpending.models.WaitingListCounts;
+import com.example.lotterypatentpending.models.WaitingListState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory {@link WaitingListStore} with the same paging and ordering rules as the
+ * Firestore stores. Counts entries read and written so tests can check costs.
+ * <p>
+ * Counter documents are kept by path: {@code events/{eventId}} for the event's own
+ * counters, {@code events/{eventId}/counterShards/{k}} for a sharded event's shards
+ * (see {@link #setCounterShards}), plus any mirror path that was given counters with
+ * {@link #setCounts}.
+ * </p>
+ * <p>
+ * {@link #join} behaves like an optimistic Firestore transaction: it decides on a
+ * snapshot, then commits only if no other write touched the counter document it
+ * read (the event, or its shard) in between. With {@link #simulateLatency} the
+ * commit is delayed, so concurrent joiners really race.
+ * </p>
+ */
+public class InMemoryWaitingListStore implements WaitingListStore {
+    private final Map<String, TreeMap<String, WaitingListState>> events = new HashMap<>();
+    private final Map<String, WaitingListCounts> counters = new HashMap<>();
+    private final Map<String, Long> versions = new HashMap<>();
+    private final Map<String, Integer> capacities = new HashMap<>();
+    private final Map<String, Integer> shardCounts = new HashMap<>();
+    private final Map<String, Map<String, Integer>> entryShards = new HashMap<>();
+    private final Map<String, Set<String>> joinedEventIds = new HashMap<>();
+    private ScheduledExecutorService latencyTimer;
+    private long latencyMillis;
+    private int reads = 0;
+    private int writes = 0;
+    private int joinAttempts = 0;
+    private int conflicts = 0;
+
+    @Override
+    public synchronized CompletableFuture<WaitingListPage> getPage(String eventId,
+                                                                   @Nullable WaitingListState state,
+                                                                   @Nullable String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        TreeMap<String, WaitingListState> entries = events.getOrDefault(eventId, new TreeMap<>());
+        Map<String, WaitingListState> tail = cursor == null ? entries : entries.tailMap(cursor, false);
+
+        List<Pair<User, WaitingListState>> page = new ArrayList<>();
+        String last = null;
+        for (Map.Entry<String, WaitingListState> e : tail.entrySet()) {
+            if (state != null && e.getValue() != state) continue;
+            if (page.size() == pageSize) {
+                return CompletableFuture.completedFuture(new WaitingListPage(page, last));
+            }
+            User u = new User();
+            u.setUserId(e.getKey());
+            page.add(new Pair<>(u, e.getValue()));
+            last = e.getKey();
+            reads++;
+        }
+        return CompletableFuture.completedFuture(new WaitingListPage(page, null));
+    }
+
+    @Override
+    public synchronized CompletableFuture<Void> applyChanges(String eventId,
+                                                             Map<String, WaitingListState> changes) {
+        TreeMap<String, WaitingListState> entries = events.computeIfAbsent(eventId, k -> new TreeMap<>());
+        for (Map.Entry<String, WaitingListState> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                entries.remove(change.getKey());
+            } else {
+                entries.put(change.getKey(), change.getValue());
+            }
+            writes++;
+        }
+        bumpVersion(eventPath(eventId));
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public synchronized CompletableFuture<WaitingListCounts> applyCountedChanges(
+            String eventId, Map<String, WaitingListState> changes, List<String> mirrors) {
+        TreeMap<String, WaitingListState> entries = events.getOrDefault(eventId, new TreeMap<>());
+        int shards = shardCounts.getOrDefault(eventId, 0);
+        Map<String, Integer> pinned = entryShards.computeIfAbsent(eventId, k -> new HashMap<>());
+        WaitingListCounts delta = new WaitingListCounts();
+        for (Map.Entry<String, WaitingListState> change : changes.entrySet()) {
+            WaitingListCounts d = WaitingListCounts.transition(entries.get(change.getKey()), change.getValue());
+            delta.addAll(d);
+            if (CounterShards.isSharded(shards)) {
+                int s = CounterShards.shardOf(pinned.get(change.getKey()), change.getKey(), shards);
+                counterAt(shardPath(eventId, s)).addAll(d);
+                bumpVersion(shardPath(eventId, s));
+                if (change.getValue() == null) pinned.remove(change.getKey());
+                else pinned.put(change.getKey(), s);
+            }
+        }
+        applyChanges(eventId, changes);
+        if (CounterShards.isSharded(shards)) {
+            rollUp(eventId, shards, mirrors);
+            return CompletableFuture.completedFuture(delta);
+        }
+        counterAt(eventPath(eventId)).addAll(delta);
+        for (String mirror : mirrors) {
+            WaitingListCounts c = counters.get(mirror);
+            if (c != null) c.addAll(delta);
+        }
+        return CompletableFuture.completedFuture(delta);
+    }
+
+    /** Overwrites the event's and existing mirrors' counters with the sum of the shards. */
+    private int rollUp(String eventId, int shards, List<String> mirrors) {
+        List<WaitingListCounts> parts = new ArrayList<>();
+        for (int k = 0; k < shards; k++) {
+            parts.add(counters.get(shardPath(eventId, k)));
+        }
+        return repair(eventId, mirrors, CounterShards.sum(parts));
+    }
+
+    private int repair(String eventId, List<String> mirrors, WaitingListCounts actual) {
+        int repaired = 0;
+        if (!actual.equals(counters.get(eventPath(eventId)))) {
+            counters.put(eventPath(eventId), copy(actual));
+            repaired++;
+        }
+        for (String mirror : mirrors) {
+            if (counters.containsKey(mirror) && !actual.equals(counters.get(mirror))) {
+                counters.put(mirror, copy(actual));
+                repaired++;
+            }
+        }
+        return repaired;
+    }
+
+    private WaitingListCounts counterAt(String path) {
+        return counters.computeIfAbsent(path, k -> new WaitingListCounts());
+    }
+
+    @Override
+    public synchronized CompletableFuture<Integer> reconcileCounts(String eventId, List<String> mirrors) {
+        int shards = shardCounts.getOrDefault(eventId, 0);
+        boolean sharded = CounterShards.isSharded(shards);
+        Map<String, Integer> pinned = entryShards.getOrDefault(eventId, Collections.emptyMap());
+        WaitingListCounts[] actual = new WaitingListCounts[sharded ? shards : 1];
+        for (int k = 0; k < actual.length; k++) {
+            actual[k] = new WaitingListCounts();
+        }
+        for (Map.Entry<String, WaitingListState> e : events.getOrDefault(eventId, new TreeMap<>()).entrySet()) {
+            int k = sharded ? CounterShards.shardOf(pinned.get(e.getKey()), e.getKey(), shards) : 0;
+            actual[k].add(e.getValue(), 1);
+            reads++;
+        }
+
+        int repaired = repair(eventId, mirrors, CounterShards.sum(Arrays.asList(actual)));
+        if (sharded) {
+            for (int k = 0; k < shards; k++) {
+                if (!actual[k].equals(counters.get(shardPath(eventId, k)))) {
+                    counters.put(shardPath(eventId, k), copy(actual[k]));
+                    repaired++;
+                }
+            }
+        }
+        return CompletableFuture.completedFuture(repaired);
+    }
+
+    @Override
+    public synchronized CompletableFuture<WaitingListCounts> readCounts(String eventId, int shards) {
+        if (!CounterShards.isSharded(shards)) {
+            WaitingListCounts c = counters.get(eventPath(eventId));
+            return CompletableFuture.completedFuture(c == null ? new WaitingListCounts() : copy(c));
+        }
+        List<WaitingListCounts> parts = new ArrayList<>();
+        for (int k = 0; k < shards; k++) {
+            parts.add(counters.get(shardPath(eventId, k)));
+        }
+        return CompletableFuture.completedFuture(CounterShards.sum(parts));
+    }
+
+    @Override
+    public CompletableFuture<JoinResult> join(String eventId, String userId, List<String> mirrors) {
+        return joinFrom(eventId, userId, mirrors, 0);
+    }
+
+    /** Mirrors the Firestore stores: a full shard hands the joiner over to the next one. */
+    private CompletableFuture<JoinResult> joinFrom(String eventId, String userId, List<String> mirrors,
+                                                   int offset) {
+        String counterPath;
+        int shard = -1;
+        long readVersion;
+        JoinResult result;
+        synchronized (this) {
+            joinAttempts++;
+            reads++;
+            TreeMap<String, WaitingListState> entries = events.getOrDefault(eventId, new TreeMap<>());
+            int capacity = capacities.getOrDefault(eventId, -1);
+            int shards = shardCounts.getOrDefault(eventId, 0);
+            if (CounterShards.isSharded(shards)) {
+                shard = (CounterShards.home(userId, shards) + offset) % shards;
+                counterPath = shardPath(eventId, shard);
+                WaitingListCounts counts = counters.get(counterPath);
+                result = WaitingListStore.decideJoin(entries.get(userId), counts == null ? 0 : counts.getTotal(),
+                        CounterShards.quota(capacity, shards, shard));
+                if (result == JoinResult.FULL && offset + 1 < shards) {
+                    result = null;
+                }
+            } else {
+                counterPath = eventPath(eventId);
+                result = WaitingListStore.decideJoin(entries.get(userId), entries.size(), capacity);
+            }
+            readVersion = versions.getOrDefault(counterPath, 0L);
+        }
+        if (result == null) {
+            return joinFrom(eventId, userId, mirrors, offset + 1);
+        }
+        if (result != JoinResult.JOINED) {
+            return CompletableFuture.completedFuture(result);
+        }
+
+        int chosenShard = shard;
+        CompletableFuture<JoinResult> future = new CompletableFuture<>();
+        Runnable commit = () -> {
+            try {
+                future.complete(commitJoin(eventId, userId, mirrors, counterPath, chosenShard, readVersion));
+            } catch (ContentionException e) {
+                future.completeExceptionally(e);
+            }
+        };
+        ScheduledExecutorService timer;
+        synchronized (this) {
+            timer = latencyTimer;
+        }
+        if (timer == null) {
+            commit.run();
+        } else {
+            timer.schedule(commit, latencyMillis, TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    private synchronized JoinResult commitJoin(String eventId, String userId, List<String> mirrors,
+                                               String counterPath, int shard, long readVersion) {
+        boolean entryChanged = events.getOrDefault(eventId, new TreeMap<>()).containsKey(userId);
+        if (versions.getOrDefault(counterPath, 0L) != readVersion || entryChanged) {
+            conflicts++;
+            throw new ContentionException(counterPath + " changed since it was read");
+        }
+        Map<String, WaitingListState> change = Collections.singletonMap(userId, WaitingListState.ENTERED);
+        if (shard < 0) {
+            applyCountedChanges(eventId, change, mirrors);
+        } else {
+            // the joiner's shard only; the event and mirrors wait for the next roll-up
+            applyChanges(eventId, change);
+            entryShards.computeIfAbsent(eventId, k -> new HashMap<>()).put(userId, shard);
+            counterAt(counterPath).add(WaitingListState.ENTERED, 1);
+            bumpVersion(counterPath);
+        }
+        joinedEventIds.computeIfAbsent(userId, k -> new HashSet<>()).add(eventId);
+        return JoinResult.JOINED;
+    }
+
+    private void bumpVersion(String path) {
+        versions.merge(path, 1L, Long::sum);
+    }
+
+    private static String eventPath(String eventId) {
+        return "events/" + eventId;
+    }
+
+    private static String shardPath(String eventId, int shard) {
+        return eventPath(eventId) + "/" + CounterShards.COLLECTION + "/" + shard;
+    }
+
+    private static WaitingListCounts copy(WaitingListCounts c) {
+        WaitingListCounts out = new WaitingListCounts();
+        out.addAll(c);
+        return out;
+    }
+
+    /**
+     * @param path {@code events/{eventId}} or a mirror path
+     * @return the counters stored at {@code path}, or null if it has none
+     */
+    public synchronized WaitingListCounts getCounts(String path) {
+        WaitingListCounts c = counters.get(path);
+        return c == null ? null : copy(c);
+    }
+
+    /** Overwrites the counters at {@code path}, e.g. to create a mirror or simulate drift. */
+    public synchronized void setCounts(String path, WaitingListCounts counts) {
+        counters.put(path, copy(counts));
+    }
+
+    @Override
+    public synchronized CompletableFuture<Void> clear(String eventId) {
+        TreeMap<String, WaitingListState> removed = events.remove(eventId);
+        if (removed != null) {
+            writes += removed.size();
+        }
+        entryShards.remove(eventId);
+        bumpVersion(eventPath(eventId));
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public synchronized CompletableFuture<Map<String, WaitingListState>> getStatesForUser(String userId) {
+        Map<String, WaitingListState> states = new HashMap<>();
+        for (Map.Entry<String, TreeMap<String, WaitingListState>> event : events.entrySet()) {
+            WaitingListState s = event.getValue().get(userId);
+            if (s != null) {
+                states.put(event.getKey(), s);
+                reads++;
+            }
+        }
+        return CompletableFuture.completedFuture(states);
+    }
+
+    /**
+     * Sets the event's {@link CounterShards#FIELD}. Like the Firestore store, counts
+     * already kept elsewhere only move into the shards on the next {@link #reconcileCounts}.
+     */
+    public synchronized void setCounterShards(String eventId, int shards) {
+        shardCounts.put(eventId, shards);
+    }
+
+    /** Sets the cap {@link #join} enforces for an event; -1 for no limit (the default). */
+    public synchronized void setWaitingListCapacity(String eventId, int capacity) {
+        capacities.put(eventId, capacity);
+    }
+
+    /**
+     * Delays every join commit by {@code millis} on {@code timer}, widening the window
+     * in which concurrent joins conflict.
+     */
+    public synchronized void simulateLatency(ScheduledExecutorService timer, long millis) {
+        this.latencyTimer = timer;
+        this.latencyMillis = millis;
+    }
+
+    /** @return events the user joined through {@link #join}, i.e. their joined and past events */
+    public synchronized Set<String> getJoinedEventIds(String userId) {
+        return new HashSet<>(joinedEventIds.getOrDefault(userId, Collections.emptySet()));
+    }
+
+    /** @return number of join attempts so far, retries included */
+    public synchronized int getJoinAttemptCount() {
+        return joinAttempts;
+    }
+
+    /** @return number of join attempts that lost a race and were rejected */
+    public synchronized int getConflictCount() {
+        return conflicts;
+    }
+
+    /** @return number of entries returned by reads so far */
+    public synchronized int getReadCount() {
+        return reads;
+    }
+
+    /** @return number of entries written or deleted so far */
+    public synchronized int getWriteCount() {
+        return writes;
+    }
+}
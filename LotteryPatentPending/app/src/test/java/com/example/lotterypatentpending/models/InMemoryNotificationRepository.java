@@ -0,0 +1,280 @@
+package com.example.lotterypatentpending.models;
+
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-memory {@link NotificationRepository} that counts what the same calls cost in
+ * Firestore: documents read, documents written and commits (round-trips), so
+ * tests can check costs. Marking many reads each document in transactions of
+ * {@link #MARK_READ_CHUNK_SIZE} ids, like the Firestore one. Keeps a per-user
+ * unread counter that is changed in the same writes as the Firestore one;
+ * {@link #setUnreadCounter} simulates drift.
+ * Listeners are called right away and after every change.
+ */
+public class InMemoryNotificationRepository implements NotificationRepository {
+    private final Map<String, LinkedHashMap<String, Notification>> inboxes = new HashMap<>();
+    private final Map<String, List<Runnable>> listeners = new HashMap<>();
+    private final Map<String, Integer> unreadCounters = new HashMap<>();
+    private long clock = 0;
+    private int reads = 0;
+    private int writes = 0;
+    private int commits = 0;
+
+    @Override
+    public CompletableFuture<Void> add(Notification n) {
+        synchronized (this) {
+            store(n);
+            writes++;
+            commits++;
+            if (!n.isRead()) {
+                bumpUnread(n.getUserId(), 1);
+                writes++;
+            }
+        }
+        fire(n.getUserId());
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<BulkWriteResult> addAll(List<Notification> notifications) {
+        List<String> users = new ArrayList<>();
+        synchronized (this) {
+            for (Notification n : notifications) {
+                store(n);
+                if (!users.contains(n.getUserId())) users.add(n.getUserId());
+            }
+            writes += notifications.size();
+            // batches like FirestoreNotificationRepository#addAll: half a batch of
+            // notifications, plus one counter write per recipient with unread ones
+            int chunk = ChunkedWriter.MAX_BATCH_OPS / 2;
+            for (int i = 0; i < notifications.size(); i += chunk) {
+                Map<String, Integer> perUser = new HashMap<>();
+                for (Notification n : notifications.subList(i, Math.min(i + chunk, notifications.size()))) {
+                    if (!n.isRead()) perUser.merge(n.getUserId(), 1, Integer::sum);
+                }
+                perUser.forEach(this::bumpUnread);
+                writes += perUser.size();
+                commits++;
+            }
+        }
+        for (String uid : users) fire(uid);
+        List<String> ok = new ArrayList<>();
+        for (Notification n : notifications) ok.add(n.getUserId());
+        return CompletableFuture.completedFuture(new BulkWriteResult(ok, new LinkedHashMap<>()));
+    }
+
+    @Override
+    public CompletableFuture<Void> markRead(String userId, String notificationId) {
+        if (notificationId == null) return CompletableFuture.completedFuture(null);
+        boolean changed;
+        synchronized (this) {
+            reads++;
+            commits++;
+            // like the transaction, only an unread notification is written and counted
+            changed = setRead(userId, notificationId);
+            if (changed) {
+                writes += 2;
+                bumpUnread(userId, -1);
+            }
+        }
+        if (changed) fire(userId);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<BulkWriteResult> markRead(String userId, Collection<String> notificationIds) {
+        List<String> ids = new ArrayList<>();
+        for (String id : notificationIds) if (id != null) ids.add(id);
+        return ChunkedWriter.write(ids, MARK_READ_CHUNK_SIZE, 1, id -> id, chunk -> {
+            int marked = 0;
+            synchronized (this) {
+                reads += chunk.size();
+                commits++;
+                for (String id : chunk) {
+                    if (!inbox(userId).containsKey(id)) {
+                        // like the transaction, a missing document fails the whole chunk
+                        CompletableFuture<Void> f = new CompletableFuture<>();
+                        f.completeExceptionally(new IllegalStateException("NOT_FOUND " + id));
+                        return f;
+                    }
+                }
+                for (String id : chunk) if (setRead(userId, id)) marked++;
+                if (marked > 0) {
+                    writes += marked + 1;
+                    bumpUnread(userId, -marked);
+                }
+            }
+            if (marked > 0) fire(userId);
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Integer> markAllRead(String userId) {
+        List<String> unread = new ArrayList<>();
+        synchronized (this) {
+            for (Notification n : inbox(userId).values()) {
+                if (!n.isRead()) unread.add(n.getId());
+            }
+            reads += Math.max(1, unread.size());   // an empty query still costs one read
+            commits++;
+        }
+        return markRead(userId, unread).thenApply(r -> r.getSucceeded().size());
+    }
+
+    @Override
+    public CompletableFuture<List<Notification>> getForUser(String userId) {
+        synchronized (this) {
+            List<Notification> all = newestFirst(userId);
+            reads += Math.max(1, all.size());
+            commits++;
+            return CompletableFuture.completedFuture(all);
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> createForUser(String userId, Notification notification) {
+        notification.setUserId(userId);
+        add(notification);
+        return CompletableFuture.completedFuture(notification.getId());
+    }
+
+    @Override
+    public ListenerRegistration listenUnreadCount(String userId, Consumer<Integer> onCount,
+                                                  Consumer<Exception> onError) {
+        return listen(userId, () -> {
+            int unread;
+            synchronized (this) {
+                unread = Math.max(0, getUnreadCounter(userId));
+                reads++;   // one counter document per update
+            }
+            onCount.accept(unread);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Integer> reconcileUnreadCount(String userId) {
+        boolean repaired;
+        int unread = 0;
+        synchronized (this) {
+            for (Notification n : inbox(userId).values()) {
+                if (!n.isRead()) unread++;
+            }
+            reads += 1 + Math.max(1, (unread + 999) / 1000);   // counter, then count aggregation
+            commits += 2;
+            repaired = getUnreadCounter(userId) != unread;
+            if (repaired) {
+                unreadCounters.put(userId, unread);
+                writes++;
+            }
+        }
+        if (repaired) fire(userId);
+        return CompletableFuture.completedFuture(unread);
+    }
+
+    /** @return the stored unread counter, which may have drifted from the real count */
+    public synchronized int getUnreadCounter(String userId) {
+        Integer c = unreadCounters.get(userId);
+        return c == null ? 0 : c;
+    }
+
+    /** Overwrites the stored unread counter, e.g. to simulate a counter that drifted. */
+    public synchronized void setUnreadCounter(String userId, int value) {
+        unreadCounters.put(userId, value);
+    }
+
+    @Override
+    public ListenerRegistration listenUserNotifications(String userId, NotificationsListener listener) {
+        return listen(userId, () -> {
+            List<Notification> all;
+            synchronized (this) {
+                all = newestFirst(userId);
+            }
+            listener.onChanged(all);
+        });
+    }
+
+    public synchronized int getReadCount() {
+        return reads;
+    }
+
+    public synchronized int getWriteCount() {
+        return writes;
+    }
+
+    /** @return round-trips: queries, single writes and batch commits */
+    public synchronized int getCommitCount() {
+        return commits;
+    }
+
+    /** @return listeners currently attached, across all users */
+    public synchronized int getListenerCount() {
+        int n = 0;
+        for (List<Runnable> list : listeners.values()) n += list.size();
+        return n;
+    }
+
+    public synchronized void resetCounts() {
+        reads = 0;
+        writes = 0;
+        commits = 0;
+    }
+
+    private ListenerRegistration listen(String userId, Runnable onChange) {
+        List<Runnable> list;
+        synchronized (this) {
+            list = listeners.computeIfAbsent(userId, k -> new CopyOnWriteArrayList<>());
+        }
+        list.add(onChange);
+        onChange.run();
+        return () -> list.remove(onChange);
+    }
+
+    private void fire(String userId) {
+        List<Runnable> list;
+        synchronized (this) {
+            list = listeners.get(userId);
+        }
+        if (list == null) return;
+        for (Runnable r : list) r.run();
+    }
+
+    private void store(Notification n) {
+        if (n.getId() == null) n.setId(UUID.randomUUID().toString());
+        if (n.getCreatedAt() == null) n.setCreatedAt(new Date(++clock));
+        inbox(n.getUserId()).put(n.getId(), n);
+    }
+
+    private void bumpUnread(String userId, int delta) {
+        unreadCounters.merge(userId, delta, Integer::sum);
+    }
+
+    private boolean setRead(String userId, String id) {
+        Notification n = inbox(userId).get(id);
+        if (n == null || n.isRead()) return false;
+        n.setRead(true);
+        return true;
+    }
+
+    private LinkedHashMap<String, Notification> inbox(String userId) {
+        return inboxes.computeIfAbsent(userId, k -> new LinkedHashMap<>());
+    }
+
+    private List<Notification> newestFirst(String userId) {
+        List<Notification> all = new ArrayList<>(inbox(userId).values());
+        all.sort((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()));
+        return all;
+    }
+}